@@ -2,8 +2,10 @@ package ar.edu.utn.tfi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "ar.edu.utn.tfi")
+@EnableScheduling
 public class TfiApplication {
 
 	public static void main(String[] args) {
@@ -1,35 +0,0 @@
-package ar.edu.utn.tfi.domain;
-
-import jakarta.persistence.*;
-import lombok.Data;
-import java.time.LocalDateTime;
-
-@Data
-@Entity
-@Table(name = "auditoria_cambio")
-public class AuditoriaCambio {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
-    @Column(name = "orden_id", nullable = false)
-    private Long ordenId;
-
-    @Column(nullable = false)
-    private String campo;                // p.ej. "estado_actual" | "demora" | "observacion"
-
-    @Column(name = "valor_anterior")
-    private String valorAnterior;
-
-    @Column(name = "valor_nuevo")
-    private String valorNuevo;
-
-    private String usuario;
-
-    private LocalDateTime fecha;
-
-    @PrePersist
-    void prePersist() {
-        if (fecha == null) fecha = LocalDateTime.now();
-    }
-}
\ No newline at end of file
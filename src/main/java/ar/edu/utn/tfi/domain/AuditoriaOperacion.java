@@ -0,0 +1,44 @@
+package ar.edu.utn.tfi.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Una operación de negocio auditada sobre una OT (tabla auditoria_operacion): quién, cuándo, en qué
+ * request (correlación) y los campos que cambió, cada uno con su valor anterior y nuevo.
+ * {@code id} es null hasta que se escribe.
+ */
+public record AuditoriaOperacion(
+        Long id,
+        Long ordenId,
+        String operacion,
+        String usuario,
+        String correlacion,
+        LocalDateTime fecha,
+        Map<String, Cambio> cambios
+) {
+    /**
+     * Valor anterior y nuevo de un campo. Si el campo cambió más de una vez dentro de la operación (sólo
+     * en lo plegado de auditoria_cambio por V42), {@code pasos} tiene cada cambio en orden y anterior /
+     * nuevo son el del primero y el del último; si no, está vacío.
+     */
+    public record Cambio(String anterior, String nuevo,
+                         @JsonInclude(JsonInclude.Include.NON_EMPTY) List<Cambio> pasos) {
+        public Cambio {
+            pasos = pasos == null ? List.of() : List.copyOf(pasos);
+        }
+
+        public Cambio(String anterior, String nuevo) {
+            this(anterior, nuevo, List.of());
+        }
+
+        /** Cambio con varios pasos: anterior del primero, nuevo del último. */
+        public static Cambio enPasos(List<Cambio> pasos) {
+            if (pasos.size() == 1) return pasos.get(0);
+            return new Cambio(pasos.get(0).anterior(), pasos.get(pasos.size() - 1).nuevo(), pasos);
+        }
+    }
+}
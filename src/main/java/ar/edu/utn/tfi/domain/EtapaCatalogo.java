@@ -12,10 +12,15 @@ public class EtapaCatalogo {
 
     private Integer orden;   // orden secuencial (1,2,3,...)
 
+    private String acciones; // acciones permitidas en la etapa, separadas por coma (MaquinaEtapas.Accion)
+
     // --- getters/setters ---
     public String getCodigo() { return codigo; }
     public void setCodigo(String codigo) { this.codigo = codigo; }
 
     public Integer getOrden() { return orden; }
     public void setOrden(Integer orden) { this.orden = orden; }
+
+    public String getAcciones() { return acciones; }
+    public void setAcciones(String acciones) { this.acciones = acciones; }
 }
@@ -1,5 +1,6 @@
 package ar.edu.utn.tfi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -38,4 +39,13 @@ public class FacturaMock {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
-}
\ No newline at end of file
+
+    // PDF guardado en FacturaPdfStore (null = todavía no se renderizó)
+    @JsonIgnore
+    @Column(name = "pdf_hash", length = 64)
+    private String pdfHash;
+
+    @JsonIgnore
+    @Column(name = "pdf_plantilla")
+    private Integer pdfPlantilla;
+}
@@ -0,0 +1,46 @@
+package ar.edu.utn.tfi.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Fila del libro de pagos (append-only): una seña o un pago final acreditado. */
+@Entity
+@Table(name = "movimiento_pago")
+@Getter
+@Setter
+@NoArgsConstructor
+public class MovimientoPago {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "presupuesto_id", nullable = false)
+    private Long presupuestoId;
+
+    @Column(name = "tipo", nullable = false, length = 10)
+    private String tipo;             // SENA / FINAL
+
+    @Column(name = "monto", nullable = false, precision = 12, scale = 2)
+    private BigDecimal monto;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;     // fecha de acreditación
+
+    @Column(name = "origen", nullable = false, length = 20)
+    private String origen;           // MERCADO_PAGO / MANUAL
+
+    @Column(name = "medio", length = 30)
+    private String medio;
+
+    @Column(name = "referencia", length = 100)
+    private String referencia;
+
+    @Column(name = "creado_en", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime creadoEn;
+}
@@ -34,6 +34,16 @@ public class MpEventLog {
     @Column(name = "error_msg")
     private String errorMsg;
 
+    // ─── Cola de procesamiento ───
+    @Column(name = "retry_count", nullable = false)
+    private Integer retryCount = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
     public MpEventLog(String requestId, String topic, String dataId) {
         this.requestId = requestId;
         this.topic = topic;
@@ -0,0 +1,59 @@
+package ar.edu.utn.tfi.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notificacion_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+public class NotificacionOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "canal", nullable = false, length = 20)
+    private String canal;            // WHATSAPP / EMAIL
+
+    @Column(name = "destino", length = 200)
+    private String destino;          // teléfono o email
+
+    @Column(name = "asunto", length = 200)
+    private String asunto;           // solo EMAIL
+
+    @Column(name = "cuerpo", nullable = false, columnDefinition = "TEXT")
+    private String cuerpo;
+
+    @Column(name = "notificacion_id")
+    private Long notificacionId;     // fila de notification a actualizar al entregar (opcional)
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = "PENDIENTE";   // PENDIENTE / ENVIADO / DEAD
+
+    @Column(name = "intentos", nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    @Column(name = "enviado_en")
+    private LocalDateTime enviadoEn;
+
+    @PrePersist
+    public void prePersist() {
+        if (creadoEn == null) creadoEn = LocalDateTime.now();
+        if (proximoIntento == null) proximoIntento = creadoEn;
+    }
+}
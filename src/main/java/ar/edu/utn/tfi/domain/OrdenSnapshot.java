@@ -0,0 +1,15 @@
+package ar.edu.utn.tfi.domain;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Checkpoint del estado de una OT (tabla orden_snapshot): los campos auditados tal como quedaron después
+ * de la operación (hastaFecha, hastaId) de auditoria_operacion.
+ */
+public record OrdenSnapshot(
+        long ordenId,
+        LocalDateTime hastaFecha,
+        long hastaId,
+        Map<String, String> estado
+) {}
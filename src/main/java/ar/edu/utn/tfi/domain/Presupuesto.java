@@ -90,6 +90,10 @@ public class Presupuesto {
     @Column(name = "ot_nro_orden", unique = true)
     private String otNroOrden;
 
+    // Versión del catálogo de tarifas con la que se calcularon los ítems (null: anteriores a V44)
+    @Column(name = "tarifa_version")
+    private Long tarifaVersion;
+
     // ─────────────────────────────────────────────────────────────────────────
 
     @PrePersist
@@ -0,0 +1,13 @@
+package ar.edu.utn.tfi.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Tarifa vigente de un servicio para un tipo de vehículo (fila de servicio_tarifa) tal como la tiene el
+ * catálogo en memoria. Inmutable, a diferencia de la entidad {@link ServicioTarifa}.
+ */
+public record Tarifa(
+        String vehiculoTipo,
+        String nombreServicio,
+        BigDecimal precio
+) {}
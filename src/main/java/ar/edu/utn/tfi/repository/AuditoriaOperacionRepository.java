@@ -0,0 +1,197 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auditoría por operación (V42). El diff se guarda compacto, {"campo": [anterior, nuevo]}, y se
+ * convierte acá a {@link Cambio}; un campo con varios cambios en la misma operación (plegado de V42)
+ * es una lista de pares, {"campo": [[anterior, nuevo], ...]}. El alta es por lotes (JDBC batch, un commit por lote) y la lectura
+ * por páginas keyset sobre el índice (orden_id, fecha DESC, id DESC), hacia atrás para el listado y
+ * hacia adelante para reconstruir el estado a una fecha.
+ */
+@Repository
+public class AuditoriaOperacionRepository {
+
+    static final String INSERT = """
+            INSERT INTO auditoria_operacion (orden_id, operacion, usuario, correlacion, fecha, cambios)
+            VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb))
+            """;
+
+    // Una operación que llega tarde (spool) con fecha anterior a un checkpoint de su OT lo deja viejo
+    static final String INVALIDAR_SNAPSHOTS = "DELETE FROM orden_snapshot WHERE orden_id = ? AND hasta_fecha >= ?";
+
+    static final String COLUMNAS = "SELECT id, orden_id, operacion, usuario, correlacion, fecha, cambios::text FROM auditoria_operacion ";
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public AuditoriaOperacionRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Inserta el lote completo o nada (una transacción). */
+    @Transactional
+    public void insertar(List<AuditoriaOperacion> lote) {
+        if (lote.isEmpty()) return;
+        jdbc.batchUpdate(INSERT, lote, lote.size(), (ps, a) -> {
+            ps.setLong(1, a.ordenId());
+            ps.setString(2, a.operacion());
+            ps.setString(3, a.usuario());
+            ps.setString(4, a.correlacion());
+            ps.setTimestamp(5, Timestamp.valueOf(a.fecha()));
+            ps.setString(6, json(a.cambios()));
+        });
+        jdbc.batchUpdate(INVALIDAR_SNAPSHOTS, lote, lote.size(), (ps, a) -> {
+            ps.setLong(1, a.ordenId());
+            ps.setTimestamp(2, Timestamp.valueOf(a.fecha()));
+        });
+    }
+
+    /**
+     * Operaciones de la OT de la más nueva a la más vieja, anteriores a la clave dada (keyset).
+     * Primera página: {@code antesFecha = null}.
+     */
+    public List<AuditoriaOperacion> pagina(long ordenId, LocalDateTime antesFecha, long antesId, int limite) {
+        if (antesFecha == null) {
+            return jdbc.query(COLUMNAS + """
+                    WHERE orden_id = ?
+                    ORDER BY fecha DESC, id DESC
+                    LIMIT ?
+                    """, this::fila, ordenId, limite);
+        }
+        return jdbc.query(COLUMNAS + """
+                WHERE orden_id = ?
+                  AND (fecha, id) < (?, ?)
+                ORDER BY fecha DESC, id DESC
+                LIMIT ?
+                """, this::fila, ordenId, Timestamp.valueOf(antesFecha), antesId, limite);
+    }
+
+    /**
+     * Operaciones de la OT en orden cronológico, posteriores a la clave dada y anteriores a {@code hasta} (exclusivo).
+     * Desde el principio: {@code desdeFecha = null}.
+     */
+    public List<AuditoriaOperacion> posteriores(long ordenId, LocalDateTime desdeFecha, long desdeId,
+                                                LocalDateTime hasta, int limite) {
+        if (desdeFecha == null) {
+            return jdbc.query(COLUMNAS + """
+                    WHERE orden_id = ? AND fecha < ?
+                    ORDER BY fecha, id
+                    LIMIT ?
+                    """, this::fila, ordenId, Timestamp.valueOf(hasta), limite);
+        }
+        return jdbc.query(COLUMNAS + """
+                WHERE orden_id = ?
+                  AND (fecha, id) > (?, ?)
+                  AND fecha < ?
+                ORDER BY fecha, id
+                LIMIT ?
+                """, this::fila, ordenId, Timestamp.valueOf(desdeFecha), desdeId, Timestamp.valueOf(hasta), limite);
+    }
+
+    /**
+     * Valor anterior del primer cambio de {@code campo} en la OT: lo que valía antes de que se auditara.
+     * Vacía si el campo nunca cambió (el valor puede ser null: se devuelve como lista de un elemento).
+     */
+    public List<String> primerAnterior(long ordenId, String campo) {
+        return jdbc.queryForList("""
+                SELECT CASE WHEN jsonb_typeof(cambios -> ? -> 0) = 'array'
+                            THEN cambios -> ? -> 0 ->> 0
+                            ELSE cambios -> ? ->> 0
+                       END
+                FROM auditoria_operacion
+                WHERE orden_id = ? AND cambios -> ? IS NOT NULL
+                ORDER BY fecha, id
+                LIMIT 1
+                """, String.class, campo, campo, campo, ordenId, campo);
+    }
+
+    /**
+     * OTs con operaciones de id mayor a {@code desdeId} y fecha anterior a {@code hasta}, con el mayor id de
+     * cada una, de a {@code limite} empezando por las de menor id (el job de checkpoints avanza así).
+     */
+    public Map<Long, Long> tocadas(long desdeId, LocalDateTime hasta, int limite) {
+        Map<Long, Long> ordenes = new LinkedHashMap<>();
+        jdbc.query("""
+                SELECT orden_id, MAX(id) AS ultimo
+                FROM auditoria_operacion
+                WHERE id > ? AND fecha < ?
+                GROUP BY orden_id
+                ORDER BY ultimo
+                LIMIT ?
+                """, rs -> {
+            ordenes.put(rs.getLong(1), rs.getLong(2));
+        }, desdeId, Timestamp.valueOf(hasta), limite);
+        return ordenes;
+    }
+
+    private AuditoriaOperacion fila(ResultSet rs, int i) throws SQLException {
+        return new AuditoriaOperacion(
+                rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getTimestamp(6).toLocalDateTime(), cambios(rs.getString(7)));
+    }
+
+    // ─── diff JSONB ───
+
+    String json(Map<String, Cambio> cambios) {
+        ObjectNode o = mapper.createObjectNode();
+        cambios.forEach((campo, c) -> {
+            if (c.pasos().isEmpty()) {
+                o.putArray(campo).add(c.anterior()).add(c.nuevo());
+            } else {
+                ArrayNode pasos = o.putArray(campo);
+                c.pasos().forEach(p -> pasos.addArray().add(p.anterior()).add(p.nuevo()));
+            }
+        });
+        try {
+            return mapper.writeValueAsString(o);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el diff de auditoría", e);
+        }
+    }
+
+    Map<String, Cambio> cambios(String json) {
+        JsonNode o;
+        try {
+            o = mapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Diff de auditoría ilegible: " + json, e);
+        }
+        Map<String, Cambio> cambios = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = o.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            cambios.put(e.getKey(), cambio(e.getValue()));
+        }
+        return cambios;
+    }
+
+    private static Cambio cambio(JsonNode par) {
+        if (!par.path(0).isArray()) return new Cambio(texto(par.get(0)), texto(par.get(1)));
+        List<Cambio> pasos = new ArrayList<>(par.size());
+        for (JsonNode p : par) pasos.add(cambio(p));
+        return Cambio.enPasos(pasos);
+    }
+
+    private static String texto(JsonNode n) {
+        return n == null || n.isNull() ? null : n.asText();
+    }
+}
@@ -0,0 +1,102 @@
+package ar.edu.utn.tfi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Consultas fila a fila para las exportaciones grandes (todas las órdenes, todos los pagos, las facturas de un período).
+ * No arma listas: recorre el ResultSet con fetch size acotado y entrega cada fila al consumidor.
+ * En PostgreSQL el cursor solo se usa dentro de una transacción (autocommit apagado): los recorridos
+ * abren la suya (readOnly) y la cierran al terminar, así el llamador puede escribir el resultado a un
+ * cliente lento sin retener la conexión.
+ */
+@Repository
+public class ExportFilasRepository {
+
+    static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbc;
+
+    public ExportFilasRepository(DataSource dataSource) {
+        // JdbcTemplate propio para no cambiar el fetch size del compartido
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(FETCH_SIZE);
+    }
+
+    /** nro_orden, creada_en, tipo, cliente, teléfono, estado_actual — por fecha de alta. */
+    @Transactional(readOnly = true)
+    public void ordenesEntre(LocalDateTime desde, LocalDateTime hasta, Consumer<Object[]> fila) {
+        jdbc.query("""
+                SELECT ot.nro_orden, ot.creada_en, ut.tipo, c.nombre, c.telefono, ot.estado_actual
+                FROM orden_trabajo ot
+                JOIN unidad_trabajo ut ON ut.id = ot.unidad_id
+                LEFT JOIN cliente c    ON c.id = ut.cliente_id
+                WHERE ot.creada_en >= ? AND ot.creada_en < ?
+                ORDER BY ot.creada_en, ot.id
+                """,
+                rs -> {
+                    fila.accept(new Object[]{
+                            rs.getString(1), fecha(rs, 2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6)
+                    });
+                },
+                Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+    }
+
+    /** fecha, tipo (SENA|FINAL), origen (MERCADO_PAGO|MANUAL), medio, monto, presupuesto_id, referencia. */
+    @Transactional(readOnly = true)
+    public void pagosEntre(LocalDateTime desde, LocalDateTime hasta, Consumer<Object[]> fila) {
+        jdbc.query("""
+                SELECT m.fecha, m.tipo, m.origen, m.medio, m.monto, m.presupuesto_id, m.referencia
+                FROM   movimiento_pago m
+                WHERE  m.fecha >= ? AND m.fecha < ?
+                ORDER BY m.fecha, m.id
+                """,
+                rs -> {
+                    fila.accept(new Object[]{
+                            fecha(rs, 1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rs.getBigDecimal(5), rs.getObject(6, Long.class), rs.getString(7)
+                    });
+                },
+                Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+    }
+
+    /** Factura a incluir en un export de PDFs: clave de paginado (fecha_emision, id) y referencia al PDF guardado. */
+    public record FacturaArchivo(long id, String numero, LocalDateTime fechaEmision, String pdfHash, Integer pdfPlantilla) {}
+
+    /**
+     * Una página de facturas emitidas en el rango, ordenadas por (fecha_emision, id) y posteriores a la clave dada
+     * (keyset). Cada página es una consulta corta: el llamador puede tardar entre páginas sin retener el cursor.
+     * Primera página: {@code despuesFecha = desde}, {@code despuesId = 0}.
+     */
+    public List<FacturaArchivo> facturasPagina(LocalDateTime desde, LocalDateTime hasta,
+                                               LocalDateTime despuesFecha, long despuesId, int limite) {
+        return jdbc.query("""
+                SELECT f.id, f.numero, f.fecha_emision, f.pdf_hash, f.pdf_plantilla
+                FROM   factura_mock f
+                WHERE  f.fecha_emision >= ? AND f.fecha_emision < ?
+                  AND  (f.fecha_emision, f.id) > (?, ?)
+                ORDER BY f.fecha_emision, f.id
+                LIMIT ?
+                """,
+                (rs, i) -> new FacturaArchivo(
+                        rs.getLong(1), rs.getString(2), fecha(rs, 3), rs.getString(4),
+                        rs.getObject(5, Integer.class)),
+                Timestamp.valueOf(desde), Timestamp.valueOf(hasta),
+                Timestamp.valueOf(despuesFecha), despuesId, limite);
+    }
+
+    private static LocalDateTime fecha(ResultSet rs, int col) throws SQLException {
+        Timestamp ts = rs.getTimestamp(col);
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
@@ -2,6 +2,8 @@ package ar.edu.utn.tfi.repository;
 
 import ar.edu.utn.tfi.domain.FacturaMock;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
 import java.util.List;
@@ -10,4 +12,21 @@ import java.util.Optional;
 public interface FacturaMockRepository extends JpaRepository<FacturaMock, Long> {
     Optional<FacturaMock> findByPresupuestoId(Long presupuestoId);
     List<FacturaMock> findByPresupuestoIdIn(Collection<Long> ids);
-}
\ No newline at end of file
+
+    /**
+     * Presupuestos listos para facturar: FINAL acreditado, OT en una de las etapas indicadas (las que
+     * permiten FACTURAR según el catálogo) y todavía sin factura.
+     * Orden por id para que dos corridas seguidas recorran lo mismo.
+     */
+    @Query(value = """
+        SELECT p.id
+        FROM presupuesto p
+        JOIN orden_trabajo ot ON ot.nro_orden = p.ot_nro_orden
+        WHERE UPPER(p.final_estado) = 'ACREDITADA'
+          AND ot.estado_actual IN (:etapas)
+          AND NOT EXISTS (SELECT 1 FROM factura_mock f WHERE f.presupuesto_id = p.id)
+        ORDER BY p.id
+        LIMIT :limite
+        """, nativeQuery = true)
+    List<Long> findPresupuestosAFacturar(@Param("etapas") Collection<String> etapas, @Param("limite") int limite);
+}
@@ -18,32 +18,14 @@ public interface IngresosReportRepository extends JpaRepository<Presupuesto, Lon
         BigDecimal getTotal();
     }
 
+    /** Un solo range scan sobre idx_movimiento_pago_fecha (fecha INCLUDE tipo, monto). */
     @Query(value = """
         SELECT
-          to_char(date_trunc('month', x.fecha), 'YYYY-MM') AS mes,
-          x.tipo  AS tipo,      -- 'SENA' | 'FINAL'
-          SUM(x.monto) AS total
-        FROM (
-          -- API / Tarjeta desde presupuesto (excluye manual)
-          SELECT p.sena_paid_at  AS fecha, 'SENA'  AS tipo, p.sena_monto  AS monto
-          FROM   presupuesto p
-          WHERE  p.sena_estado = 'ACREDITADA'
-            AND  COALESCE(p.sena_payment_status,'') <> 'manual'
-            AND  p.sena_paid_at >= :desde AND p.sena_paid_at < :hasta
-
-          UNION ALL
-          SELECT p.final_paid_at AS fecha, 'FINAL' AS tipo, p.final_monto AS monto
-          FROM   presupuesto p
-          WHERE  p.final_estado = 'ACREDITADA'
-            AND  COALESCE(p.final_payment_status,'') <> 'manual'
-            AND  p.final_paid_at >= :desde AND p.final_paid_at < :hasta
-
-          -- Pagos manuales
-          UNION ALL
-          SELECT pm.fecha_pago   AS fecha, pm.tipo AS tipo, pm.monto AS monto
-          FROM   pago_manual pm
-          WHERE  pm.fecha_pago >= :desde AND pm.fecha_pago < :hasta
-        ) x
+          to_char(date_trunc('month', m.fecha), 'YYYY-MM') AS mes,
+          m.tipo       AS tipo,      -- 'SENA' | 'FINAL'
+          SUM(m.monto) AS total
+        FROM   movimiento_pago m
+        WHERE  m.fecha >= :desde AND m.fecha < :hasta
         GROUP BY 1,2
         ORDER BY 1,2
         """, nativeQuery = true)
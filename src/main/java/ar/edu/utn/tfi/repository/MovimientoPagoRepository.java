@@ -0,0 +1,34 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.MovimientoPago;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MovimientoPagoRepository extends JpaRepository<MovimientoPago, Long> {
+
+    /**
+     * Agrega el movimiento; si ese presupuesto ya tiene acreditado ese tipo no hace nada.
+     * Devuelve 1 si insertó y 0 si era repetido.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO movimiento_pago (presupuesto_id, tipo, monto, fecha, origen, medio, referencia)
+        VALUES (:presupuestoId, :tipo, :monto, :fecha, :origen, :medio, :referencia)
+        ON CONFLICT (presupuesto_id, tipo) DO NOTHING
+        """, nativeQuery = true)
+    int registrar(@Param("presupuestoId") Long presupuestoId,
+                  @Param("tipo") String tipo,
+                  @Param("monto") BigDecimal monto,
+                  @Param("fecha") LocalDateTime fecha,
+                  @Param("origen") String origen,
+                  @Param("medio") String medio,
+                  @Param("referencia") String referencia);
+
+    List<MovimientoPago> findByPresupuestoIdOrderByFechaAsc(Long presupuestoId);
+}
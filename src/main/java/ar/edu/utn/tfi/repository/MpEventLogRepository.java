@@ -2,7 +2,30 @@ package ar.edu.utn.tfi.repository;
 
 import ar.edu.utn.tfi.domain.MpEventLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface MpEventLogRepository extends JpaRepository<MpEventLog, Long> {
     boolean existsByRequestId(String requestId);
+
+    /**
+     * Reserva un lote de eventos pendientes y vencidos.
+     * SKIP LOCKED permite que varios workers (o instancias) drenen la cola sin pisarse.
+     */
+    @Query(value = """
+        SELECT *
+        FROM mp_event_log
+        WHERE processed = FALSE
+          AND retry_count < :maxIntentos
+          AND next_attempt_at <= :ahora
+        ORDER BY next_attempt_at, id
+        LIMIT :limite
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<MpEventLog> reservarPendientes(@Param("ahora") LocalDateTime ahora,
+                                        @Param("maxIntentos") int maxIntentos,
+                                        @Param("limite") int limite);
 }
@@ -0,0 +1,32 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.NotificacionOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NotificacionOutboxRepository extends JpaRepository<NotificacionOutbox, Long> {
+
+    /**
+     * Reserva un lote de mensajes pendientes y vencidos de un canal.
+     * SKIP LOCKED: varias instancias pueden drenar el outbox sin enviar dos veces lo mismo.
+     */
+    @Query(value = """
+        SELECT *
+        FROM notificacion_outbox
+        WHERE estado = 'PENDIENTE'
+          AND canal = :canal
+          AND proximo_intento <= :ahora
+        ORDER BY proximo_intento, id
+        LIMIT :limite
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<NotificacionOutbox> reservarPendientes(@Param("canal") String canal,
+                                               @Param("ahora") LocalDateTime ahora,
+                                               @Param("limite") int limite);
+
+    long countByEstado(String estado);
+}
@@ -12,4 +12,9 @@ public interface NotificacionRepository extends JpaRepository<Notificacion, Long
     List<Notificacion> findTop20ByClienteEmailAndReadAtIsNullOrderByCreatedAtDesc(String clienteEmail);
     List<Notificacion> findTop20ByNroOrdenOrderByCreatedAtDesc(String nroOrden);
 
+    // Replay de SSE (Last-Event-ID) cuando el buffer en memoria no alcanza.
+    // Índices (nro_orden, id) y (cliente_email, id): V36
+    List<Notificacion> findTop32ByNroOrdenAndCanalAndIdGreaterThanOrderByIdAsc(String nroOrden, String canal, Long id);
+    List<Notificacion> findTop32ByClienteEmailAndIdGreaterThanOrderByIdAsc(String clienteEmail, Long id);
+
 }
@@ -0,0 +1,75 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.OrdenSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/** Checkpoints de estado por OT (V43), con el estado como JSONB plano {"campo": "valor"}. */
+@Repository
+public class OrdenSnapshotRepository {
+
+    private static final TypeReference<LinkedHashMap<String, String>> MAPA = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public OrdenSnapshotRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Último checkpoint de la OT anterior a {@code hasta} (exclusivo, como la reproducción). */
+    public Optional<OrdenSnapshot> ultimo(long ordenId, LocalDateTime hasta) {
+        List<OrdenSnapshot> filas = jdbc.query("""
+                SELECT hasta_fecha, hasta_id, estado::text
+                FROM orden_snapshot
+                WHERE orden_id = ? AND hasta_fecha < ?
+                ORDER BY hasta_fecha DESC, hasta_id DESC
+                LIMIT 1
+                """, (rs, i) -> new OrdenSnapshot(ordenId, rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2),
+                estado(rs.getString(3))), ordenId, Timestamp.valueOf(hasta));
+        return filas.stream().findFirst();
+    }
+
+    /** Idempotente: si ya hay un checkpoint con la misma clave (otra consulta lo guardó) no hace nada. */
+    public void guardar(OrdenSnapshot s) {
+        jdbc.update("""
+                INSERT INTO orden_snapshot (orden_id, hasta_fecha, hasta_id, estado)
+                VALUES (?, ?, ?, CAST(? AS jsonb))
+                ON CONFLICT DO NOTHING
+                """, s.ordenId(), Timestamp.valueOf(s.hastaFecha()), s.hastaId(), json(s.estado()));
+    }
+
+    /** Mayor id de operación cubierto por algún checkpoint (0 si no hay): desde dónde sigue el job. */
+    public long maxHastaId() {
+        Long max = jdbc.queryForObject("SELECT COALESCE(MAX(hasta_id), 0) FROM orden_snapshot", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    // ─── estado JSONB ───
+
+    private String json(Map<String, String> estado) {
+        try {
+            return mapper.writeValueAsString(estado);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el checkpoint", e);
+        }
+    }
+
+    private Map<String, String> estado(String json) {
+        try {
+            return mapper.readValue(json, MAPA);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Checkpoint ilegible: " + json, e);
+        }
+    }
+}
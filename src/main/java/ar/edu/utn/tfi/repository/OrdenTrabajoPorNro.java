@@ -0,0 +1,17 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Búsqueda de OTs por número con cache nro → id (ver {@link OrdenTrabajoPorNroImpl}).
+ * Fragmento de {@link OrdenTrabajoRepository}: reemplaza al findByNroOrden derivado.
+ */
+public interface OrdenTrabajoPorNro {
+
+    Optional<OrdenTrabajo> findByNroOrden(String nroOrden);
+
+    Map<String, Object> estadisticasCacheNro();
+}
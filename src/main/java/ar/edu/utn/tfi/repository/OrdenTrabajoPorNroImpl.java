@@ -0,0 +1,97 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * findByNroOrden es la entrada de casi todos los requests (público, admin, facturación). El número de
+ * una OT no cambia y las OTs no se borran, así que nro → id se cachea (LRU acotada) y la OT se trae
+ * con {@code em.find}: dentro de un mismo request el contexto de persistencia (open-in-view) ya es el
+ * mapa de identidad, así que la segunda búsqueda del mismo nro no va a la base; en requests siguientes
+ * se salta la consulta por nro y queda sólo la lectura por PK.
+ *
+ * Los números inexistentes no se cachean: con varias instancias, el alta en una no se enteraría en las
+ * otras y la OT recién creada daría 404 hasta que venza la entrada. Siguen yendo a la base (por el
+ * índice único de nro_orden).
+ */
+class OrdenTrabajoPorNroImpl implements OrdenTrabajoPorNro {
+
+    static final String POR_NRO = "SELECT o FROM OrdenTrabajo o WHERE o.nroOrden = :nro";
+
+    private final EntityManager em;
+    private final int maxEntradas;
+
+    // LinkedHashMap en orden de acceso = LRU; todos los accesos bajo el lock del propio mapa
+    private final LinkedHashMap<String, Long> ids;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong obsoletas = new AtomicLong();
+
+    OrdenTrabajoPorNroImpl(EntityManager em,
+                           @Value("${ordenes.cache-nro.max-entradas:10000}") int maxEntradas) {
+        this.em = em;
+        this.maxEntradas = Math.max(0, maxEntradas);
+        int max = this.maxEntradas;
+        this.ids = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    @Override
+    public Optional<OrdenTrabajo> findByNroOrden(String nroOrden) {
+        if (nroOrden == null) return Optional.empty();
+        Long id;
+        synchronized (ids) {
+            id = ids.get(nroOrden);
+        }
+        if (id != null) {
+            OrdenTrabajo ot = em.find(OrdenTrabajo.class, id);
+            if (ot != null && nroOrden.equals(ot.getNroOrden())) {
+                hits.incrementAndGet();
+                return Optional.of(ot);
+            }
+            // no debería pasar (alta que hizo rollback, base de tests reciclada): se vuelve a buscar
+            obsoletas.incrementAndGet();
+            synchronized (ids) {
+                ids.remove(nroOrden);
+            }
+        }
+
+        misses.incrementAndGet();
+        List<OrdenTrabajo> filas = em.createQuery(POR_NRO, OrdenTrabajo.class)
+                .setParameter("nro", nroOrden)
+                .getResultList();
+        if (filas.isEmpty()) return Optional.empty();
+        OrdenTrabajo ot = filas.get(0);
+        if (maxEntradas > 0) {
+            synchronized (ids) {
+                ids.put(nroOrden, ot.getId());
+            }
+        }
+        return Optional.of(ot);
+    }
+
+    @Override
+    public Map<String, Object> estadisticasCacheNro() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (ids) {
+            m.put("entradas", ids.size());
+        }
+        m.put("maxEntradas", maxEntradas);
+        m.put("hits", hits.get());
+        m.put("misses", misses.get());
+        m.put("obsoletas", obsoletas.get());
+        return m;
+    }
+}
@@ -1,9 +1,47 @@
 package ar.edu.utn.tfi.repository;
 import ar.edu.utn.tfi.domain.OrdenTrabajo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
-public interface OrdenTrabajoRepository extends JpaRepository<OrdenTrabajo, Long> {
-    Optional<OrdenTrabajo> findByNroOrden(String nroOrden);
+// findByNroOrden lo implementa OrdenTrabajoPorNroImpl (cache nro → id)
+public interface OrdenTrabajoRepository extends JpaRepository<OrdenTrabajo, Long>, OrdenTrabajoPorNro {
     Optional<OrdenTrabajo> findTopByUnidadIdOrderByCreadaEnDesc(Long unidadId);
+
+    /**
+     * Avance de etapa compare-and-set, en un solo statement: la OT pasa de {@code actual} a {@code siguiente}
+     * sólo si todavía está en {@code actual}; en ese caso se cierra la etapa abierta del historial y se abre
+     * la nueva. Devuelve 1 si avanzó y 0 si otro la movió antes (no se toca nada).
+     *
+     * Dos avances simultáneos de la misma OT se ordenan por el lock de la fila: el segundo vuelve a evaluar
+     * el WHERE sobre la versión ya actualizada y no encuentra la fila.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        WITH avance AS (
+            UPDATE orden_trabajo SET estado_actual = :siguiente
+            WHERE id = :id AND estado_actual = :actual
+            RETURNING id
+        ), cierre AS (
+            UPDATE orden_etapa_historial SET fecha_fin = :ahora
+            WHERE orden_id IN (SELECT id FROM avance) AND fecha_fin IS NULL
+        )
+        INSERT INTO orden_etapa_historial (orden_id, etapa_codigo, fecha_inicio, observacion, usuario)
+        SELECT id, :siguiente, :ahora, :observacion, :usuario FROM avance
+        """, nativeQuery = true)
+    int avanzarSiEsta(@Param("id") Long id,
+                      @Param("actual") String actual,
+                      @Param("siguiente") String siguiente,
+                      @Param("ahora") LocalDateTime ahora,
+                      @Param("observacion") String observacion,
+                      @Param("usuario") String usuario);
+
+    @Modifying
+    @Query(value = "UPDATE orden_trabajo SET garantia_desde = :desde, garantia_hasta = :hasta WHERE id = :id",
+            nativeQuery = true)
+    int fijarGarantia(@Param("id") Long id, @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
 }
@@ -0,0 +1,25 @@
+package ar.edu.utn.tfi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Acceso a las secuencias de numeración (V38). nextval no participa de la transacción:
+ * un número tomado no vuelve aunque la transacción haga rollback (puede haber huecos, nunca repetidos).
+ */
+@Repository
+public class SecuenciaRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public SecuenciaRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Próximo valor de la secuencia (el nombre sale siempre de una constante, nunca del request). */
+    public long siguiente(String secuencia) {
+        Long v = jdbc.queryForObject("SELECT nextval('" + secuencia + "')", Long.class);
+        if (v == null) throw new IllegalStateException("nextval sin valor para " + secuencia);
+        return v;
+    }
+}
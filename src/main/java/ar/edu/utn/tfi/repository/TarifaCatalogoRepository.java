@@ -0,0 +1,49 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Lectura del catálogo de tarifas junto con su versión (tarifa_version, V44). */
+@Repository
+public class TarifaCatalogoRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public TarifaCatalogoRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Versión actual del catálogo (la sube el trigger de servicio_tarifa). */
+    public long version() {
+        Long v = jdbc.queryForObject("SELECT version FROM tarifa_version WHERE id = 1", Long.class);
+        return v == null ? 0 : v;
+    }
+
+    public record Carga(long version, List<Tarifa> tarifas) {}
+
+    /**
+     * Todas las tarifas y la versión en una sola sentencia, así ven la misma foto de la base: no puede
+     * quedar una versión nueva con precios viejos (o al revés) aunque alguien esté cambiando tarifas.
+     */
+    public Carga cargar() {
+        long[] version = {0};
+        List<Tarifa> tarifas = new ArrayList<>();
+        jdbc.query("""
+                SELECT v.version, t.vehiculo_tipo, t.nombre_servicio, t.precio
+                FROM tarifa_version v
+                LEFT JOIN servicio_tarifa t ON TRUE
+                WHERE v.id = 1
+                ORDER BY t.vehiculo_tipo, t.nombre_servicio
+                """, rs -> {
+            version[0] = rs.getLong(1);
+            if (rs.getString(2) != null) {
+                tarifas.add(new Tarifa(rs.getString(2), rs.getString(3), rs.getBigDecimal(4)));
+            }
+        });
+        return new Carga(version[0], tarifas);
+    }
+}
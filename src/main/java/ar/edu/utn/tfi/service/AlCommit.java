@@ -0,0 +1,37 @@
+package ar.edu.utn.tfi.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Efectos que no se pueden deshacer (eventos SSE, pg_notify, invalidaciones entre instancias):
+ * dentro de una transacción se ejecutan recién al commit, y con rollback no se ejecutan; fuera de una
+ * transacción, en el momento.
+ *
+ * Lo que se difiere desde un afterCommit que ya está corriendo se ejecuta en el momento: Spring no
+ * llama a las sincronizaciones registradas en esa fase.
+ */
+public final class AlCommit {
+
+    private static final ThreadLocal<Boolean> EN_AFTER_COMMIT = new ThreadLocal<>();
+
+    private AlCommit() {}
+
+    public static void ejecutar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || Boolean.TRUE.equals(EN_AFTER_COMMIT.get())) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                EN_AFTER_COMMIT.set(Boolean.TRUE);
+                try {
+                    accion.run();
+                } finally {
+                    EN_AFTER_COMMIT.remove();
+                }
+            }
+        });
+    }
+}
@@ -1,44 +1,160 @@
 package ar.edu.utn.tfi.service;
 
-import ar.edu.utn.tfi.domain.AuditoriaCambio;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
 import ar.edu.utn.tfi.domain.OrdenTrabajo;
-import ar.edu.utn.tfi.repository.AuditoriaCambioRepository;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
 import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AuditoriaService {
 
-    private final AuditoriaCambioRepository repo;
+    // ─── Operaciones auditadas ───
+    public static final String AVANCE_ETAPA = "AVANCE_ETAPA";
+    public static final String DEMORA = "DEMORA";
+    public static final String IRREPARABLE = "IRREPARABLE";
+
+    static final int LIMITE_DEFAULT = 20;
+    static final int LIMITE_MAX = 100;
+
+    private final AuditoriaOperacionRepository repo;
     private final OrdenTrabajoRepository ordenRepo;
+    private final AuditoriaWriter writer;
 
-    public AuditoriaService(AuditoriaCambioRepository repo, OrdenTrabajoRepository ordenRepo) {
+    public AuditoriaService(AuditoriaOperacionRepository repo, OrdenTrabajoRepository ordenRepo, AuditoriaWriter writer) {
         this.repo = repo;
         this.ordenRepo = ordenRepo;
+        this.writer = writer;
     }
 
-    // Transacción separada y forzada a disco
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void registrarCambio(Long ordenId, String campo, String anterior, String nuevo, String usuario) {
-        AuditoriaCambio a = new AuditoriaCambio();
-        a.setOrdenId(ordenId);
-        a.setCampo(campo);
-        a.setValorAnterior(anterior);
-        a.setValorNuevo(nuevo);
-        a.setUsuario(usuario);
-        repo.saveAndFlush(a); // <- flush para forzar escritura inmediata
-        System.out.println("✅ Auditoría INSERTADA para ordenId=" + ordenId + " campo=" + campo);
+    // Sin transacción ni conexión propia: va al escritor por lotes (AuditoriaWriter).
+    // Dentro de una transacción, los cambios de la misma OT y operación se juntan en una sola fila
+    // (diff JSONB) que se encola recién al commit: si el cambio hace rollback, no se audita.
+    public void registrarCambio(Long ordenId, String operacion, String campo, String anterior, String nuevo, String usuario) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            EnCurso op = new EnCurso(ordenId, operacion, usuario, Correlacion.actual());
+            op.cambios.put(campo, new Cambio(anterior, nuevo));
+            writer.encolar(op.cerrar());
+            return;
+        }
+        pendientes().agregar(ordenId, operacion, campo, anterior, nuevo, usuario);
     }
 
+    /**
+     * Operaciones de la OT, de la más nueva a la más vieja, de a {@code limite} (20 por defecto, hasta 100).
+     * {@code cursor} es el {@code siguiente} de la página anterior (null para la primera).
+     */
     @Transactional(readOnly = true)
-    public List<AuditoriaCambio> listarPorNro(String nro) {
+    public PaginaAuditoria pagina(String nro, String cursor, Integer limite) {
+        int n = limite == null ? LIMITE_DEFAULT : limite;
+        if (n < 1 || n > LIMITE_MAX) {
+            throw new IllegalArgumentException("limite debe estar entre 1 y " + LIMITE_MAX);
+        }
+        Clave antes = leerCursor(cursor);
+
         OrdenTrabajo ot = ordenRepo.findByNroOrden(nro)
                 .orElseThrow(() -> new EntityNotFoundException("Orden no encontrada: " + nro));
-        return repo.findByOrdenIdOrderByFechaDesc(ot.getId());
+
+        // uno de más para saber si hay otra página sin contar
+        List<AuditoriaOperacion> filas = antes == null
+                ? repo.pagina(ot.getId(), null, 0, n + 1)
+                : repo.pagina(ot.getId(), antes.fecha(), antes.id(), n + 1);
+        if (filas.size() <= n) return new PaginaAuditoria(filas, null);
+
+        List<AuditoriaOperacion> items = filas.subList(0, n);
+        return new PaginaAuditoria(items, cursor(items.get(n - 1)));
+    }
+
+    public record PaginaAuditoria(List<AuditoriaOperacion> items, String siguiente) {}
+
+    // ───────────────────────── Cursor ─────────────────────────
+
+    record Clave(LocalDateTime fecha, long id) {}
+
+    /** Cursor opaco con la clave (fecha, id) de la última operación de la página. */
+    static String cursor(AuditoriaOperacion a) {
+        String clave = a.fecha() + "|" + a.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(clave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Clave leerCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String clave = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int i = clave.lastIndexOf('|');
+            return new Clave(LocalDateTime.parse(clave.substring(0, i)), Long.parseLong(clave.substring(i + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("cursor inválido");
+        }
+    }
+
+    // ───────────────────────── Operaciones en curso ─────────────────────────
+
+    private Pendientes pendientes() {
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Pendientes p && p.duenio == this) return p;
+        }
+        Pendientes p = new Pendientes(this, Correlacion.actual());
+        TransactionSynchronizationManager.registerSynchronization(p);
+        return p;
+    }
+
+    /** Operaciones auditadas en la transacción en curso; se encolan al commit. */
+    private static final class Pendientes implements TransactionSynchronization {
+        final AuditoriaService duenio;
+        final String correlacion;
+        final Map<String, EnCurso> operaciones = new LinkedHashMap<>();
+
+        Pendientes(AuditoriaService duenio, String correlacion) {
+            this.duenio = duenio;
+            this.correlacion = correlacion;
+        }
+
+        void agregar(Long ordenId, String operacion, String campo, String anterior, String nuevo, String usuario) {
+            operaciones.computeIfAbsent(ordenId + "|" + operacion,
+                            k -> new EnCurso(ordenId, operacion, usuario, correlacion))
+                    .cambios.put(campo, new Cambio(anterior, nuevo));
+        }
+
+        @Override
+        public void afterCommit() {
+            for (EnCurso op : operaciones.values()) {
+                duenio.writer.encolar(op.cerrar());
+            }
+        }
+    }
+
+    private static final class EnCurso {
+        final Long ordenId;
+        final String operacion;
+        final String usuario;
+        final String correlacion;
+        final LocalDateTime fecha = LocalDateTime.now();
+        final Map<String, Cambio> cambios = new LinkedHashMap<>();
+
+        EnCurso(Long ordenId, String operacion, String usuario, String correlacion) {
+            this.ordenId = ordenId;
+            this.operacion = operacion;
+            this.usuario = usuario;
+            this.correlacion = correlacion;
+        }
+
+        AuditoriaOperacion cerrar() {
+            return new AuditoriaOperacion(null, ordenId, operacion, usuario, correlacion, fecha,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(cambios)));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,314 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Escritor de auditoría por lotes. Las operaciones auditadas entran a una cola en memoria sin locks y un
+ * único hilo las escribe con JDBC batch, un commit por lote: cada {@code auditoria.intervalo-ms} o apenas
+ * se juntan {@code auditoria.lote}. El request que audita no espera ni ocupa otra conexión.
+ *
+ * Si la base no responde, el lote se guarda en el spool ({@code auditoria.spool-dir}, un archivo JSON
+ * por lote) y se reintenta cada {@code auditoria.spool-reintento-ms}, también después de reiniciar.
+ * Al apagar se vacía la cola (a la base o al spool). Lo único que se puede perder es lo encolado en
+ * el último intervalo si el proceso muere sin apagarse (kill -9).
+ */
+@Component
+public class AuditoriaWriter {
+
+    static final String SPOOL_EXT = ".jsonl";
+
+    private final AuditoriaOperacionRepository repo;
+    private final int lote;
+    private final long intervaloMs;
+    private final Path spoolDir;
+    private volatile boolean async;
+
+    private final ConcurrentLinkedQueue<AuditoriaOperacion> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean drenadoPedido = new AtomicBoolean();
+    private volatile boolean cerrado;
+
+    private final ScheduledExecutorService hilo;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final AtomicLong secuenciaSpool = new AtomicLong();
+
+    // ─── Métricas ───
+    private final AtomicLong encolados = new AtomicLong();
+    private final AtomicLong directos = new AtomicLong();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong loteMax = new AtomicLong();
+    private final AtomicLong escrituraTotalNanos = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private final AtomicLong alSpool = new AtomicLong();
+    private final AtomicLong recuperados = new AtomicLong();
+
+    public AuditoriaWriter(AuditoriaOperacionRepository repo,
+                           @Value("${auditoria.async:true}") boolean async,
+                           @Value("${auditoria.lote:200}") int lote,
+                           @Value("${auditoria.intervalo-ms:200}") long intervaloMs,
+                           @Value("${auditoria.spool-dir:${java.io.tmpdir}/tfi-auditoria}") String spoolDir,
+                           @Value("${auditoria.spool-reintento-ms:30000}") long spoolReintentoMs) {
+        this.repo = repo;
+        this.async = async;
+        this.lote = Math.max(1, lote);
+        this.intervaloMs = Math.max(1, intervaloMs);
+        this.spoolDir = Path.of(spoolDir);
+
+        ScheduledThreadPoolExecutor ex = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "auditoria-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        ex.setRemoveOnCancelPolicy(true);
+        this.hilo = ex;
+        hilo.scheduleWithFixedDelay(() -> seguro(this::drenar), this.intervaloMs, this.intervaloMs, TimeUnit.MILLISECONDS);
+        // el primero enseguida: lo que quedó en el spool de la corrida anterior
+        hilo.scheduleWithFixedDelay(() -> seguro(this::reintentarSpool), 0, Math.max(1, spoolReintentoMs), TimeUnit.MILLISECONDS);
+    }
+
+    // ───────────────────────── API ─────────────────────────
+
+    /** Encola la operación; la escribe el hilo del escritor. Con auditoria.async=false se escribe en el llamador. */
+    public void encolar(AuditoriaOperacion a) {
+        encolados.incrementAndGet();
+        if (!async) {
+            directos.incrementAndGet();
+            escribir(List.of(a));
+            return;
+        }
+
+        cola.offer(a);
+        int n = pendientes.incrementAndGet();
+        if (cerrado) {
+            // llegó mientras se apagaba: que no quede nada en la cola
+            drenar();
+            return;
+        }
+        if (n >= lote && drenadoPedido.compareAndSet(false, true)) {
+            try {
+                hilo.execute(() -> {
+                    drenadoPedido.set(false);
+                    seguro(this::drenar);
+                });
+            } catch (RejectedExecutionException e) {
+                drenadoPedido.set(false);
+            }
+        }
+    }
+
+    /** Escribe ya todo lo encolado hasta ahora (tests, benchmark) y espera a que termine. */
+    public void flush() {
+        try {
+            hilo.submit(this::drenar).get(30, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            drenar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("No se pudo vaciar la cola de auditoría", e);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws InterruptedException {
+        cerrado = true;
+        hilo.shutdown();
+        hilo.awaitTermination(10, TimeUnit.SECONDS);
+        // lo que haya quedado: a la base o, si no hay base, al spool
+        int n = drenar();
+        if (n > 0) System.out.println("[AUDITORIA] Cierre: " + n + " operaciones escritas antes de apagar");
+    }
+
+    // ───────────────────────── Escritura ─────────────────────────
+
+    /** Vacía la cola en lotes de hasta {@code lote}. Se puede llamar desde más de un hilo. */
+    int drenar() {
+        int total = 0;
+        while (true) {
+            List<AuditoriaOperacion> bloque = new ArrayList<>(Math.min(lote, Math.max(1, pendientes.get())));
+            AuditoriaOperacion a;
+            while (bloque.size() < lote && (a = cola.poll()) != null) {
+                bloque.add(a);
+            }
+            if (bloque.isEmpty()) return total;
+            pendientes.addAndGet(-bloque.size());
+            escribir(bloque);
+            total += bloque.size();
+        }
+    }
+
+    private void escribir(List<AuditoriaOperacion> bloque) {
+        long t0 = System.nanoTime();
+        try {
+            repo.insertar(bloque);
+        } catch (Exception e) {
+            errores.incrementAndGet();
+            System.err.println("[AUDITORIA] No se pudo escribir un lote de " + bloque.size()
+                    + " operaciones (" + e.getMessage() + "): va al spool");
+            spool(bloque);
+            return;
+        }
+        escrituraTotalNanos.addAndGet(System.nanoTime() - t0);
+        escritos.addAndGet(bloque.size());
+        lotes.incrementAndGet();
+        loteMax.accumulateAndGet(bloque.size(), Math::max);
+    }
+
+    // ───────────────────────── Spool ─────────────────────────
+
+    /** Guarda el lote en un archivo propio; se escribe aparte y se renombra, así nunca se lee a medias. */
+    private void spool(List<AuditoriaOperacion> bloque) {
+        String nombre = nombreSpool(System.currentTimeMillis(), secuenciaSpool.incrementAndGet());
+        try {
+            Files.createDirectories(spoolDir);
+            Path tmp = spoolDir.resolve(nombre + ".tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (AuditoriaOperacion a : bloque) {
+                    w.write(mapper.writeValueAsString(a));
+                    w.newLine();
+                }
+            }
+            Files.move(tmp, spoolDir.resolve(nombre + SPOOL_EXT), StandardCopyOption.ATOMIC_MOVE);
+            alSpool.addAndGet(bloque.size());
+        } catch (IOException e) {
+            // último recurso: que al menos quede en el log
+            System.err.println("[AUDITORIA] No se pudo escribir el spool en " + spoolDir + ": " + e.getMessage());
+            for (AuditoriaOperacion a : bloque) {
+                System.err.println("[AUDITORIA] PERDIDO " + a);
+            }
+        }
+    }
+
+    /**
+     * Nombre del lote en el spool. Con ceros a la izquierda el orden alfabético (el de reintentarSpool)
+     * es el de escritura: sin relleno, "-10" quedaría antes que "-9". El ancho es el de un long (19
+     * dígitos), así ningún valor se pasa del relleno.
+     */
+    static String nombreSpool(long millis, long secuencia) {
+        return String.format("auditoria-%019d-%019d", millis, secuencia);
+    }
+
+    /** Reintenta los lotes del spool en orden; si la base sigue sin responder, corta hasta la próxima. */
+    int reintentarSpool() {
+        if (!Files.isDirectory(spoolDir)) return 0;
+        List<Path> archivos;
+        try (Stream<Path> s = Files.list(spoolDir)) {
+            archivos = s.filter(p -> p.getFileName().toString().endsWith(SPOOL_EXT)).sorted().toList();
+        } catch (IOException e) {
+            System.err.println("[AUDITORIA] No se pudo leer el spool " + spoolDir + ": " + e.getMessage());
+            return 0;
+        }
+
+        int total = 0;
+        for (Path archivo : archivos) {
+            List<AuditoriaOperacion> bloque;
+            try {
+                bloque = leer(archivo);
+            } catch (IOException e) {
+                System.err.println("[AUDITORIA] Spool ilegible " + archivo.getFileName() + ": " + e.getMessage());
+                apartar(archivo);
+                continue;
+            }
+            try {
+                repo.insertar(bloque);
+            } catch (Exception e) {
+                System.err.println("[AUDITORIA] El spool sigue pendiente (" + archivos.size() + " lotes): " + e.getMessage());
+                return total;
+            }
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException e) {
+                System.err.println("[AUDITORIA] Lote del spool escrito pero no borrado: " + archivo + " (apartado)");
+                apartar(archivo);
+            }
+            recuperados.addAndGet(bloque.size());
+            total += bloque.size();
+        }
+        if (total > 0) System.out.println("[AUDITORIA] Recuperadas del spool: " + total + " operaciones");
+        return total;
+    }
+
+    private List<AuditoriaOperacion> leer(Path archivo) throws IOException {
+        List<AuditoriaOperacion> bloque = new ArrayList<>();
+        for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+            if (!linea.isBlank()) bloque.add(mapper.readValue(linea, AuditoriaOperacion.class));
+        }
+        return bloque;
+    }
+
+    /** Lo saca del reintento (queda para revisar a mano). */
+    private static void apartar(Path archivo) {
+        try {
+            Files.move(archivo, archivo.resolveSibling(archivo.getFileName() + ".error"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ignored) {
+            // se vuelve a intentar en la próxima pasada
+        }
+    }
+
+    private static void seguro(Runnable r) {
+        try {
+            r.run();
+        } catch (Exception e) {
+            // una excepción cancelaría la tarea periódica
+            System.err.println("[AUDITORIA] Error en el escritor: " + e.getMessage());
+        }
+    }
+
+    /** Benchmark: comparar contra la escritura en el llamador. */
+    void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    // ─── Métricas ───
+
+    public Map<String, Object> estadisticas() {
+        long n = lotes.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("async", async);
+        m.put("lote", lote);
+        m.put("intervaloMs", intervaloMs);
+        m.put("pendientes", pendientes.get());
+        m.put("encolados", encolados.get());
+        m.put("directos", directos.get());
+        m.put("escritos", escritos.get());
+        m.put("lotes", n);
+        m.put("lotePromedio", n == 0 ? 0 : escritos.get() / n);
+        m.put("loteMax", loteMax.get());
+        m.put("escrituraPromedioMs", n == 0 ? 0 : escrituraTotalNanos.get() / n / 1_000_000);
+        m.put("errores", errores.get());
+        m.put("alSpool", alSpool.get());
+        m.put("recuperados", recuperados.get());
+        return m;
+    }
+}
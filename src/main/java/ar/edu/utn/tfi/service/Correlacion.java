@@ -0,0 +1,32 @@
+package ar.edu.utn.tfi.service;
+
+import java.util.UUID;
+
+/**
+ * Id de correlación del request en curso (lo fija CorrelacionFilter). Agrupa en la auditoría todo lo
+ * que cambió un mismo request; fuera de un request (tareas programadas) se genera uno por operación.
+ */
+public final class Correlacion {
+
+    private static final ThreadLocal<String> ACTUAL = new ThreadLocal<>();
+
+    private Correlacion() {}
+
+    public static void fijar(String id) {
+        ACTUAL.set(id);
+    }
+
+    public static void limpiar() {
+        ACTUAL.remove();
+    }
+
+    /** La del request en curso, o una nueva si no hay. */
+    public static String actual() {
+        String id = ACTUAL.get();
+        return id != null ? id : nueva();
+    }
+
+    public static String nueva() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -4,10 +4,12 @@ package ar.edu.utn.tfi.service;
 import ar.edu.utn.tfi.domain.*;
 import ar.edu.utn.tfi.repository.*;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class CrearOrdenService {
@@ -17,17 +19,23 @@ public class CrearOrdenService {
     private final OrdenTrabajoRepository ordenRepo;
     private final OrdenEtapaHistorialRepository historialRepo;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher events;
+    private final NumeradorService numerador;
 
     public CrearOrdenService(ClienteRepository clienteRepo,
                              UnidadTrabajoRepository unidadRepo,
                              OrdenTrabajoRepository ordenRepo,
                              OrdenEtapaHistorialRepository historialRepo,
-                             NotificationService notificationService) {
+                             NotificationService notificationService,
+                             ApplicationEventPublisher events,
+                             NumeradorService numerador) {
         this.clienteRepo = clienteRepo;
         this.unidadRepo = unidadRepo;
         this.ordenRepo = ordenRepo;
         this.historialRepo = historialRepo;
         this.notificationService = notificationService;
+        this.events = events;
+        this.numerador = numerador;
     }
 
     // DTO simple para el request
@@ -81,16 +89,16 @@ public class CrearOrdenService {
         unidad.setNroMotor(req.nroMotor());
         unidad = unidadRepo.save(unidad);
 
-        // 3) Generar nro de orden (simple contador por cantidad + 1)
-        long next = ordenRepo.count() + 1;
-        String nro = "OT-" + String.format("%04d", next);
+        // 3) Nro de orden desde la secuencia de la serie OT (sin COUNT ni choques entre requests)
+        String nro = numerador.siguiente(NumeradorService.Serie.OT);
 
         // 4) Crear OrdenTrabajo en estado inicial
         OrdenTrabajo ot = new OrdenTrabajo();
         ot.setNroOrden(nro);
         ot.setUnidadId(unidad.getId());          // FK a unidad_trabajo
         ot.setEstadoActual("INGRESO");
-        ot.setCreadaEn(LocalDateTime.now());
+        LocalDateTime creadaEn = LocalDateTime.now();
+        ot.setCreadaEn(creadaEn);
         ot = ordenRepo.save(ot);
 
         // 5) Abrir historial etapa INGRESO
@@ -105,6 +113,11 @@ public class CrearOrdenService {
         // 6) Notificación de ingreso
         notificationService.notificarIngresoOrden(ot, cliente);
 
+        // 7) Reportes por fecha de alta (se invalidan al commit)
+        events.publishEvent(new ReportCache.DatosReporteCambiados(
+                List.of(ReportCache.MOTORES_VS_TAPAS, ReportCache.MOTORES_POR_ETAPA),
+                creadaEn.toLocalDate()));
+
         return new CreateOTResp(ot.getId(), ot.getNroOrden());
     }
 }
\ No newline at end of file
@@ -1,10 +1,8 @@
 package ar.edu.utn.tfi.service;
 
-import ar.edu.utn.tfi.domain.AuditoriaCambio;
 import ar.edu.utn.tfi.domain.DemoraMotivo;
 import ar.edu.utn.tfi.domain.OrdenEtapaHistorial;
 import ar.edu.utn.tfi.domain.OrdenTrabajo;
-import ar.edu.utn.tfi.repository.AuditoriaCambioRepository;
 import ar.edu.utn.tfi.repository.DemoraMotivoRepository;
 import ar.edu.utn.tfi.repository.OrdenEtapaHistorialRepository;
 import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
@@ -12,33 +10,33 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 
 @Service
 public class DemoraService {
 
-    private static final String ETAPA_PERMITIDA = "SEMI_ARMADO";
-
     private final OrdenTrabajoRepository ordenRepo;
     private final OrdenEtapaHistorialRepository historialRepo;
     private final DemoraMotivoRepository motivoRepo;
-    private final AuditoriaCambioRepository auditoriaRepo; // 👈 NEW
+    private final AuditoriaService auditoria;
+    private final MaquinaEtapas etapas;
 
     public DemoraService(OrdenTrabajoRepository ordenRepo,
                          OrdenEtapaHistorialRepository historialRepo,
                          DemoraMotivoRepository motivoRepo,
-                         AuditoriaCambioRepository auditoriaRepo) {
+                         AuditoriaService auditoria,
+                         MaquinaEtapas etapas) {
         this.ordenRepo = ordenRepo;
         this.historialRepo = historialRepo;
         this.motivoRepo = motivoRepo;
-        this.auditoriaRepo = auditoriaRepo;
+        this.auditoria = auditoria;
+        this.etapas = etapas;
     }
 
     /**
      * Registra una demora sobre la ETAPA ACTIVA (sin crear fila nueva).
-     * - Solo en SEMI_ARMADO.
+     * - Solo en las etapas que permiten DEMORA según el catálogo (SEMI_ARMADO).
      * - Actualiza observación de la fila activa y setea motivo.
-     * - Inserta auditoría directamente (sin pasar por otro servicio).
+     * - Audita el cambio de observación (se escribe por lotes después del commit).
      */
     @Transactional
     public void registrarDemoraPorNro(String nroOrden, String codigoMotivo, String observacion, String usuario) {
@@ -48,9 +46,10 @@ public class DemoraService {
                 .orElseThrow(() -> new EntityNotFoundException("Orden no encontrada: " + nroOrden));
 
         String etapaActual = (orden.getEstadoActual() == null) ? "" : orden.getEstadoActual().toUpperCase();
-        if (!ETAPA_PERMITIDA.equals(etapaActual)) {
+        if (!etapas.permite(etapaActual, MaquinaEtapas.Accion.DEMORA)) {
             throw new IllegalStateException(
-                    "La demora sólo puede registrarse en la etapa " + ETAPA_PERMITIDA +
+                    "La demora sólo puede registrarse en la etapa "
+                            + String.join("/", etapas.etapasQuePermiten(MaquinaEtapas.Accion.DEMORA)) +
                             " (actual: " + (orden.getEstadoActual() == null ? "-" : orden.getEstadoActual()) + ")"
             );
         }
@@ -72,17 +71,7 @@ public class DemoraService {
 
         System.out.println("✅ Demora aplicada a historial. Grabando auditoría…");
 
-        // 👇 Auditar acá mismo, directo al repo (saveAndFlush para ver el INSERT al toque)
-        AuditoriaCambio a = new AuditoriaCambio();
-        a.setOrdenId(orden.getId());
-        a.setCampo("demora");
-        a.setValorAnterior(emptyToNull(anteriorObs));
-        a.setValorNuevo(emptyToNull(nuevaObs));
-        a.setUsuario(usuario);
-        a.setFecha(LocalDateTime.now());
-        auditoriaRepo.saveAndFlush(a);
-
-        System.out.println("✅ Auditoría INSERTADA para ordenId=" + orden.getId());
+        auditoria.registrarCambio(orden.getId(), AuditoriaService.DEMORA, "demora", emptyToNull(anteriorObs), emptyToNull(nuevaObs), usuario);
     }
 
     private String buildObservacionConDemora(String anterior, String codigoMotivo, String observacionLibre) {
@@ -0,0 +1,244 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import ar.edu.utn.tfi.domain.OrdenSnapshot;
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
+import ar.edu.utn.tfi.repository.OrdenSnapshotRepository;
+import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de una OT a una fecha ("¿en qué estado estaba la OT X el día Y?"), reconstruido desde
+ * auditoria_operacion: se parte del último checkpoint (orden_snapshot) anterior a la fecha y se
+ * reproducen sólo las operaciones posteriores. Cada {@code auditoria.snapshot.cada} operaciones se guarda
+ * un checkpoint, así una consulta nunca reproduce más que eso (salvo las más nuevas que el margen).
+ *
+ * Los checkpoints se guardan al reproducir (la primera consulta de una OT larga los deja hechos) y en
+ * un job periódico que recorre las OTs con operaciones nuevas.
+ */
+@Service
+public class EstadoHistoricoService {
+
+    // ─── Campos reconstruidos ───
+    static final String ESTADO = "estado_actual";
+    static final String ETAPA_DESDE = "etapa_desde";
+    static final String GARANTIA_DESDE = "garantia_desde";
+    static final String GARANTIA_HASTA = "garantia_hasta";
+    static final String DEMORA = "demora";
+
+    static final int LOTE = 1_000;
+
+    private final OrdenTrabajoRepository ordenRepo;
+    private final AuditoriaOperacionRepository auditoriaRepo;
+    private final OrdenSnapshotRepository snapshotRepo;
+    private final int cada;
+    private final long margenMs;
+    private final int ordenesPorCiclo;
+
+    // Job: operaciones con id hasta acá ya se miraron (-1: todavía no se leyó de la base)
+    private volatile long marca = -1;
+
+    // ─── Métricas ───
+    private final AtomicLong consultas = new AtomicLong();
+    private final AtomicLong eventosReproducidos = new AtomicLong();
+    private final AtomicLong eventosMax = new AtomicLong();
+    private final AtomicLong snapshotsGuardados = new AtomicLong();
+
+    public EstadoHistoricoService(OrdenTrabajoRepository ordenRepo,
+                                  AuditoriaOperacionRepository auditoriaRepo,
+                                  OrdenSnapshotRepository snapshotRepo,
+                                  @Value("${auditoria.snapshot.cada:500}") int cada,
+                                  @Value("${auditoria.snapshot.margen-ms:600000}") long margenMs,
+                                  @Value("${auditoria.snapshot.ordenes-por-ciclo:500}") int ordenesPorCiclo) {
+        if (cada < 1) throw new IllegalArgumentException("auditoria.snapshot.cada debe ser >= 1");
+        this.ordenRepo = ordenRepo;
+        this.auditoriaRepo = auditoriaRepo;
+        this.snapshotRepo = snapshotRepo;
+        this.cada = cada;
+        this.margenMs = margenMs;
+        this.ordenesPorCiclo = ordenesPorCiclo;
+    }
+
+    /** Estado de la OT tal como quedó después de la última operación con fecha anterior a {@code al} (exclusivo). */
+    @Transactional
+    public EstadoOrden estadoAl(String nro, LocalDateTime al) {
+        OrdenTrabajo ot = ordenRepo.findByNroOrden(nro)
+                .orElseThrow(() -> new EntityNotFoundException("Orden no encontrada: " + nro));
+        if (ot.getCreadaEn() != null && !al.isAfter(ot.getCreadaEn())) {
+            throw new EntityNotFoundException("La orden " + nro + " no existía al " + al
+                    + " (creada el " + ot.getCreadaEn() + ")");
+        }
+
+        Reproduccion r = reproducir(ot, al);
+        consultas.incrementAndGet();
+        eventosReproducidos.addAndGet(r.eventos());
+        eventosMax.accumulateAndGet(r.eventos(), Math::max);
+
+        Map<String, String> e = r.estado();
+        return new EstadoOrden(ot.getNroOrden(), al, e.get(ESTADO), fechaHora(e.get(ETAPA_DESDE)),
+                fecha(e.get(GARANTIA_DESDE)), fecha(e.get(GARANTIA_HASTA)), e.get(DEMORA),
+                r.desde(), r.eventos());
+    }
+
+    /**
+     * @param snapshot clave del checkpoint del que se partió (null: desde el alta)
+     * @param eventosReproducidos operaciones aplicadas encima del checkpoint
+     */
+    public record EstadoOrden(String nroOrden, LocalDateTime al, String estadoActual, LocalDateTime etapaDesde,
+                              LocalDate garantiaDesde, LocalDate garantiaHasta, String demora,
+                              LocalDateTime snapshot, int eventosReproducidos) {}
+
+    /**
+     * {@code al} como viene en la query: fecha y hora ISO, o sólo fecha (= el día entero: el límite es el
+     * comienzo del día siguiente, y la comparación es estricta).
+     */
+    public static LocalDateTime instante(String al) {
+        if (al == null || al.isBlank()) {
+            throw new IllegalArgumentException("Falta el parámetro 'al' (yyyy-MM-dd o yyyy-MM-ddTHH:mm[:ss])");
+        }
+        try {
+            return al.contains("T") ? LocalDateTime.parse(al.trim()) : LocalDate.parse(al.trim()).plusDays(1).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida: " + al);
+        }
+    }
+
+    // ───────────────────────── Checkpoints ─────────────────────────
+
+    /** Guarda los checkpoints que falten en las OTs con operaciones nuevas (de a un tramo por ciclo). */
+    @Scheduled(initialDelayString = "${auditoria.snapshot.intervalo-ms:60000}",
+            fixedDelayString = "${auditoria.snapshot.intervalo-ms:60000}")
+    public void checkpoints() {
+        if (marca < 0) marca = snapshotRepo.maxHastaId();
+        LocalDateTime hasta = limiteCheckpoint();
+
+        Map<Long, Long> tocadas = auditoriaRepo.tocadas(marca, hasta, ordenesPorCiclo);
+        long antes = snapshotsGuardados.get();
+        for (Map.Entry<Long, Long> t : tocadas.entrySet()) {
+            try {
+                ordenRepo.findById(t.getKey()).ifPresent(ot -> reproducir(ot, hasta));
+            } catch (RuntimeException e) {
+                System.err.println("[AUDITORIA] No se pudo hacer checkpoint de la OT " + t.getKey() + ": " + e.getMessage());
+            }
+            marca = Math.max(marca, t.getValue());
+        }
+        if (!tocadas.isEmpty()) {
+            System.out.println("[AUDITORIA] Checkpoints: " + tocadas.size() + " OTs revisadas, "
+                    + (snapshotsGuardados.get() - antes) + " snapshots nuevos");
+        }
+    }
+
+    private record Reproduccion(Map<String, String> estado, LocalDateTime desde, int eventos) {}
+
+    /**
+     * Último checkpoint anterior a {@code al} + operaciones posteriores. De paso guarda un checkpoint cada
+     * {@code cada} operaciones, salvo sobre las más nuevas que el margen (todavía puede llegar alguna
+     * anterior desde el spool del escritor).
+     */
+    private Reproduccion reproducir(OrdenTrabajo ot, LocalDateTime al) {
+        LocalDateTime limite = limiteCheckpoint();
+        Optional<OrdenSnapshot> s = snapshotRepo.ultimo(ot.getId(), al);
+
+        Map<String, String> estado = s.<Map<String, String>>map(x -> new LinkedHashMap<>(x.estado())).orElseGet(() -> inicial(ot));
+        LocalDateTime fecha = s.map(OrdenSnapshot::hastaFecha).orElse(null);
+        long id = s.map(OrdenSnapshot::hastaId).orElse(0L);
+
+        int eventos = 0;
+        int sinCheckpoint = 0;
+        while (true) {
+            List<AuditoriaOperacion> ops = auditoriaRepo.posteriores(ot.getId(), fecha, id, al, LOTE);
+            for (AuditoriaOperacion op : ops) {
+                aplicar(estado, op);
+                fecha = op.fecha();
+                id = op.id();
+                eventos++;
+                if (++sinCheckpoint >= cada && !fecha.isAfter(limite)) {
+                    snapshotRepo.guardar(new OrdenSnapshot(ot.getId(), fecha, id, new LinkedHashMap<>(estado)));
+                    snapshotsGuardados.incrementAndGet();
+                    sinCheckpoint = 0;
+                }
+            }
+            if (ops.size() < LOTE) break;
+        }
+        return new Reproduccion(estado, s.map(OrdenSnapshot::hastaFecha).orElse(null), eventos);
+    }
+
+    /**
+     * Estado al alta: cada campo vale lo anterior de su primer cambio auditado; si nunca cambió, lo que
+     * vale hoy en orden_trabajo. La demora es de la etapa, así que arranca vacía.
+     */
+    Map<String, String> inicial(OrdenTrabajo ot) {
+        Map<String, String> estado = new LinkedHashMap<>();
+        poner(estado, ESTADO, inicial(ot.getId(), ESTADO, ot.getEstadoActual()));
+        poner(estado, ETAPA_DESDE, ot.getCreadaEn() == null ? null : ot.getCreadaEn().toString());
+        poner(estado, GARANTIA_DESDE, inicial(ot.getId(), GARANTIA_DESDE,
+                ot.getGarantiaDesde() == null ? null : ot.getGarantiaDesde().toString()));
+        poner(estado, GARANTIA_HASTA, inicial(ot.getId(), GARANTIA_HASTA,
+                ot.getGarantiaHasta() == null ? null : ot.getGarantiaHasta().toString()));
+        return estado;
+    }
+
+    private String inicial(long ordenId, String campo, String actual) {
+        List<String> anterior = auditoriaRepo.primerAnterior(ordenId, campo);
+        return anterior.isEmpty() ? actual : anterior.get(0);
+    }
+
+    /** Aplica una operación: el cambio de etapa primero (reinicia la demora), después el resto de los campos. */
+    static void aplicar(Map<String, String> estado, AuditoriaOperacion op) {
+        Cambio etapa = op.cambios().get(ESTADO);
+        if (etapa != null) {
+            poner(estado, ESTADO, etapa.nuevo());
+            poner(estado, ETAPA_DESDE, op.fecha().toString());
+            estado.remove(DEMORA);
+        }
+        op.cambios().forEach((campo, c) -> {
+            if (!ESTADO.equals(campo)) poner(estado, campo, c.nuevo());
+        });
+    }
+
+    private static void poner(Map<String, String> estado, String campo, String valor) {
+        if (valor == null) estado.remove(campo);
+        else estado.put(campo, valor);
+    }
+
+    private LocalDateTime limiteCheckpoint() {
+        return LocalDateTime.now().minusNanos(margenMs * 1_000_000);
+    }
+
+    private static LocalDate fecha(String s) {
+        return s == null || s.isBlank() ? null : LocalDate.parse(s);
+    }
+
+    private static LocalDateTime fechaHora(String s) {
+        return s == null || s.isBlank() ? null : LocalDateTime.parse(s);
+    }
+
+    // ───────────────────────── Métricas ─────────────────────────
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cada", cada);
+        m.put("margenMs", margenMs);
+        m.put("consultas", consultas.get());
+        m.put("eventosReproducidos", eventosReproducidos.get());
+        m.put("eventosMaxPorConsulta", eventosMax.get());
+        m.put("snapshotsGuardados", snapshotsGuardados.get());
+        m.put("marcaJob", marca);
+        return m;
+    }
+}
@@ -0,0 +1,319 @@
+package ar.edu.utn.tfi.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Exportaciones asincrónicas: el pedido devuelve un id enseguida, el archivo se genera en un pool acotado
+ * (con cola limitada) y queda en disco local para descargarlo. El avance se consulta por polling o por SSE.
+ * Si ya hay un job pendiente/en curso con los mismos parámetros, se devuelve ese mismo.
+ * Los jobs y archivos viven en esta instancia; los terminados se borran pasado el TTL.
+ */
+@Service
+public class ExportJobService {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String LISTO = "LISTO";
+    public static final String ERROR = "ERROR";
+
+    static final String PREFIJO_SSE = "export:";
+
+    private static final Set<String> AGREGADOS = Set.of("clientes", "motores-vs-tapas", "motores-por-etapa", "ingresos-senas-finales");
+    private static final Set<String> FILAS = Set.of("ordenes", "pagos");
+
+    public record ExportJobReq(String reporte, LocalDate from, LocalDate to, String format, Integer top) {}
+
+    /** Estado visible de un job (respuesta de la API y evento SSE). */
+    public record ExportJobDTO(String id, String reporte, LocalDate from, LocalDate to, String format,
+                               String estado, long filas, String error, String archivo,
+                               Instant creadoEn, Instant terminadoEn) {}
+
+    static final class Job {
+        final String id;
+        final String clave;
+        final ExportJobReq req;
+        final Instant creadoEn = Instant.now();
+        volatile String estado = PENDIENTE;
+        volatile long filas;
+        volatile String error;
+        volatile Path archivo;
+        volatile Instant terminadoEn;
+
+        Job(String id, String clave, ExportJobReq req) {
+            this.id = id;
+            this.clave = clave;
+            this.req = req;
+        }
+
+        boolean activo() {
+            return PENDIENTE.equals(estado) || EN_CURSO.equals(estado);
+        }
+    }
+
+    private final ReporteExportService exportService;
+    private final NotificationHub hub;
+    private final Path dir;
+    private final Duration ttl;
+    private final ThreadPoolExecutor pool;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> activosPorClave = new ConcurrentHashMap<>();
+
+    public ExportJobService(ReporteExportService exportService,
+                            NotificationHub hub,
+                            @Value("${reportes.export.dir:${java.io.tmpdir}/tfi-exports}") String dir,
+                            @Value("${reportes.export.ttl-minutos:60}") long ttlMinutos,
+                            @Value("${reportes.export.threads:2}") int threads,
+                            @Value("${reportes.export.queue-capacity:20}") int queueCapacity) {
+        this.exportService = exportService;
+        this.hub = hub;
+        this.dir = Path.of(dir);
+        this.ttl = Duration.ofMinutes(ttlMinutos);
+
+        AtomicInteger seq = new AtomicInteger();
+        int hilos = Math.max(1, threads);
+        // Cola acotada + AbortPolicy: si está llena se rechaza el pedido (503) en vez de acumular
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "export-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // ───────────────────────── API ─────────────────────────
+
+    public ExportJobDTO enviar(ExportJobReq req) {
+        ExportJobReq n = normalizar(req);
+        String clave = n.reporte() + "|" + n.from() + "|" + n.to() + "|" + n.format() + "|" + n.top();
+
+        var nuevo = new Job(UUID.randomUUID().toString(), clave, n);
+        // dedupe: si ya hay uno pendiente/en curso con la misma clave, se devuelve ese
+        Job job = activosPorClave.compute(clave, (k, actual) -> (actual != null && actual.activo()) ? actual : nuevo);
+        if (job != nuevo) return dto(job);
+
+        jobs.put(nuevo.id, nuevo);
+        try {
+            pool.execute(() -> ejecutar(nuevo));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(nuevo.id);
+            activosPorClave.remove(clave, nuevo);
+            throw new ServicioSaturadoException("Hay demasiadas exportaciones en cola, reintentá en unos minutos", 60);
+        }
+        return dto(nuevo);
+    }
+
+    public ExportJobDTO estado(String id) {
+        return dto(buscar(id));
+    }
+
+    /** Archivo terminado; 404 si no existe (o ya venció) y 409 si todavía no está listo. */
+    public Path archivo(String id) {
+        Job job = buscar(id);
+        if (!LISTO.equals(job.estado)) {
+            throw new IllegalStateException("La exportación " + id + " todavía no está lista (estado " + job.estado + ")");
+        }
+        if (job.archivo == null || !Files.exists(job.archivo)) {
+            throw new EntityNotFoundException("El archivo de la exportación " + id + " ya no está disponible");
+        }
+        return job.archivo;
+    }
+
+    public String nombreArchivo(String id) {
+        ExportJobReq r = buscar(id).req;
+        return r.reporte() + "-" + r.from() + "_" + r.to() + "." + r.format();
+    }
+
+    /** Stream de avance: manda el estado actual y después cada cambio; se cierra cuando el job termina. */
+    public SseEmitter suscribir(String id) {
+        Job job = buscar(id);
+        SseEmitter emitter = hub.subscribe(PREFIJO_SSE + id, null, null);
+        publicar(job);
+        return emitter;
+    }
+
+    // ───────────────────────── Ejecución ─────────────────────────
+
+    void ejecutar(Job job) {
+        job.estado = EN_CURSO;
+        publicar(job);
+
+        ExportJobReq r = job.req;
+        Path destino = dir.resolve(job.id + "." + r.format());
+        Path parcial = dir.resolve(job.id + "." + r.format() + ".part");
+        try {
+            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(parcial)) {
+                if (FILAS.contains(r.reporte())) {
+                    job.filas = escribirFilas(job, out);
+                } else {
+                    out.write(generarAgregado(r));
+                }
+            }
+            Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.archivo = destino;
+            job.estado = LISTO;
+        } catch (Exception e) {
+            System.err.println("[EXPORT-JOB] " + job.id + " (" + job.clave + ") falló: " + e.getMessage());
+            borrar(parcial);
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.estado = ERROR;
+        } finally {
+            job.terminadoEn = Instant.now();
+            activosPorClave.remove(job.clave, job);
+            publicar(job);
+        }
+    }
+
+    private long escribirFilas(Job job, OutputStream out) throws IOException {
+        ExportJobReq r = job.req;
+        return "ordenes".equals(r.reporte())
+                ? exportService.ordenesXlsx(r.from(), r.to(), out, n -> avance(job, n))
+                : exportService.pagosXlsx(r.from(), r.to(), out, n -> avance(job, n));
+    }
+
+    private void avance(Job job, long filas) {
+        job.filas = filas;
+        publicar(job);
+    }
+
+    private byte[] generarAgregado(ExportJobReq r) {
+        boolean pdf = "pdf".equals(r.format());
+        return switch (r.reporte()) {
+            case "clientes" -> pdf
+                    ? exportService.clientesFrecuentesPdf(r.from(), r.to(), r.top())
+                    : exportService.clientesFrecuentesXlsx(r.from(), r.to(), r.top());
+            case "motores-vs-tapas" -> pdf
+                    ? exportService.motoresVsTapasPdf(r.from(), r.to())
+                    : exportService.motoresVsTapasXlsx(r.from(), r.to());
+            case "motores-por-etapa" -> pdf
+                    ? exportService.motoresPorEtapaPdf(r.from(), r.to())
+                    : exportService.motoresPorEtapaXlsx(r.from(), r.to());
+            default -> pdf
+                    ? exportService.ingresosSenasFinalesPdf(r.from(), r.to())
+                    : exportService.ingresosSenasFinalesXlsx(r.from(), r.to());
+        };
+    }
+
+    /**
+     * Publica el estado; si el job ya terminó (LISTO / ERROR), después cierra los streams de avance.
+     * El avance se publica desde adentro de la transacción de lectura del export: con pushAhora, no al commit.
+     */
+    private void publicar(Job job) {
+        try {
+            hub.pushAhora(PREFIJO_SSE + job.id, "progreso", dto(job));
+            if (!job.activo()) hub.completar(PREFIJO_SSE + job.id);
+        } catch (Exception e) {
+            System.err.println("[EXPORT-JOB] No se pudo publicar avance de " + job.id + ": " + e.getMessage());
+        }
+    }
+
+    // ───────────────────────── Limpieza (TTL) ─────────────────────────
+
+    @Scheduled(fixedDelayString = "${reportes.export.limpieza-ms:600000}")
+    public void limpiarVencidos() {
+        Instant limite = Instant.now().minus(ttl);
+
+        jobs.values().removeIf(job -> {
+            if (job.activo() || job.terminadoEn == null || job.terminadoEn.isAfter(limite)) return false;
+            if (job.archivo != null) borrar(job.archivo);
+            return true;
+        });
+
+        // archivos sueltos (por ejemplo de antes de un reinicio)
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> archivos = Files.list(dir)) {
+            archivos.filter(p -> {
+                        try {
+                            return Files.getLastModifiedTime(p).toInstant().isBefore(limite);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .filter(p -> jobs.values().stream().noneMatch(j -> p.equals(j.archivo)))
+                    .forEach(ExportJobService::borrar);
+        } catch (IOException e) {
+            System.err.println("[EXPORT-JOB] No se pudo limpiar " + dir + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // ───────────────────────── Helpers ─────────────────────────
+
+    static ExportJobReq normalizar(ExportJobReq req) {
+        if (req == null || req.reporte() == null) throw new IllegalArgumentException("reporte requerido");
+        if (req.from() == null || req.to() == null) throw new IllegalArgumentException("from y to son requeridos");
+
+        String reporte = req.reporte().trim().toLowerCase(Locale.ROOT);
+        String format = req.format() == null ? "xlsx" : req.format().trim().toLowerCase(Locale.ROOT);
+        if (!AGREGADOS.contains(reporte) && !FILAS.contains(reporte)) {
+            throw new IllegalArgumentException("Reporte desconocido: " + req.reporte());
+        }
+        if (!"xlsx".equals(format) && !"pdf".equals(format)) {
+            throw new IllegalArgumentException("format debe ser xlsx o pdf");
+        }
+        if (FILAS.contains(reporte) && !"xlsx".equals(format)) {
+            throw new IllegalArgumentException("El reporte " + reporte + " solo se exporta en xlsx");
+        }
+
+        LocalDate from = req.from(), to = req.to();
+        if (to.isBefore(from)) { var tmp = from; from = to; to = tmp; }
+
+        // top solo aplica al ranking de clientes
+        Integer top = "clientes".equals(reporte) ? (req.top() == null ? 10 : req.top()) : null;
+        return new ExportJobReq(reporte, from, to, format, top);
+    }
+
+    private Job buscar(String id) {
+        Job job = jobs.get(id);
+        if (job == null) throw new EntityNotFoundException("No existe la exportación " + id);
+        return job;
+    }
+
+    private static ExportJobDTO dto(Job j) {
+        ExportJobReq r = j.req;
+        String archivo = LISTO.equals(j.estado) ? "/api/reportes/export/jobs/" + j.id + "/archivo" : null;
+        return new ExportJobDTO(j.id, r.reporte(), r.from(), r.to(), r.format(),
+                j.estado, j.filas, j.error, archivo, j.creadoEn, j.terminadoEn);
+    }
+
+    private static void borrar(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            System.err.println("[EXPORT-JOB] No se pudo borrar " + p + ": " + e.getMessage());
+        }
+    }
+}
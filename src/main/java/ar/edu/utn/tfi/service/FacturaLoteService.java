@@ -0,0 +1,178 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.FacturaMock;
+import ar.edu.utn.tfi.repository.FacturaMockRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emisión masiva de facturas (cierre de mes): busca todos los presupuestos con FINAL acreditado,
+ * OT en una etapa que permite FACTURAR (entregada) y sin factura, y los emite por bloques.
+ *
+ * Cada bloque es una transacción; si falla, sus presupuestos se reintentan de a uno para que un caso
+ * roto no frene al resto. Los PDFs se renderizan después del commit en un pool fijo (la emisión no
+ * espera al render). Los mails de factura emitida quedan encolados en el outbox con la factura.
+ * Hay una sola corrida a la vez por instancia.
+ */
+@Service
+public class FacturaLoteService {
+
+    public static final String EMITIDA = "EMITIDA";
+    public static final String EMITIDA_SIN_PDF = "EMITIDA_SIN_PDF";
+    public static final String ERROR = "ERROR";
+
+    /** Resultado por presupuesto. */
+    public record ItemLote(Long presupuestoId, Long facturaId, String numero, String estado, String mensaje) {}
+
+    public record ResultadoLote(int candidatos, int emitidas, int sinPdf, int errores, long ms, List<ItemLote> items) {}
+
+    private final FacturaMockService facturaService;
+    private final FacturaMockRepository facturaRepo;
+    private final MaquinaEtapas etapas;
+    private final RenderBulkhead bulkhead;
+    private final int bloque;
+    private final int maximo;
+    private final ExecutorService poolPdf;
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    public FacturaLoteService(FacturaMockService facturaService,
+                              FacturaMockRepository facturaRepo,
+                              MaquinaEtapas etapas,
+                              RenderBulkhead bulkhead,
+                              @Value("${facturas.lote.bloque:50}") int bloque,
+                              @Value("${facturas.lote.maximo:1000}") int maximo,
+                              @Value("${facturas.lote.pdf-hilos:4}") int hilosPdf) {
+        this.facturaService = facturaService;
+        this.facturaRepo = facturaRepo;
+        this.etapas = etapas;
+        this.bulkhead = bulkhead;
+        this.bloque = Math.max(1, bloque);
+        this.maximo = Math.max(1, maximo);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.poolPdf = Executors.newFixedThreadPool(Math.max(1, hilosPdf), r -> {
+            Thread t = new Thread(r, "factura-pdf-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Emite todas las facturas pendientes del tipo indicado (A/B/C) y devuelve el resultado de cada una. */
+    public ResultadoLote emitirPendientes(String tipo) {
+        String t = (tipo == null || tipo.isBlank()) ? "B" : tipo.trim().toUpperCase();
+        if (!t.matches("[ABC]")) {
+            throw new IllegalArgumentException("Tipo de factura inválido. Debe ser A, B o C.");
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una emisión masiva en curso.");
+        }
+        try {
+            return ejecutar(t);
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private ResultadoLote ejecutar(String tipo) {
+        long t0 = System.currentTimeMillis();
+        // etapas en las que se factura, del catálogo (ENTREGADO); sin ninguna no hay candidatos
+        List<String> etapasFacturables = etapas.etapasQuePermiten(MaquinaEtapas.Accion.FACTURAR);
+        List<Long> ids = etapasFacturables.isEmpty()
+                ? List.of()
+                : facturaRepo.findPresupuestosAFacturar(etapasFacturables, maximo);
+
+        // ─── 1) Emisión por bloques (una transacción por bloque) ───
+        List<ItemLote> items = new ArrayList<>(ids.size());
+        List<Future<?>> renders = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+
+        for (int desde = 0; desde < ids.size(); desde += bloque) {
+            List<Long> parte = ids.subList(desde, Math.min(ids.size(), desde + bloque));
+            for (ItemLote item : emitirBloque(parte, tipo)) {
+                if (item.facturaId() != null) {
+                    // ─── 2) PDF en paralelo, ya con la factura commiteada ───
+                    Long facturaId = item.facturaId();
+                    // el lugar del bulkhead se toma antes de la transacción de pdf(), como en las descargas
+                    renders.add(poolPdf.submit(
+                            () -> bulkhead.ejecutar("factura-pdf", () -> facturaService.pdf(facturaId))));
+                    posiciones.add(items.size());
+                }
+                items.add(item);
+            }
+        }
+
+        // ─── 3) Esperar los renders y completar el resultado ───
+        for (int i = 0; i < renders.size(); i++) {
+            int pos = posiciones.get(i);
+            ItemLote item = items.get(pos);
+            try {
+                renders.get(i).get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                items.set(pos, sinPdf(item, "interrumpido"));
+            } catch (ExecutionException ee) {
+                // la factura ya está emitida: el PDF se renderiza en la primera descarga
+                items.set(pos, sinPdf(item, ee.getCause().getMessage()));
+            }
+        }
+
+        int emitidas = 0, sinPdf = 0, errores = 0;
+        for (ItemLote i : items) {
+            switch (i.estado()) {
+                case EMITIDA -> emitidas++;
+                case EMITIDA_SIN_PDF -> sinPdf++;
+                default -> errores++;
+            }
+        }
+        long ms = System.currentTimeMillis() - t0;
+        System.out.println("[FACTURA-LOTE] candidatos=" + ids.size() + " emitidas=" + emitidas
+                + " sinPdf=" + sinPdf + " errores=" + errores + " (" + ms + " ms)");
+        return new ResultadoLote(ids.size(), emitidas, sinPdf, errores, ms, items);
+    }
+
+    private List<ItemLote> emitirBloque(List<Long> ids, String tipo) {
+        List<ItemLote> res = new ArrayList<>(ids.size());
+        try {
+            for (FacturaMock f : facturaService.emitirBloque(ids, tipo)) {
+                res.add(emitida(f));
+            }
+            return res;
+        } catch (Exception e) {
+            System.err.println("[FACTURA-LOTE] Falló el bloque de " + ids.size() + ", se reintenta de a uno: " + e.getMessage());
+        }
+        // reintento individual: cada presupuesto en su propia transacción
+        for (Long id : ids) {
+            try {
+                res.add(emitida(facturaService.emitirSinPdf(id, tipo)));
+            } catch (Exception e) {
+                res.add(new ItemLote(id, null, null, ERROR, e.getMessage()));
+            }
+        }
+        return res;
+    }
+
+    private static ItemLote emitida(FacturaMock f) {
+        return new ItemLote(f.getPresupuesto().getId(), f.getId(), f.getNumero(), EMITIDA, null);
+    }
+
+    private static ItemLote sinPdf(ItemLote i, String mensaje) {
+        return new ItemLote(i.presupuestoId(), i.facturaId(), i.numero(), EMITIDA_SIN_PDF, mensaje);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        poolPdf.shutdown();
+        poolPdf.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
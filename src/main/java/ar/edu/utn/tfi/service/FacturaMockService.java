@@ -6,7 +6,6 @@ import ar.edu.utn.tfi.domain.PresupuestoItem;
 import ar.edu.utn.tfi.repository.FacturaMockRepository;
 import ar.edu.utn.tfi.repository.PresupuestoItemRepository;
 import ar.edu.utn.tfi.repository.PresupuestoRepository;
-import com.lowagie.text.Image;
 import com.lowagie.text.Rectangle;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
@@ -23,50 +22,104 @@ import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import ar.edu.utn.tfi.web.dto.RepuestoDTO;
 
 @Service
 public class FacturaMockService {
 
+    /** Versión de la plantilla del PDF: subirla al cambiar buildPdf para que se vuelvan a renderizar. */
+    public static final int PLANTILLA_PDF = 2;
+
     private final PresupuestoRepository presupuestoRepo;
     private final FacturaMockRepository facturaRepo;
     private final PresupuestoItemRepository itemRepo;
     private final MailService mailService;
     private final OrdenRepuestoService ordenRepuestoService;
+    private final NumeradorService numerador;
+    private final FacturaPdfStore pdfStore;
+    private final PdfKit pdfKit;
+    private final MaquinaEtapas etapas;
 
     public FacturaMockService(PresupuestoRepository presupuestoRepo,
                               FacturaMockRepository facturaRepo,
                               PresupuestoItemRepository itemRepo,
                               MailService mailService,
-                              OrdenRepuestoService ordenRepuestoService) {
+                              OrdenRepuestoService ordenRepuestoService,
+                              NumeradorService numerador,
+                              FacturaPdfStore pdfStore,
+                              PdfKit pdfKit,
+                              MaquinaEtapas etapas) {
         this.presupuestoRepo = presupuestoRepo;
         this.facturaRepo = facturaRepo;
         this.itemRepo = itemRepo;
         this.mailService = mailService;
         this.ordenRepuestoService = ordenRepuestoService;
+        this.numerador = numerador;
+        this.pdfStore = pdfStore;
+        this.pdfKit = pdfKit;
+        this.etapas = etapas;
     }
 
     /**
      * Genera la factura (A/B/C) para un presupuesto cuyo FINAL está ACREDITADO.
      * Si ya existe una factura para ese presupuesto, lanza error (idempotente).
+     * Renderiza el PDF: el llamador reserva el lugar en el {@link RenderBulkhead} antes de entrar.
      */
     @Transactional
     public FacturaMock generar(Long presupuestoId, String tipo) {
+        FacturaMock f = emitir(presupuestoId, tipo);
+
+        // PDF: se renderiza una sola vez al emitir; las descargas leen el archivo guardado
+        try {
+            guardarPdf(f, f.getPresupuesto());
+        } catch (Exception e) {
+            // no frena la emisión: se renderiza en la primera descarga
+            System.err.println("[FACTURA] No se pudo renderizar el PDF de " + f.getNumero() + ": " + e.getMessage());
+        }
+        return f;
+    }
+
+    /**
+     * Emisión masiva: emite todas las facturas del bloque en una sola transacción (todo o nada),
+     * sin renderizar los PDFs; el llamador los renderiza en paralelo después del commit.
+     */
+    @Transactional
+    public List<FacturaMock> emitirBloque(List<Long> presupuestoIds, String tipo) {
+        List<FacturaMock> emitidas = new ArrayList<>(presupuestoIds.size());
+        for (Long id : presupuestoIds) {
+            emitidas.add(emitir(id, tipo));
+        }
+        return emitidas;
+    }
+
+    /** Como {@link #generar} pero sin renderizar el PDF (reintento individual de la emisión masiva). */
+    @Transactional
+    public FacturaMock emitirSinPdf(Long presupuestoId, String tipo) {
+        return emitir(presupuestoId, tipo);
+    }
+
+    private FacturaMock emitir(Long presupuestoId, String tipo) {
         Presupuesto p = presupuestoRepo.findById(presupuestoId)
                 .orElseThrow(() -> new EntityNotFoundException("Presupuesto no encontrado: " + presupuestoId));
 
         if (!"ACREDITADA".equalsIgnoreCase(p.getFinalEstado())) {
             throw new IllegalStateException("Solo se puede facturar si el pago FINAL está acreditado.");
         }
-        // OPCIONAL: Validar etapa ENTREGADO antes de facturar
+        // OPCIONAL: Validar etapa antes de facturar (acción FACTURAR del catálogo: ENTREGADO)
         if (p.getOtNroOrden() != null && !p.getOtNroOrden().isBlank()) {
             String etapa = ordenRepuestoService.getEtapaActualPorNroOrden(p.getOtNroOrden());
 
-            if (!"ENTREGADO".equalsIgnoreCase(etapa)) {
+            if (!etapas.permite(etapa, MaquinaEtapas.Accion.FACTURAR)) {
                 throw new IllegalStateException(
-                        "Solo se puede emitir factura cuando la OT está ENTREGADO. (Actual: " + etapa + ")"
+                        "Solo se puede emitir factura cuando la OT está "
+                                + String.join("/", etapas.etapasQuePermiten(MaquinaEtapas.Accion.FACTURAR))
+                                + ". (Actual: " + etapa + ")"
                 );
             }
         }
@@ -80,17 +133,8 @@ public class FacturaMockService {
             throw new IllegalArgumentException("Tipo de factura inválido. Debe ser A, B o C.");
         }
 
-        // Prefijo según tipo
-        String prefijo;
-        switch (t) {
-            case "A" -> prefijo = "FA-";
-            case "B" -> prefijo = "FB-";
-            case "C" -> prefijo = "FC-";
-            default -> prefijo = "F-";
-        }
-
-        long count = facturaRepo.count() + 1;
-        String numero = String.format("%s%06d", prefijo, count);
+        // Número según la serie del tipo (FA-/FB-/FC-), cada una con su secuencia
+        String numero = numerador.siguiente(NumeradorService.Serie.factura(t));
 
         // ─── CALCULAR TOTAL SERVICIOS + REPUESTOS ─────────────────────
         BigDecimal totalServicios = p.getTotal() != null ? p.getTotal() : BigDecimal.ZERO;
@@ -115,7 +159,7 @@ public class FacturaMockService {
         // Guardar factura
         f = facturaRepo.save(f);
 
-        // Notificación por mail (mock)
+        // Notificación por mail: se encola en el outbox dentro de esta transacción
         mailService.enviarFacturaEmitida(f);
 
         return f;
@@ -128,79 +172,153 @@ public class FacturaMockService {
                 .orElseGet(() -> generar(presupuestoId, (tipoDefault == null ? "B" : tipoDefault)));
     }
 
-    /** Render PDF por ID de factura existente. */
-    @Transactional(readOnly = true)
-    public byte[] renderPdf(Long facturaId) {
+    /**
+     * PDF de una factura existente (del almacén; se renderiza solo si falta o cambió la plantilla).
+     * El lugar en el {@link RenderBulkhead} lo reserva el llamador antes de abrir esta transacción,
+     * así una descarga encolada no retiene una conexión del pool mientras espera.
+     */
+    @Transactional
+    public FacturaPdfStore.PdfGuardado pdf(Long facturaId) {
         FacturaMock f = facturaRepo.findById(facturaId)
                 .orElseThrow(() -> new EntityNotFoundException("Factura no encontrada: " + facturaId));
-        Presupuesto p = f.getPresupuesto();
-        List<PresupuestoItem> items = itemRepo.findByPresupuestoId(p.getId());
-        return buildPdf(f, p, items);
+        return asegurarPdf(f);
     }
 
     /**
-     * Render PDF asegurando factura para un presupuesto:
-     * si no existe, la crea (tipo por defecto) y luego genera el PDF.
+     * PDF asegurando factura para un presupuesto:
+     * si no existe, la crea (tipo por defecto) y devuelve su PDF.
      */
     @Transactional
-    public byte[] renderPdfByPresupuesto(Long presupuestoId, String tipoDefault) {
-        FacturaMock f = getOrCreateByPresupuesto(presupuestoId, tipoDefault);
-        Presupuesto p = f.getPresupuesto();
+    public FacturaPdfStore.PdfGuardado pdfByPresupuesto(Long presupuestoId, String tipoDefault) {
+        return asegurarPdf(getOrCreateByPresupuesto(presupuestoId, tipoDefault));
+    }
+
+    private FacturaPdfStore.PdfGuardado asegurarPdf(FacturaMock f) {
+        var existente = pdfEnAlmacen(f);
+        if (existente.isPresent()) {
+            referenciar(f, existente.get());
+            return existente.get();
+        }
+        return guardarPdf(f, f.getPresupuesto());
+    }
+
+    /** PDF de la plantilla actual ya guardado: el referenciado por la factura o uno dejado por la descarga pública. */
+    private Optional<FacturaPdfStore.PdfGuardado> pdfEnAlmacen(FacturaMock f) {
+        if (Objects.equals(f.getPdfPlantilla(), PLANTILLA_PDF)) {
+            var guardado = pdfStore.buscar(f.getId(), PLANTILLA_PDF, f.getPdfHash());
+            if (guardado.isPresent()) return guardado;
+        }
+        return pdfStore.buscarVigente(f.getId(), PLANTILLA_PDF);
+    }
+
+    private FacturaPdfStore.PdfGuardado guardarPdf(FacturaMock f, Presupuesto p) {
+        var guardado = renderizar(f, p);
+        referenciar(f, guardado);
+        return guardado;
+    }
+
+    /** Renderiza y guarda el archivo (el ORIGINAL); no toca la factura. */
+    private FacturaPdfStore.PdfGuardado renderizar(FacturaMock f, Presupuesto p) {
         List<PresupuestoItem> items = itemRepo.findByPresupuestoId(p.getId());
-        return buildPdf(f, p, items);
+        byte[] pdf = estampar(buildPdf(f, p, items), List.of(PdfKit.ORIGINAL), huella(f));
+        return pdfStore.guardar(f.getId(), PLANTILLA_PDF, pdf);
+    }
+
+    // ─── Copias fiscales (ORIGINAL / DUPLICADO / TRIPLICADO) ───
+
+    /**
+     * Copias de la factura en un solo PDF, una tras otra (default: las tres). El comprobante se renderiza
+     * una sola vez y cada copia reusa sus páginas con sólo la leyenda encima. No se guarda en el almacén.
+     */
+    @Transactional(readOnly = true)
+    public byte[] copias(Long facturaId, List<String> leyendas) {
+        List<String> copias = validarCopias(leyendas);
+        FacturaMock f = facturaRepo.findById(facturaId)
+                .orElseThrow(() -> new EntityNotFoundException("Factura no encontrada: " + facturaId));
+        List<PresupuestoItem> items = itemRepo.findByPresupuestoId(f.getPresupuesto().getId());
+        return estampar(buildPdf(f, f.getPresupuesto(), items), copias);
+    }
+
+    /** Como {@link #copias} pero un PDF por copia (leyenda → PDF), también con un solo render. */
+    @Transactional(readOnly = true)
+    public Map<String, byte[]> copiasSeparadas(Long facturaId, List<String> leyendas) {
+        List<String> copias = validarCopias(leyendas);
+        FacturaMock f = facturaRepo.findById(facturaId)
+                .orElseThrow(() -> new EntityNotFoundException("Factura no encontrada: " + facturaId));
+        List<PresupuestoItem> items = itemRepo.findByPresupuestoId(f.getPresupuesto().getId());
+
+        byte[] cuerpo = buildPdf(f, f.getPresupuesto(), items);
+        Map<String, byte[]> pdfs = new LinkedHashMap<>();
+        for (String c : copias) {
+            pdfs.put(c, estampar(cuerpo, List.of(c)));
+        }
+        return pdfs;
+    }
+
+    /** Normaliza las leyendas pedidas (mayúsculas, sin repetir); vacío = las tres. */
+    static List<String> validarCopias(List<String> leyendas) {
+        if (leyendas == null || leyendas.isEmpty()) return PdfKit.COPIAS;
+        List<String> copias = new ArrayList<>();
+        for (String l : leyendas) {
+            String c = l == null ? "" : l.trim().toUpperCase();
+            if (!PdfKit.COPIAS.contains(c)) {
+                throw new IllegalArgumentException("Copia inválida: '" + l + "' (ORIGINAL, DUPLICADO o TRIPLICADO)");
+            }
+            if (!copias.contains(c)) copias.add(c);
+        }
+        return copias;
+    }
+
+    private static byte[] estampar(byte[] cuerpo, List<String> leyendas) {
+        return estampar(cuerpo, leyendas, null);
+    }
+
+    private static byte[] estampar(byte[] cuerpo, List<String> leyendas, PdfKit.Huella huella) {
+        try {
+            return PdfKit.estamparCopias(cuerpo, leyendas, huella);
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo generar el PDF: " + e.getMessage(), e);
+        }
+    }
+
+    /** Fecha e /ID del PDF guardado: salen de la factura, así re-renderizarla da el mismo archivo. */
+    static PdfKit.Huella huella(FacturaMock f) {
+        return new PdfKit.Huella(f.getFechaEmision(), "factura-" + f.getId() + "-v" + PLANTILLA_PDF + "-" + f.getNumero());
+    }
+
+    private static void referenciar(FacturaMock f, FacturaPdfStore.PdfGuardado guardado) {
+        if (Objects.equals(f.getPdfPlantilla(), PLANTILLA_PDF) && guardado.hash().equals(f.getPdfHash())) return;
+        // la factura está administrada por la transacción: los dos campos se guardan al commit
+        f.setPdfHash(guardado.hash());
+        f.setPdfPlantilla(PLANTILLA_PDF);
     }
 
     // ======================= PDF builder (OpenPDF) =======================
 
+    /** Cuerpo del comprobante, sin leyenda de copia: la primera línea queda libre para estamparla. */
     private byte[] buildPdf(FacturaMock f, Presupuesto p, List<PresupuestoItem> items) {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
             Document doc = new Document(PageSize.A4, 36, 36, 54, 36);
             PdfWriter.getInstance(doc, baos);
             doc.open();
 
-            Font titleFont   = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
-            Font bigLetter   = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 26);
-            Font normal      = FontFactory.getFont(FontFactory.HELVETICA, 10);
-            Font small       = FontFactory.getFont(FontFactory.HELVETICA, 8);
-            Font boldSmall   = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8);
-            Font barcodeFont = FontFactory.getFont(FontFactory.COURIER, 9);
+            // fuentes compartidas (PdfKit): no se buscan en FontFactory en cada render
+            Font titleFont   = PdfKit.TITULO;
+            Font bigLetter   = PdfKit.LETRA_GRANDE;
+            Font normal      = PdfKit.NORMAL;
+            Font small       = PdfKit.CHICA;
+            Font boldSmall   = PdfKit.CHICA_NEGRITA;
+            Font barcodeFont = PdfKit.CODIGO_BARRAS;
 
-            // ───────────────── ORIGINAL (esquina superior derecha) ─────────────────
-            Paragraph original = new Paragraph("ORIGINAL", small);
-            original.setAlignment(Element.ALIGN_RIGHT);
-            doc.add(original);
+            // ───────────────── Lugar de la leyenda ORIGINAL/DUPLICADO/TRIPLICADO (PdfKit.estamparCopias) ─────────────────
+            doc.add(new Paragraph(" ", small));
 
             // ───────────────── ENCABEZADO CON LOGO + DATOS + LETRA ─────────────────
             PdfPTable head = new PdfPTable(new float[]{3f, 1.2f});
             head.setWidthPercentage(100);
 
-            // Columna izquierda: logo + datos empresa
-            PdfPCell left = new PdfPCell();
-            left.setBorder(Rectangle.BOX);
-            left.setPadding(6f);
-
-            try {
-                Image logo = Image.getInstance(
-                        Objects.requireNonNull(
-                                getClass().getResource("/static/img/logo-fondo-transparente.png")
-                        )
-                );
-                logo.scaleToFit(180, 80);
-                logo.setAlignment(Image.LEFT);
-                left.addElement(logo);
-            } catch (Exception ex) {
-                // si no se encuentra el logo, no rompemos el PDF
-            }
-
-            Paragraph empName = new Paragraph("RECTIFICADORA CORNEJO SAS", titleFont);
-            empName.setSpacingBefore(4f);
-            left.addElement(empName);
-            left.addElement(new Phrase("""
-            CUIT: 30-00000000-0
-            Domicilio: Ferdinand de Lesseps 1000 - Córdoba
-            Condición frente al IVA: Responsable Inscripto
-            """, small));
-            head.addCell(left);
+            // Columna izquierda: logo + datos empresa (plantilla armada una sola vez)
+            head.addCell(pdfKit.cabeceraEmpresa());
 
             // Columna derecha: recuadro con letra A/B/C
             PdfPCell right = new PdfPCell();
@@ -252,12 +370,8 @@ public class FacturaMockService {
             PdfPTable tItems = new PdfPTable(new float[]{4f, 2f});
             tItems.setWidthPercentage(100);
 
-            PdfPCell h1 = new PdfPCell(new Phrase("Concepto", small));
-            PdfPCell h2 = new PdfPCell(new Phrase("Precio", small));
-            h1.setBackgroundColor(new Color(240, 240, 240));
-            h2.setBackgroundColor(new Color(240, 240, 240));
-            tItems.addCell(h1);
-            tItems.addCell(h2);
+            tItems.addCell(PdfKit.celdaEncabezadoItems("Concepto"));
+            tItems.addCell(PdfKit.celdaEncabezadoItems("Precio"));
 
 // Total servicios
             BigDecimal totalServicios = BigDecimal.ZERO;
@@ -297,20 +411,10 @@ public class FacturaMockService {
                     PdfPTable repTable = new PdfPTable(new float[]{4f, 1f, 1.2f, 1.2f});
                     repTable.setWidthPercentage(100);
 
-                    PdfPCell rh1 = new PdfPCell(new Phrase("Descripción", small));
-                    PdfPCell rh2 = new PdfPCell(new Phrase("Cant.", small));
-                    PdfPCell rh3 = new PdfPCell(new Phrase("Precio unit.", small));
-                    PdfPCell rh4 = new PdfPCell(new Phrase("Subtotal", small));
-
-                    rh1.setBackgroundColor(new Color(240, 240, 240));
-                    rh2.setBackgroundColor(new Color(240, 240, 240));
-                    rh3.setBackgroundColor(new Color(240, 240, 240));
-                    rh4.setBackgroundColor(new Color(240, 240, 240));
-
-                    repTable.addCell(rh1);
-                    repTable.addCell(rh2);
-                    repTable.addCell(rh3);
-                    repTable.addCell(rh4);
+                    repTable.addCell(PdfKit.celdaEncabezadoItems("Descripción"));
+                    repTable.addCell(PdfKit.celdaEncabezadoItems("Cant."));
+                    repTable.addCell(PdfKit.celdaEncabezadoItems("Precio unit."));
+                    repTable.addCell(PdfKit.celdaEncabezadoItems("Subtotal"));
 
                     for (RepuestoDTO r : repuestos) {
                         BigDecimal cant = r.cantidad() != null ? r.cantidad() : BigDecimal.ONE;
@@ -490,18 +594,20 @@ public class FacturaMockService {
         table.addCell(c2);
     }
 
+    /**
+     * Descarga pública por solicitud, de solo lectura: nunca emite la factura ni escribe en la base.
+     * Vacío si el presupuesto aprobado todavía no tiene factura (el controller responde 202).
+     * Si el PDF no está en el almacén se renderiza y se guarda solo el archivo; la factura no se actualiza
+     * (la próxima descarga lo encuentra por {@link FacturaPdfStore#buscarVigente}).
+     */
     @Transactional(readOnly = true)
-    public byte[] renderPdfBySolicitud(Long solicitudId) {
+    public Optional<FacturaPdfStore.PdfGuardado> pdfBySolicitud(Long solicitudId) {
         Presupuesto p = presupuestoRepo
                 .findFirstBySolicitudIdAndEstadoOrderByCreadaEnDesc(solicitudId, "APROBADO")
                 .orElseThrow(() -> new EntityNotFoundException(
                         "No hay presupuesto APROBADO para la solicitud " + solicitudId));
 
-        FacturaMock f = facturaRepo.findByPresupuestoId(p.getId())
-                .orElseThrow(() -> new EntityNotFoundException(
-                        "Todavía no hay una factura emitida para esta solicitud."));
-
-        List<PresupuestoItem> items = itemRepo.findByPresupuestoId(p.getId());
-        return buildPdf(f, p, items);
+        return facturaRepo.findByPresupuestoId(p.getId())
+                .map(f -> pdfEnAlmacen(f).orElseGet(() -> renderizar(f, p)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package ar.edu.utn.tfi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Almacén local de PDFs de factura, direccionado por contenido:
+ * {dir}/{id / 1000}/{id}-v{plantilla}-{sha256}.pdf. Un archivo escrito no se modifica nunca
+ * (una factura emitida no cambia); el hash sirve de ETag para las descargas. El render es
+ * determinístico (fechas e /ID del PDF salen de la factura), así que volver a renderizar, acá o en
+ * otra instancia, da el mismo archivo y el mismo hash.
+ *
+ * Las versiones reemplazadas (plantilla vieja) no se borran al escribir la nueva: puede haber una
+ * descarga en curso sirviéndolas. Las borra {@link #limpiarVersiones()} cuando la versión que las
+ * reemplazó tiene más de {@code facturas.pdf.gracia-minutos}.
+ */
+@Component
+public class FacturaPdfStore {
+
+    /** PDF guardado: ruta del archivo y hash SHA-256 (hex) del contenido. */
+    public record PdfGuardado(Path archivo, String hash) {}
+
+    private final Path dir;
+    private final Duration gracia;
+
+    @Autowired
+    public FacturaPdfStore(@Value("${facturas.pdf.dir:${java.io.tmpdir}/tfi-facturas-pdf}") String dir,
+                           @Value("${facturas.pdf.gracia-minutos:10}") long graciaMinutos) {
+        this(dir, Duration.ofMinutes(graciaMinutos));
+    }
+
+    FacturaPdfStore(String dir, Duration gracia) {
+        this.dir = Path.of(dir);
+        this.gracia = gracia;
+    }
+
+    /** Guarda el PDF (si ya existía el mismo contenido no escribe nada). Las versiones anteriores quedan hasta la limpieza. */
+    public PdfGuardado guardar(Long facturaId, int plantilla, byte[] pdf) {
+        String hash = sha256(pdf);
+        Path destino = ruta(facturaId, plantilla, hash);
+        try {
+            if (!Files.exists(destino)) {
+                Files.createDirectories(destino.getParent());
+                // escritura atómica: nadie ve un PDF a medio escribir
+                Path tmp = Files.createTempFile(destino.getParent(), facturaId + "-", ".part");
+                try {
+                    Files.write(tmp, pdf);
+                    Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar el PDF de la factura " + facturaId, e);
+        }
+        return new PdfGuardado(destino, hash);
+    }
+
+    /** El archivo guardado, si sigue en disco (puede faltar si se limpió el directorio o es otro nodo). */
+    public Optional<PdfGuardado> buscar(Long facturaId, int plantilla, String hash) {
+        if (hash == null) return Optional.empty();
+        Path p = ruta(facturaId, plantilla, hash);
+        return Files.isRegularFile(p) ? Optional.of(new PdfGuardado(p, hash)) : Optional.empty();
+    }
+
+    /**
+     * El archivo de la plantilla indicada que haya en disco, sin conocer el hash
+     * (lo dejó un render de solo lectura que no actualizó la factura). Si hay más de uno, el más nuevo.
+     */
+    public Optional<PdfGuardado> buscarVigente(Long facturaId, int plantilla) {
+        Path carpeta = dir.resolve(String.valueOf(facturaId / 1000));
+        if (!Files.isDirectory(carpeta)) return Optional.empty();
+        String prefijo = facturaId + "-v" + plantilla + "-";
+        Path vigente = null;
+        FileTime modVigente = null;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(carpeta, prefijo + "*.pdf")) {
+            for (Path p : ds) {
+                FileTime mod = Files.getLastModifiedTime(p);
+                if (vigente == null || mod.compareTo(modVigente) > 0) {
+                    vigente = p;
+                    modVigente = mod;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[FACTURA-PDF] No se pudo leer " + carpeta + ": " + e.getMessage());
+            return Optional.empty();
+        }
+        if (vigente == null) return Optional.empty();
+        String nombre = vigente.getFileName().toString();
+        return Optional.of(new PdfGuardado(vigente, nombre.substring(prefijo.length(), nombre.length() - 4)));
+    }
+
+    Path ruta(Long facturaId, int plantilla, String hash) {
+        return dir.resolve(String.valueOf(facturaId / 1000))
+                .resolve(facturaId + "-v" + plantilla + "-" + hash + ".pdf");
+    }
+
+    // ───────────────────────── Limpieza de versiones ─────────────────────────
+
+    /**
+     * Borra las versiones reemplazadas: de cada factura se conserva el archivo más nuevo, y los demás se
+     * borran recién cuando ese más nuevo tiene más de la gracia (una descarga que empezó con la versión
+     * anterior ya terminó). Devuelve cuántos archivos borró.
+     */
+    @Scheduled(fixedDelayString = "${facturas.pdf.limpieza-ms:600000}")
+    public int limpiarVersiones() {
+        if (!Files.isDirectory(dir)) return 0;
+        long limite = System.currentTimeMillis() - gracia.toMillis();
+        int borrados = 0;
+        try (DirectoryStream<Path> carpetas = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path carpeta : carpetas) {
+                borrados += limpiarCarpeta(carpeta, limite);
+            }
+        } catch (IOException e) {
+            System.err.println("[FACTURA-PDF] No se pudo recorrer " + dir + ": " + e.getMessage());
+        }
+        if (borrados > 0) System.out.println("[FACTURA-PDF] Versiones reemplazadas borradas: " + borrados);
+        return borrados;
+    }
+
+    private int limpiarCarpeta(Path carpeta, long limite) throws IOException {
+        record Version(Path archivo, long modificado) {}
+        Map<String, List<Version>> porFactura = new HashMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(carpeta, "*-v*.pdf")) {
+            for (Path p : ds) {
+                String nombre = p.getFileName().toString();
+                String id = nombre.substring(0, nombre.indexOf("-v"));
+                porFactura.computeIfAbsent(id, k -> new ArrayList<>())
+                        .add(new Version(p, Files.getLastModifiedTime(p).toMillis()));
+            }
+        }
+        int borrados = 0;
+        for (List<Version> versiones : porFactura.values()) {
+            if (versiones.size() < 2) continue;
+            versiones.sort(Comparator.comparingLong(Version::modificado).reversed());
+            if (versiones.get(0).modificado() > limite) continue;   // la nueva todavía está en gracia
+            for (Version v : versiones.subList(1, versiones.size())) {
+                if (Files.deleteIfExists(v.archivo())) borrados++;
+            }
+        }
+        return borrados;
+    }
+
+    static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.repository.ExportFilasRepository;
+import ar.edu.utn.tfi.repository.ExportFilasRepository.FacturaArchivo;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP con los PDFs de todas las facturas de un período, escrito directo al OutputStream de la respuesta.
+ * Las facturas se recorren por páginas keyset (fecha_emision, id) y cada PDF se copia del almacén
+ * (o se renderiza si falta) de a uno: la memoria no depende de cuántas facturas tenga el mes.
+ *
+ * No es transaccional: cada página y cada render usan su propia transacción corta. Entre páginas se
+ * limpia el contexto de persistencia (con open-in-view el mismo EntityManager dura todo el request).
+ */
+@Service
+public class FacturaZipService {
+
+    static final String ERRORES = "ERRORES.txt";
+
+    private final ExportFilasRepository filasRepo;
+    private final FacturaMockService facturaService;
+    private final FacturaPdfStore pdfStore;
+    private final EntityManager em;
+    private final int pagina;
+
+    public FacturaZipService(ExportFilasRepository filasRepo,
+                             FacturaMockService facturaService,
+                             FacturaPdfStore pdfStore,
+                             EntityManager em,
+                             @Value("${facturas.zip.pagina:200}") int pagina) {
+        this.filasRepo = filasRepo;
+        this.facturaService = facturaService;
+        this.pdfStore = pdfStore;
+        this.em = em;
+        this.pagina = Math.max(1, pagina);
+    }
+
+    /**
+     * Escribe el ZIP con las facturas emitidas entre {@code from} y {@code to} (inclusive).
+     * Una factura cuyo PDF no se pueda obtener no corta la descarga (la respuesta ya empezó):
+     * se lista en ERRORES.txt al final del ZIP. Devuelve la cantidad de PDFs incluidos.
+     */
+    public int zip(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        LocalDateTime desde = from.atStartOfDay();
+        LocalDateTime hasta = to.plusDays(1).atStartOfDay();
+
+        int incluidas = 0;
+        List<String> errores = new ArrayList<>();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // los PDFs ya vienen comprimidos: no vale la pena gastar CPU en deflate fuerte
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        LocalDateTime despuesFecha = desde;
+        long despuesId = 0;
+        while (true) {
+            List<FacturaArchivo> facturas = filasRepo.facturasPagina(desde, hasta, despuesFecha, despuesId, pagina);
+            for (FacturaArchivo f : facturas) {
+                Path archivo;
+                try {
+                    archivo = archivo(f);
+                } catch (Exception e) {
+                    errores.add(f.numero() + ": " + e.getMessage());
+                    continue;
+                }
+                ZipEntry entry = new ZipEntry(f.numero() + ".pdf");
+                if (f.fechaEmision() != null) {
+                    entry.setTime(f.fechaEmision().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                }
+                zip.putNextEntry(entry);
+                Files.copy(archivo, zip);
+                zip.closeEntry();
+                incluidas++;
+            }
+            if (facturas.size() < pagina) break;
+
+            FacturaArchivo ultima = facturas.get(facturas.size() - 1);
+            despuesFecha = ultima.fechaEmision();
+            despuesId = ultima.id();
+            // las facturas renderizadas en esta página no se vuelven a usar
+            em.clear();
+            zip.flush();
+        }
+
+        if (!errores.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(ERRORES));
+            zip.write(String.join("\n", errores).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            System.err.println("[FACTURA-ZIP] " + errores.size() + " facturas sin PDF entre " + from + " y " + to);
+        }
+        zip.finish();
+        zip.flush();
+        return incluidas;
+    }
+
+    /** PDF guardado de la factura; si falta o es de una plantilla vieja, se renderiza en el momento. */
+    private Path archivo(FacturaArchivo f) {
+        if (Objects.equals(f.pdfPlantilla(), FacturaMockService.PLANTILLA_PDF)) {
+            var guardado = pdfStore.buscar(f.id(), FacturaMockService.PLANTILLA_PDF, f.pdfHash());
+            if (guardado.isPresent()) return guardado.get().archivo();
+        }
+        return facturaService.pdf(f.id()).archivo();
+    }
+}
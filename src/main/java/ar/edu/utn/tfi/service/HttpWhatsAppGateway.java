@@ -57,6 +57,8 @@ public class HttpWhatsAppGateway implements WhatsAppGateway {
             System.out.println("✅ [WA] enviado a " + telefonoDestino + " | " + mensaje);
         } catch (Exception e) {
             System.out.println("❌ [WA] error al enviar a " + telefonoDestino + ": " + e.getMessage());
+            // Se propaga para que el outbox reintente
+            throw new IllegalStateException("WA: " + e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
@@ -15,9 +15,11 @@ import java.util.*;
 public class IngresosReportService {
 
     private final IngresosReportRepository repo;
+    private final ReportCache cache;
 
-    public IngresosReportService(IngresosReportRepository repo) {
+    public IngresosReportService(IngresosReportRepository repo, ReportCache cache) {
         this.repo = repo;
+        this.cache = cache;
     }
 
     public Map<String, Object> ingresosSenasVsFinales(LocalDate from, LocalDate toInclusive) {
@@ -31,6 +33,11 @@ public class IngresosReportService {
             LocalDate tmp = from; from = toInclusive; toInclusive = tmp;
         }
 
+        final LocalDate f = from, t = toInclusive;
+        return cache.obtener(ReportCache.INGRESOS, f, t, null, () -> calcularIngresos(f, t));
+    }
+
+    private Map<String, Object> calcularIngresos(LocalDate from, LocalDate toInclusive) {
         // Ventana [desde, hasta) => hasta = to+1 día
         LocalDateTime desde = from.atStartOfDay();
         LocalDateTime hasta = toInclusive.plusDays(1).atStartOfDay();
@@ -11,13 +11,15 @@ import java.util.Locale;
 @Service
 public class MailService {
     private final JavaMailSender mail;
+    private final OutboxService outbox;
 
-    public MailService(JavaMailSender mail) {
+    public MailService(JavaMailSender mail, OutboxService outbox) {
         this.mail = mail;
+        this.outbox = outbox;
     }
 
-    // ========== Helpers ==========
-    private void enviarCorreo(String to, String asunto, String cuerpo) {
+    // ========== Envío real (lo usa OutboxDispatcher) ==========
+    public void enviarCorreo(String to, String asunto, String cuerpo) {
         if (to == null || to.isBlank()) {
             System.out.println("ℹ️ Mail NO enviado (destinatario vacío). Asunto: " + asunto);
             return;
@@ -32,6 +34,7 @@ public class MailService {
         System.out.println("✅ Mail enviado a " + to + " | " + asunto);
     }
 
+    // ========== Helpers ==========
     private String buildPublicFacturaUrl(Long solicitudId) {
         return "http://localhost:8080/public/facturas/pdf/by-solicitud/" + solicitudId;
     }
@@ -41,7 +44,7 @@ public class MailService {
         return nf.format(n);
     }
 
-    // ========== SOLO: email de factura emitida ==========
+    // ========== SOLO: email de factura emitida (se encola en el outbox) ==========
     public void enviarFacturaEmitida(FacturaMock f) {
         String to = (f.getClienteEmail() == null || f.getClienteEmail().isBlank())
                 ? null : f.getClienteEmail().trim();
@@ -70,6 +73,6 @@ public class MailService {
                 linkDescarga
         );
 
-        enviarCorreo(to, asunto, cuerpo);
+        outbox.encolarEmail(to, asunto, cuerpo, null);
     }
 }
\ No newline at end of file
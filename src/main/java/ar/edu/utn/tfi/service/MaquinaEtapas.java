@@ -0,0 +1,215 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.EtapaCatalogo;
+import ar.edu.utn.tfi.repository.EtapaCatalogoRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Máquina de estados de las etapas de una OT, compilada desde etapa_catalogo: cada etapa tiene un índice
+ * (en el orden del catálogo) y las tablas de siguiente etapa, acciones permitidas y etapas terminales
+ * se calculan una sola vez. Los chequeos de transición (avanzar, repuestos, demora, irreparable,
+ * pago FINAL, facturación) no consultan la base.
+ *
+ * El catálogo compilado es inmutable y se reemplaza entero: al recargar, los que ya lo tenían siguen
+ * con el anterior. Se recarga con {@link #recargar()} (POST /admin/etapas/recargar) y cada
+ * {@code etapas.recarga-ms} se compara con la base por si alguien lo cambió a mano.
+ */
+@Component
+public class MaquinaEtapas {
+
+    /** Acciones que una etapa puede permitir (columna etapa_catalogo.acciones, separadas por coma). */
+    public enum Accion {
+        REPUESTOS,
+        DEMORA,
+        IRREPARABLE,
+        PAGO_FINAL,
+        FACTURAR
+    }
+
+    /** Catálogo compilado: tablas indexadas por etapa. Inmutable. */
+    public static final class Catalogo {
+        private final String[] codigos;
+        private final Map<String, Integer> indices;
+        private final int[] siguiente;      // índice de la etapa siguiente, -1 si es terminal
+        private final int[] acciones;       // bitmask de Accion.ordinal()
+        private final String firma;
+
+        private Catalogo(List<EtapaCatalogo> etapas) {
+            List<EtapaCatalogo> ordenadas = new ArrayList<>(etapas);
+            ordenadas.sort(Comparator.comparing(EtapaCatalogo::getOrden));
+
+            int n = ordenadas.size();
+            this.codigos = new String[n];
+            this.acciones = new int[n];
+            this.siguiente = new int[n];
+            Map<String, Integer> idx = new HashMap<>();
+            Map<Integer, Integer> porOrden = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                EtapaCatalogo e = ordenadas.get(i);
+                codigos[i] = e.getCodigo().trim().toUpperCase();
+                idx.put(codigos[i], i);
+                porOrden.put(e.getOrden(), i);
+                acciones[i] = mascara(codigos[i], e.getAcciones());
+            }
+            // siguiente = la etapa con orden + 1 (PIEZA_IRREPARABLE y ENTREGADO no tienen)
+            for (int i = 0; i < n; i++) {
+                siguiente[i] = porOrden.getOrDefault(ordenadas.get(i).getOrden() + 1, -1);
+            }
+            this.indices = Map.copyOf(idx);
+
+            StringBuilder f = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                f.append(codigos[i]).append(':').append(ordenadas.get(i).getOrden())
+                        .append(':').append(acciones[i]).append(';');
+            }
+            this.firma = f.toString();
+        }
+
+        private static int mascara(String codigo, String acciones) {
+            int m = 0;
+            if (acciones == null || acciones.isBlank()) return m;
+            for (String a : acciones.split(",")) {
+                String nombre = a.trim().toUpperCase();
+                if (nombre.isEmpty()) continue;
+                try {
+                    m |= 1 << Accion.valueOf(nombre).ordinal();
+                } catch (IllegalArgumentException e) {
+                    System.err.println("[ETAPAS] Acción desconocida '" + a + "' en la etapa " + codigo + " (se ignora)");
+                }
+            }
+            return m;
+        }
+
+        /** Índice de la etapa, o -1 si no está en el catálogo (null y mayúsculas/minúsculas toleradas). */
+        public int indice(String codigo) {
+            if (codigo == null) return -1;
+            Integer i = indices.get(codigo.trim().toUpperCase());
+            return i == null ? -1 : i;
+        }
+
+        public String codigo(int indice) {
+            return codigos[indice];
+        }
+
+        public int cantidad() {
+            return codigos.length;
+        }
+
+        /** Índice de la etapa siguiente, o -1 si es terminal. */
+        public int siguiente(int indice) {
+            return siguiente[indice];
+        }
+
+        public boolean esTerminal(int indice) {
+            return siguiente[indice] < 0;
+        }
+
+        public boolean permite(int indice, Accion accion) {
+            return (acciones[indice] & (1 << accion.ordinal())) != 0;
+        }
+    }
+
+    private final EtapaCatalogoRepository etapaRepo;
+    private volatile Catalogo catalogo;
+
+    public MaquinaEtapas(EtapaCatalogoRepository etapaRepo) {
+        this.etapaRepo = etapaRepo;
+    }
+
+    /** Catálogo compilado vigente (se carga en el primer uso). */
+    public Catalogo catalogo() {
+        Catalogo c = catalogo;
+        if (c == null) {
+            synchronized (this) {
+                c = catalogo;
+                if (c == null) {
+                    c = compilar();
+                    catalogo = c;
+                    System.out.println("[ETAPAS] Catálogo cargado: " + c.cantidad() + " etapas");
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Vuelve a leer etapa_catalogo y reemplaza el compilado si cambió. Devuelve true si cambió. */
+    public synchronized boolean recargar() {
+        Catalogo nuevo = compilar();
+        Catalogo anterior = catalogo;
+        if (anterior != null && anterior.firma.equals(nuevo.firma)) return false;
+        catalogo = nuevo;
+        System.out.println("[ETAPAS] Catálogo " + (anterior == null ? "cargado" : "recargado")
+                + ": " + nuevo.cantidad() + " etapas");
+        return true;
+    }
+
+    @Scheduled(initialDelayString = "${etapas.recarga-ms:60000}", fixedDelayString = "${etapas.recarga-ms:60000}")
+    public void verificarCambios() {
+        // sin uso todavía no hay nada que comparar: se carga en el primer chequeo de transición
+        if (catalogo == null) return;
+        try {
+            recargar();
+        } catch (Exception e) {
+            System.err.println("[ETAPAS] No se pudo releer el catálogo: " + e.getMessage());
+        }
+    }
+
+    private Catalogo compilar() {
+        return new Catalogo(etapaRepo.findAll());
+    }
+
+    // ─── Consultas de transición (sin base) ───
+
+    /**
+     * Código de la etapa que sigue a {@code actual}.
+     * IllegalStateException si la etapa no está en el catálogo o es terminal.
+     */
+    public String siguienteDe(String actual) {
+        Catalogo c = catalogo();
+        int i = c.indice(actual);
+        if (i < 0) throw new IllegalStateException("Etapa actual no válida: " + actual);
+        if (c.esTerminal(i)) throw new IllegalStateException("No hay siguiente etapa para " + actual);
+        return c.codigo(c.siguiente(i));
+    }
+
+    /** true si la etapa existe y permite la acción. */
+    public boolean permite(String etapa, Accion accion) {
+        Catalogo c = catalogo();
+        int i = c.indice(etapa);
+        return i >= 0 && c.permite(i, accion);
+    }
+
+    /** Etapas que permiten la acción, en el orden del catálogo (para los mensajes de error). */
+    public List<String> etapasQuePermiten(Accion accion) {
+        Catalogo c = catalogo();
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < c.cantidad(); i++) {
+            if (c.permite(i, accion)) out.add(c.codigo(i));
+        }
+        return out;
+    }
+
+    /** Vista del catálogo compilado para administración: etapa → siguiente, acciones y si es terminal. */
+    public Map<String, Object> describir() {
+        Catalogo c = catalogo();
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < c.cantidad(); i++) {
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("siguiente", c.esTerminal(i) ? null : c.codigo(c.siguiente(i)));
+            int indice = i;
+            e.put("acciones", Arrays.stream(Accion.values()).filter(a -> c.permite(indice, a)).toList());
+            e.put("terminal", c.esTerminal(i));
+            m.put(c.codigo(i), e);
+        }
+        return m;
+    }
+}
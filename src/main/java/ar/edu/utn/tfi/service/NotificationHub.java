@@ -1,46 +1,611 @@
 package ar.edu.utn.tfi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
 
+/**
+ * Hub SSE por nro de orden.
+ * push() nunca escribe en el socket: encola en la cola acotada de cada suscriptor
+ * y un pool chico de dispatchers hace el send. Si la cola de un suscriptor se llena
+ * (cliente lento o colgado) se lo desconecta en lugar de frenar al resto.
+ *
+ * Con varias instancias, cada push se publica además por {@link PgNotifyBus} y
+ * las otras instancias lo reparten a sus propios suscriptores.
+ *
+ * Ciclo de vida: latidos periódicos (comentarios SSE) para detectar peers muertos,
+ * tope de emitters por clave y global, y desalojo de suscriptores inactivos
+ * (EventSource reconecta solo si la pestaña sigue abierta).
+ *
+ * Reconexión: los eventos con id (id de la notificación) quedan en un buffer circular
+ * por clave; al reconectar con Last-Event-ID se reenvía lo perdido desde ahí y, si el
+ * buffer no cubre el hueco, desde la base (consulta indexada que pasa el llamador, de a páginas).
+ * Si lo perdido no entra en la cola del suscriptor, en vez de mandar una parte se manda un único
+ * evento "recargar" (con el id del último) para que el cliente vuelva a cargar todo.
+ *
+ * Fin de un stream: completar(clave) cierra los emitters de la clave en todas las instancias,
+ * después de mandar lo que ya tenían encolado (el evento final incluido).
+ */
 @Component
 public class NotificationHub {
 
-    // key = nroOrden, value = lista de suscriptores SSE
-    private final Map<String, Set<SseEmitter>> subs = new ConcurrentHashMap<>();
+    public static final String CANAL_FANOUT = "tfi_sse";
+
+    // Streams por email (NotificationService) comparten el hub con este prefijo de clave
+    public static final String PREFIJO_EMAIL = "email:";
+
+    // key = nroOrden (o "email:..."), value = suscriptores (copy-on-write: push solo itera, sin locks)
+    private final Map<String, Set<Subscriber>> subs = new ConcurrentHashMap<>();
+
+    private final ExecutorService dispatcher;
+    private final int queueCapacity;
+
+    // ─── Límites y ciclo de vida ───
+    @Value("${notificaciones.sse.max-por-clave:20}")
+    private int maxPorClave = 20;
+
+    @Value("${notificaciones.sse.max-global:5000}")
+    private int maxGlobal = 5000;
+
+    @Value("${notificaciones.sse.idle-ms:900000}")
+    private long idleMs = 900_000;          // 15 min sin eventos reales → se desaloja
+
+    @Value("${notificaciones.sse.timeout-ms:3600000}")
+    private long timeoutMs = 3_600_000;     // vida máxima del emitter
+
+    @Value("${notificaciones.sse.replay-por-clave:32}")
+    private int replayPorClave = 32;        // eventos con id guardados por clave
+
+    @Value("${notificaciones.sse.replay-max-claves:10000}")
+    private int replayMaxClaves = 10_000;
+
+    // key → últimos eventos con id (orden ascendente por id)
+    private final Map<String, ArrayDeque<EventoSse>> replay = new ConcurrentHashMap<>();
+
+    // ─── Contadores ───
+    private final AtomicInteger activos = new AtomicInteger();
+    private final AtomicLong descartados = new AtomicLong();   // cola llena (cliente lento)
+    private final AtomicLong desalojados = new AtomicLong();   // inactivos
+    private final AtomicLong caidos = new AtomicLong();        // send falló (peer muerto)
+    private final AtomicLong rechazados = new AtomicLong();    // por tope por clave / global
+    private final AtomicLong replayBuffer = new AtomicLong();  // reconexiones resueltas en memoria
+    private final AtomicLong replayDb = new AtomicLong();      // reconexiones que fueron a la base
+    private final AtomicLong replayRecargar = new AtomicLong(); // hueco más grande que la cola → "recargar"
+
+    // ─── Fan-out entre instancias ───
+    private final PgNotifyBus bus;
+    private final ObjectMapper mapper;
+    private final String nodoId = UUID.randomUUID().toString();
+
+    @Autowired
+    public NotificationHub(PgNotifyBus bus,
+                           ObjectMapper mapper,
+                           @Value("${notificaciones.sse.queue-capacity:64}") int queueCapacity,
+                           @Value("${notificaciones.sse.dispatcher-threads:4}") int dispatcherThreads) {
+        this.bus = bus;
+        this.mapper = mapper;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        AtomicInteger seq = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatcherThreads), r -> {
+            Thread t = new Thread(r, "sse-dispatch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (bus != null && bus.isEnabled()) {
+            bus.subscribe(CANAL_FANOUT, this::onRemoto);
+        }
+    }
+
+    /** Hub solo local (tests / benchmark). */
+    NotificationHub(int queueCapacity, int dispatcherThreads) {
+        this(null, new ObjectMapper(), queueCapacity, dispatcherThreads);
+    }
+
+    public static String claveEmail(String email) {
+        return PREFIJO_EMAIL + email;
+    }
+
+    /** Ajuste de límites sin contexto de Spring (tests). */
+    void configurarLimites(int maxPorClave, int maxGlobal, long idleMs) {
+        this.maxPorClave = maxPorClave;
+        this.maxGlobal = maxGlobal;
+        this.idleMs = idleMs;
+    }
 
     public SseEmitter subscribe(String nroOrden) {
-        var emitter = new SseEmitter(0L); // sin timeout
-        subs.computeIfAbsent(nroOrden, k -> Collections.synchronizedSet(new HashSet<>())).add(emitter);
+        return subscribe(nroOrden, null, null);
+    }
 
-        emitter.onCompletion(() -> remove(nroOrden, emitter));
-        emitter.onTimeout(() -> remove(nroOrden, emitter));
-        emitter.onError(e -> remove(nroOrden, emitter));
+    /**
+     * Suscribe y, si viene Last-Event-ID, reenvía los eventos posteriores:
+     * del buffer en memoria si lo cubre, si no de {@code fallbackDb}. {@code fallbackDb} devuelve una
+     * página de eventos con id &gt; el que recibe, en orden (vacía al final); se la llama hasta agotarla.
+     */
+    public SseEmitter subscribe(String clave, Long lastEventId, LongFunction<List<EventoSse>> fallbackDb) {
+        var emitter = new SseEmitter(timeoutMs);
+        register(clave, emitter, lastEventId, fallbackDb);
+        return emitter;
+    }
+
+    /**
+     * Registra un emitter ya creado (también lo usan los tests/benchmark con emitters simulados).
+     * Lanza {@link SuscripcionRechazadaException} si se supera el tope global o el de la clave.
+     */
+    void register(String nroOrden, SseEmitter emitter) {
+        register(nroOrden, emitter, null, null);
+    }
+
+    void register(String nroOrden, SseEmitter emitter, Long lastEventId, LongFunction<List<EventoSse>> fallbackDb) {
+        if (activos.incrementAndGet() > maxGlobal) {
+            activos.decrementAndGet();
+            rechazados.incrementAndGet();
+            throw new SuscripcionRechazadaException("Demasiadas conexiones de notificaciones abiertas", true);
+        }
+
+        var sub = new Subscriber(nroOrden, emitter, lastEventId != null);
+        var agregado = new AtomicBoolean();
+        subs.compute(nroOrden, (k, set) -> {
+            if (set == null) set = new CopyOnWriteArraySet<>();
+            if (set.size() < maxPorClave) {
+                set.add(sub);
+                agregado.set(true);
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!agregado.get()) {
+            activos.decrementAndGet();
+            rechazados.incrementAndGet();
+            throw new SuscripcionRechazadaException("Demasiadas conexiones abiertas para " + nroOrden, false);
+        }
+
+        emitter.onCompletion(() -> remove(sub));
+        emitter.onTimeout(() -> remove(sub));
+        emitter.onError(e -> remove(sub));
 
         // mensaje inicial (handshake)
-        try { emitter.send(SseEmitter.event().name("connected").data("ok")); } catch (IOException ignored) {}
-        return emitter;
+        sub.offer(new EventoSse(null, "connected", "ok"));
+
+        if (lastEventId != null) {
+            // Lo que llegue en vivo mientras tanto queda retenido en el suscriptor y se
+            // entrega después del replay, sin duplicar ids
+            List<EventoSse> perdidos;
+            try {
+                perdidos = eventosDesde(nroOrden, lastEventId, fallbackDb);
+            } catch (Exception e) {
+                System.err.println("[SSE] Replay falló para " + nroOrden + ": " + e.getMessage());
+                perdidos = List.of();
+            }
+            sub.finReplay(perdidos, lastEventId);
+        }
     }
 
-    public void push(String nroOrden, String eventName, Object payload) {
-        var set = subs.getOrDefault(nroOrden, Set.of());
-        var dead = new ArrayList<SseEmitter>();
-        for (var em : set) {
-            try { em.send(SseEmitter.event().name(eventName).data(payload)); }
-            catch (IOException e) { dead.add(em); }
+    // ─── Replay (Last-Event-ID) ───
+
+    private List<EventoSse> eventosDesde(String clave, long lastEventId, LongFunction<List<EventoSse>> fallbackDb) {
+        var ring = replay.get(clave);
+        if (ring != null) {
+            synchronized (ring) {
+                // el buffer cubre el hueco si todavía tiene el último id que vio el cliente (o uno anterior)
+                if (!ring.isEmpty() && ring.peekFirst().id() <= lastEventId) {
+                    replayBuffer.incrementAndGet();
+                    List<EventoSse> out = new ArrayList<>();
+                    for (EventoSse ev : ring) {
+                        if (ev.id() > lastEventId) out.add(ev);
+                    }
+                    return out;
+                }
+            }
+        }
+        if (fallbackDb == null) return List.of();
+        replayDb.incrementAndGet();
+
+        // lo que entra en la cola del suscriptor, dejando lugar al "connected" y a un evento en vivo
+        int tope = Math.max(1, queueCapacity - 2);
+        List<EventoSse> out = new ArrayList<>();
+        long ultimo = lastEventId;
+        boolean completo = true;
+        while (true) {
+            List<EventoSse> pagina = fallbackDb.apply(ultimo);
+            long antes = ultimo;
+            for (EventoSse ev : pagina) {
+                if (ev.id() == null || ev.id() <= ultimo) continue;
+                if (out.size() < tope) out.add(ev);
+                else completo = false;
+                ultimo = ev.id();
+            }
+            if (ultimo == antes) break; // página vacía: no hay más
         }
-        dead.forEach(em -> remove(nroOrden, em));
+        if (completo) return out;
+
+        // no entra todo: mejor que el cliente recargue a que crea que está al día con una parte
+        replayRecargar.incrementAndGet();
+        return List.of(new EventoSse(ultimo, "recargar", "{\"desde\":" + lastEventId + "}"));
     }
 
-    private void remove(String nroOrden, SseEmitter em) {
+    private void guardarParaReplay(String clave, EventoSse ev) {
+        var ring = replay.computeIfAbsent(clave, k -> new ArrayDeque<>());
+        synchronized (ring) {
+            // fan-out de otra instancia puede llegar desordenado: se inserta por id
+            if (ring.isEmpty() || ring.peekLast().id() < ev.id()) {
+                ring.addLast(ev);
+            } else {
+                var ordenados = new ArrayList<>(ring);
+                if (ordenados.stream().anyMatch(e -> e.id().equals(ev.id()))) return;
+                ordenados.add(ev);
+                ordenados.sort((a, b) -> Long.compare(a.id(), b.id()));
+                ring.clear();
+                ring.addAll(ordenados);
+            }
+            while (ring.size() > replayPorClave) ring.pollFirst();
+        }
+        if (replay.size() > replayMaxClaves) recortarReplay();
+    }
+
+    /** Tope de memoria: se descartan buffers de claves sin suscriptores activos. */
+    private void recortarReplay() {
+        Iterator<String> it = replay.keySet().iterator();
+        int sobrantes = replay.size() - replayMaxClaves;
+        while (sobrantes > 0 && it.hasNext()) {
+            String k = it.next();
+            if (!subs.containsKey(k)) {
+                it.remove();
+                sobrantes--;
+            }
+        }
+    }
+
+    /**
+     * No bloquea: encola para los suscriptores locales y publica para las demás instancias.
+     * Dentro de una transacción, todas las instancias (también esta) lo reciben recién al commit,
+     * y con rollback ninguna.
+     */
+    public void push(String nroOrden, String eventName, Object payload) {
+        push(nroOrden, eventName, payload, null);
+    }
+
+    /** Igual que push, con id de evento (id de la notificación): viaja como "id:" SSE y queda para replay. */
+    public void push(String nroOrden, String eventName, Object payload, Long eventId) {
+        AlCommit.ejecutar(() -> {
+            pushLocal(nroOrden, eventName, payload, eventId);
+            publicarRemoto(nroOrden, eventName, payload, eventId);
+        });
+    }
+
+    /**
+     * Para eventos efímeros que no salen de un cambio en la base (avance de un export): se entregan en el
+     * momento aunque haya una transacción abierta, que puede ser de sólo lectura y durar todo el export.
+     * Sin id: no quedan para replay.
+     */
+    public void pushAhora(String clave, String eventName, Object payload) {
+        pushLocal(clave, eventName, payload, null);
+        publicarRemoto(clave, eventName, payload, null);
+    }
+
+    void pushLocal(String nroOrden, String eventName, Object payload, Long eventId) {
+        var ev = new EventoSse(eventId, eventName, payload);
+        if (eventId != null) guardarParaReplay(nroOrden, ev);
+
         var set = subs.get(nroOrden);
-        if (set != null) {
-            set.remove(em);
-            if (set.isEmpty()) subs.remove(nroOrden);
+        if (set == null || set.isEmpty()) return;
+
+        for (var sub : set) {
+            if (!sub.offer(ev)) {
+                // Cola llena → consumidor lento: se lo desconecta
+                descartados.incrementAndGet();
+                System.err.println("[SSE] Suscriptor lento descartado (" + nroOrden + ")");
+                sub.close();
+            }
+        }
+    }
+
+    /**
+     * Cierra todos los emitters de la clave, en esta y en las demás instancias, una vez enviados los
+     * eventos que ya tenían encolados. Para streams con final (p. ej. un job que terminó): el cliente
+     * no queda con la conexión abierta hasta el desalojo por inactividad. Al commit, como push.
+     */
+    public void completar(String clave) {
+        AlCommit.ejecutar(() -> {
+            completarLocal(clave);
+            publicarFin(clave);
+        });
+    }
+
+    void completarLocal(String clave) {
+        var set = subs.get(clave);
+        if (set == null) return;
+        for (var sub : set) sub.finalizar();
+    }
+
+    // ─── Fan-out ───
+
+    /** fin == true → completar(clave) en vez de un evento. */
+    private record MensajeFanout(String nodo, String clave, String evento, String data, Long id, boolean fin) {}
+
+    private void publicarRemoto(String clave, String evento, Object payload, Long eventId) {
+        if (bus == null || !bus.isEnabled()) return;
+        try {
+            String data = (payload instanceof String str) ? str : mapper.writeValueAsString(payload);
+            String json = mapper.writeValueAsString(new MensajeFanout(nodoId, clave, evento, data, eventId, false));
+            if (json.getBytes(StandardCharsets.UTF_8).length > PgNotifyBus.MAX_PAYLOAD_BYTES) {
+                System.err.println("[SSE] Evento " + evento + " demasiado grande para NOTIFY, solo local (" + clave + ")");
+                return;
+            }
+            bus.publish(CANAL_FANOUT, json);
+        } catch (Exception e) {
+            // El fan-out nunca rompe al llamador
+            System.err.println("[SSE] No se pudo publicar fan-out: " + e.getMessage());
+        }
+    }
+
+    private void publicarFin(String clave) {
+        if (bus == null || !bus.isEnabled()) return;
+        try {
+            bus.publish(CANAL_FANOUT, mapper.writeValueAsString(new MensajeFanout(nodoId, clave, null, null, null, true)));
+        } catch (Exception e) {
+            System.err.println("[SSE] No se pudo publicar fin de " + clave + ": " + e.getMessage());
+        }
+    }
+
+    private void onRemoto(String json) {
+        try {
+            MensajeFanout m = mapper.readValue(json, MensajeFanout.class);
+            if (nodoId.equals(m.nodo())) return; // ya se entregó localmente
+            if (m.fin()) {
+                completarLocal(m.clave());
+                return;
+            }
+            pushLocal(m.clave(), m.evento(), m.data(), m.id());
+        } catch (Exception e) {
+            System.err.println("[SSE] Mensaje fan-out inválido: " + e.getMessage());
+        }
+    }
+
+    // ─── Latidos y desalojo ───
+
+    /**
+     * Manda un comentario SSE a cada suscriptor (los peers muertos fallan en el send y se quitan)
+     * y desaloja a los que no recibieron eventos reales en idleMs.
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.sse.heartbeat-ms:25000}")
+    public void latido() {
+        long ahora = System.currentTimeMillis();
+        var latido = new EventoSse(null, null, "hb");
+        for (var set : subs.values()) {
+            for (var sub : set) {
+                if (ahora - sub.ultimaActividad > idleMs) {
+                    desalojados.incrementAndGet();
+                    sub.close();
+                } else if (!sub.offer(latido)) {
+                    descartados.incrementAndGet();
+                    sub.close();
+                }
+            }
+        }
+    }
+
+    // ─── Métricas ───
+
+    /** Suscriptores descartados por cola llena desde el arranque. */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("activos", activos.get());
+        m.put("claves", subs.size());
+        m.put("descartadosLentos", descartados.get());
+        m.put("desalojadosInactivos", desalojados.get());
+        m.put("caidos", caidos.get());
+        m.put("rechazados", rechazados.get());
+        m.put("replayDesdeBuffer", replayBuffer.get());
+        m.put("replayDesdeDb", replayDb.get());
+        m.put("replayRecargar", replayRecargar.get());
+        m.put("maxPorClave", maxPorClave);
+        m.put("maxGlobal", maxGlobal);
+        return m;
+    }
+
+    private void remove(Subscriber sub) {
+        if (!sub.cerrado.compareAndSet(false, true)) return;
+        activos.decrementAndGet();
+        subs.computeIfPresent(sub.key, (k, set) -> {
+            set.remove(sub);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // ───────────────────────── Internos ─────────────────────────
+
+    // eventos por turno de drain: evita que un suscriptor con mucho backlog acapare un hilo
+    private static final int MAX_POR_DRAIN = 32;
+
+    /** Evento SSE. id == null → sin id (no se guarda para replay); name == null → latido (comentario). */
+    public record EventoSse(Long id, String name, Object data) {}
+
+    // marca de fin en la cola de un suscriptor (se compara por identidad, nunca se envía)
+    private static final EventoSse FIN = new EventoSse(null, null, null);
+
+
+    /**
+     * Cola de salida de un suscriptor: ConcurrentLinkedQueue + contador para acotarla.
+     * A lo sumo un drain en vuelo por suscriptor (flag scheduled), así los send quedan en orden.
+     */
+    private final class Subscriber {
+        final String key;
+        final SseEmitter emitter;
+        final ConcurrentLinkedQueue<EventoSse> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean cerrado = new AtomicBoolean();
+        volatile long ultimaActividad = System.currentTimeMillis();
+
+        // mientras se calcula el replay, los eventos en vivo se retienen acá
+        volatile boolean enReplay;
+        List<EventoSse> retenidos;
+
+        Subscriber(String key, SseEmitter emitter, boolean enReplay) {
+            this.key = key;
+            this.emitter = emitter;
+            this.enReplay = enReplay;
+            this.retenidos = enReplay ? new ArrayList<>() : null;
+        }
+
+        boolean offer(EventoSse ev) {
+            if (enReplay && ev.id() != null) {
+                synchronized (this) {
+                    if (enReplay) {
+                        retenidos.add(ev);
+                        return true;
+                    }
+                }
+            }
+            return encolar(ev);
+        }
+
+        /** Encola lo perdido y después lo retenido, salteando ids ya enviados. */
+        synchronized void finReplay(List<EventoSse> perdidos, long lastEventId) {
+            long ultimo = lastEventId;
+            for (EventoSse ev : perdidos) {
+                if (ev.id() != null && ev.id() <= ultimo) continue;
+                encolar(ev);
+                if (ev.id() != null) ultimo = ev.id();
+            }
+            boolean fin = false;
+            for (EventoSse ev : retenidos) {
+                if (ev == FIN) {
+                    fin = true;
+                    continue;
+                }
+                if (ev.id() <= ultimo) continue;
+                encolar(ev);
+                ultimo = ev.id();
+            }
+            retenidos = null;
+            enReplay = false;
+            if (fin) finalizar();
+        }
+
+        /**
+         * Cierre ordenado: lo encolado se envía y después se completa el emitter. La marca no cuenta
+         * para el tope de la cola; si el suscriptor sigue en replay, queda detrás de lo retenido.
+         */
+        void finalizar() {
+            if (enReplay) {
+                synchronized (this) {
+                    if (enReplay) {
+                        retenidos.add(FIN);
+                        return;
+                    }
+                }
+            }
+            if (cerrado.get()) return;
+            queue.offer(FIN);
+            schedule();
+        }
+
+        private boolean encolar(EventoSse ev) {
+            if (cerrado.get()) return true;
+            if (size.incrementAndGet() > queueCapacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.offer(ev);
+            schedule();
+            return true;
+        }
+
+        void drain() {
+            EventoSse ev;
+            int lote = 0;
+            while (!cerrado.get() && lote < MAX_POR_DRAIN && (ev = queue.poll()) != null) {
+                if (ev == FIN) {
+                    remove(this);
+                    break;
+                }
+                lote++;
+                size.decrementAndGet();
+                try {
+                    if (ev.name() == null) {
+                        emitter.send(SseEmitter.event().comment(String.valueOf(ev.data())));
+                    } else {
+                        var builder = SseEmitter.event();
+                        if (ev.id() != null) builder.id(String.valueOf(ev.id()));
+                        emitter.send(builder.name(ev.name()).data(ev.data()));
+                        ultimaActividad = System.currentTimeMillis();
+                    }
+                } catch (Exception e) {
+                    // conexión muerta
+                    caidos.incrementAndGet();
+                    remove(this);
+                }
+            }
+            if (cerrado.get()) {
+                // scheduled queda en true: ningún otro drain vuelve a tocar este emitter
+                terminar();
+                return;
+            }
+            scheduled.set(false);
+            // backlog pendiente (o alguien encoló/cerró entre el último poll y el reset del flag):
+            // nuevo turno al final de la cola del pool, para no acaparar un hilo
+            if (cerrado.get() || !queue.isEmpty()) schedule();
+        }
+
+        /**
+         * Cierre sin bloquear al llamador: el complete() lo hace el dispatcher,
+         * porque el emitter puede estar trabado en un send de otro hilo.
+         */
+        void close() {
+            remove(this);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (Exception e) {
+                    // pool apagado (shutdown)
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void terminar() {
+            queue.clear();
+            size.set(0);
+            try { emitter.complete(); } catch (Exception ignored) {}
         }
     }
-}
\ No newline at end of file
+}
@@ -9,10 +9,6 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import ar.edu.utn.tfi.domain.SolicitudPresupuesto;
 import ar.edu.utn.tfi.domain.Presupuesto;
 import ar.edu.utn.tfi.domain.Cliente;
@@ -24,19 +20,16 @@ public class NotificationService {
     private final NotificacionRepository repo;
     private final NotificationHub hub;
     private final SolicitudPresupuestoRepository solicitudRepo;
-    private final WhatsAppGateway whatsapp;
-
-    // Registro simple de suscriptores por email
-    private final Map<String, SseEmitter> emittersByEmail = new ConcurrentHashMap<>();
+    private final OutboxService outbox;
 
-    public NotificationService(NotificacionRepository repo, NotificationHub hub, WhatsAppGateway whatsapp, SolicitudPresupuestoRepository solicitudRepo) {
+    public NotificationService(NotificacionRepository repo, NotificationHub hub, OutboxService outbox, SolicitudPresupuestoRepository solicitudRepo) {
         this.repo = repo;
         this.hub = hub;
-        this.whatsapp = whatsapp;
+        this.outbox = outbox;
         this.solicitudRepo = solicitudRepo;
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void emitirListoRetirar(OrdenTrabajo ot, String destinoClienteOpt) {
         String etapa = "LISTO_RETIRAR";
 
@@ -54,46 +47,48 @@ public class NotificationService {
         n.setTitle("Orden lista para retirar");
         repo.save(n);
 
-        // SSE por nro de orden
-        hub.push(
-                ot.getNroOrden(),
-                "listo-retirar",
-                "{\"id\":" + n.getId() + ",\"tipo\":\"LISTO_RETIRAR\",\"mensaje\":\"" + msg + "\"}"
-        );
-
-        // WhatsApp real
-        whatsapp.send(destinoClienteOpt, msg);
+        // SSE por nro de orden (id del evento = id de la notificación, para Last-Event-ID)
+        var ev = aEvento(n);
+        hub.push(ot.getNroOrden(), ev.name(), ev.data(), ev.id());
 
-        // Registramos la notificación de WhatsApp
+        // WhatsApp: se registra PENDIENTE y se encola; el dispatcher la marca ENVIADA al entregarla
         var w = new Notificacion();
         w.setOrdenId(ot.getId());
         w.setNroOrden(ot.getNroOrden());
         w.setCanal("WHATSAPP");
         w.setType(etapa);
         w.setMessage(msg);
-        w.setEstado("ENVIADA");
+        w.setEstado("PENDIENTE");
         w.setClienteDestino(destinoClienteOpt);
         w.setTitle("Orden lista para retirar");
         repo.save(w);
+        outbox.encolarWhatsApp(destinoClienteOpt, msg, w.getId());
     }
 
     // ───────────── Métodos requeridos por el Controller ─────────────
 
-    /** Devuelve (y registra) un SseEmitter para ese email. */
-    public SseEmitter subscribe(String email) {
-        var emitter = new SseEmitter(0L); // sin timeout
-        emittersByEmail.put(email, emitter);
-
-        emitter.onCompletion(() -> emittersByEmail.remove(email));
-        emitter.onTimeout(() -> emittersByEmail.remove(email));
-        emitter.onError((ex) -> emittersByEmail.remove(email));
+    /**
+     * Devuelve (y registra) un SseEmitter para ese email. Usa el hub, así funciona entre instancias
+     * y admite varias pestañas. Con lastEventId reenvía lo perdido (buffer del hub o base).
+     */
+    public SseEmitter subscribe(String email, Long lastEventId) {
+        return hub.subscribe(NotificationHub.claveEmail(email), lastEventId,
+                desde -> repo.findTop32ByClienteEmailAndIdGreaterThanOrderByIdAsc(email, desde)
+                        .stream().map(NotificationService::aEvento).toList());
+    }
 
-        // Enviamos un "ping" inicial opcional
-        try {
-            emitter.send(SseEmitter.event().name("ping").data("subscribed:" + email));
-        } catch (Exception ignored) {}
+    /** Notificación → evento SSE: nombre = tipo en kebab-case, data = {id, tipo, mensaje}. */
+    public static NotificationHub.EventoSse aEvento(Notificacion n) {
+        String tipo = n.getType() == null ? "NOTIFICACION" : n.getType();
+        String data = "{\"id\":" + n.getId()
+                + ",\"tipo\":\"" + jsonEscape(tipo)
+                + "\",\"mensaje\":\"" + jsonEscape(n.getMessage()) + "\"}";
+        return new NotificationHub.EventoSse(n.getId(), tipo.toLowerCase().replace('_', '-'), data);
+    }
 
-        return emitter;
+    private static String jsonEscape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
     }
 
     /** Devuelve últimas 20 notificaciones no leídas del usuario. */
@@ -110,7 +105,7 @@ public class NotificationService {
             repo.save(n);
         });
     }
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void notificarDecisionSolicitud(SolicitudPresupuesto s) {
         String tel = s.getClienteTelefono();
 
@@ -127,7 +122,6 @@ public class NotificationService {
                     + ", tu solicitud #" + s.getId() + " cambió de estado a: " + s.getEstado();
         };
 
-        whatsapp.send(tel, msg);
 
         var n = new Notificacion();
         n.setSolicitudId(s.getId());
@@ -135,11 +129,12 @@ public class NotificationService {
         n.setType("SOLICITUD_" + s.getEstado());
         n.setTitle("Estado de tu solicitud");
         n.setMessage(msg);
-        n.setEstado("ENVIADA");
+        n.setEstado("PENDIENTE");
         n.setClienteDestino(tel);
         repo.save(n);
+        outbox.encolarWhatsApp(tel, msg, n.getId());
     }
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void notificarPresupuestoGenerado(Presupuesto p, SolicitudPresupuesto s) {
         String tel = s.getClienteTelefono();
         String linkSolicitud = "http://localhost:8080/public/presupuestos/solicitud/" + s.getId();
@@ -150,7 +145,6 @@ public class NotificationService {
                 + ". Monto estimado: " + p.getTotal()
                 + ". Podés verlo acá: " + linkSolicitud;
 
-        whatsapp.send(tel, msg);
 
         var n = new Notificacion();
         n.setSolicitudId(s.getId());
@@ -158,12 +152,13 @@ public class NotificationService {
         n.setType("PRESUPUESTO_GENERADO");
         n.setTitle("Presupuesto generado");
         n.setMessage(msg);
-        n.setEstado("ENVIADA");
+        n.setEstado("PENDIENTE");
         n.setClienteDestino(tel);
         repo.save(n);
+        outbox.encolarWhatsApp(tel, msg, n.getId());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void notificarIngresoOrden(OrdenTrabajo ot, Cliente cliente) {
         if (cliente == null) {
             System.out.println("⚠ No se pudo notificar ingreso, cliente null para OT " + ot.getNroOrden());
@@ -184,10 +179,8 @@ public class NotificationService {
                 + ", tu unidad ingresó al taller. Nro de orden: " + ot.getNroOrden()
                 + ". Te avisaremos cuando esté lista para retirar.";
 
-        // 👉 Enviar WhatsApp (o mock si está deshabilitado)
-        whatsapp.send(tel, msg);
 
-        // 👉 Registrar la notificación en la tabla notification
+        // 👉 Registrar la notificación (PENDIENTE) y encolar el WhatsApp en el outbox
         var n = new Notificacion();
         n.setOrdenId(ot.getId());
         n.setNroOrden(ot.getNroOrden());
@@ -195,12 +188,13 @@ public class NotificationService {
         n.setType("INGRESO_ORDEN");
         n.setTitle("Ingreso al taller");
         n.setMessage(msg);
-        n.setEstado("ENVIADA");
+        n.setEstado("PENDIENTE");
         n.setClienteDestino(tel);
         repo.save(n);
+        outbox.encolarWhatsApp(tel, msg, n.getId());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void notificarDecisionPresupuesto(Presupuesto p) {
         if (p == null) {
             System.out.println("⚠ No se pudo notificar decisión de presupuesto: objeto null");
@@ -249,18 +243,17 @@ public class NotificationService {
                     + ". Motivo: " + motivo;
         };
 
-        // 👉 Enviar WhatsApp (o mock, según config)
-        whatsapp.send(tel, msg);
 
-        // 👉 Registrar notificación en tabla notification
+        // 👉 Registrar notificación (PENDIENTE) y encolar el WhatsApp en el outbox
         var n = new Notificacion();
         n.setSolicitudId(p.getSolicitudId());
         n.setCanal("WHATSAPP");
         n.setType("PRESUPUESTO_" + p.getEstado());
         n.setTitle("Estado de tu presupuesto");
         n.setMessage(msg);
-        n.setEstado("ENVIADA");
+        n.setEstado("PENDIENTE");
         n.setClienteDestino(tel);
         repo.save(n);
+        outbox.encolarWhatsApp(tel, msg, n.getId());
     }
 }
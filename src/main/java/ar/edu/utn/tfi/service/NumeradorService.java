@@ -0,0 +1,78 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.repository.SecuenciaRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Números de documento (OT, facturas A/B/C) sin COUNT(*): cada serie tiene su secuencia en la base
+ * con INCREMENT BY {@value #BLOQUE}, y cada nextval reserva un bloque [v, v + BLOQUE) para esta JVM.
+ * Los números se reparten en memoria hasta agotar el bloque; con varias instancias los números no
+ * quedan en orden de creación y un reinicio deja huecos, pero nunca se repiten.
+ */
+@Service
+public class NumeradorService {
+
+    /** Tamaño de bloque: tiene que ser igual al INCREMENT BY de las secuencias (V38). */
+    static final int BLOQUE = 50;
+
+    public enum Serie {
+        OT("seq_nro_ot", "OT-%04d"),
+        FA("seq_nro_fa", "FA-%06d"),
+        FB("seq_nro_fb", "FB-%06d"),
+        FC("seq_nro_fc", "FC-%06d");
+
+        final String secuencia;
+        final String formato;
+
+        Serie(String secuencia, String formato) {
+            this.secuencia = secuencia;
+            this.formato = formato;
+        }
+
+        /** Serie de factura según el tipo A/B/C. */
+        public static Serie factura(String tipo) {
+            return switch (tipo == null ? "" : tipo.trim().toUpperCase()) {
+                case "A" -> FA;
+                case "B" -> FB;
+                case "C" -> FC;
+                default -> throw new IllegalArgumentException("Tipo de factura inválido. Debe ser A, B o C.");
+            };
+        }
+    }
+
+    /** Bloque reservado de una serie: próximo número a entregar y límite (exclusivo). */
+    private static final class Bloque {
+        long proximo;
+        long limite;
+    }
+
+    private final SecuenciaRepository secuencias;
+    private final Map<Serie, Bloque> bloques = new EnumMap<>(Serie.class);
+
+    public NumeradorService(SecuenciaRepository secuencias) {
+        this.secuencias = secuencias;
+        for (Serie s : Serie.values()) bloques.put(s, new Bloque());
+    }
+
+    /** Próximo número de la serie (solo la parte numérica). */
+    public long siguienteNumero(Serie serie) {
+        Bloque b = bloques.get(serie);
+        // un lock por serie: las OT no esperan a las facturas
+        synchronized (b) {
+            if (b.proximo >= b.limite) {
+                long inicio = secuencias.siguiente(serie.secuencia);
+                b.proximo = inicio;
+                b.limite = inicio + BLOQUE;
+            }
+            return b.proximo++;
+        }
+    }
+
+    /** Próximo número de la serie ya formateado (OT-0007, FB-000123, ...). */
+    public String siguiente(Serie serie) {
+        return String.format(serie.formato, siguienteNumero(serie));
+    }
+}
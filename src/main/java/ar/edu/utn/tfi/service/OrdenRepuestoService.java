@@ -12,31 +12,26 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Set;
 
 @Service
 public class OrdenRepuestoService {
 
     private final OrdenTrabajoRepository ordenRepo;
     private final OrdenRepuestoRepository repuestoRepo;
-
-    // 👇 ETAPAS donde SÍ se pueden tocar repuestos
-    private static final Set<String> ETAPAS_PERMITEN_REPUESTOS = Set.of(
-            "DESPIECE_LAVADO",
-            "DIAGNOSTICO",
-            "MAQUINADO",
-            "SEMI_ARMADO"
-    );
+    // 👇 las etapas donde SÍ se pueden tocar repuestos salen del catálogo (acción REPUESTOS)
+    private final MaquinaEtapas etapas;
 
     public OrdenRepuestoService(OrdenTrabajoRepository ordenRepo,
-                                OrdenRepuestoRepository repuestoRepo) {
+                                OrdenRepuestoRepository repuestoRepo,
+                                MaquinaEtapas etapas) {
         this.ordenRepo = ordenRepo;
         this.repuestoRepo = repuestoRepo;
+        this.etapas = etapas;
     }
     // 🔹 Helper interno
     private void validarEtapaParaRepuestos(OrdenTrabajo orden) {
         String etapa = (orden.getEstadoActual() == null ? "" : orden.getEstadoActual().toUpperCase());
-        if (!ETAPAS_PERMITEN_REPUESTOS.contains(etapa)) {
+        if (!etapas.permite(etapa, MaquinaEtapas.Accion.REPUESTOS)) {
             throw new IllegalStateException(
                     "No se pueden gestionar repuestos en la etapa actual: " + etapa
             );
@@ -1,40 +1,38 @@
 package ar.edu.utn.tfi.service;
 
-import ar.edu.utn.tfi.domain.EtapaCatalogo;
-import ar.edu.utn.tfi.domain.OrdenEtapaHistorial;
 import ar.edu.utn.tfi.domain.OrdenTrabajo;
-import ar.edu.utn.tfi.repository.EtapaCatalogoRepository;
-import ar.edu.utn.tfi.repository.OrdenEtapaHistorialRepository;
 import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import ar.edu.utn.tfi.repository.UnidadTrabajoRepository;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.List;
 
 @Service
 public class OrderAdvanceService {
     private final OrdenTrabajoRepository ordenRepo;
-    private final OrdenEtapaHistorialRepository historialRepo;
-    private final EtapaCatalogoRepository etapaRepo;
+    private final MaquinaEtapas etapas;
     private final AuditoriaService auditoria;
     private final NotificationService notificationService;
     private final UnidadTrabajoRepository unidadRepo;
+    private final ApplicationEventPublisher events;
 
     public OrderAdvanceService(OrdenTrabajoRepository ordenRepo,
-                               OrdenEtapaHistorialRepository historialRepo,
-                               EtapaCatalogoRepository etapaRepo,
+                               MaquinaEtapas etapas,
                                AuditoriaService auditoria,
                                NotificationService notificationService,
-                               UnidadTrabajoRepository unidadRepo) {
+                               UnidadTrabajoRepository unidadRepo,
+                               ApplicationEventPublisher events) {
         this.ordenRepo = ordenRepo;
-        this.historialRepo = historialRepo;
-        this.etapaRepo = etapaRepo;
+        this.etapas = etapas;
         this.auditoria = auditoria;
         this.notificationService = notificationService;
         this.unidadRepo = unidadRepo;
+        this.events = events;
     }
 
     // ✅ Agregá este helper acá mismo:
@@ -50,55 +48,53 @@ public class OrderAdvanceService {
 
         String etapaActual = orden.getEstadoActual();
 
-        // 2) Validar etapa actual en catálogo
-        EtapaCatalogo actual = etapaRepo.findByCodigo(etapaActual)
-                .orElseThrow(() -> new IllegalStateException("Etapa actual no válida: " + etapaActual));
-
-        // 3) Buscar siguiente (orden + 1)
-        EtapaCatalogo siguiente = etapaRepo.findByOrden(actual.getOrden() + 1)
-                .orElseThrow(() -> new IllegalStateException("No hay siguiente etapa para " + etapaActual));
-
-        // 4) Cerrar la etapa previa abierta (si existe)
-        historialRepo.findTopByOrdenIdAndFechaFinIsNullOrderByFechaInicioDesc(orden.getId())
-                .ifPresent(h -> {
-                    h.setFechaFin(nowUtc());
-                    historialRepo.save(h);
-                });
-
-        // 5) Actualizar estado de la OT
-        String nuevoEstado = siguiente.getCodigo();
+        // 2-3) Siguiente etapa según el catálogo compilado (sin consultar la base);
+        // IllegalStateException si la etapa no está en el catálogo o es terminal
+        String nuevoEstado = etapas.siguienteDe(etapaActual);
         if (nuevoEstado.equalsIgnoreCase(etapaActual)) return;
 
+        // 4-5) Compare-and-set: pasa a la siguiente sólo si sigue en la etapa que leímos; en el mismo
+        // round-trip se cierra la etapa abierta del historial y se abre la nueva. Si dos operadores
+        // escanean la misma OT a la vez, uno avanza y el otro recibe 409 (no hay doble avance).
+        LocalDateTime ahora = nowUtc();
+        int avanzo = ordenRepo.avanzarSiEsta(orden.getId(), etapaActual, nuevoEstado, ahora,
+                "Avance automático", usuario);
+        if (avanzo == 0) {
+            throw new IllegalStateException("La orden " + orden.getNroOrden()
+                    + " ya no está en " + etapaActual + ": otro usuario la avanzó");
+        }
+        // la OT quedó fuera del contexto de persistencia (clearAutomatically): no se vuelve a escribir
         orden.setEstadoActual(nuevoEstado);
-        ordenRepo.save(orden);
 
         // 6) Garantía automática al ENTREGADO
         if ("ENTREGADO".equalsIgnoreCase(nuevoEstado)) {
             orden.setGarantiaDesde(java.time.LocalDate.now());
             orden.setGarantiaHasta(java.time.LocalDate.now().plusDays(90));
-            ordenRepo.save(orden);
+            ordenRepo.fijarGarantia(orden.getId(), orden.getGarantiaDesde(), orden.getGarantiaHasta());
 
-            auditoria.registrarCambio(orden.getId(), "garantia_desde", null,
+            auditoria.registrarCambio(orden.getId(), AuditoriaService.AVANCE_ETAPA, "garantia_desde", null,
                     orden.getGarantiaDesde().toString(), usuario);
-            auditoria.registrarCambio(orden.getId(), "garantia_hasta", null,
+            auditoria.registrarCambio(orden.getId(), AuditoriaService.AVANCE_ETAPA, "garantia_hasta", null,
                     orden.getGarantiaHasta().toString(), usuario);
 
             System.out.println("🧾 Garantía registrada: desde " + orden.getGarantiaDesde() +
                     " hasta " + orden.getGarantiaHasta());
         }
 
-        // 7) Insertar nueva fila en historial (apertura de la nueva etapa)
-        OrdenEtapaHistorial nuevoHist = new OrdenEtapaHistorial();
-        nuevoHist.setOrdenId(orden.getId());
-        nuevoHist.setEtapaCodigo(nuevoEstado);
-        nuevoHist.setFechaInicio(nowUtc());
-        nuevoHist.setObservacion("Avance automático");
-        nuevoHist.setUsuario(usuario);
-        historialRepo.save(nuevoHist);
+        // Reportes: motores por etapa cuenta por fecha de alta; el ranking, por fecha de entrega
+        if (orden.getCreadaEn() != null) {
+            events.publishEvent(new ReportCache.DatosReporteCambiados(
+                    List.of(ReportCache.MOTORES_POR_ETAPA), orden.getCreadaEn().toLocalDate()));
+        }
+        if ("ENTREGADO".equalsIgnoreCase(nuevoEstado)) {
+            events.publishEvent(new ReportCache.DatosReporteCambiados(
+                    List.of(ReportCache.CLIENTES_FRECUENTES), ahora.toLocalDate()));
+        }
 
         // 8) Auditoría cambio de estado
         auditoria.registrarCambio(
                 orden.getId(),
+                AuditoriaService.AVANCE_ETAPA,
                 "estado_actual",
                 etapaActual,
                 nuevoEstado,
@@ -108,26 +104,15 @@ public class OrderAdvanceService {
         //if ("LISTO_RETIRAR".equalsIgnoreCase(nuevoEstado)) {
         //     System.out.println("🔔 Notificación: orden " + orden.getNroOrden() + " lista para retirar.");
         // }
+        // La notificación (in-app + WhatsApp al outbox) es parte de la misma transacción: si falla, falla
+        // el avance entero. No se atrapa: un error acá deja la transacción rollback-only y, tragado, el
+        // commit terminaría igual en UnexpectedRollbackException. El SSE sale recién al commit y el envío
+        // real lo hace el dispatcher; sin teléfono el outbox la manda a dead-letter, no rompe.
         if ("LISTO_RETIRAR".equalsIgnoreCase(nuevoEstado)) {
-
-            String telefonoDestino = null;
-            try {
-                // Buscamos la unidad de trabajo de la OT
-                var unidadOpt = unidadRepo.findById(orden.getUnidadId());
-                if (unidadOpt.isPresent() && unidadOpt.get().getCliente() != null) {
-                    telefonoDestino = unidadOpt.get().getCliente().getTelefono();
-                }
-            } catch (Exception e) {
-                System.err.println("⚠ No se pudo obtener teléfono del cliente para la OT "
-                        + orden.getNroOrden() + ": " + e.getMessage());
-            }
-
-            try {
-                notificationService.emitirListoRetirar(orden, telefonoDestino);
-            } catch (Exception e) {
-                // Por ahora no rompemos el avance de etapa si falla la notificación
-                System.err.println("⚠ No se pudo emitir notificación LISTO_RETIRAR: " + e.getMessage());
-            }
+            String telefonoDestino = unidadRepo.findById(orden.getUnidadId())
+                    .map(u -> u.getCliente() == null ? null : u.getCliente().getTelefono())
+                    .orElse(null);
+            notificationService.emitirListoRetirar(orden, telefonoDestino);
         }
     }
 }
\ No newline at end of file
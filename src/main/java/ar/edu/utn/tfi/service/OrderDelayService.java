@@ -11,20 +11,21 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class OrderDelayService {
 
-    private static final String ETAPA_SEMI_ARMADO = "SEMI_ARMADO";
-
     private final OrdenTrabajoRepository ordenRepo;
     private final OrdenEtapaHistorialRepository historialRepo;
+    private final MaquinaEtapas etapas;
 
     public OrderDelayService(OrdenTrabajoRepository ordenRepo,
-                             OrdenEtapaHistorialRepository historialRepo) {
+                             OrdenEtapaHistorialRepository historialRepo,
+                             MaquinaEtapas etapas) {
         this.ordenRepo = ordenRepo;
         this.historialRepo = historialRepo;
+        this.etapas = etapas;
     }
 
     /**
      * Registra una demora SIN crear una nueva fila:
-     * - Sólo permitido si la orden está en SEMI_ARMADO.
+     * - Sólo permitido en las etapas que permiten DEMORA según el catálogo (SEMI_ARMADO).
      * - Actualiza la observación de la fila ABIERTA (fecha_fin IS NULL) de esa misma etapa.
      */
     @Transactional
@@ -33,8 +34,9 @@ public class OrderDelayService {
                 .orElseThrow(() -> new EntityNotFoundException("Orden no encontrada: " + nroOrden));
 
         String actual = (orden.getEstadoActual() == null) ? "" : orden.getEstadoActual().toUpperCase();
-        if (!ETAPA_SEMI_ARMADO.equals(actual)) {
-            throw new IllegalStateException("La demora sólo puede registrarse en SEMI_ARMADO (actual: " + actual + ")");
+        if (!etapas.permite(actual, MaquinaEtapas.Accion.DEMORA)) {
+            throw new IllegalStateException("La demora sólo puede registrarse en "
+                    + String.join("/", etapas.etapasQuePermiten(MaquinaEtapas.Accion.DEMORA)) + " (actual: " + actual + ")");
         }
 
         // Buscar la fila abierta de historial (misma orden)
@@ -42,9 +44,9 @@ public class OrderDelayService {
                 .findTopByOrdenIdAndFechaFinIsNullOrderByFechaInicioDesc(orden.getId())
                 .orElseThrow(() -> new IllegalStateException("No hay una etapa abierta para actualizar"));
 
-        // Asegurarnos de que esa fila abierta corresponda a SEMI_ARMADO
-        if (!ETAPA_SEMI_ARMADO.equalsIgnoreCase(abierta.getEtapaCodigo())) {
-            throw new IllegalStateException("La etapa abierta no es SEMI_ARMADO, no se puede registrar demora aquí.");
+        // Asegurarnos de que esa fila abierta corresponda a la etapa actual
+        if (!actual.equalsIgnoreCase(abierta.getEtapaCodigo())) {
+            throw new IllegalStateException("La etapa abierta no es " + actual + ", no se puede registrar demora aquí.");
         }
 
         // Armar texto de demora y concatenarlo a la observación existente
@@ -5,27 +5,34 @@ import ar.edu.utn.tfi.domain.OrdenTrabajo;
 import ar.edu.utn.tfi.repository.OrdenEtapaHistorialRepository;
 import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.List;
 
 @Service
 public class OrderIrreparableService {
-    private static final String ETAPA_DIAGNOSTICO = "DIAGNOSTICO";
     private static final String ETAPA_IRREPARABLE = "PIEZA_IRREPARABLE";
 
     private final OrdenTrabajoRepository ordenRepo;
     private final OrdenEtapaHistorialRepository historialRepo;
     private final AuditoriaService auditoria;
+    private final ApplicationEventPublisher events;
+    private final MaquinaEtapas etapas;
 
     public OrderIrreparableService(OrdenTrabajoRepository ordenRepo,
                                    OrdenEtapaHistorialRepository historialRepo,
-                                   AuditoriaService auditoria) {
+                                   AuditoriaService auditoria,
+                                   ApplicationEventPublisher events,
+                                   MaquinaEtapas etapas) {
         this.ordenRepo = ordenRepo;
         this.historialRepo = historialRepo;
         this.auditoria = auditoria;
+        this.events = events;
+        this.etapas = etapas;
     }
 
     @Transactional
@@ -40,8 +47,10 @@ public class OrderIrreparableService {
             return;
         }
 
-        if (!ETAPA_DIAGNOSTICO.equals(actual)) {
-            throw new IllegalStateException("Sólo puede marcarse irreparable desde DIAGNOSTICO (actual: " + actual + ")");
+        if (!etapas.permite(actual, MaquinaEtapas.Accion.IRREPARABLE)) {
+            throw new IllegalStateException("Sólo puede marcarse irreparable desde "
+                    + String.join("/", etapas.etapasQuePermiten(MaquinaEtapas.Accion.IRREPARABLE))
+                    + " (actual: " + actual + ")");
         }
 
         // 1) cerrar etapa abierta (si existe) respetando el CHECK
@@ -69,11 +78,18 @@ public class OrderIrreparableService {
         // 4) AUDITORÍA (estado_actual)
         auditoria.registrarCambio(
                 orden.getId(),
+                AuditoriaService.IRREPARABLE,
                 "estado_actual",
-                ETAPA_DIAGNOSTICO,
+                actual,
                 ETAPA_IRREPARABLE,
                 usuario
         );
+
+        // 5) Reporte de motores por etapa (cuenta por fecha de alta de la OT)
+        if (orden.getCreadaEn() != null) {
+            events.publishEvent(new ReportCache.DatosReporteCambiados(
+                    List.of(ReportCache.MOTORES_POR_ETAPA), orden.getCreadaEn().toLocalDate()));
+        }
     }
 
     private LocalDateTime nowUtc() {
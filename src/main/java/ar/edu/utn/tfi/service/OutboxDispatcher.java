@@ -0,0 +1,122 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.NotificacionOutbox;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drena notificacion_outbox por lotes. Cada canal tiene su propio pool fijo,
+ * así un proveedor de WhatsApp lento no frena los mails (y viceversa).
+ */
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxService outboxService;
+    private final WhatsAppGateway whatsapp;
+    private final MailService mailService;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final ExecutorService poolWhatsApp;
+    private final ExecutorService poolEmail;
+
+    public OutboxDispatcher(OutboxService outboxService,
+                            WhatsAppGateway whatsapp,
+                            MailService mailService,
+                            @Value("${notificaciones.outbox.enabled:true}") boolean enabled,
+                            @Value("${notificaciones.outbox.batch-size:50}") int batchSize,
+                            @Value("${notificaciones.outbox.whatsapp.concurrencia:4}") int concWhatsApp,
+                            @Value("${notificaciones.outbox.email.concurrencia:2}") int concEmail) {
+        this.outboxService = outboxService;
+        this.whatsapp = whatsapp;
+        this.mailService = mailService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.poolWhatsApp = pool("outbox-wa-", concWhatsApp);
+        this.poolEmail = pool("outbox-mail-", concEmail);
+    }
+
+    @Scheduled(fixedDelayString = "${notificaciones.outbox.poll-ms:1000}")
+    public void drenar() {
+        if (!enabled) return;
+
+        List<Future<?>> tareas = new ArrayList<>();
+        despachar(OutboxService.CANAL_WHATSAPP, poolWhatsApp, tareas);
+        despachar(OutboxService.CANAL_EMAIL, poolEmail, tareas);
+
+        // Esperamos ambos lotes antes de reservar más (los canales corren en paralelo)
+        for (Future<?> f : tareas) {
+            try {
+                f.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ignored) {
+                // enviar() registra sus propios errores
+            }
+        }
+    }
+
+    private void despachar(String canal, ExecutorService pool, List<Future<?>> tareas) {
+        List<NotificacionOutbox> lote;
+        try {
+            lote = outboxService.reservarLote(canal, batchSize);
+        } catch (Exception e) {
+            System.err.println("[OUTBOX] No se pudo reservar lote " + canal + ": " + e.getMessage());
+            return;
+        }
+        for (NotificacionOutbox o : lote) {
+            tareas.add(pool.submit(() -> enviar(o)));
+        }
+    }
+
+    void enviar(NotificacionOutbox o) {
+        if (o.getDestino() == null || o.getDestino().isBlank()) {
+            // Sin destino no tiene sentido reintentar
+            outboxService.registrarFallo(o.getId(), "Sin destino", true);
+            return;
+        }
+        try {
+            if (OutboxService.CANAL_EMAIL.equals(o.getCanal())) {
+                mailService.enviarCorreo(o.getDestino(), o.getAsunto(), o.getCuerpo());
+            } else {
+                whatsapp.send(o.getDestino(), o.getCuerpo());
+            }
+            outboxService.marcarEnviado(o.getId());
+        } catch (Exception e) {
+            try {
+                outboxService.registrarFallo(o.getId(), e.getMessage(), false);
+            } catch (Exception e2) {
+                // Si no se pudo registrar, el lease vence y se reintenta igual
+                System.err.println("[OUTBOX] No se pudo registrar el fallo de #" + o.getId() + ": " + e2.getMessage());
+            }
+        }
+    }
+
+    private static ExecutorService pool(String prefijo, int hilos) {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, hilos), r -> {
+            Thread t = new Thread(r, prefijo + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        poolWhatsApp.shutdown();
+        poolEmail.shutdown();
+        poolWhatsApp.awaitTermination(10, TimeUnit.SECONDS);
+        poolEmail.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
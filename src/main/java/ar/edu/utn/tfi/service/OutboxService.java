@@ -0,0 +1,128 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.NotificacionOutbox;
+import ar.edu.utn.tfi.repository.NotificacionOutboxRepository;
+import ar.edu.utn.tfi.repository.NotificacionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox de notificaciones salientes.
+ * Los encolar* se unen a la transacción del llamador: el mensaje existe solo si el cambio de negocio commitea.
+ * El envío real lo hace {@link OutboxDispatcher}.
+ */
+@Service
+public class OutboxService {
+
+    public static final String CANAL_WHATSAPP = "WHATSAPP";
+    public static final String CANAL_EMAIL    = "EMAIL";
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String ENVIADO   = "ENVIADO";
+    public static final String DEAD      = "DEAD";
+
+    private final NotificacionOutboxRepository outboxRepo;
+    private final NotificacionRepository notificacionRepo;
+
+    @Value("${notificaciones.outbox.max-intentos:6}")
+    private int maxIntentos = 6;
+
+    @Value("${notificaciones.outbox.lease-segundos:120}")
+    private long leaseSegundos = 120;
+
+    @Value("${notificaciones.outbox.backoff-base-segundos:10}")
+    private long backoffBaseSegundos = 10;
+
+    @Value("${notificaciones.outbox.backoff-max-segundos:3600}")
+    private long backoffMaxSegundos = 3600;
+
+    public OutboxService(NotificacionOutboxRepository outboxRepo, NotificacionRepository notificacionRepo) {
+        this.outboxRepo = outboxRepo;
+        this.notificacionRepo = notificacionRepo;
+    }
+
+    // ───────────── Encolado (dentro de la tx del negocio) ─────────────
+
+    @Transactional
+    public NotificacionOutbox encolarWhatsApp(String telefono, String mensaje, Long notificacionId) {
+        var o = new NotificacionOutbox();
+        o.setCanal(CANAL_WHATSAPP);
+        o.setDestino(telefono == null ? null : telefono.trim());
+        o.setCuerpo(mensaje);
+        o.setNotificacionId(notificacionId);
+        return outboxRepo.save(o);
+    }
+
+    @Transactional
+    public NotificacionOutbox encolarEmail(String to, String asunto, String cuerpo, Long notificacionId) {
+        var o = new NotificacionOutbox();
+        o.setCanal(CANAL_EMAIL);
+        o.setDestino(to == null ? null : to.trim());
+        o.setAsunto(asunto);
+        o.setCuerpo(cuerpo);
+        o.setNotificacionId(notificacionId);
+        return outboxRepo.save(o);
+    }
+
+    // ───────────── Dispatcher ─────────────
+
+    /** Reserva un lote del canal y corre su próximo intento (lease) mientras se envía fuera de la tx. */
+    @Transactional
+    public List<NotificacionOutbox> reservarLote(String canal, int limite) {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<NotificacionOutbox> lote = outboxRepo.reservarPendientes(canal, ahora, limite);
+        for (NotificacionOutbox o : lote) {
+            o.setProximoIntento(ahora.plusSeconds(leaseSegundos));
+        }
+        return lote;
+    }
+
+    @Transactional
+    public void marcarEnviado(Long outboxId) {
+        outboxRepo.findById(outboxId).ifPresent(o -> {
+            o.setEstado(ENVIADO);
+            o.setEnviadoEn(LocalDateTime.now());
+            o.setUltimoError(null);
+            actualizarNotificacion(o.getNotificacionId(), true, "ENVIADA");
+        });
+    }
+
+    /**
+     * Registra un intento fallido. Reintenta con backoff exponencial; si el error es definitivo
+     * o se agotaron los intentos, el mensaje pasa a DEAD (dead-letter) y la notificación a FALLIDA.
+     */
+    @Transactional
+    public void registrarFallo(Long outboxId, String error, boolean definitivo) {
+        outboxRepo.findById(outboxId).ifPresent(o -> {
+            int intentos = (o.getIntentos() == null ? 0 : o.getIntentos()) + 1;
+            o.setIntentos(intentos);
+            o.setUltimoError(error);
+
+            if (definitivo || intentos >= maxIntentos) {
+                o.setEstado(DEAD);
+                actualizarNotificacion(o.getNotificacionId(), false, "FALLIDA");
+                System.err.println("☠️ [OUTBOX] " + o.getCanal() + " #" + o.getId() + " a dead-letter: " + error);
+            } else {
+                o.setProximoIntento(LocalDateTime.now().plusSeconds(backoffSegundos(intentos)));
+            }
+        });
+    }
+
+    long backoffSegundos(int intentos) {
+        long base = Math.max(1, backoffBaseSegundos);
+        long exp  = base << Math.min(intentos - 1, 20);
+        return Math.min(exp, backoffMaxSegundos);
+    }
+
+    private void actualizarNotificacion(Long notificacionId, boolean sent, String estado) {
+        if (notificacionId == null) return;
+        notificacionRepo.findById(notificacionId).ifPresent(n -> {
+            n.setSent(sent);
+            n.setEstado(estado);
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package ar.edu.utn.tfi.service.Pagos;
+
+import ar.edu.utn.tfi.repository.MovimientoPagoRepository;
+import ar.edu.utn.tfi.service.ReportCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Libro de pagos (movimiento_pago): cada seña o pago final acreditado agrega una fila.
+ * No se actualiza ni se borra; el reporte de ingresos y el export de pagos leen solo de acá.
+ */
+@Service
+public class MovimientoPagoService {
+
+    public static final String SENA  = "SENA";
+    public static final String FINAL = "FINAL";
+
+    public static final String MERCADO_PAGO = "MERCADO_PAGO";
+    public static final String MANUAL       = "MANUAL";
+
+    private static final Set<String> TIPOS   = Set.of(SENA, FINAL);
+    private static final Set<String> ORIGENES = Set.of(MERCADO_PAGO, MANUAL);
+
+    private final MovimientoPagoRepository repo;
+    private final ApplicationEventPublisher events;
+
+    public MovimientoPagoService(MovimientoPagoRepository repo, ApplicationEventPublisher events) {
+        this.repo = repo;
+        this.events = events;
+    }
+
+    /**
+     * Agrega el movimiento en la transacción del que llama. Un presupuesto acredita una sola seña
+     * y un solo final: si ya estaba registrado (webhook repetido, reintento) no hace nada y devuelve false.
+     */
+    @Transactional
+    public boolean registrar(Long presupuestoId, String tipo, BigDecimal monto, LocalDateTime fecha,
+                             String origen, String medio, String referencia) {
+        if (presupuestoId == null) throw new IllegalArgumentException("presupuestoId requerido");
+        if (!TIPOS.contains(tipo)) throw new IllegalArgumentException("tipo debe ser SENA o FINAL");
+        if (!ORIGENES.contains(origen)) throw new IllegalArgumentException("origen inválido: " + origen);
+        if (monto == null || monto.signum() < 0) throw new IllegalArgumentException("monto inválido");
+        if (fecha == null) throw new IllegalArgumentException("fecha requerida");
+
+        String ref = (referencia != null && referencia.length() > 100) ? referencia.substring(0, 100) : referencia;
+        int filas = repo.registrar(presupuestoId, tipo, monto.setScale(2, RoundingMode.HALF_UP),
+                fecha, origen, medio, ref);
+        if (filas == 0) {
+            System.out.println("[PAGOS] Movimiento " + tipo + " del presupuesto " + presupuestoId + " ya registrado");
+            return false;
+        }
+
+        // Reporte de ingresos: se invalida el mes del movimiento al commit
+        events.publishEvent(new ReportCache.DatosReporteCambiados(List.of(ReportCache.INGRESOS), fecha.toLocalDate()));
+        return true;
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -24,42 +26,89 @@ public class WebhookPagoService {
     private final PresupuestoRepository presupuestoRepo;
     private final MpEventLogRepository eventRepo;
     private final WebClient webClient;
+    private final MovimientoPagoService movimientos;
 
     // ⚠ Usar la misma key que en PaymentApiService
     @Value("${mp.api.access-token}")
     private String accessToken;
 
+    // ─── Cola de eventos ───
+    @Value("${mp.webhook.max-intentos:8}")
+    private int maxIntentos = 8;
+
+    @Value("${mp.webhook.lease-segundos:120}")
+    private long leaseSegundos = 120;
+
+    @Value("${mp.webhook.backoff-base-segundos:5}")
+    private long backoffBaseSegundos = 5;
+
+    @Value("${mp.webhook.backoff-max-segundos:3600}")
+    private long backoffMaxSegundos = 3600;
+
     public WebhookPagoService(PresupuestoRepository presupuestoRepo,
                               MpEventLogRepository eventRepo,
-                              WebClient.Builder builder) {
+                              WebClient.Builder builder,
+                              MovimientoPagoService movimientos) {
         this.presupuestoRepo = presupuestoRepo;
         this.eventRepo = eventRepo;
+        this.movimientos = movimientos;
         this.webClient = builder.baseUrl("https://api.mercadopago.com").build();
     }
 
+    // ───────────────────────── Ingesta (request del webhook) ─────────────────────────
+
+    /**
+     * Solo persiste el evento en mp_event_log y vuelve: el webhook responde rápido
+     * y el procesamiento real (consulta a MP + actualización) lo hace {@link WebhookPagoWorker}.
+     */
     @Transactional
-    public void procesarNotificacion(String topic, String dataId, String xRequestId) {
+    public void encolarNotificacion(String topic, String dataId, String xRequestId) {
         if (topic == null || topic.isBlank() || dataId == null || dataId.isBlank()) return;
 
-        // ---- Idempotencia (si viene x-request-id lo usamos para no procesar duplicados) ----
-        if (xRequestId != null && !xRequestId.isBlank()) {
-            if (eventRepo.existsByRequestId(xRequestId)) {
-                System.out.println("[WEBHOOK] Duplicado ignorado: " + xRequestId);
-                return;
-            }
-            eventRepo.save(new MpEventLog(xRequestId, topic, dataId));
+        // ---- Idempotencia (si viene x-request-id lo usamos para no encolar duplicados) ----
+        String requestId = (xRequestId != null && !xRequestId.isBlank()) ? xRequestId : null;
+        if (requestId != null && eventRepo.existsByRequestId(requestId)) {
+            System.out.println("[WEBHOOK] Duplicado ignorado: " + requestId);
+            return;
+        }
+        eventRepo.save(new MpEventLog(requestId, topic, dataId));
+    }
+
+    // ───────────────────────── Procesamiento (worker) ─────────────────────────
+
+    /**
+     * Reserva un lote de eventos y corre su próximo intento hacia adelante (lease):
+     * mientras el worker consulta a MP fuera de la transacción, nadie más los toma.
+     */
+    @Transactional
+    public List<MpEventLog> reservarLote(int limite) {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<MpEventLog> lote = eventRepo.reservarPendientes(ahora, maxIntentos, limite);
+        for (MpEventLog ev : lote) {
+            ev.setNextAttemptAt(ahora.plusSeconds(leaseSegundos));
         }
+        return lote;
+    }
+
+    /**
+     * Consulta a MP el pago/orden del evento. NO abre transacción (I/O de red).
+     * Devuelve null si el evento no aplica (tópico ignorado o sin presupuesto asociado);
+     * lanza excepción si MP no respondió, para que el evento se reintente.
+     */
+    public ResultadoPago consultarMp(MpEventLog ev) {
+        String topic  = ev.getTopic();
+        String dataId = ev.getDataId();
 
         Long paymentId       = null;
         String paymentStatus = null;
         LocalDateTime paidAt = null;
+        BigDecimal monto     = null;
 
         Long presupuestoId   = null;   // mapeo al presupuesto
         String extRef        = null;   // external_reference
 
         if ("merchant_order".equalsIgnoreCase(topic)) {
             Map<String, Object> mo = getJson("/merchant_orders/" + dataId);
-            if (mo == null) return;
 
             extRef = getString(mo, "external_reference");
             presupuestoId = tryParsePresupuestoIdFromExternalRef(extRef);
@@ -70,15 +119,16 @@ public class WebhookPagoService {
                 paymentId     = getLong(primero, "id");
                 paymentStatus = getString(primero, "status");
                 paidAt        = toLocalDateTime(getString(primero, "date_approved"));
+                monto         = getBigDecimal(primero, "transaction_amount");
             }
 
         } else if ("payment".equalsIgnoreCase(topic)) {
             Map<String, Object> pr = getJson("/v1/payments/" + dataId);
-            if (pr == null) return;
 
             paymentId     = getLong(pr, "id");
             paymentStatus = getString(pr, "status");
             paidAt        = toLocalDateTime(getString(pr, "date_approved"));
+            monto         = getBigDecimal(pr, "transaction_amount");
 
             Map<String, Object> md = getMap(pr, "metadata");
             if (md != null) {
@@ -96,19 +146,69 @@ public class WebhookPagoService {
 
         } else {
             // Ignorar otros tópicos
-            return;
+            return null;
         }
 
         if (presupuestoId == null) {
             System.err.println("[WEBHOOK-MP] No se pudo resolver presupuestoId (extRef=" + extRef + ")");
-            return;
+            return null;
         }
 
-        final Long pid = presupuestoId;
+        return new ResultadoPago(presupuestoId, paymentId, paymentStatus, paidAt, monto);
+    }
+
+    /**
+     * Aplica el resultado al presupuesto y marca el evento como procesado, en la misma transacción.
+     * resultado == null → el evento se cierra sin cambios.
+     */
+    @Transactional
+    public void aplicarResultado(Long eventId, ResultadoPago resultado) {
+        MpEventLog ev = eventRepo.findById(eventId)
+                .orElseThrow(() -> new EntityNotFoundException("No hay evento MP id=" + eventId));
+
+        if (resultado != null) {
+            aplicarAlPresupuesto(resultado);
+        }
+
+        ev.setProcessed(Boolean.TRUE);
+        ev.setProcessedAt(LocalDateTime.now());
+        ev.setErrorMsg(null);
+        eventRepo.save(ev);
+    }
+
+    /**
+     * Registra un intento fallido: guarda el error y reprograma con backoff exponencial.
+     * Al llegar a maxIntentos el evento queda pendiente pero fuera de la cola (revisión manual).
+     */
+    @Transactional
+    public void registrarFallo(Long eventId, String error) {
+        eventRepo.findById(eventId).ifPresent(ev -> {
+            int intentos = (ev.getRetryCount() == null ? 0 : ev.getRetryCount()) + 1;
+            ev.setRetryCount(intentos);
+            ev.setErrorMsg(error);
+            ev.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoffSegundos(intentos)));
+            eventRepo.save(ev);
+
+            if (intentos >= maxIntentos) {
+                System.err.println("[WEBHOOK-MP] Evento " + eventId + " agotó reintentos: " + error);
+            }
+        });
+    }
+
+    long backoffSegundos(int intentos) {
+        long base = Math.max(1, backoffBaseSegundos);
+        long exp  = base << Math.min(intentos - 1, 20);
+        return Math.min(exp, backoffMaxSegundos);
+    }
+
+    private void aplicarAlPresupuesto(ResultadoPago r) {
+        final Long pid = r.presupuestoId();
 
         Presupuesto p = presupuestoRepo.findById(pid)
                 .orElseThrow(() -> new EntityNotFoundException("No hay presupuesto id=" + pid));
 
+        String paymentStatus = r.paymentStatus();
+
         // Idempotencia funcional: si ya quedó acreditada y el pago viene approved otra vez, no tocar
         if ("ACREDITADA".equalsIgnoreCase(Objects.toString(p.getSenaEstado(), "")) &&
                 "approved".equalsIgnoreCase(Optional.ofNullable(paymentStatus).orElse(""))) {
@@ -116,19 +216,38 @@ public class WebhookPagoService {
         }
 
         // Actualizar datos de pago
-        p.setSenaPaymentId(paymentId != null ? String.valueOf(paymentId) : null);
+        p.setSenaPaymentId(r.paymentId() != null ? String.valueOf(r.paymentId()) : null);
         p.setSenaPaymentStatus(paymentStatus);
-        p.setSenaPaidAt(paidAt);
+        p.setSenaPaidAt(r.paidAt());
 
-        if ("approved".equalsIgnoreCase(Optional.ofNullable(paymentStatus).orElse(""))) {
+        boolean acreditada = "approved".equalsIgnoreCase(Optional.ofNullable(paymentStatus).orElse(""));
+        if (acreditada) {
             p.setSenaEstado("ACREDITADA");
+            if (p.getSenaMonto() == null) p.setSenaMonto(montoSena(p, r.monto()));
         } else if (p.getSenaEstado() == null || p.getSenaEstado().isBlank()) {
             p.setSenaEstado("PENDIENTE");
         }
 
         presupuestoRepo.save(p);
+
+        // Libro de pagos: la seña acreditada se agrega una sola vez (el índice único frena los repetidos)
+        if (acreditada) {
+            movimientos.registrar(pid, MovimientoPagoService.SENA, p.getSenaMonto(),
+                    r.paidAt() != null ? r.paidAt() : LocalDateTime.now(),
+                    MovimientoPagoService.MERCADO_PAGO, null, p.getSenaPaymentId());
+        }
     }
 
+    /** Monto acreditado por MP; si no vino, el 30% del total como en el cobro de la seña. */
+    private static BigDecimal montoSena(Presupuesto p, BigDecimal montoMp) {
+        if (montoMp != null) return montoMp.setScale(2, RoundingMode.HALF_UP);
+        BigDecimal total = p.getTotal() != null ? p.getTotal() : BigDecimal.ZERO;
+        return total.multiply(BigDecimal.valueOf(0.30)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public record ResultadoPago(Long presupuestoId, Long paymentId, String paymentStatus, LocalDateTime paidAt,
+                                BigDecimal monto) {}
+
     // ───────────────────────── Helpers ─────────────────────────
 
     private Long tryParsePresupuestoIdFromExternalRef(String extRef) {
@@ -141,9 +260,11 @@ public class WebhookPagoService {
         }
     }
 
+    @SuppressWarnings("unchecked")
     private Map<String, Object> getJson(String path) {
+        Map<String, Object> body;
         try {
-            return webClient.get()
+            body = webClient.get()
                     .uri(path)
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                     .retrieve()
@@ -151,8 +272,10 @@ public class WebhookPagoService {
                     .block();
         } catch (Exception e) {
             System.err.println("[MP GET " + path + "] " + e.getMessage());
-            return null;
+            throw new IllegalStateException("MP GET " + path + ": " + e.getMessage(), e);
         }
+        if (body == null) throw new IllegalStateException("MP GET " + path + ": respuesta vacía");
+        return body;
     }
 
     @SuppressWarnings("unchecked")
@@ -186,6 +309,16 @@ public class WebhookPagoService {
         }
     }
 
+    private BigDecimal getBigDecimal(Map<String, Object> src, String key) {
+        Object o = src.get(key);
+        if (o == null) return null;
+        try {
+            return new BigDecimal(String.valueOf(o));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private LocalDateTime toLocalDateTime(String iso) {
         if (iso == null || iso.isBlank()) return null;
         try {
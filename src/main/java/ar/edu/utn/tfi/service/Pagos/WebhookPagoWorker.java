@@ -0,0 +1,95 @@
+package ar.edu.utn.tfi.service.Pagos;
+
+import ar.edu.utn.tfi.domain.MpEventLog;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drena la cola de mp_event_log: reserva lotes con SKIP LOCKED, consulta MP
+ * fuera de transacción con un pool acotado y aplica cada resultado en su propia transacción.
+ */
+@Component
+public class WebhookPagoWorker {
+
+    private final WebhookPagoService webhookPagoService;
+    private final ExecutorService pool;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public WebhookPagoWorker(WebhookPagoService webhookPagoService,
+                             @Value("${mp.webhook.worker.enabled:true}") boolean enabled,
+                             @Value("${mp.webhook.worker.threads:4}") int threads,
+                             @Value("${mp.webhook.worker.batch-size:20}") int batchSize) {
+        this.webhookPagoService = webhookPagoService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "mp-webhook-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${mp.webhook.worker.poll-ms:2000}")
+    public void drenar() {
+        if (!enabled) return;
+
+        List<MpEventLog> lote;
+        try {
+            lote = webhookPagoService.reservarLote(batchSize);
+        } catch (Exception e) {
+            System.err.println("[WEBHOOK-MP][WORKER] No se pudo reservar lote: " + e.getMessage());
+            return;
+        }
+        if (lote.isEmpty()) return;
+
+        List<Future<?>> tareas = new ArrayList<>(lote.size());
+        for (MpEventLog ev : lote) {
+            tareas.add(pool.submit(() -> procesar(ev)));
+        }
+        // Esperamos el lote completo antes de reservar el siguiente (backpressure natural)
+        for (Future<?> f : tareas) {
+            try {
+                f.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ignored) {
+                // procesar() ya registra sus propios errores
+            }
+        }
+    }
+
+    void procesar(MpEventLog ev) {
+        try {
+            WebhookPagoService.ResultadoPago r = webhookPagoService.consultarMp(ev);
+            webhookPagoService.aplicarResultado(ev.getId(), r);
+        } catch (Exception e) {
+            System.err.println("[WEBHOOK-MP][WORKER] Evento " + ev.getId() + " falló: " + e.getMessage());
+            try {
+                webhookPagoService.registrarFallo(ev.getId(), e.getMessage());
+            } catch (Exception e2) {
+                // Si ni siquiera se pudo registrar, el lease vence y se reintenta igual
+                System.err.println("[WEBHOOK-MP][WORKER] No se pudo registrar el fallo: " + e2.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,234 @@
+package ar.edu.utn.tfi.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.ColumnText;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfDate;
+import com.lowagie.text.pdf.PdfEncryption;
+import com.lowagie.text.pdf.PdfImportedPage;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Recursos compartidos para armar PDFs (facturas y reportes) sin recrearlos en cada render:
+ * fuentes y colores fijos, el logo leído, reducido a su tamaño impreso y decodificado una sola vez, y la celda de cabecera
+ * de la empresa armada de antemano como plantilla.
+ *
+ * Las fuentes, colores y la plantilla se comparten entre hilos: nunca se modifican después de armarse.
+ * La plantilla no se agrega directo a un documento; se usa una copia ({@link #cabeceraEmpresa()}).
+ *
+ * También arma las copias fiscales (ORIGINAL / DUPLICADO / TRIPLICADO) de un comprobante ya renderizado
+ * sin volver a renderizarlo ({@link #estamparCopias}).
+ */
+@Component
+public class PdfKit {
+
+    // ─── Fuentes ───
+    public static final Font TITULO        = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
+    public static final Font LETRA_GRANDE  = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 26);
+    public static final Font NORMAL        = FontFactory.getFont(FontFactory.HELVETICA, 10);
+    public static final Font CHICA         = FontFactory.getFont(FontFactory.HELVETICA, 8);
+    public static final Font CHICA_NEGRITA = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8);
+    public static final Font CODIGO_BARRAS = FontFactory.getFont(FontFactory.COURIER, 9);
+    public static final Font NEGRITA       = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
+
+    // ─── Colores ───
+    public static final Color GRIS_ENCABEZADO = new Color(230, 230, 230);
+    public static final Color GRIS_ITEMS      = new Color(240, 240, 240);
+
+    // ─── Copias fiscales ───
+    public static final String ORIGINAL = "ORIGINAL";
+    public static final List<String> COPIAS = List.of(ORIGINAL, "DUPLICADO", "TRIPLICADO");
+
+    // la leyenda ocupa la primera línea del documento (margen superior 54 + interlineado de CHICA),
+    // alineada al margen derecho: el cuerpo deja esa línea en blanco
+    static final float LEYENDA_MARGEN_DERECHO = 36f;
+    static final float LEYENDA_DESDE_ARRIBA = 54f + CHICA.getCalculatedLeading(1.5f);
+
+    static final String LOGO = "/static/img/logo-fondo-transparente.png";
+    static final float LOGO_ANCHO = 180f;
+    static final float LOGO_ALTO = 80f;
+    static final int LOGO_DPI = 216;
+
+    private final PdfPCell cabeceraEmpresa;
+
+    public PdfKit() {
+        this.cabeceraEmpresa = armarCabeceraEmpresa(cargarLogo());
+    }
+
+    /** Copia de la celda con logo y datos de la empresa (comparte el logo ya decodificado). */
+    public PdfPCell cabeceraEmpresa() {
+        return new PdfPCell(cabeceraEmpresa);
+    }
+
+    /** Celda de encabezado de tabla de reporte: negrita sobre gris. */
+    public static PdfPCell celdaEncabezado(String texto) {
+        PdfPCell c = new PdfPCell(new Phrase(texto, NEGRITA));
+        c.setBackgroundColor(GRIS_ENCABEZADO);
+        return c;
+    }
+
+    /** Celda de encabezado de tabla de ítems de factura: letra chica sobre gris claro. */
+    public static PdfPCell celdaEncabezadoItems(String texto) {
+        PdfPCell c = new PdfPCell(new Phrase(texto, CHICA));
+        c.setBackgroundColor(GRIS_ITEMS);
+        return c;
+    }
+
+    /**
+     * Copias de un comprobante ya renderizado, una tras otra en un solo PDF: cada página del cuerpo se
+     * importa una vez (queda como un único XObject que todas las copias reusan) y en cada copia sólo se
+     * escribe la leyenda encima. Con {@code List.of(ORIGINAL)} da el original.
+     */
+    public static byte[] estamparCopias(byte[] cuerpo, List<String> leyendas) throws IOException {
+        return estamparCopias(cuerpo, leyendas, null);
+    }
+
+    /**
+     * Metadatos fijos para un PDF que se guarda: fecha de creación/modificación y /ID del documento.
+     * OpenPDF pone por defecto la hora del render y un /ID al azar; con estos valores, el mismo
+     * comprobante da siempre los mismos bytes (mismo hash y ETag en todas las instancias).
+     */
+    public record Huella(LocalDateTime fecha, String semilla) {}
+
+    private static final DateTimeFormatter FECHA_PDF = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /** Como {@link #estamparCopias(byte[], List)}; con huella != null la salida es determinística. */
+    public static byte[] estamparCopias(byte[] cuerpo, List<String> leyendas, Huella huella) throws IOException {
+        PdfReader reader = new PdfReader(cuerpo);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Document doc = new Document(reader.getPageSizeWithRotation(1));
+            PdfWriter writer = PdfWriter.getInstance(doc, out);
+            doc.open();
+            if (huella != null) fijar(writer, huella);
+            PdfContentByte cb = writer.getDirectContent();
+
+            int paginas = reader.getNumberOfPages();
+            PdfImportedPage[] importadas = new PdfImportedPage[paginas];
+            for (int i = 0; i < paginas; i++) {
+                importadas[i] = writer.getImportedPage(reader, i + 1);
+            }
+
+            for (String leyenda : leyendas) {
+                for (int i = 0; i < paginas; i++) {
+                    Rectangle tam = reader.getPageSizeWithRotation(i + 1);
+                    doc.setPageSize(tam);
+                    doc.newPage();
+                    cb.addTemplate(importadas[i], 0, 0);
+                    ColumnText.showTextAligned(cb, Element.ALIGN_RIGHT, new Phrase(leyenda, CHICA),
+                            tam.getRight() - LEYENDA_MARGEN_DERECHO, tam.getTop() - LEYENDA_DESDE_ARRIBA, 0);
+                }
+            }
+            doc.close();
+            return out.toByteArray();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Pisa en el Info del writer lo que OpenPDF llena al abrir; FileId lo usa close() como /ID del trailer. */
+    private static void fijar(PdfWriter writer, Huella huella) {
+        // fecha sin zona: no depende del huso de la instancia que renderiza
+        PdfDate fecha = new PdfDate("D:" + FECHA_PDF.format(huella.fecha()));
+        writer.getInfo().put(PdfName.CREATIONDATE, fecha);
+        writer.getInfo().put(PdfName.MODDATE, fecha);
+        byte[] id = md5(huella.semilla());
+        writer.getInfo().put(PdfName.FILEID, PdfEncryption.createInfoId(id, id));
+    }
+
+    private static byte[] md5(String s) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ───────────────────────── Armado (una vez) ─────────────────────────
+
+    private static Image cargarLogo() {
+        try {
+            URL url = PdfKit.class.getResource(LOGO);
+            if (url == null) {
+                System.err.println("[PDF] No se encontró el logo " + LOGO);
+                return null;
+            }
+            BufferedImage original = ImageIO.read(url);
+            Image logo = Image.getInstance(reducir(original));
+            logo.scaleToFit(LOGO_ANCHO, LOGO_ALTO);
+            logo.setAlignment(Image.LEFT);
+            return logo;
+        } catch (Exception e) {
+            // sin logo no se rompe el PDF
+            System.err.println("[PDF] No se pudo leer el logo: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * El PNG original (1536x1024 con alfa) se imprime en 120x80 pt: embebido tal cual, cada PDF
+     * vuelve a comprimir ~6 MB de píxeles. Se reduce una vez a LOGO_DPI y se re-codifica en PNG.
+     */
+    static byte[] reducir(BufferedImage original) throws IOException {
+        double escala = Math.min(LOGO_ANCHO / original.getWidth(), LOGO_ALTO / original.getHeight())
+                * LOGO_DPI / 72.0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (escala >= 1.0) {
+            ImageIO.write(original, "png", out);
+            return out.toByteArray();
+        }
+        int w = (int) Math.round(original.getWidth() * escala);
+        int h = (int) Math.round(original.getHeight() * escala);
+        BufferedImage chica = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = chica.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(original, 0, 0, w, h, null);
+        g.dispose();
+        ImageIO.write(chica, "png", out);
+        return out.toByteArray();
+    }
+
+    private static PdfPCell armarCabeceraEmpresa(Image logo) {
+        PdfPCell left = new PdfPCell();
+        left.setBorder(Rectangle.BOX);
+        left.setPadding(6f);
+
+        if (logo != null) left.addElement(logo);
+
+        Paragraph empName = new Paragraph("RECTIFICADORA CORNEJO SAS", TITULO);
+        empName.setSpacingBefore(4f);
+        left.addElement(empName);
+        left.addElement(new Phrase("""
+            CUIT: 30-00000000-0
+            Domicilio: Ferdinand de Lesseps 1000 - Córdoba
+            Condición frente al IVA: Responsable Inscripto
+            """, CHICA));
+        return left;
+    }
+}
@@ -0,0 +1,185 @@
+package ar.edu.utn.tfi.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Bus entre instancias sobre PostgreSQL LISTEN/NOTIFY (sin broker extra).
+ * publish() dentro de una transacción hace pg_notify recién al commit (con rollback no se publica),
+ * con una conexión propia en autocommit; fuera de una transacción, en el momento.
+ * Cada instancia escucha en una conexión dedicada (fuera del pool) y reparte a los handlers locales.
+ */
+@Component
+public class PgNotifyBus {
+
+    // pg_notify admite hasta 8000 bytes de payload
+    public static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final Pattern CANAL_VALIDO = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final JdbcTemplate jdbc;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final boolean enabled;
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile Set<String> escuchando = Set.of();   // canales con LISTEN activo en la conexión actual
+    private Thread listener;
+
+    public PgNotifyBus(JdbcTemplate jdbc,
+                       @Value("${spring.datasource.url:}") String url,
+                       @Value("${spring.datasource.username:}") String username,
+                       @Value("${spring.datasource.password:}") String password,
+                       @Value("${notificaciones.fanout.enabled:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled && url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** true cuando la conexión dedicada ya hizo LISTEN de todos los canales registrados. */
+    public boolean isListening() {
+        return escuchando.containsAll(handlers.keySet());
+    }
+
+    /** Registra un handler local para un canal. Se puede llamar antes o después de start(). */
+    public void subscribe(String canal, Consumer<String> handler) {
+        validarCanal(canal);
+        // si el listener ya corre, hace LISTEN del canal nuevo en la próxima vuelta
+        handlers.computeIfAbsent(canal, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    public void publish(String canal, String payload) {
+        if (!enabled) return;
+        validarCanal(canal);
+        AlCommit.ejecutar(() -> notificar(canal, payload));
+    }
+
+    // Fuera de la transacción del llamador (ya terminó o no hay): conexión del pool en autocommit,
+    // así el NOTIFY se entrega enseguida
+    private void notificar(String canal, String payload) {
+        DataSource ds = jdbc.getDataSource();
+        if (ds == null) return;
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            if (!conn.getAutoCommit()) conn.setAutoCommit(true);
+            ps.setString(1, canal);
+            ps.setString(2, payload);
+            ps.execute();
+        } catch (SQLException e) {
+            System.err.println("[PG-NOTIFY] No se pudo publicar en " + canal + ": " + e.getMessage());
+        }
+    }
+
+    // ───────────────────────── Listener ─────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) return;
+        running = true;
+        listener = new Thread(this::loop, "pg-listen");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(2_000);
+        }
+    }
+
+    private void loop() {
+        long esperaMs = 1_000;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                System.out.println("[PG-NOTIFY] Conectado, escuchando " + handlers.keySet());
+                esperaMs = 1_000;
+
+                while (running) {
+                    listenPendientes(conn);
+
+                    PGNotification[] notificaciones = pg.getNotifications(500);
+                    if (notificaciones == null) continue;
+                    for (PGNotification n : notificaciones) {
+                        despachar(n.getName(), n.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                escuchando = Set.of();
+                if (!running) break;
+                System.err.println("[PG-NOTIFY] Conexión perdida (" + e.getMessage() + "), reintento en " + esperaMs + " ms");
+                try {
+                    Thread.sleep(esperaMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                esperaMs = Math.min(esperaMs * 2, 30_000);
+            }
+        }
+        escuchando = Set.of();
+    }
+
+    private void listenPendientes(Connection conn) throws Exception {
+        if (escuchando.containsAll(handlers.keySet())) return;
+
+        Set<String> nuevos = new HashSet<>(escuchando);
+        try (Statement st = conn.createStatement()) {
+            for (String canal : handlers.keySet()) {
+                if (nuevos.add(canal)) {
+                    st.execute("LISTEN " + canal); // canal validado con CANAL_VALIDO
+                }
+            }
+        }
+        escuchando = Set.copyOf(nuevos);
+    }
+
+    private void despachar(String canal, String payload) {
+        for (Consumer<String> h : handlers.getOrDefault(canal, List.of())) {
+            try {
+                h.accept(payload);
+            } catch (Exception e) {
+                System.err.println("[PG-NOTIFY] Handler de " + canal + " falló: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void validarCanal(String canal) {
+        if (canal == null || !CANAL_VALIDO.matcher(canal).matches()) {
+            throw new IllegalArgumentException("Canal NOTIFY inválido: " + canal);
+        }
+    }
+}
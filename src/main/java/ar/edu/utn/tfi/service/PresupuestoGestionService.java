@@ -3,13 +3,13 @@ package ar.edu.utn.tfi.service;
 import ar.edu.utn.tfi.domain.PagoManual;
 import ar.edu.utn.tfi.domain.Presupuesto;
 import ar.edu.utn.tfi.domain.PresupuestoItem;
-import ar.edu.utn.tfi.domain.ServicioTarifa;
 import ar.edu.utn.tfi.domain.SolicitudPresupuesto;
+import ar.edu.utn.tfi.domain.Tarifa;
 import ar.edu.utn.tfi.repository.PagoManualRepository;
 import ar.edu.utn.tfi.repository.PresupuestoItemRepository;
 import ar.edu.utn.tfi.repository.PresupuestoRepository;
-import ar.edu.utn.tfi.repository.ServicioTarifaRepository;
 import ar.edu.utn.tfi.repository.SolicitudPresupuestoRepository;
+import ar.edu.utn.tfi.service.Pagos.MovimientoPagoService;
 import ar.edu.utn.tfi.service.Pagos.PaymentApiService;
 import ar.edu.utn.tfi.web.dto.ExtraItemReq;
 import ar.edu.utn.tfi.web.dto.PagoApiReq;
@@ -32,7 +32,7 @@ import java.util.stream.Collectors;
 public class PresupuestoGestionService {
 
     private final SolicitudPresupuestoRepository solicitudRepo;
-    private final ServicioTarifaRepository tarifaRepo;
+    private final TarifaCatalogo tarifas;
     private final PresupuestoRepository presupuestoRepo;
     private final PresupuestoItemRepository itemRepo;
     private final MailService mailService;
@@ -40,18 +40,22 @@ public class PresupuestoGestionService {
     private final PagoManualRepository pagoManualRepo;
     private final OrdenRepuestoService ordenRepuestoService;
     private final NotificationService notificationService;
+    private final MovimientoPagoService movimientos;
+    private final MaquinaEtapas etapas;
 
     public PresupuestoGestionService(SolicitudPresupuestoRepository solicitudRepo,
-                                     ServicioTarifaRepository tarifaRepo,
+                                     TarifaCatalogo tarifas,
                                      PresupuestoRepository presupuestoRepo,
                                      PresupuestoItemRepository itemRepo,
                                      MailService mailService,
                                      PaymentApiService paymentApiService,
                                      PagoManualRepository pagoManualRepo,
                                      OrdenRepuestoService ordenRepuestoService,
-                                     NotificationService notificationService) {
+                                     NotificationService notificationService,
+                                     MovimientoPagoService movimientos,
+                                     MaquinaEtapas etapas) {
         this.solicitudRepo = solicitudRepo;
-        this.tarifaRepo = tarifaRepo;
+        this.tarifas = tarifas;
         this.presupuestoRepo = presupuestoRepo;
         this.itemRepo = itemRepo;
         this.mailService = mailService;
@@ -59,11 +63,9 @@ public class PresupuestoGestionService {
         this.pagoManualRepo = pagoManualRepo;
         this.ordenRepuestoService = ordenRepuestoService;
         this.notificationService = notificationService;
+        this.movimientos = movimientos;
+        this.etapas = etapas;
     }
-    private static final Set<String> ETAPAS_PERMITEN_PAGO_FINAL = Set.of(
-            "LISTO_RETIRAR",
-            "ENTREGADO"
-    );
 
     private boolean puedePagarFinalSegunEtapa(Presupuesto p) {
         if (p.getOtNroOrden() == null || p.getOtNroOrden().isBlank()) {
@@ -74,8 +76,8 @@ public class PresupuestoGestionService {
         String etapa = ordenRepuestoService
                 .getEtapaActualPorNroOrden(p.getOtNroOrden());
 
-        String e = (etapa == null ? "" : etapa.toUpperCase());
-        return ETAPAS_PERMITEN_PAGO_FINAL.contains(e);
+        // etapas con PAGO_FINAL en el catálogo (LISTO_RETIRAR / ENTREGADO)
+        return etapas.permite(etapa, MaquinaEtapas.Accion.PAGO_FINAL);
     }
 
     // ─────────── Helpers ───────────
@@ -138,31 +140,28 @@ public class PresupuestoGestionService {
         // 5) Normalizar vehículo
         String vt = vehiculoTipo.trim().toUpperCase();
 
-        // normalizar nombres de servicios
-        List<String> nombres = servicios.stream()
+        // normalizar nombres de servicios (un servicio repetido se cobra una vez)
+        Set<String> nombres = servicios.stream()
                 .map(v -> v == null ? null : v.trim())
                 .filter(v -> v != null && !v.isEmpty())
-                .toList();
-
-        // buscar tarifas para (vehiculoTipo + nombreServicio)
-        List<ServicioTarifa> tarifas = tarifaRepo.findByVehiculoTipoAndNombreServicioIn(vt, nombres);
-
-        // validar faltantes
-        Set<String> hallados = tarifas.stream()
-                .map(ServicioTarifa::getNombreServicio)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
 
+        // tarifas para (vehiculoTipo + nombreServicio), todas del mismo catálogo en memoria
+        TarifaCatalogo.Catalogo catalogo = tarifas.catalogo();
+        List<Tarifa> cotizadas = new ArrayList<>();
         List<String> faltan = new ArrayList<>();
         for (String n : nombres) {
-            if (!hallados.contains(n)) faltan.add(n);
+            Tarifa t = catalogo.tarifa(vt, n);
+            if (t == null) faltan.add(n);
+            else cotizadas.add(t);
         }
         if (!faltan.isEmpty()) {
             throw new IllegalArgumentException("Servicios sin tarifa para " + vt + ": " + String.join(", ", faltan));
         }
 
         // total base (tarifas existentes)
-        BigDecimal total = tarifas.stream()
-                .map(ServicioTarifa::getPrecio)
+        BigDecimal total = cotizadas.stream()
+                .map(Tarifa::precio)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         // sumar extras (si vienen)
@@ -187,14 +186,15 @@ public class PresupuestoGestionService {
         p.setPiezaTipo(piezaNormalizada); // <- ya viene validada contra la solicitud
         p.setEstado("PENDIENTE");
         p.setTotal(total);
+        p.setTarifaVersion(catalogo.version());
         p = presupuestoRepo.save(p);
 
         // ítems por tarifa
-        for (ServicioTarifa t : tarifas) {
+        for (Tarifa t : cotizadas) {
             PresupuestoItem it = new PresupuestoItem();
             it.setPresupuesto(p);
-            it.setServicioNombre(t.getNombreServicio());
-            it.setPrecioUnitario(t.getPrecio());
+            it.setServicioNombre(t.nombreServicio());
+            it.setPrecioUnitario(t.precio());
             itemRepo.save(it);
         }
 
@@ -300,7 +300,9 @@ public class PresupuestoGestionService {
         String payId = String.valueOf(resp.getOrDefault("id", ""));
         String dateApproved = String.valueOf(resp.get("date_approved"));
 
-        if ("approved".equalsIgnoreCase(status)) {
+        boolean yaAcreditada = "ACREDITADA".equalsIgnoreCase(String.valueOf(p.getSenaEstado()));
+        boolean acreditada = "approved".equalsIgnoreCase(status);
+        if (acreditada) {
             p.setSenaEstado("ACREDITADA");
         } else if (p.getSenaEstado() == null || p.getSenaEstado().isBlank()) {
             p.setSenaEstado("PENDIENTE");
@@ -315,7 +317,15 @@ public class PresupuestoGestionService {
         }
         p.setSenaMonto(monto);
 
-        return presupuestoRepo.save(p);
+        Presupuesto saved = presupuestoRepo.save(p);
+
+        // Libro de pagos: solo al pasar a ACREDITADA
+        if (acreditada && !yaAcreditada) {
+            movimientos.registrar(saved.getId(), MovimientoPagoService.SENA, monto,
+                    p.getSenaPaidAt() != null ? p.getSenaPaidAt() : LocalDateTime.now(),
+                    MovimientoPagoService.MERCADO_PAGO, null, payId);
+        }
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -424,7 +434,8 @@ public class PresupuestoGestionService {
             // ✅ NUEVO: validar etapa de la OT si corresponde
             if (!puedePagarFinalSegunEtapa(p)) {
                 throw new IllegalStateException(
-                        "No se puede registrar el pago FINAL mientras la OT no esté LISTO_RETIRAR/ENTREGADO."
+                        "No se puede registrar el pago FINAL mientras la OT no esté "
+                                + String.join("/", etapas.etapasQuePermiten(MaquinaEtapas.Accion.PAGO_FINAL)) + "."
                 );
             }
             // Seña registrada (si por algún motivo faltara, calculamos 30% de servicios como fallback)
@@ -472,6 +483,12 @@ public class PresupuestoGestionService {
         pm.setUsuario(usuario != null ? usuario : "admin");
         pm.setNota(req.nota());
 
-        return pagoManualRepo.save(pm);
+        PagoManual saved = pagoManualRepo.save(pm);
+
+        // Libro de pagos (de acá sale el reporte de ingresos)
+        movimientos.registrar(p.getId(), tipo, pm.getMonto(), fechaPago,
+                MovimientoPagoService.MANUAL, req.medio(), ref100);
+
+        return saved;
     }
 }
\ No newline at end of file
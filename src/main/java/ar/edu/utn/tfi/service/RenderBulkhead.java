@@ -0,0 +1,145 @@
+package ar.edu.utn.tfi.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Control de admisión (bulkhead) para la generación de documentos (PDF / XLSX), que es lo que más CPU usa.
+ * Como mucho {@code render.concurrencia} renders a la vez; hasta {@code render.cola} pedidos más esperan
+ * su turno (en orden de llegada) como máximo {@code render.espera-max-ms}. El resto se rechaza enseguida
+ * con {@link ServicioSaturadoException} (503 + Retry-After), así unas pocas exportaciones no dejan sin CPU
+ * a las consultas livianas como /public/ordenes/{nro}/estado.
+ *
+ * El render corre en el hilo del llamador: necesita su transacción (lazy loading, cursor del export)
+ * y, en los exports en streaming, escribe directo en la respuesta.
+ */
+@Component
+public class RenderBulkhead {
+
+    /** Trabajo a ejecutar con permiso. */
+    @FunctionalInterface
+    public interface Tarea<T> {
+        T ejecutar() throws IOException;
+    }
+
+    private final int limite;
+    private final int cola;
+    private final long esperaMaxMs;
+    private final int retryAfterSegundos;
+    private final Semaphore permisos;
+
+    // ─── Métricas ───
+    private final AtomicInteger activos = new AtomicInteger();
+    private final AtomicInteger enEspera = new AtomicInteger();
+    private final AtomicLong admitidos = new AtomicLong();
+    private final AtomicLong rechazadosColaLlena = new AtomicLong();
+    private final AtomicLong rechazadosPorEspera = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaxNanos = new AtomicLong();
+    private final AtomicLong renderTotalNanos = new AtomicLong();
+
+    public RenderBulkhead(@Value("${render.concurrencia:4}") int concurrencia,
+                          @Value("${render.cola:16}") int cola,
+                          @Value("${render.espera-max-ms:10000}") long esperaMaxMs,
+                          @Value("${render.retry-after-segundos:5}") int retryAfterSegundos) {
+        this.limite = Math.max(1, concurrencia);
+        this.cola = Math.max(0, cola);
+        this.esperaMaxMs = Math.max(0, esperaMaxMs);
+        this.retryAfterSegundos = Math.max(1, retryAfterSegundos);
+        // justo: los que esperan entran en orden de llegada
+        this.permisos = new Semaphore(this.limite, true);
+    }
+
+    /** Ejecuta {@code tarea} con permiso; 503 si no hay lugar (ni en la cola ni dentro de la espera máxima). */
+    public <T> T ejecutar(String tipo, Tarea<T> tarea) throws IOException {
+        Permiso permiso = entrar(tipo);
+        try {
+            return tarea.ejecutar();
+        } finally {
+            permiso.close();
+        }
+    }
+
+    /**
+     * Reserva un lugar para un render que corre después (p. ej. el cuerpo de un StreamingResponseBody):
+     * el rechazo sale antes de empezar la respuesta. El permiso se libera con close(), en un finally: si
+     * el trabajo puede no llegar a correr (request asíncrono que vence o se corta), también al terminar ese request.
+     */
+    public Permiso entrar(String tipo) {
+        long t0 = System.nanoTime();
+        int esperando = enEspera.incrementAndGet();
+        try {
+            if (esperando > cola && !permisos.tryAcquire()) {
+                rechazadosColaLlena.incrementAndGet();
+                throw saturado(tipo, "cola llena");
+            }
+            if (esperando <= cola && !permisos.tryAcquire(esperaMaxMs, TimeUnit.MILLISECONDS)) {
+                rechazadosPorEspera.incrementAndGet();
+                throw saturado(tipo, "espera vencida");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw saturado(tipo, "interrumpido");
+        } finally {
+            enEspera.decrementAndGet();
+        }
+
+        long espera = System.nanoTime() - t0;
+        esperaTotalNanos.addAndGet(espera);
+        esperaMaxNanos.accumulateAndGet(espera, Math::max);
+        admitidos.incrementAndGet();
+        activos.incrementAndGet();
+        return new Permiso();
+    }
+
+    /** Lugar reservado en el bulkhead; close() es idempotente. */
+    public final class Permiso implements AutoCloseable {
+        private final long inicio = System.nanoTime();
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+
+        private Permiso() {}
+
+        @Override
+        public void close() {
+            if (!cerrado.compareAndSet(false, true)) return;
+            renderTotalNanos.addAndGet(System.nanoTime() - inicio);
+            activos.decrementAndGet();
+            permisos.release();
+        }
+    }
+
+    private ServicioSaturadoException saturado(String tipo, String motivo) {
+        System.err.println("[RENDER] Rechazado " + tipo + " (" + motivo + "): activos=" + activos.get()
+                + " enEspera=" + enEspera.get());
+        return new ServicioSaturadoException(
+                "Hay demasiados documentos generándose en este momento, reintentá en unos segundos",
+                retryAfterSegundos);
+    }
+
+    // ─── Métricas ───
+
+    public Map<String, Object> estadisticas() {
+        long n = admitidos.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("limite", limite);
+        m.put("cola", cola);
+        m.put("activos", activos.get());
+        m.put("enEspera", enEspera.get());
+        m.put("admitidos", n);
+        m.put("rechazadosColaLlena", rechazadosColaLlena.get());
+        m.put("rechazadosPorEspera", rechazadosPorEspera.get());
+        m.put("esperaPromedioMs", n == 0 ? 0 : esperaTotalNanos.get() / n / 1_000_000);
+        m.put("esperaMaxMs", esperaMaxNanos.get() / 1_000_000);
+        m.put("renderPromedioMs", n == 0 ? 0 : renderTotalNanos.get() / n / 1_000_000);
+        return m;
+    }
+}
@@ -0,0 +1,218 @@
+package ar.edu.utn.tfi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache de resultados de reportes (pantalla y exportaciones XLSX/PDF).
+ * Clave: reporte + rango de fechas ya normalizado (+ top). Acotada por tamaño (LRU).
+ *
+ * Invalidación: los servicios que modifican órdenes o pagos publican {@link DatosReporteCambiados}
+ * y, al commit, se descartan solo las entradas de esos reportes cuyo rango contiene la fecha afectada,
+ * en esta instancia y (por {@link PgNotifyBus}) en las demás.
+ * Los rangos abiertos (incluyen el mes en curso) tienen un TTL corto; los que terminan antes del mes
+ * actual (meses cerrados) uno largo, como red de seguridad para escrituras que no publican evento o
+ * invalidaciones que otra instancia no llegó a recibir (estaba reconectando el LISTEN).
+ */
+@Component
+public class ReportCache {
+
+    public static final String MOTORES_VS_TAPAS = "motores-vs-tapas";
+    public static final String MOTORES_POR_ETAPA = "motores-por-etapa";
+    public static final String CLIENTES_FRECUENTES = "clientes-frecuentes";
+    public static final String INGRESOS = "ingresos-senas-finales";
+
+    /** Evento de dominio: cambió algo que cae en la fecha {@code fecha} de esos reportes. */
+    public record DatosReporteCambiados(Collection<String> reportes, LocalDate fecha) {}
+
+    record Clave(String reporte, LocalDate from, LocalDate to, Integer top) {}
+
+    private record Entrada(Object valor, long creadoMs, boolean cerrada) {}
+
+    public static final String CANAL_INVALIDACION = "tfi_reportes";
+
+    private final int maxEntradas;
+    private final long ttlMs;
+    private final long ttlCerradosMs;
+    private final Clock clock;
+
+    // ─── Invalidación entre instancias ───
+    private final PgNotifyBus bus;
+    private final ObjectMapper mapper;
+    private final String nodoId = UUID.randomUUID().toString();
+
+    // LinkedHashMap en orden de acceso = LRU; todos los accesos bajo el lock del propio mapa
+    private final LinkedHashMap<Clave, Entrada> entradas;
+
+    // Se incrementa en cada invalidación: un cálculo que empezó antes no se guarda (evita cachear datos viejos)
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidadas = new AtomicLong();
+    private final AtomicLong invalidacionesRemotas = new AtomicLong();
+
+    @Autowired
+    public ReportCache(@Value("${reportes.cache.max-entradas:500}") int maxEntradas,
+                       @Value("${reportes.cache.ttl-segundos:300}") long ttlSegundos,
+                       @Value("${reportes.cache.ttl-cerrados-segundos:86400}") long ttlCerradosSegundos,
+                       PgNotifyBus bus,
+                       ObjectMapper mapper) {
+        this(maxEntradas, ttlSegundos, ttlCerradosSegundos, Clock.systemDefaultZone(), bus, mapper);
+    }
+
+    /** Sólo local (tests). */
+    ReportCache(int maxEntradas, long ttlSegundos, Clock clock) {
+        this(maxEntradas, ttlSegundos, 86_400, clock, null, new ObjectMapper());
+    }
+
+    ReportCache(int maxEntradas, long ttlSegundos, long ttlCerradosSegundos, Clock clock,
+                PgNotifyBus bus, ObjectMapper mapper) {
+        this.maxEntradas = Math.max(0, maxEntradas);
+        this.ttlMs = ttlSegundos * 1000L;
+        this.ttlCerradosMs = ttlCerradosSegundos * 1000L;
+        this.clock = clock;
+        this.bus = bus;
+        this.mapper = mapper;
+        this.entradas = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> eldest) {
+                return size() > ReportCache.this.maxEntradas;
+            }
+        };
+
+        if (bus != null && bus.isEnabled()) {
+            bus.subscribe(CANAL_INVALIDACION, this::onRemoto);
+        }
+    }
+
+    /** Cache apagada: siempre calcula (tests de servicios y despliegues que no la quieran). */
+    public static ReportCache sinCache() {
+        return new ReportCache(0, 0, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Devuelve el resultado cacheado o lo calcula con {@code calculo}.
+     * {@code from}/{@code to} tienen que venir ya normalizados (defaults aplicados, from ≤ to).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String reporte, LocalDate from, LocalDate to, Integer top, Supplier<T> calculo) {
+        if (maxEntradas == 0) return calculo.get();
+
+        var clave = new Clave(reporte, from, to, top);
+        long ahora = clock.millis();
+        synchronized (entradas) {
+            Entrada e = entradas.get(clave);
+            if (e != null && ahora - e.creadoMs() < (e.cerrada() ? ttlCerradosMs : ttlMs)) {
+                hits.incrementAndGet();
+                return (T) e.valor();
+            }
+        }
+
+        misses.incrementAndGet();
+        long gen = generacion.get();
+        T valor = calculo.get();
+
+        synchronized (entradas) {
+            if (generacion.get() == gen) {
+                entradas.put(clave, new Entrada(valor, ahora, esMesCerrado(to)));
+            }
+        }
+        return valor;
+    }
+
+    /** Descarta las entradas de {@code reportes} cuyo rango incluye {@code fecha} (todas si fecha es null). */
+    public void invalidar(Collection<String> reportes, LocalDate fecha) {
+        generacion.incrementAndGet();
+        int n = 0;
+        synchronized (entradas) {
+            Iterator<Clave> it = entradas.keySet().iterator();
+            while (it.hasNext()) {
+                Clave k = it.next();
+                if (!reportes.contains(k.reporte())) continue;
+                if (fecha == null || (!fecha.isBefore(k.from()) && !fecha.isAfter(k.to()))) {
+                    it.remove();
+                    n++;
+                }
+            }
+        }
+        invalidadas.addAndGet(n);
+    }
+
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        synchronized (entradas) {
+            invalidadas.addAndGet(entradas.size());
+            entradas.clear();
+        }
+    }
+
+    // Al commit (o enseguida si se publicó fuera de una transacción): acá y en las demás instancias
+    @EventListener
+    public void onDatosCambiados(DatosReporteCambiados ev) {
+        AlCommit.ejecutar(() -> {
+            invalidar(ev.reportes(), ev.fecha());
+            publicarRemoto(ev);
+        });
+    }
+
+    // ─── Fan-out de invalidaciones ───
+
+    private record MensajeInvalidacion(String nodo, List<String> reportes, String fecha) {}
+
+    private void publicarRemoto(DatosReporteCambiados ev) {
+        if (bus == null || !bus.isEnabled()) return;
+        try {
+            bus.publish(CANAL_INVALIDACION, mapper.writeValueAsString(new MensajeInvalidacion(nodoId,
+                    List.copyOf(ev.reportes()), ev.fecha() == null ? null : ev.fecha().toString())));
+        } catch (Exception e) {
+            // las otras instancias se quedan con el TTL como red de seguridad
+            System.err.println("[REPORTES] No se pudo publicar la invalidación: " + e.getMessage());
+        }
+    }
+
+    private void onRemoto(String json) {
+        try {
+            MensajeInvalidacion m = mapper.readValue(json, MensajeInvalidacion.class);
+            if (nodoId.equals(m.nodo())) return; // ya se invalidó localmente
+            invalidacionesRemotas.incrementAndGet();
+            invalidar(m.reportes(), m.fecha() == null ? null : LocalDate.parse(m.fecha()));
+        } catch (Exception e) {
+            System.err.println("[REPORTES] Invalidación remota inválida: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        int tam;
+        synchronized (entradas) {
+            tam = entradas.size();
+        }
+        return Map.of(
+                "entradas", tam,
+                "maxEntradas", maxEntradas,
+                "hits", hits.get(),
+                "misses", misses.get(),
+                "invalidadas", invalidadas.get(),
+                "invalidacionesRemotas", invalidacionesRemotas.get()
+        );
+    }
+
+    private boolean esMesCerrado(LocalDate to) {
+        return to.isBefore(YearMonth.now(clock).atDay(1));
+    }
+}
@@ -1,6 +1,7 @@
 // src/main/java/ar/edu/utn/tfi/service/ReporteExportService.java
 package ar.edu.utn.tfi.service;
 
+import ar.edu.utn.tfi.repository.ExportFilasRepository;
 import ar.edu.utn.tfi.web.dto.ClienteRankingDTO;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.PdfPCell;
@@ -13,22 +14,91 @@ import org.springframework.stereotype.Service;
 
 import java.awt.*;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Service
 public class ReporteExportService {
 
     private final ReportesService reportesService;
     private final IngresosReportService ingresosReportService;
+    private final ExportFilasRepository filasRepo;
 
     public ReporteExportService(ReportesService reportesService,
-                                IngresosReportService ingresosReportService) {
+                                IngresosReportService ingresosReportService,
+                                ExportFilasRepository filasRepo) {
         this.reportesService = reportesService;
         this.ingresosReportService = ingresosReportService;
+        this.filasRepo = filasRepo;
+    }
+
+    // =========================================================
+    //        EXPORTS FILA A FILA (streaming, XLSX)
+    // =========================================================
+
+    static final List<XlsxStreamWriter.Columna> COLUMNAS_ORDENES = List.of(
+            new XlsxStreamWriter.Columna("Nro orden", 12),
+            new XlsxStreamWriter.Columna("Creada", 17),
+            new XlsxStreamWriter.Columna("Tipo", 8),
+            new XlsxStreamWriter.Columna("Cliente", 30),
+            new XlsxStreamWriter.Columna("Teléfono", 16),
+            new XlsxStreamWriter.Columna("Estado", 20));
+
+    static final List<XlsxStreamWriter.Columna> COLUMNAS_PAGOS = List.of(
+            new XlsxStreamWriter.Columna("Fecha", 17),
+            new XlsxStreamWriter.Columna("Tipo", 8),
+            new XlsxStreamWriter.Columna("Origen", 15),
+            new XlsxStreamWriter.Columna("Medio", 15),
+            new XlsxStreamWriter.Columna("Monto", 14),
+            new XlsxStreamWriter.Columna("Presupuesto", 12),
+            new XlsxStreamWriter.Columna("Referencia", 24));
+
+    /**
+     * Todas las órdenes dadas de alta en el rango, directo al OutputStream (memoria acotada).
+     * Lo llama el StreamingResponseBody del controller. El cursor se recorre en su propia transacción
+     * (ExportFilasRepository) hacia el archivo temporal de SXSSF; la copia a {@code out} es después, con
+     * la conexión ya devuelta al pool: un cliente lento no la retiene.
+     */
+    public int ordenesXlsx(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        return ordenesXlsx(from, to, out, n -> {});
+    }
+
+    /** Igual, informando a {@code avance} la cantidad de filas escritas cada {@link #AVANCE_CADA} filas. */
+    public int ordenesXlsx(LocalDate from, LocalDate to, OutputStream out, LongConsumer avance) throws IOException {
+        try (var xlsx = new XlsxStreamWriter("Órdenes", COLUMNAS_ORDENES)) {
+            filasRepo.ordenesEntre(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), conAvance(xlsx, avance));
+            xlsx.escribir(out);
+            return xlsx.filas();
+        }
+    }
+
+    /** Todos los pagos acreditados (Mercado Pago y manuales) del rango, directo al OutputStream. */
+    public int pagosXlsx(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        return pagosXlsx(from, to, out, n -> {});
+    }
+
+    public int pagosXlsx(LocalDate from, LocalDate to, OutputStream out, LongConsumer avance) throws IOException {
+        try (var xlsx = new XlsxStreamWriter("Pagos", COLUMNAS_PAGOS)) {
+            filasRepo.pagosEntre(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), conAvance(xlsx, avance));
+            xlsx.escribir(out);
+            return xlsx.filas();
+        }
+    }
+
+    static final int AVANCE_CADA = 5_000;
+
+    private static Consumer<Object[]> conAvance(XlsxStreamWriter xlsx, LongConsumer avance) {
+        return valores -> {
+            xlsx.fila(valores);
+            if (xlsx.filas() % AVANCE_CADA == 0) avance.accept(xlsx.filas());
+        };
     }
 
     // =========================================================
@@ -360,8 +430,7 @@ public class ReporteExportService {
             }
 
             // Totales
-            PdfPCell totalCell = new PdfPCell(new Phrase("Totales",
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD)));
+            PdfPCell totalCell = new PdfPCell(new Phrase("Totales", PdfKit.NEGRITA));
             t.addCell(totalCell);
             t.addCell(formatMoney(totalSena.doubleValue()));
             t.addCell(formatMoney(totalFinal.doubleValue()));
@@ -384,9 +453,6 @@ public class ReporteExportService {
     // =========================================================
 
     private static void addHeader(PdfPTable t, String text) {
-        PdfPCell c = new PdfPCell(new Phrase(text,
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD)));
-        c.setBackgroundColor(new Color(230, 230, 230));
-        t.addCell(c);
+        t.addCell(PdfKit.celdaEncabezado(text));
     }
 }
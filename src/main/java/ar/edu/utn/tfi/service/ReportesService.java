@@ -18,13 +18,20 @@ import java.util.Map;
 public class ReportesService {
 
     private final OrdenTrabajoReportRepository ordenReportRepo;
+    private final ReportCache cache;
 
-    public ReportesService(OrdenTrabajoReportRepository ordenReportRepo) {
+    public ReportesService(OrdenTrabajoReportRepository ordenReportRepo, ReportCache cache) {
         this.ordenReportRepo = ordenReportRepo;
+        this.cache = cache;
     }
 
     // ================== EXISTENTES ==================
     public Map<String, Object> motoresVsTapas(LocalDate desde, LocalDate hastaInclusive) {
+        return cache.obtener(ReportCache.MOTORES_VS_TAPAS, desde, hastaInclusive, null,
+                () -> calcularMotoresVsTapas(desde, hastaInclusive));
+    }
+
+    private Map<String, Object> calcularMotoresVsTapas(LocalDate desde, LocalDate hastaInclusive) {
         LocalDateTime d0 = desde.atStartOfDay();
         LocalDateTime d1 = hastaInclusive.plusDays(1).atStartOfDay();
 
@@ -53,6 +60,11 @@ public class ReportesService {
         }
         if (to.isBefore(from)) { var tmp = from; from = to; to = tmp; }
 
+        final LocalDate f = from, t = to;
+        return cache.obtener(ReportCache.MOTORES_POR_ETAPA, f, t, null, () -> calcularMotoresPorEtapa(f, t));
+    }
+
+    private Map<String, Object> calcularMotoresPorEtapa(LocalDate from, LocalDate to) {
         LocalDateTime d0 = from.atStartOfDay();
         LocalDateTime d1 = to.plusDays(1).atStartOfDay();
 
@@ -83,6 +95,12 @@ public class ReportesService {
         if (to.isBefore(from)) { var tmp = from; from = to; to = tmp; }
         if (top == null || top < 1 || top > 50) top = 10;
 
+        final LocalDate f = from, t = to;
+        final int n = top;
+        return cache.obtener(ReportCache.CLIENTES_FRECUENTES, f, t, n, () -> calcularRanking(f, t, n));
+    }
+
+    private List<ClienteRankingDTO> calcularRanking(LocalDate from, LocalDate to, int top) {
         LocalDateTime d0 = from.atStartOfDay();
         LocalDateTime d1 = to.plusDays(1).atStartOfDay();
         Pageable page = PageRequest.of(0, top);
@@ -100,6 +118,7 @@ public class ReportesService {
                     r.getCantidad()
             ));
         }
-        return out;
+        // inmutable: la misma lista se comparte desde la cache
+        return List.copyOf(out);
     }
 }
@@ -0,0 +1,19 @@
+package ar.edu.utn.tfi.service;
+
+/**
+ * Capacidad agotada (cola o pool lleno): el pedido se rechaza enseguida en vez de esperar.
+ * Se responde 503 con Retry-After.
+ */
+public class ServicioSaturadoException extends RuntimeException {
+
+    private final int retryAfterSegundos;
+
+    public ServicioSaturadoException(String message, int retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public int getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
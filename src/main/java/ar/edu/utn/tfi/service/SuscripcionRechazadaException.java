@@ -0,0 +1,19 @@
+package ar.edu.utn.tfi.service;
+
+/**
+ * Se alcanzó el tope de conexiones SSE.
+ * global = true → tope de toda la instancia (503); false → tope por orden/email (429).
+ */
+public class SuscripcionRechazadaException extends RuntimeException {
+
+    private final boolean global;
+
+    public SuscripcionRechazadaException(String message, boolean global) {
+        super(message);
+        this.global = global;
+    }
+
+    public boolean isGlobal() {
+        return global;
+    }
+}
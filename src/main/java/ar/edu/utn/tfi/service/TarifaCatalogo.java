@@ -0,0 +1,157 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import ar.edu.utn.tfi.repository.TarifaCatalogoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catálogo de tarifas (servicio_tarifa) en memoria, indexado por (vehiculoTipo, nombreServicio), para
+ * cotizar sin ir a la base. Cada catálogo cargado es inmutable y lleva la versión de tarifa_version
+ * con la que se leyó; al recargar se reemplaza entero, así un presupuesto se calcula siempre con los
+ * precios de una sola versión (la que queda guardada en el presupuesto).
+ *
+ * La versión la sube un trigger con cada cambio en servicio_tarifa (V44). Cada
+ * {@code tarifas.verificacion-ms} se lee sólo ese número y se recarga si cambió;
+ * POST /admin/tarifas/recargar lo hace en el momento.
+ */
+@Component
+public class TarifaCatalogo {
+
+    /** Catálogo cargado: tarifas por tipo de vehículo y nombre de servicio. Inmutable. */
+    public static final class Catalogo {
+        private final long version;
+        private final Map<String, Map<String, Tarifa>> porTipo;
+        private final List<Tarifa> tarifas;
+        private final LocalDateTime cargadoEn;
+
+        Catalogo(long version, List<Tarifa> tarifas) {
+            Map<String, Map<String, Tarifa>> idx = new HashMap<>();
+            for (Tarifa t : tarifas) {
+                idx.computeIfAbsent(tipo(t.vehiculoTipo()), k -> new HashMap<>()).put(t.nombreServicio().trim(), t);
+            }
+            Map<String, Map<String, Tarifa>> copia = new HashMap<>();
+            idx.forEach((k, v) -> copia.put(k, Map.copyOf(v)));
+            this.version = version;
+            this.porTipo = Map.copyOf(copia);
+            this.tarifas = List.copyOf(tarifas);
+            this.cargadoEn = LocalDateTime.now();
+        }
+
+        private static String tipo(String vehiculoTipo) {
+            return vehiculoTipo == null ? "" : vehiculoTipo.trim().toUpperCase();
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /** ETag del catálogo: cambia sólo cuando cambia la versión. */
+        public String etag() {
+            return "\"tarifas-" + version + "\"";
+        }
+
+        /** Tarifa del servicio para el tipo de vehículo, o null si no hay (tipo sin importar mayúsculas). */
+        public Tarifa tarifa(String vehiculoTipo, String nombreServicio) {
+            if (nombreServicio == null) return null;
+            Map<String, Tarifa> delTipo = porTipo.get(tipo(vehiculoTipo));
+            return delTipo == null ? null : delTipo.get(nombreServicio.trim());
+        }
+
+        /** Todas las tarifas ordenadas por tipo y servicio, o sólo las del tipo si viene. */
+        public List<Tarifa> tarifas(String vehiculoTipo) {
+            if (vehiculoTipo == null || vehiculoTipo.isBlank()) return tarifas;
+            String t = tipo(vehiculoTipo);
+            return tarifas.stream().filter(x -> tipo(x.vehiculoTipo()).equals(t)).toList();
+        }
+
+        public int cantidad() {
+            return tarifas.size();
+        }
+
+        public LocalDateTime cargadoEn() {
+            return cargadoEn;
+        }
+    }
+
+    private final TarifaCatalogoRepository repo;
+    private final long verificacionMs;
+    private volatile Catalogo catalogo;
+
+    // ─── Métricas ───
+    private final AtomicLong recargas = new AtomicLong();
+    private final AtomicLong verificaciones = new AtomicLong();
+
+    public TarifaCatalogo(TarifaCatalogoRepository repo,
+                          @Value("${tarifas.verificacion-ms:30000}") long verificacionMs) {
+        this.repo = repo;
+        this.verificacionMs = verificacionMs;
+    }
+
+    /** Catálogo vigente (se carga en el primer uso). */
+    public Catalogo catalogo() {
+        Catalogo c = catalogo;
+        if (c == null) {
+            synchronized (this) {
+                c = catalogo;
+                if (c == null) {
+                    c = cargar();
+                    catalogo = c;
+                    System.out.println("[TARIFAS] Catálogo cargado: versión " + c.version() + ", " + c.cantidad() + " tarifas");
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Si la versión de la base no es la cargada, relee el catálogo y lo reemplaza. Devuelve true si cambió. */
+    public synchronized boolean recargar() {
+        Catalogo anterior = catalogo;
+        if (anterior != null && repo.version() == anterior.version()) return false;
+        Catalogo nuevo = cargar();
+        catalogo = nuevo;
+        System.out.println("[TARIFAS] Catálogo " + (anterior == null ? "cargado" : "recargado")
+                + ": versión " + nuevo.version() + ", " + nuevo.cantidad() + " tarifas");
+        return true;
+    }
+
+    @Scheduled(initialDelayString = "${tarifas.verificacion-ms:30000}", fixedDelayString = "${tarifas.verificacion-ms:30000}")
+    public void verificarCambios() {
+        // sin uso todavía no hay nada que comparar: se carga en el primer presupuesto o consulta
+        if (catalogo == null) return;
+        verificaciones.incrementAndGet();
+        try {
+            recargar();
+        } catch (Exception e) {
+            System.err.println("[TARIFAS] No se pudo verificar la versión del catálogo: " + e.getMessage());
+        }
+    }
+
+    private Catalogo cargar() {
+        TarifaCatalogoRepository.Carga carga = repo.cargar();
+        recargas.incrementAndGet();
+        return new Catalogo(carga.version(), carga.tarifas());
+    }
+
+    // ───────────────────────── Métricas ─────────────────────────
+
+    public Map<String, Object> estadisticas() {
+        Catalogo c = catalogo;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("version", c == null ? null : c.version());
+        m.put("tarifas", c == null ? 0 : c.cantidad());
+        m.put("cargadoEn", c == null ? null : c.cargadoEn());
+        m.put("recargas", recargas.get());
+        m.put("verificaciones", verificaciones.get());
+        m.put("verificacionMs", verificacionMs);
+        return m;
+    }
+}
@@ -0,0 +1,118 @@
+package ar.edu.utn.tfi.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * XLSX por filas con ventana acotada (SXSSF): solo las últimas {@code ventana} filas quedan en memoria,
+ * el resto va a un temporal comprimido y al final se copia directo al OutputStream de la respuesta.
+ * Los anchos de columna se fijan de antemano (autoSizeColumn no sirve: recorre todas las filas).
+ */
+class XlsxStreamWriter implements AutoCloseable {
+
+    /** Columna de la hoja: título y ancho en caracteres. */
+    record Columna(String titulo, int ancho) {}
+
+    static final int VENTANA_DEFAULT = 200;
+
+    private static final int MAX_FILA = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    private final SXSSFWorkbook wb;
+    private final SXSSFSheet sh;
+    private final int columnas;
+    private final CellStyle estiloFecha;
+    private final CellStyle estiloFechaHora;
+    private final CellStyle estiloMonto;
+    private int fila;
+
+    XlsxStreamWriter(String hoja, List<Columna> cols) {
+        this(hoja, cols, VENTANA_DEFAULT);
+    }
+
+    XlsxStreamWriter(String hoja, List<Columna> cols, int ventana) {
+        this.wb = new SXSSFWorkbook(ventana);
+        this.wb.setCompressTempFiles(true);
+        this.sh = wb.createSheet(hoja);
+        this.columnas = cols.size();
+
+        var formato = wb.createDataFormat();
+        estiloFecha = wb.createCellStyle();
+        estiloFecha.setDataFormat(formato.getFormat("yyyy-mm-dd"));
+        estiloFechaHora = wb.createCellStyle();
+        estiloFechaHora.setDataFormat(formato.getFormat("yyyy-mm-dd hh:mm"));
+        estiloMonto = wb.createCellStyle();
+        estiloMonto.setDataFormat(formato.getFormat("#,##0.00"));
+
+        Font negrita = wb.createFont();
+        negrita.setBold(true);
+        CellStyle estiloHeader = wb.createCellStyle();
+        estiloHeader.setFont(negrita);
+
+        Row h = sh.createRow(fila++);
+        for (int c = 0; c < columnas; c++) {
+            Columna col = cols.get(c);
+            sh.setColumnWidth(c, Math.min(255, Math.max(4, col.ancho())) * 256);
+            Cell cell = h.createCell(c);
+            cell.setCellValue(col.titulo());
+            cell.setCellStyle(estiloHeader);
+        }
+        sh.createFreezePane(0, 1);
+    }
+
+    /** Agrega una fila; los valores van en el orden de las columnas (null = celda vacía). */
+    void fila(Object... valores) {
+        if (fila > MAX_FILA) {
+            throw new IllegalStateException("El reporte supera el máximo de filas de Excel (" + (MAX_FILA + 1) + ")");
+        }
+        Row row = sh.createRow(fila++);
+        for (int c = 0; c < columnas && c < valores.length; c++) {
+            Object v = valores[c];
+            if (v == null) continue;
+
+            Cell cell = row.createCell(c);
+            if (v instanceof BigDecimal bd) {
+                cell.setCellValue(bd.doubleValue());
+                cell.setCellStyle(estiloMonto);
+            } else if (v instanceof Number n) {
+                cell.setCellValue(n.doubleValue());
+            } else if (v instanceof LocalDateTime ldt) {
+                cell.setCellValue(ldt);
+                cell.setCellStyle(estiloFechaHora);
+            } else if (v instanceof LocalDate ld) {
+                cell.setCellValue(ld);
+                cell.setCellStyle(estiloFecha);
+            } else {
+                cell.setCellValue(v.toString());
+            }
+        }
+    }
+
+    /** Filas de datos escritas (sin el encabezado). */
+    int filas() {
+        return fila - 1;
+    }
+
+    void escribir(OutputStream out) throws IOException {
+        wb.write(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // borra los temporales de la ventana
+        wb.dispose();
+        wb.close();
+    }
+}
@@ -0,0 +1,34 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.AuditoriaWriter;
+import ar.edu.utn.tfi.service.EstadoHistoricoService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/auditoria")
+public class AdminAuditoriaController {
+
+    private final AuditoriaWriter writer;
+    private final EstadoHistoricoService historico;
+
+    public AdminAuditoriaController(AuditoriaWriter writer, EstadoHistoricoService historico) {
+        this.writer = writer;
+        this.historico = historico;
+    }
+
+    // Escritor por lotes: pendientes en cola, lotes escritos, errores y lo que está esperando en el spool
+    @GetMapping("/estadisticas")
+    public Map<String, Object> estadisticas() {
+        return writer.estadisticas();
+    }
+
+    // Checkpoints de estado: consultas "estado al", operaciones reproducidas (máximo por consulta) y snapshots guardados
+    @GetMapping("/snapshots")
+    public Map<String, Object> snapshots() {
+        return historico.estadisticas();
+    }
+}
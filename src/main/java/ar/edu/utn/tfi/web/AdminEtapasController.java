@@ -0,0 +1,33 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.MaquinaEtapas;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/etapas")
+public class AdminEtapasController {
+
+    private final MaquinaEtapas etapas;
+
+    public AdminEtapasController(MaquinaEtapas etapas) {
+        this.etapas = etapas;
+    }
+
+    // Catálogo compilado que usa esta instancia: siguiente etapa, acciones permitidas y terminales
+    @GetMapping
+    public Map<String, Object> catalogo() {
+        return etapas.describir();
+    }
+
+    // Después de cambiar etapa_catalogo: recompila sin esperar al chequeo periódico
+    @PostMapping("/recargar")
+    public Map<String, Object> recargar() {
+        boolean cambio = etapas.recargar();
+        return Map.of("cambio", cambio, "etapas", etapas.catalogo().cantidad());
+    }
+}
@@ -1,21 +1,46 @@
 package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.domain.FacturaMock;
+import ar.edu.utn.tfi.service.FacturaLoteService;
 import ar.edu.utn.tfi.service.FacturaMockService;
+import ar.edu.utn.tfi.service.FacturaZipService;
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/admin/facturas")
 public class AdminFacturaController {
 
     private final FacturaMockService service;
+    private final FacturaLoteService loteService;
+    private final FacturaZipService zipService;
+    private final RenderBulkhead bulkhead;
 
-    public AdminFacturaController(FacturaMockService service) {
+    public AdminFacturaController(FacturaMockService service,
+                                  FacturaLoteService loteService,
+                                  FacturaZipService zipService,
+                                  RenderBulkhead bulkhead) {
         this.service = service;
+        this.loteService = loteService;
+        this.zipService = zipService;
+        this.bulkhead = bulkhead;
     }
 
     // ===== Helper de errores consistentes =====
@@ -27,6 +52,7 @@ public class AdminFacturaController {
     /**
      * Genera la factura A/B para un presupuesto con FINAL acreditado.
      * Idempotente: si ya existe, devuelve la existente.
+     * Si el render está saturado se emite igual sin PDF (se renderiza en la primera descarga).
      */
     @PostMapping("/generar/{presupuestoId}")
     public ResponseEntity<?> generar(@PathVariable Long presupuestoId,
@@ -34,8 +60,19 @@ public class AdminFacturaController {
         try {
             String tipo = (req == null || req.tipo() == null || req.tipo().isBlank())
                     ? "B" : req.tipo().trim().toUpperCase();
-            FacturaMock f = service.generar(presupuestoId, tipo);
-            return ResponseEntity.ok(f);
+            // el lugar del bulkhead se toma antes de abrir la transacción de la emisión
+            RenderBulkhead.Permiso permiso;
+            try {
+                permiso = bulkhead.entrar("factura-pdf");
+            } catch (ServicioSaturadoException e) {
+                return ResponseEntity.ok(service.emitirSinPdf(presupuestoId, tipo));
+            }
+            try {
+                FacturaMock f = service.generar(presupuestoId, tipo);
+                return ResponseEntity.ok(f);
+            } finally {
+                permiso.close();
+            }
         } catch (IllegalStateException e) {
             return ResponseEntity.status(409).body(new Err("CONFLICT", e.getMessage()));
         } catch (EntityNotFoundException e) {
@@ -44,21 +81,108 @@ public class AdminFacturaController {
     }
 
     /**
-     * Descarga PDF por ID de factura existente.
+     * Emisión masiva (cierre de mes): factura todos los presupuestos con FINAL acreditado,
+     * OT en ENTREGADO y sin factura. Devuelve el resultado por presupuesto.
+     * POST /admin/facturas/lote?tipo=A|B|C (default B) — 409 si ya hay una corrida en curso.
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<?> emitirLote(@RequestParam(required = false) String tipo) {
+        try {
+            return ResponseEntity.ok(loteService.emitirPendientes(tipo));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new Err("BAD_REQUEST", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(new Err("CONFLICT", e.getMessage()));
+        }
+    }
+
+    /**
+     * ZIP con los PDFs de todas las facturas emitidas en el período (para el contador).
+     * GET /admin/facturas/zip?from=YYYY-MM-DD&to=YYYY-MM-DD — se escribe en streaming, factura por factura.
+     */
+    @GetMapping("/zip")
+    public ResponseEntity<StreamingResponseBody> zip(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) { var tmp = from; from = to; to = tmp; }
+        final LocalDate f = from, t = to;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(
+                ContentDisposition.attachment().filename("facturas-" + f + "_" + t + ".zip").build());
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+
+        StreamingResponseBody body = out -> zipService.zip(f, t, out);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    /**
+     * Descarga PDF por ID de factura existente (del almacén: ETag, Range y copia directa del archivo).
      */
     @GetMapping(value = "/{facturaId}/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<byte[]> pdfByFactura(@PathVariable Long facturaId) {
+    public ResponseEntity<byte[]> pdfByFactura(@PathVariable Long facturaId,
+                                               HttpServletRequest request,
+                                               HttpServletResponse response) {
         try {
-            byte[] pdf = service.renderPdf(facturaId);
-            String filename = "factura-" + facturaId + ".pdf";
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(pdf);
+            var pdf = conPermiso("factura-pdf", () -> service.pdf(facturaId));
+            DescargaPdf.enviar(pdf.archivo(), pdf.hash(), "factura-" + facturaId + ".pdf", request, response);
+            return null; // respuesta ya escrita
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(404)
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
                     .body(("Factura no encontrada: " + facturaId).getBytes());
+        } catch (ServicioSaturadoException e) {
+            return DescargaPdf.saturado(e);
+        } catch (Exception e) {
+            return ResponseEntity.status(500)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                    .body(("No se pudo generar el PDF: " + e.getMessage()).getBytes());
+        }
+    }
+
+    /**
+     * Copias fiscales de la factura: GET /admin/facturas/{id}/pdf/copias?copias=ORIGINAL,DUPLICADO,TRIPLICADO
+     * (default las tres). Un solo PDF con una copia tras otra, o con ?separadas=true un ZIP con un PDF por copia.
+     * El comprobante se renderiza una vez; las copias sólo cambian la leyenda.
+     */
+    @GetMapping("/{facturaId}/pdf/copias")
+    public ResponseEntity<byte[]> copias(@PathVariable Long facturaId,
+                                         @RequestParam(required = false) List<String> copias,
+                                         @RequestParam(defaultValue = "false") boolean separadas) {
+        try {
+            if (!separadas) {
+                byte[] pdf = conPermiso("factura-copias", () -> service.copias(facturaId, copias));
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_PDF)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("factura-" + facturaId + "-copias.pdf").build().toString())
+                        .body(pdf);
+            }
+
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            try (ZipOutputStream out = new ZipOutputStream(zip)) {
+                var pdfs = conPermiso("factura-copias", () -> service.copiasSeparadas(facturaId, copias));
+                for (var e : pdfs.entrySet()) {
+                    out.putNextEntry(new ZipEntry("factura-" + facturaId + "-" + e.getKey().toLowerCase() + ".pdf"));
+                    out.write(e.getValue());
+                    out.closeEntry();
+                }
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("factura-" + facturaId + "-copias.zip").build().toString())
+                    .body(zip.toByteArray());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(404)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                    .body(e.getMessage().getBytes());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                    .body(e.getMessage().getBytes());
+        } catch (ServicioSaturadoException e) {
+            return DescargaPdf.saturado(e);
         } catch (Exception e) {
             return ResponseEntity.status(500)
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
@@ -72,15 +196,17 @@ public class AdminFacturaController {
      */
     @GetMapping(value = "/pdf/by-presupuesto/{presupuestoId}", produces = MediaType.APPLICATION_PDF_VALUE)
     public ResponseEntity<byte[]> pdfByPresupuesto(@PathVariable Long presupuestoId,
-                                                   @RequestParam(required = false) String tipo) {
+                                                   @RequestParam(required = false) String tipo,
+                                                   HttpServletRequest request,
+                                                   HttpServletResponse response) {
         try {
             String t = (tipo == null || tipo.isBlank()) ? "B" : tipo.trim().toUpperCase();
-            byte[] pdf = service.renderPdfByPresupuesto(presupuestoId, t);
-            String filename = "factura-presupuesto-" + presupuestoId + ".pdf";
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(pdf);
+            var pdf = conPermiso("factura-pdf", () -> service.pdfByPresupuesto(presupuestoId, t));
+            DescargaPdf.enviar(pdf.archivo(), pdf.hash(), "factura-presupuesto-" + presupuestoId + ".pdf",
+                    request, response);
+            return null; // respuesta ya escrita
+        } catch (ServicioSaturadoException e) {
+            return DescargaPdf.saturado(e);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(409)
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
@@ -95,4 +221,18 @@ public class AdminFacturaController {
                     .body(("No se pudo generar el PDF: " + e.getMessage()).getBytes());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Ocupa un lugar del bulkhead de documentos (503 + Retry-After si está saturado) ANTES de llamar al
+     * servicio: la transacción se abre con el permiso ya tomado, así la espera en la cola no retiene una
+     * conexión del pool. El permiso se libera antes de copiar el archivo a la respuesta.
+     */
+    private <T> T conPermiso(String tipo, Supplier<T> render) {
+        var permiso = bulkhead.entrar(tipo);
+        try {
+            return render.get();
+        } finally {
+            permiso.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.NotificationHub;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/notificaciones")
+public class AdminNotificacionesController {
+
+    private final NotificationHub hub;
+
+    public AdminNotificacionesController(NotificationHub hub) {
+        this.hub = hub;
+    }
+
+    // Contadores de conexiones SSE (activas, desalojadas, rechazadas, ...) de esta instancia
+    @GetMapping("/sse")
+    public Map<String, Object> sse() {
+        return hub.estadisticas();
+    }
+}
@@ -48,6 +48,12 @@ public class AdminOrdenController {
         this.solicitudRepo = solicitudRepo;
     }
 
+    // ---------- Cache nro → id de findByNroOrden: hits, misses, inexistentes recordados ----------
+    @GetMapping("/cache-nro")
+    public Map<String, Object> cacheNro() {
+        return ordenRepo.estadisticasCacheNro();
+    }
+
     // ---------- Avanzar etapa por NRO ----------
     @PostMapping("/{nro}/avanzar")
     public ResponseEntity<?> avanzarEtapaPorNro(@PathVariable String nro, Authentication auth) {
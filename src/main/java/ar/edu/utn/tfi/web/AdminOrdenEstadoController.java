@@ -0,0 +1,26 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.EstadoHistoricoService;
+import ar.edu.utn.tfi.service.EstadoHistoricoService.EstadoOrden;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/ordenes")
+public class AdminOrdenEstadoController {
+
+    private final EstadoHistoricoService historico;
+
+    public AdminOrdenEstadoController(EstadoHistoricoService historico) {
+        this.historico = historico;
+    }
+
+    // Estado de la OT a una fecha: ?al=2025-03-10 (al cierre del día) o ?al=2025-03-10T14:30 (antes de ese instante)
+    @GetMapping("/{nro}/estado")
+    public EstadoOrden estadoAl(@PathVariable String nro, @RequestParam(required = false) String al) {
+        return historico.estadoAl(nro, EstadoHistoricoService.instante(al));
+    }
+}
@@ -0,0 +1,25 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/render")
+public class AdminRenderController {
+
+    private final RenderBulkhead bulkhead;
+
+    public AdminRenderController(RenderBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    // Bulkhead de generación de documentos: activos, en espera, rechazados y tiempos de espera de esta instancia
+    @GetMapping("/estadisticas")
+    public Map<String, Object> estadisticas() {
+        return bulkhead.estadisticas();
+    }
+}
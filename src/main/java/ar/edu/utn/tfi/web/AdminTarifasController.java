@@ -0,0 +1,53 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.TarifaCatalogo;
+import ar.edu.utn.tfi.web.dto.TarifaCatalogoDTO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/tarifas")
+public class AdminTarifasController {
+
+    private final TarifaCatalogo tarifas;
+
+    public AdminTarifasController(TarifaCatalogo tarifas) {
+        this.tarifas = tarifas;
+    }
+
+    // Catálogo en memoria (todo o un tipo de vehículo). ETag = versión: con If-None-Match igual → 304 sin cuerpo
+    @GetMapping
+    public ResponseEntity<TarifaCatalogoDTO> catalogo(@RequestParam(required = false) String vehiculoTipo,
+                                                      WebRequest request) {
+        TarifaCatalogo.Catalogo c = tarifas.catalogo();
+        if (request.checkNotModified(c.etag())) {
+            return null; // 304
+        }
+        return ResponseEntity.ok()
+                .eTag(c.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(TarifaCatalogoDTO.from(c, vehiculoTipo));
+    }
+
+    // Después de cambiar servicio_tarifa: recarga sin esperar al chequeo periódico de la versión
+    @PostMapping("/recargar")
+    public Map<String, Object> recargar() {
+        boolean cambio = tarifas.recargar();
+        TarifaCatalogo.Catalogo c = tarifas.catalogo();
+        return Map.of("cambio", cambio, "version", c.version(), "tarifas", c.cantidad());
+    }
+
+    // Versión cargada, cantidad de tarifas, recargas y verificaciones
+    @GetMapping("/estadisticas")
+    public Map<String, Object> estadisticas() {
+        return tarifas.estadisticas();
+    }
+}
@@ -1,6 +1,9 @@
 package ar.edu.utn.tfi.web;
 
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
+import ar.edu.utn.tfi.service.SuscripcionRechazadaException;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -49,6 +52,26 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(body);
     }
 
+    // 429 / 503 – tope de conexiones SSE (texto plano: el cliente pidió text/event-stream)
+    @ExceptionHandler(SuscripcionRechazadaException.class)
+    public ResponseEntity<String> handleSuscripcionRechazada(SuscripcionRechazadaException ex) {
+        HttpStatus status = ex.isGlobal() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(ex.getMessage());
+    }
+
+    // 503 – cola/pool lleno: el cliente reintenta más tarde
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<Map<String, Object>> handleSaturado(ServicioSaturadoException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "SERVICE_UNAVAILABLE");
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSegundos()))
+                .body(body);
+    }
+
     // 500 – catch-all (errores no esperados)
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneric(Exception ex) {
@@ -0,0 +1,48 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.Correlacion;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Toma el id de correlación del request (X-Correlation-Id o X-Request-Id) o genera uno, lo deja en
+ * {@link Correlacion} para la auditoría y lo devuelve en la respuesta.
+ */
+@Component
+public class CorrelacionFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Correlation-Id";
+    static final String HEADER_REQUEST_ID = "X-Request-Id";
+
+    // lo que viene del cliente se guarda tal cual: sólo ids cortos y sin caracteres raros
+    private static final Pattern VALIDO = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String id = valido(request.getHeader(HEADER));
+        if (id == null) id = valido(request.getHeader(HEADER_REQUEST_ID));
+        if (id == null) id = Correlacion.nueva();
+
+        response.setHeader(HEADER, id);
+        Correlacion.fijar(id);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Correlacion.limpiar();
+        }
+    }
+
+    static String valido(String raw) {
+        if (raw == null) return null;
+        String id = raw.trim();
+        return VALIDO.matcher(id).matches() ? id : null;
+    }
+}
@@ -0,0 +1,117 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Descarga de un PDF guardado en disco: ETag (hash del contenido) con If-None-Match → 304,
+ * un rango de bytes (Range / If-Range) → 206, y copia sin pasar por el heap:
+ * sendfile de Tomcat cuando el conector lo soporta, FileChannel.transferTo si no.
+ */
+final class DescargaPdf {
+
+    // atributos de request del conector NIO de Tomcat para sendfile
+    static final String SENDFILE_SUPPORT  = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START    = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END      = "org.apache.tomcat.sendfile.end";
+
+    private DescargaPdf() {}
+
+    static void enviar(Path archivo, String hash, String nombre,
+                       HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String etag = "\"" + hash + "\"";
+        resp.setHeader(HttpHeaders.ETAG, etag);
+        resp.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (new ServletWebRequest(req, resp).checkNotModified(etag)) {
+            return; // 304
+        }
+
+        long largo = Files.size(archivo);
+        long inicio = 0;
+        long cantidad = largo;
+
+        // If-Range: si el cliente tiene otra versión se ignora el rango y va el archivo entero
+        String range = req.getHeader(HttpHeaders.RANGE);
+        String ifRange = req.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> rangos;
+            try {
+                rangos = HttpRange.parseRanges(range);
+                if (rangos.size() == 1) {
+                    inicio = rangos.get(0).getRangeStart(largo);
+                    cantidad = rangos.get(0).getRangeEnd(largo) - inicio + 1;
+                    // getRangeStart no valida contra el largo: bytes=50-60 sobre 10 bytes daría 50-9
+                    if (inicio >= largo || cantidad <= 0) {
+                        throw new IllegalArgumentException("Rango fuera del archivo: " + range);
+                    }
+                }
+                // varios rangos: se responde el archivo completo (permitido por RFC 9110)
+            } catch (IllegalArgumentException e) {
+                resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                resp.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + largo);
+                return;
+            }
+            if (cantidad != largo) {
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + inicio + "-" + (inicio + cantidad - 1) + "/" + largo);
+            }
+        }
+
+        resp.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        resp.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(nombre).build().toString());
+        resp.setContentLengthLong(cantidad);
+        if ("HEAD".equalsIgnoreCase(req.getMethod())) return;
+
+        copiar(archivo, inicio, cantidad, req, resp);
+    }
+
+    /** 503 + Retry-After cuando el bulkhead de render está saturado (texto plano, como los demás errores de descarga). */
+    static ResponseEntity<byte[]> saturado(ServicioSaturadoException e) {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSegundos()))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                .body(e.getMessage().getBytes());
+    }
+
+    private static void copiar(Path archivo, long inicio, long cantidad,
+                               HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat manda el archivo directo del page cache al socket cuando termina el request
+            req.setAttribute(SENDFILE_FILENAME, archivo.toRealPath().toString());
+            req.setAttribute(SENDFILE_START, inicio);
+            req.setAttribute(SENDFILE_END, inicio + cantidad);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(resp.getOutputStream());
+            long pos = inicio;
+            long resto = cantidad;
+            while (resto > 0) {
+                long n = in.transferTo(pos, resto, out);
+                if (n <= 0) break;
+                pos += n;
+                resto -= n;
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ar.edu.utn.tfi.web;
 import ar.edu.utn.tfi.domain.Notificacion;
 import ar.edu.utn.tfi.repository.NotificacionRepository;
 import ar.edu.utn.tfi.service.NotificationHub;
+import ar.edu.utn.tfi.service.NotificationService;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -21,10 +22,24 @@ public class NotificacionPublicController {
         this.repo = repo;
     }
 
-    // Cliente se suscribe por nro de orden
+    // Cliente se suscribe por nro de orden (varias pestañas OK).
+    // Al reconectar, EventSource manda Last-Event-ID y se reenvía lo que se perdió.
     @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(@RequestParam String nroOrden) {
-        return hub.subscribe(nroOrden.trim());
+    public SseEmitter stream(@RequestParam String nroOrden,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String nro = nroOrden.trim();
+        return hub.subscribe(nro, parseLastEventId(lastEventId),
+                desde -> repo.findTop32ByNroOrdenAndCanalAndIdGreaterThanOrderByIdAsc(nro, "IN_APP", desde)
+                        .stream().map(NotificationService::aEvento).toList());
+    }
+
+    static Long parseLastEventId(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            return null; // id desconocido → sin replay
+        }
     }
 
     // Para cargar últimas (por si el cliente abrió tarde la pestaña)
@@ -19,10 +19,11 @@ public class NotificationController {
         this.service = service;
     }
 
-    // Suscripción SSE
+    // Suscripción SSE (varias pestañas OK; con Last-Event-ID reenvía lo perdido)
     @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(@RequestParam String email) {
-        return service.subscribe(email.trim().toLowerCase());
+    public SseEmitter stream(@RequestParam String email,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return service.subscribe(email.trim().toLowerCase(), NotificacionPublicController.parseLastEventId(lastEventId));
     }
 
     // Unread iniciales (para cuando abre la página)
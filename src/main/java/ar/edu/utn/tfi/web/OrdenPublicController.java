@@ -2,13 +2,12 @@ package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.service.AuditoriaService;
 import ar.edu.utn.tfi.service.OrderQueryService;
-import ar.edu.utn.tfi.web.dto.AuditoriaDTO;
+import ar.edu.utn.tfi.web.dto.AuditoriaPaginaDTO;
 import ar.edu.utn.tfi.web.dto.OrderStageDTO;
 import ar.edu.utn.tfi.web.dto.PublicOrderDetailsDTO;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/public/ordenes")
@@ -31,12 +30,11 @@ public class OrdenPublicController {
         return service.getHistorialByNro(nroOrden);
     }
 
-    // NUEVO: auditoría
+    // Auditoría por operación, de la más nueva a la más vieja; para seguir, ?cursor={siguiente}
     @GetMapping("/{nroOrden}/auditoria")
-    public List<AuditoriaDTO> auditoria(@PathVariable String nroOrden) {
-        return auditoriaService.listarPorNro(nroOrden)
-                .stream()
-                .map(AuditoriaDTO::from)
-                .collect(Collectors.toList()); // usa Collectors si te daba lío con .toList()
+    public AuditoriaPaginaDTO auditoria(@PathVariable String nroOrden,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer limite) {
+        return AuditoriaPaginaDTO.from(auditoriaService.pagina(nroOrden, cursor, limite));
     }
 }
\ No newline at end of file
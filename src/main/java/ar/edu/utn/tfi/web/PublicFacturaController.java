@@ -2,40 +2,67 @@
 package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.service.FacturaMockService;
+import ar.edu.utn.tfi.service.FacturaPdfStore;
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/public/facturas")
 public class PublicFacturaController {
 
     private final FacturaMockService facturaService;
+    private final RenderBulkhead bulkhead;
 
-    public PublicFacturaController(FacturaMockService facturaService) {
+    public PublicFacturaController(FacturaMockService facturaService, RenderBulkhead bulkhead) {
         this.facturaService = facturaService;
+        this.bulkhead = bulkhead;
     }
 
     /**
      * Descarga de factura por ID de SOLICITUD (público).
-     * Si no existe, la genera con tipo por defecto (query param ?tipo=A|B, default B).
+     * Solo lectura: si la factura todavía no se emitió responde 202 (no la crea).
+     * Sale del almacén de PDFs: ETag / If-None-Match, Range y copia directa del archivo.
      */
     @GetMapping("/pdf/by-solicitud/{solicitudId}")
-    public ResponseEntity<byte[]> pdfBySolicitud(@PathVariable Long solicitudId) {
+    public ResponseEntity<byte[]> pdfBySolicitud(@PathVariable Long solicitudId,
+                                                 HttpServletRequest request,
+                                                 HttpServletResponse response) {
         try {
-            byte[] pdf = facturaService.renderPdfBySolicitud(solicitudId);
-            String filename = "factura-solicitud-" + solicitudId + ".pdf";
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(pdf);
+            // el lugar del bulkhead se toma antes de abrir la transacción (503 + Retry-After si está saturado)
+            Optional<FacturaPdfStore.PdfGuardado> encontrado;
+            var permiso = bulkhead.entrar("factura-pdf");
+            try {
+                encontrado = facturaService.pdfBySolicitud(solicitudId);
+            } finally {
+                permiso.close();
+            }
+            if (encontrado.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(("""
+                           {"estado":"PENDIENTE","message":"La factura todavía no fue emitida"}
+                           """).getBytes(StandardCharsets.UTF_8));
+            }
+            var pdf = encontrado.get();
+            DescargaPdf.enviar(pdf.archivo(), pdf.hash(), "factura-solicitud-" + solicitudId + ".pdf",
+                    request, response);
+            return null; // respuesta ya escrita
 
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(("""
                        {"error":"NOT_FOUND","message":"%s"}
                        """.formatted(e.getMessage())).getBytes());
+        } catch (ServicioSaturadoException e) {
+            return DescargaPdf.saturado(e);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(("""
@@ -1,24 +1,33 @@
 // src/main/java/ar/edu/utn/tfi/web/ReportesExportController.java
 package ar.edu.utn.tfi.web;
 
+import ar.edu.utn.tfi.service.RenderBulkhead;
 import ar.edu.utn.tfi.service.ReporteExportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/reportes")
 public class ReportesExportController {
 
     private final ReporteExportService exportService;
+    private final RenderBulkhead bulkhead;
 
-    public ReportesExportController(ReporteExportService exportService) {
+    public ReportesExportController(ReporteExportService exportService, RenderBulkhead bulkhead) {
         this.exportService = exportService;
+        this.bulkhead = bulkhead;
     }
 
     // GET /api/reportes/export?reporte=clientes|motores-vs-tapas|motores-por-etapa|ingresos-senas-finales
@@ -34,32 +43,38 @@ public class ReportesExportController {
         String filename = reporte + "-" + from + "_" + to + "." + format.toLowerCase();
         byte[] bytes;
 
-        switch (reporte) {
-            case "clientes" -> {
-                if ("pdf".equalsIgnoreCase(format))
-                    bytes = exportService.clientesFrecuentesPdf(from, to, top);
-                else
-                    bytes = exportService.clientesFrecuentesXlsx(from, to, top);
+        // el render ocupa un lugar del bulkhead (503 + Retry-After si está saturado)
+        var permiso = bulkhead.entrar("reporte-" + format.toLowerCase());
+        try {
+            switch (reporte) {
+                case "clientes" -> {
+                    if ("pdf".equalsIgnoreCase(format))
+                        bytes = exportService.clientesFrecuentesPdf(from, to, top);
+                    else
+                        bytes = exportService.clientesFrecuentesXlsx(from, to, top);
+                }
+                case "motores-vs-tapas" -> {
+                    if ("pdf".equalsIgnoreCase(format))
+                        bytes = exportService.motoresVsTapasPdf(from, to);
+                    else
+                        bytes = exportService.motoresVsTapasXlsx(from, to);
+                }
+                case "motores-por-etapa" -> {
+                    if ("pdf".equalsIgnoreCase(format))
+                        bytes = exportService.motoresPorEtapaPdf(from, to);
+                    else
+                        bytes = exportService.motoresPorEtapaXlsx(from, to);
+                }
+                case "ingresos-senas-finales" -> {
+                    if ("pdf".equalsIgnoreCase(format))
+                        bytes = exportService.ingresosSenasFinalesPdf(from, to);
+                    else
+                        bytes = exportService.ingresosSenasFinalesXlsx(from, to);
+                }
+                default -> throw new IllegalArgumentException("Reporte desconocido: " + reporte);
             }
-            case "motores-vs-tapas" -> {
-                if ("pdf".equalsIgnoreCase(format))
-                    bytes = exportService.motoresVsTapasPdf(from, to);
-                else
-                    bytes = exportService.motoresVsTapasXlsx(from, to);
-            }
-            case "motores-por-etapa" -> {
-                if ("pdf".equalsIgnoreCase(format))
-                    bytes = exportService.motoresPorEtapaPdf(from, to);
-                else
-                    bytes = exportService.motoresPorEtapaXlsx(from, to);
-            }
-            case "ingresos-senas-finales" -> {
-                if ("pdf".equalsIgnoreCase(format))
-                    bytes = exportService.ingresosSenasFinalesPdf(from, to);
-                else
-                    bytes = exportService.ingresosSenasFinalesXlsx(from, to);
-            }
-            default -> throw new IllegalArgumentException("Reporte desconocido: " + reporte);
+        } finally {
+            permiso.close();
         }
 
         HttpHeaders headers = new HttpHeaders();
@@ -72,4 +87,49 @@ public class ReportesExportController {
 
         return ResponseEntity.ok().headers(headers).body(bytes);
     }
+
+    // GET /api/reportes/export/filas?reporte=ordenes|pagos&from=YYYY-MM-DD&to=YYYY-MM-DD
+    // Una fila por orden / por pago, XLSX escrito en streaming (sin armar el archivo en memoria)
+    @GetMapping("/export/filas")
+    public ResponseEntity<StreamingResponseBody> exportFilas(
+            @RequestParam String reporte,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request
+    ) {
+        if (to.isBefore(from)) { var tmp = from; from = to; to = tmp; }
+        final LocalDate f = from, t = to;
+
+        if (!"ordenes".equals(reporte) && !"pagos".equals(reporte)) {
+            throw new IllegalArgumentException("Reporte desconocido: " + reporte);
+        }
+        // el lugar se reserva acá (503 antes de empezar la respuesta) y se libera al terminar de escribir
+        var permiso = bulkhead.entrar("xlsx-" + reporte);
+        // si el cuerpo no llega a correr o no termina (timeout, cliente que se fue, executor que lo rechaza),
+        // el permiso se libera igual cuando se cierra el request asíncrono; close() es idempotente
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(RenderBulkhead.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest req, Callable<T> task) {
+                        permiso.close();
+                    }
+                });
+        StreamingResponseBody body = out -> {
+            try {
+                if ("ordenes".equals(reporte)) exportService.ordenesXlsx(f, t, out);
+                else exportService.pagosXlsx(f, t, out);
+            } finally {
+                permiso.close();
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(
+                ContentDisposition.attachment().filename(reporte + "-" + f + "_" + t + ".xlsx").build()
+        );
+        headers.setContentType(
+                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
 }
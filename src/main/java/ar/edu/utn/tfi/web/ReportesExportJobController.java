@@ -0,0 +1,71 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.service.ExportJobService;
+import ar.edu.utn.tfi.service.ExportJobService.ExportJobDTO;
+import ar.edu.utn.tfi.service.ExportJobService.ExportJobReq;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/reportes/export/jobs")
+public class ReportesExportJobController {
+
+    private final ExportJobService jobService;
+
+    public ReportesExportJobController(ExportJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    // POST /api/reportes/export/jobs?reporte=...&from=YYYY-MM-DD&to=YYYY-MM-DD&format=xlsx|pdf&top=10
+    // → 202 con el id del job (si ya había uno igual en curso, devuelve ese)
+    @PostMapping
+    public ResponseEntity<ExportJobDTO> enviar(
+            @RequestParam String reporte,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "xlsx") String format,
+            @RequestParam(required = false) Integer top
+    ) {
+        ExportJobDTO job = jobService.enviar(new ExportJobReq(reporte, from, to, format, top));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/export/jobs/" + job.id()))
+                .body(job);
+    }
+
+    // GET /api/reportes/export/jobs/{id} → estado y avance (polling)
+    @GetMapping("/{id}")
+    public ExportJobDTO estado(@PathVariable String id) {
+        return jobService.estado(id);
+    }
+
+    // GET /api/reportes/export/jobs/{id}/eventos → avance por SSE (evento "progreso")
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter eventos(@PathVariable String id) {
+        return jobService.suscribir(id);
+    }
+
+    // GET /api/reportes/export/jobs/{id}/archivo → descarga (409 si todavía no terminó)
+    @GetMapping("/{id}/archivo")
+    public ResponseEntity<Resource> archivo(@PathVariable String id) {
+        var path = jobService.archivo(id);
+        String nombre = jobService.nombreArchivo(id);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(ContentDisposition.attachment().filename(nombre).build());
+        headers.setContentType(nombre.endsWith(".pdf")
+                ? MediaType.APPLICATION_PDF
+                : MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+    }
+}
@@ -54,7 +54,8 @@ public class WebhookPagoController {
         System.out.println("[WEBHOOK-MP] topic=" + t + " id=" + d + " x-request-id=" + requestId);
 
         try {
-            webhookPagoService.procesarNotificacion(t, d, requestId);
+            // Solo se encola: el worker consulta MP y actualiza el presupuesto
+            webhookPagoService.encolarNotificacion(t, d, requestId);
         } catch (Exception e) {
             // Devolver 200 para que MP no reintente eternamente
             System.err.println("[WEBHOOK-MP][WARN] " + e.getMessage());
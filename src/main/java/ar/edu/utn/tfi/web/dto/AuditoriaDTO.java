@@ -1,23 +1,25 @@
 package ar.edu.utn.tfi.web.dto;
 
-import ar.edu.utn.tfi.domain.AuditoriaCambio;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public record AuditoriaDTO(
         LocalDateTime fecha,
-        String campo,
-        String valorAnterior,
-        String valorNuevo,
-        String usuario
+        String operacion,
+        String usuario,
+        String correlacion,
+        Map<String, Cambio> cambios
 ) {
-    public static AuditoriaDTO from(AuditoriaCambio a) {
+    public static AuditoriaDTO from(AuditoriaOperacion a) {
         return new AuditoriaDTO(
-                a.getFecha(),
-                a.getCampo(),
-                a.getValorAnterior(),
-                a.getValorNuevo(),
-                a.getUsuario()
+                a.fecha(),
+                a.operacion(),
+                a.usuario(),
+                a.correlacion(),
+                a.cambios()
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package ar.edu.utn.tfi.web.dto;
+
+import ar.edu.utn.tfi.service.AuditoriaService.PaginaAuditoria;
+
+import java.util.List;
+
+/** Una página de auditoría; {@code siguiente} es el cursor de la próxima (null si no hay más). */
+public record AuditoriaPaginaDTO(
+        List<AuditoriaDTO> items,
+        String siguiente
+) {
+    public static AuditoriaPaginaDTO from(PaginaAuditoria p) {
+        return new AuditoriaPaginaDTO(p.items().stream().map(AuditoriaDTO::from).toList(), p.siguiente());
+    }
+}
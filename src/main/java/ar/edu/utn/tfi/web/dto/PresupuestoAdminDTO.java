@@ -34,7 +34,10 @@ public record PresupuestoAdminDTO(
         String facturaTipo,
 
         // ✅ NUEVO: número de OT persistido en la tabla presupuesto
-        String otNroOrden
+        String otNroOrden,
+
+        // versión del catálogo de tarifas con la que se cotizó
+        Long tarifaVersion
 ) {
     public static PresupuestoAdminDTO from(Presupuesto p) {
         return from(p, null, null);
@@ -70,7 +73,9 @@ public record PresupuestoAdminDTO(
                 facturaTipo,
 
                 // ✅ NUEVO
-                p.getOtNroOrden()
+                p.getOtNroOrden(),
+
+                p.getTarifaVersion()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package ar.edu.utn.tfi.web.dto;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import ar.edu.utn.tfi.service.TarifaCatalogo.Catalogo;
+
+import java.util.List;
+
+/** Catálogo de tarifas con la versión que lo identifica (la misma que queda guardada en cada presupuesto). */
+public record TarifaCatalogoDTO(
+        long version,
+        List<Tarifa> tarifas
+) {
+    public static TarifaCatalogoDTO from(Catalogo c, String vehiculoTipo) {
+        return new TarifaCatalogoDTO(c.version(), c.tarifas(vehiculoTipo));
+    }
+}
@@ -0,0 +1,16 @@
+-- Cola de procesamiento de webhooks MP: el controller solo persiste el evento
+-- y un worker lo procesa fuera del request (reintentos con backoff).
+ALTER TABLE mp_event_log
+    ADD COLUMN IF NOT EXISTS retry_count     INT       NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP NOT NULL DEFAULT now(),
+    ADD COLUMN IF NOT EXISTS processed_at    TIMESTAMP;
+
+-- Eventos viejos: ya fueron procesados en línea
+UPDATE mp_event_log SET processed = TRUE WHERE processed IS NULL OR processed = FALSE;
+
+ALTER TABLE mp_event_log ALTER COLUMN processed SET NOT NULL;
+
+-- El worker solo recorre pendientes vencidos
+CREATE INDEX IF NOT EXISTS idx_mp_event_log_pendientes
+    ON mp_event_log (next_attempt_at, id)
+    WHERE processed = FALSE;
@@ -0,0 +1,23 @@
+-- Outbox de notificaciones salientes (WhatsApp / Email).
+-- Se escribe en la misma transacción que el cambio de negocio y lo drena OutboxDispatcher.
+CREATE TABLE IF NOT EXISTS notificacion_outbox (
+    id               BIGSERIAL PRIMARY KEY,
+    canal            VARCHAR(20)  NOT NULL,                       -- WHATSAPP | EMAIL
+    destino          VARCHAR(200),
+    asunto           VARCHAR(200),
+    cuerpo           TEXT         NOT NULL,
+    notificacion_id  BIGINT REFERENCES notification(id) ON DELETE SET NULL,
+    estado           VARCHAR(20)  NOT NULL DEFAULT 'PENDIENTE',   -- PENDIENTE | ENVIADO | DEAD
+    intentos         INT          NOT NULL DEFAULT 0,
+    proximo_intento  TIMESTAMP    NOT NULL DEFAULT now(),
+    ultimo_error     TEXT,
+    creado_en        TIMESTAMP    NOT NULL DEFAULT now(),
+    enviado_en       TIMESTAMP,
+    CONSTRAINT chk_outbox_canal  CHECK (canal IN ('WHATSAPP', 'EMAIL')),
+    CONSTRAINT chk_outbox_estado CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'DEAD'))
+);
+
+-- El dispatcher solo recorre pendientes vencidos por canal
+CREATE INDEX IF NOT EXISTS idx_outbox_pendientes
+    ON notificacion_outbox (canal, proximo_intento, id)
+    WHERE estado = 'PENDIENTE';
@@ -0,0 +1,6 @@
+-- Replay de SSE por Last-Event-ID: "notificaciones de la orden/email con id > X"
+CREATE INDEX IF NOT EXISTS idx_notification_nro_orden_id ON notification (nro_orden, id);
+CREATE INDEX IF NOT EXISTS idx_notification_email_id     ON notification (cliente_email, id);
+
+-- El índice compuesto ya cubre las búsquedas solo por email
+DROP INDEX IF EXISTS idx_notification_email;
@@ -0,0 +1,50 @@
+-- Libro de movimientos de pago (append-only): una fila por cada seña o pago final acreditado,
+-- venga de Mercado Pago o de un pago manual. El reporte de ingresos lee solo de acá.
+CREATE TABLE IF NOT EXISTS movimiento_pago (
+    id              BIGSERIAL PRIMARY KEY,
+    presupuesto_id  BIGINT        NOT NULL REFERENCES presupuesto(id),
+    tipo            VARCHAR(10)   NOT NULL,                 -- SENA | FINAL
+    monto           NUMERIC(12,2) NOT NULL,
+    fecha           TIMESTAMP     NOT NULL,                 -- fecha de acreditación
+    origen          VARCHAR(20)   NOT NULL,                 -- MERCADO_PAGO | MANUAL
+    medio           VARCHAR(30),                            -- solo manuales (EFECTIVO, TRANSFERENCIA, ...)
+    referencia      VARCHAR(100),                           -- payment id de MP / nro de recibo
+    creado_en       TIMESTAMP     NOT NULL DEFAULT now(),
+    CONSTRAINT chk_movimiento_pago_tipo   CHECK (tipo IN ('SENA', 'FINAL')),
+    CONSTRAINT chk_movimiento_pago_origen CHECK (origen IN ('MERCADO_PAGO', 'MANUAL'))
+);
+
+-- Cada presupuesto acredita una sola seña y un solo final: evita contar dos veces un webhook repetido
+CREATE UNIQUE INDEX IF NOT EXISTS ux_movimiento_pago_presupuesto_tipo
+    ON movimiento_pago (presupuesto_id, tipo);
+
+-- Reporte de ingresos: un solo range scan por fecha, sin ir a la tabla (index-only)
+CREATE INDEX IF NOT EXISTS idx_movimiento_pago_fecha
+    ON movimiento_pago (fecha) INCLUDE (tipo, monto);
+
+-- ─── Backfill desde presupuesto y pago_manual ───
+
+-- Señas / finales acreditados por Mercado Pago (los manuales se toman de pago_manual).
+-- Las señas acreditadas por webhook no guardaban sena_monto: se usa el 30% del total, como en el cobro.
+INSERT INTO movimiento_pago (presupuesto_id, tipo, monto, fecha, origen, referencia)
+SELECT p.id, 'SENA', COALESCE(p.sena_monto, ROUND(p.total * 0.30, 2)), p.sena_paid_at, 'MERCADO_PAGO', p.sena_payment_id
+FROM   presupuesto p
+WHERE  p.sena_estado = 'ACREDITADA'
+  AND  COALESCE(p.sena_payment_status, '') <> 'manual'
+  AND  p.sena_paid_at IS NOT NULL
+ON CONFLICT (presupuesto_id, tipo) DO NOTHING;
+
+INSERT INTO movimiento_pago (presupuesto_id, tipo, monto, fecha, origen, referencia)
+SELECT p.id, 'FINAL', p.final_monto, p.final_paid_at, 'MERCADO_PAGO', p.final_payment_id
+FROM   presupuesto p
+WHERE  p.final_estado = 'ACREDITADA'
+  AND  COALESCE(p.final_payment_status, '') <> 'manual'
+  AND  p.final_paid_at IS NOT NULL
+  AND  p.final_monto IS NOT NULL
+ON CONFLICT (presupuesto_id, tipo) DO NOTHING;
+
+INSERT INTO movimiento_pago (presupuesto_id, tipo, monto, fecha, origen, medio, referencia, creado_en)
+SELECT pm.presupuesto_id, pm.tipo, pm.monto, pm.fecha_pago, 'MANUAL', pm.medio, pm.referencia, pm.created_at
+FROM   pago_manual pm
+ORDER  BY pm.id
+ON CONFLICT (presupuesto_id, tipo) DO NOTHING;
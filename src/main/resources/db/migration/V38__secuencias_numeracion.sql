@@ -0,0 +1,20 @@
+-- Numeración de documentos por secuencia (una por serie), en lugar de COUNT(*) + 1.
+-- INCREMENT BY = tamaño de bloque: cada nextval reserva 50 números para una JVM
+-- (NumeradorService los reparte en memoria). Debe coincidir con NumeradorService.BLOQUE.
+CREATE SEQUENCE IF NOT EXISTS seq_nro_ot MINVALUE 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_nro_fa MINVALUE 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_nro_fb MINVALUE 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_nro_fc MINVALUE 1 INCREMENT BY 50;
+
+-- Cada serie arranca después del mayor número ya emitido en esa serie
+SELECT setval('seq_nro_ot', COALESCE((
+    SELECT MAX(CAST(substring(nro_orden FROM '^OT-([0-9]+)$') AS BIGINT)) FROM orden_trabajo), 0) + 1, false);
+
+SELECT setval('seq_nro_fa', COALESCE((
+    SELECT MAX(CAST(substring(numero FROM '^FA-([0-9]+)$') AS BIGINT)) FROM factura_mock), 0) + 1, false);
+
+SELECT setval('seq_nro_fb', COALESCE((
+    SELECT MAX(CAST(substring(numero FROM '^FB-([0-9]+)$') AS BIGINT)) FROM factura_mock), 0) + 1, false);
+
+SELECT setval('seq_nro_fc', COALESCE((
+    SELECT MAX(CAST(substring(numero FROM '^FC-([0-9]+)$') AS BIGINT)) FROM factura_mock), 0) + 1, false);
@@ -0,0 +1,5 @@
+-- PDF de factura renderizado una sola vez: hash SHA-256 del archivo guardado y versión de plantilla
+-- con la que se generó. Si la plantilla cambia (FacturaMockService.PLANTILLA_PDF) se vuelve a renderizar.
+ALTER TABLE factura_mock
+    ADD COLUMN IF NOT EXISTS pdf_hash      VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS pdf_plantilla INTEGER;
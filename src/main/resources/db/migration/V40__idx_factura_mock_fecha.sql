@@ -0,0 +1,3 @@
+-- Export de facturas por período: paginado por (fecha_emision, id) sin ordenar la tabla entera
+CREATE INDEX IF NOT EXISTS idx_factura_mock_fecha_id
+    ON factura_mock (fecha_emision, id);
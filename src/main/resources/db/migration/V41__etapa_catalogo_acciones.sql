@@ -0,0 +1,12 @@
+-- V41__etapa_catalogo_acciones.sql
+-- Reglas por etapa en el catálogo (antes constantes repartidas en los servicios).
+-- acciones: separadas por coma, de REPUESTOS, DEMORA, IRREPARABLE, PAGO_FINAL, FACTURAR.
+-- Las etapas terminales son las que no tienen otra con orden + 1 (ENTREGADO, PIEZA_IRREPARABLE).
+
+ALTER TABLE etapa_catalogo ADD COLUMN IF NOT EXISTS acciones VARCHAR(200) NOT NULL DEFAULT '';
+
+UPDATE etapa_catalogo SET acciones = 'REPUESTOS'             WHERE codigo IN ('DESPIECE_LAVADO', 'MAQUINADO');
+UPDATE etapa_catalogo SET acciones = 'REPUESTOS,IRREPARABLE' WHERE codigo = 'DIAGNOSTICO';
+UPDATE etapa_catalogo SET acciones = 'REPUESTOS,DEMORA'      WHERE codigo = 'SEMI_ARMADO';
+UPDATE etapa_catalogo SET acciones = 'PAGO_FINAL'            WHERE codigo = 'LISTO_RETIRAR';
+UPDATE etapa_catalogo SET acciones = 'PAGO_FINAL,FACTURAR'   WHERE codigo = 'ENTREGADO';
@@ -0,0 +1,68 @@
+-- V42__auditoria_operacion.sql
+-- Auditoría compacta: una fila por operación de negocio (avance de etapa, demora, irreparable) con los
+-- campos cambiados en un diff JSONB {"campo": [anterior, nuevo]}, en lugar de una fila por campo que
+-- repite orden, usuario y fecha.
+
+CREATE TABLE auditoria_operacion (
+    id          BIGSERIAL   PRIMARY KEY,
+    orden_id    BIGINT      NOT NULL,
+    operacion   VARCHAR(30) NOT NULL,      -- AVANCE_ETAPA | DEMORA | IRREPARABLE | MIGRADO
+    usuario     TEXT,
+    correlacion VARCHAR(64),               -- X-Correlation-Id del request que hizo el cambio
+    fecha       TIMESTAMP   NOT NULL DEFAULT NOW(),
+    cambios     JSONB       NOT NULL
+);
+
+-- Listado por OT, más nuevo primero; la paginación es keyset por (fecha, id)
+CREATE INDEX idx_auditoria_operacion_orden ON auditoria_operacion (orden_id, fecha DESC, id DESC);
+
+-- Plegado de auditoria_cambio: las filas de una misma OT y usuario a menos de 2 s entre sí son una
+-- operación, que termina en el cambio de estado_actual o de demora (la garantía se audita antes
+-- que el ENTREGADO). Los campos sueltos que no encajan quedan como MIGRADO.
+-- Un campo que cambió más de una vez dentro de la operación no se pisa: queda como lista de pares
+-- en orden, {"campo": [[anterior, nuevo], [anterior, nuevo], ...]}.
+WITH marcadas AS (
+    SELECT c.*,
+           CASE WHEN LAG(c.id) OVER w IS NULL
+                  OR LAG(c.campo) OVER w IN ('estado_actual', 'demora')
+                  OR LAG(c.usuario) OVER w IS DISTINCT FROM c.usuario
+                  OR c.fecha - LAG(c.fecha) OVER w > INTERVAL '2 seconds'
+                THEN 1 ELSE 0 END AS inicio
+    FROM auditoria_cambio c
+    WINDOW w AS (PARTITION BY c.orden_id ORDER BY c.fecha, c.id)
+), agrupadas AS (
+    SELECT m.*, SUM(m.inicio) OVER (PARTITION BY m.orden_id ORDER BY m.fecha, m.id) AS grupo
+    FROM marcadas m
+), por_campo AS (
+    SELECT orden_id, grupo, campo,
+           MIN(usuario) AS usuario,
+           MIN(fecha)   AS fecha,
+           MIN(id)      AS primer_id,
+           BOOL_OR(campo = 'estado_actual' AND valor_nuevo = 'PIEZA_IRREPARABLE') AS irreparable,
+           CASE WHEN COUNT(*) = 1
+                THEN jsonb_agg(jsonb_build_array(valor_anterior, valor_nuevo)) -> 0
+                ELSE jsonb_agg(jsonb_build_array(valor_anterior, valor_nuevo) ORDER BY fecha, id)
+           END AS diff
+    FROM agrupadas
+    GROUP BY orden_id, grupo, campo
+)
+INSERT INTO auditoria_operacion (orden_id, operacion, usuario, correlacion, fecha, cambios)
+SELECT orden_id,
+       CASE
+           WHEN BOOL_OR(campo = 'demora') THEN 'DEMORA'
+           WHEN BOOL_OR(irreparable) THEN 'IRREPARABLE'
+           WHEN BOOL_OR(campo = 'estado_actual') THEN 'AVANCE_ETAPA'
+           ELSE 'MIGRADO'
+       END,
+       MIN(usuario),
+       NULL,
+       MIN(fecha),
+       jsonb_object_agg(campo, diff ORDER BY fecha, primer_id)
+FROM por_campo
+GROUP BY orden_id, grupo
+ORDER BY MIN(fecha), MIN(primer_id);
+
+-- La tabla vieja no se borra acá: queda como auditoria_cambio_legacy hasta verificar el plegado
+-- (cada fila vieja tiene que aparecer como un par en auditoria_operacion) y se borra en una
+-- migración posterior. Nadie más escribe en ella.
+ALTER TABLE auditoria_cambio RENAME TO auditoria_cambio_legacy;
@@ -0,0 +1,15 @@
+-- V43__orden_snapshot.sql
+-- Checkpoints del estado de una OT para reconstruirlo a una fecha ("¿en qué estado estaba el día X?"):
+-- estado después de aplicar todas las operaciones de auditoria_operacion hasta (hasta_fecha, hasta_id).
+-- Una consulta parte del último checkpoint anterior a la fecha y reproduce sólo lo que vino después.
+
+CREATE TABLE orden_snapshot (
+    id          BIGSERIAL PRIMARY KEY,
+    orden_id    BIGINT    NOT NULL,
+    hasta_fecha TIMESTAMP NOT NULL,          -- clave (fecha, id) de la última operación incluida
+    hasta_id    BIGINT    NOT NULL,
+    estado      JSONB     NOT NULL,          -- {"estado_actual": ..., "etapa_desde": ..., "garantia_desde": ...}
+    creado_en   TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE UNIQUE INDEX ux_orden_snapshot_clave ON orden_snapshot (orden_id, hasta_fecha DESC, hasta_id DESC);
@@ -0,0 +1,27 @@
+-- V44__tarifa_version.sql
+-- Versión del catálogo de tarifas: la sube un trigger con cada INSERT/UPDATE/DELETE/TRUNCATE sobre
+-- servicio_tarifa, en la misma transacción que el cambio. La app tiene el catálogo en memoria y sólo
+-- mira este número para saber si lo tiene que recargar; el presupuesto guarda con qué versión se cotizó.
+
+CREATE TABLE tarifa_version (
+    id             SMALLINT  PRIMARY KEY CHECK (id = 1),   -- una sola fila
+    version        BIGINT    NOT NULL,
+    actualizada_en TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+INSERT INTO tarifa_version (id, version) VALUES (1, 1);
+
+CREATE FUNCTION tarifa_version_incrementar() RETURNS trigger AS $$
+BEGIN
+    UPDATE tarifa_version SET version = version + 1, actualizada_en = NOW() WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- por sentencia: un UPDATE masivo de precios es una sola versión nueva
+CREATE TRIGGER tr_servicio_tarifa_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON servicio_tarifa
+    FOR EACH STATEMENT EXECUTE FUNCTION tarifa_version_incrementar();
+
+-- Presupuestos: versión del catálogo con la que se calcularon los precios (NULL: anteriores a V44)
+ALTER TABLE presupuesto ADD COLUMN tarifa_version BIGINT;
@@ -0,0 +1,170 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tamaño y tiempo de consulta de la auditoría: tabla por campo (auditoria_cambio, V6) contra tabla por
+ * operación (auditoria_operacion, V42). Se llena auditoria_cambio en un esquema aparte con N filas
+ * (10 por OT: seis avances, garantía desde/hasta + ENTREGADO, una demora), se mide, se corre la
+ * migración V42 tal cual sobre ese esquema y se mide de nuevo.
+ * Consultas: listado completo de una OT (como listarPorNro) y primera/siguiente página keyset.
+ *
+ * No corre en el build normal:
+ *   mvn test -Dbenchmarks=true -Dtest=AuditoriaOperacionBenchmarkTest [-Dbench.filas=10000000]
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class AuditoriaOperacionBenchmarkTest extends PostgresTestBase {
+
+    static final long FILAS = Long.getLong("bench.filas", 10_000_000L);
+    static final int POR_OT = 10;
+    static final int CONSULTAS = 2_000;
+    static final String ESQUEMA = "bench_auditoria";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @AfterEach
+    void limpiar() {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + ESQUEMA + " CASCADE");
+    }
+
+    @Test
+    @DisplayName("auditoria_cambio → auditoria_operacion: tamaño en disco y latencia de lectura por OT")
+    void tamanioYConsulta() throws Exception {
+        long ots = FILAS / POR_OT;
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP SCHEMA IF EXISTS " + ESQUEMA + " CASCADE");
+            st.execute("CREATE SCHEMA " + ESQUEMA);
+            st.execute("SET search_path TO " + ESQUEMA + ", public");
+            st.execute("""
+                    CREATE TABLE auditoria_cambio (
+                        id BIGSERIAL PRIMARY KEY,
+                        orden_id BIGINT NOT NULL,
+                        campo TEXT NOT NULL,
+                        valor_anterior TEXT,
+                        valor_nuevo TEXT,
+                        usuario TEXT,
+                        fecha TIMESTAMP NOT NULL DEFAULT NOW()
+                    )""");
+
+            // Posición dentro de la OT: 0-5 avances, 6-8 ENTREGADO (garantía + estado, mismo instante), 9 demora
+            long t0 = System.nanoTime();
+            st.execute("""
+                    INSERT INTO auditoria_cambio (orden_id, campo, valor_anterior, valor_nuevo, usuario, fecha)
+                    SELECT g / 10 + 1,
+                           (ARRAY['estado_actual','estado_actual','estado_actual','estado_actual','estado_actual',
+                                  'estado_actual','garantia_desde','garantia_hasta','estado_actual','demora'])[g %% 10 + 1],
+                           CASE WHEN g %% 10 IN (6, 7) THEN NULL ELSE 'ETAPA_' || (g %% 10) END,
+                           CASE WHEN g %% 10 IN (6, 7) THEN '2031-06-10' ELSE 'ETAPA_' || (g %% 10 + 1) END,
+                           'admin',
+                           TIMESTAMP '2024-01-01' + (g / 10) * INTERVAL '1 minute'
+                               + LEAST(g %% 10, 6) * INTERVAL '1 hour' + (g %% 10 / 9) * INTERVAL '1 day'
+                    FROM generate_series(0, %d) g
+                    """.formatted(FILAS - 1));
+            st.execute("CREATE INDEX idx_auditoria_orden ON auditoria_cambio(orden_id)");
+            st.execute("ANALYZE auditoria_cambio");
+            System.out.printf("[BENCH] AUDITORIA-TABLA carga filas=%d ots=%d %.1fs%n",
+                    FILAS, ots, (System.nanoTime() - t0) / 1e9);
+
+            long antes = tamanio("auditoria_cambio");
+            double[] listado = medir(ots, """
+                    SELECT id, orden_id, campo, valor_anterior, valor_nuevo, usuario, fecha
+                    FROM %s.auditoria_cambio WHERE orden_id = ? ORDER BY fecha DESC""".formatted(ESQUEMA));
+
+            t0 = System.nanoTime();
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/migration/V42__auditoria_operacion.sql"));
+            double migracion = (System.nanoTime() - t0) / 1e9;
+            st.execute("ANALYZE auditoria_operacion");
+
+            long despues = tamanio("auditoria_operacion");
+            Long operaciones = jdbc.queryForObject("SELECT COUNT(*) FROM " + ESQUEMA + ".auditoria_operacion", Long.class);
+            // 6 avances + ENTREGADO + demora por OT
+            assertThat(operaciones).isEqualTo(ots * 8);
+            // el plegado no pierde cambios: cada fila vieja es un par en auditoria_operacion
+            Long pares = jdbc.queryForObject("""
+                    SELECT SUM(CASE WHEN jsonb_typeof(c.value -> 0) = 'array' THEN jsonb_array_length(c.value) ELSE 1 END)
+                    FROM %s.auditoria_operacion o, jsonb_each(o.cambios) c""".formatted(ESQUEMA), Long.class);
+            assertThat(pares).isEqualTo(FILAS);
+            assertThat(tamanio("auditoria_cambio_legacy")).isEqualTo(antes);
+
+            String columnas = "SELECT id, orden_id, operacion, usuario, correlacion, fecha, cambios::text FROM "
+                    + ESQUEMA + ".auditoria_operacion ";
+            double[] primera = medir(ots, columnas + "WHERE orden_id = ? ORDER BY fecha DESC, id DESC LIMIT 4");
+            double[] siguiente = medirSiguiente(ots, columnas
+                    + "WHERE orden_id = ? AND (fecha, id) < (?, ?) ORDER BY fecha DESC, id DESC LIMIT 4");
+
+            System.out.printf("[BENCH] AUDITORIA-TABLA por-campo filas=%d total=%dMB listado p50=%.3fms p95=%.3fms%n",
+                    FILAS, antes >> 20, listado[0], listado[1]);
+            System.out.printf("[BENCH] AUDITORIA-TABLA por-operacion filas=%d total=%dMB migracion=%.1fs "
+                            + "primera p50=%.3fms p95=%.3fms siguiente p50=%.3fms p95=%.3fms%n",
+                    operaciones, despues >> 20, migracion, primera[0], primera[1], siguiente[0], siguiente[1]);
+        }
+    }
+
+    /** Tabla + índices + TOAST, en bytes. */
+    private long tamanio(String tabla) {
+        return jdbc.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, ESQUEMA + "." + tabla);
+    }
+
+    /** p50 y p95 en ms de {@code sql} sobre OTs al azar (con calentamiento). */
+    private double[] medir(long ots, String sql) {
+        long[] t = new long[CONSULTAS];
+        for (int i = -CONSULTAS / 4; i < CONSULTAS; i++) {
+            long ot = ThreadLocalRandom.current().nextLong(1, ots + 1);
+            long t0 = System.nanoTime();
+            List<Map<String, Object>> filas = jdbc.queryForList(sql, ot);
+            if (i >= 0) t[i] = System.nanoTime() - t0;
+            assertThat(filas).isNotEmpty();
+        }
+        return percentiles(t);
+    }
+
+    /** Igual, para la segunda página: la clave sale de la cuarta operación de la OT. */
+    private double[] medirSiguiente(long ots, String sql) {
+        long[] t = new long[CONSULTAS];
+        for (int i = -CONSULTAS / 4; i < CONSULTAS; i++) {
+            long ot = ThreadLocalRandom.current().nextLong(1, ots + 1);
+            Map<String, Object> clave = jdbc.queryForMap("SELECT fecha, id FROM " + ESQUEMA + ".auditoria_operacion "
+                    + "WHERE orden_id = ? ORDER BY fecha DESC, id DESC OFFSET 3 LIMIT 1", ot);
+            long t0 = System.nanoTime();
+            List<Map<String, Object>> filas = jdbc.queryForList(sql, ot, (Timestamp) clave.get("fecha"), clave.get("id"));
+            if (i >= 0) t[i] = System.nanoTime() - t0;
+            assertThat(filas).isNotEmpty();
+        }
+        return percentiles(t);
+    }
+
+    private static double[] percentiles(long[] t) {
+        Arrays.sort(t);
+        return new double[]{t[t.length / 2] / 1e6, t[(int) (t.length * 0.95)] / 1e6};
+    }
+}
@@ -0,0 +1,99 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuditoriaOperacionRepository.class)
+class AuditoriaOperacionRepositoryTest extends PostgresTestBase {
+
+    static final long ORDEN = 987_654L;
+
+    @Autowired
+    AuditoriaOperacionRepository repo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private static AuditoriaOperacion op(String nuevo, LocalDateTime fecha) {
+        Map<String, Cambio> cambios = new LinkedHashMap<>();
+        cambios.put("garantia_desde", new Cambio(null, "2031-06-10"));
+        cambios.put("estado_actual", new Cambio("LISTO_RETIRAR", nuevo));
+        return new AuditoriaOperacion(null, ORDEN, "AVANCE_ETAPA", "admin", "req-1", fecha, cambios);
+    }
+
+    @Test
+    @DisplayName("insertar(...) guarda el diff como JSONB {campo: [anterior, nuevo]} y pagina() lo lee igual")
+    void insertar_diffJsonb() {
+        LocalDateTime t = LocalDateTime.of(2031, 6, 10, 12, 0);
+        repo.insertar(List.of(op("ENTREGADO", t)));
+
+        String json = jdbc.queryForObject(
+                "SELECT cambios->>'estado_actual' FROM auditoria_operacion WHERE orden_id = ?", String.class, ORDEN);
+        assertEquals("[\"LISTO_RETIRAR\", \"ENTREGADO\"]", json);
+
+        AuditoriaOperacion leida = repo.pagina(ORDEN, null, 0, 10).get(0);
+        assertNotNull(leida.id());
+        assertEquals("req-1", leida.correlacion());
+        assertEquals(t, leida.fecha());
+        assertEquals(new Cambio(null, "2031-06-10"), leida.cambios().get("garantia_desde"));
+        assertEquals(new Cambio("LISTO_RETIRAR", "ENTREGADO"), leida.cambios().get("estado_actual"));
+    }
+
+    @Test
+    @DisplayName("Un campo con varios cambios en la operación se guarda como lista de pares y se lee con sus pasos")
+    void insertar_campoRepetido() {
+        List<Cambio> pasos = List.of(new Cambio("RECIBIDO", "DIAGNOSTICO"), new Cambio("DIAGNOSTICO", "PRESUPUESTADO"));
+        Map<String, Cambio> cambios = Map.of("estado_actual", Cambio.enPasos(pasos));
+        repo.insertar(List.of(new AuditoriaOperacion(null, ORDEN, "MIGRADO", "admin", null,
+                LocalDateTime.of(2031, 6, 10, 12, 0), cambios)));
+
+        String json = jdbc.queryForObject(
+                "SELECT cambios->>'estado_actual' FROM auditoria_operacion WHERE orden_id = ?", String.class, ORDEN);
+        assertEquals("[[\"RECIBIDO\", \"DIAGNOSTICO\"], [\"DIAGNOSTICO\", \"PRESUPUESTADO\"]]", json);
+
+        Cambio leido = repo.pagina(ORDEN, null, 0, 10).get(0).cambios().get("estado_actual");
+        assertEquals("RECIBIDO", leido.anterior());
+        assertEquals("PRESUPUESTADO", leido.nuevo());
+        assertEquals(pasos, leido.pasos());
+        assertEquals(List.of("RECIBIDO"), repo.primerAnterior(ORDEN, "estado_actual"));
+    }
+
+    @Test
+    @DisplayName("pagina(...) recorre por (fecha, id) descendente sin saltear ni repetir")
+    void pagina_keyset() {
+        // dos con la misma fecha (desempata el id)
+        LocalDateTime t = LocalDateTime.of(2031, 6, 10, 12, 0);
+        repo.insertar(List.of(op("E1", t.minusDays(1)), op("E2", t), op("E3", t), op("E4", t.plusDays(1))));
+
+        List<String> nuevos = new ArrayList<>();
+        LocalDateTime antesFecha = null;
+        long antesId = 0;
+        while (true) {
+            var pagina = repo.pagina(ORDEN, antesFecha, antesId, 2);
+            pagina.forEach(a -> nuevos.add(a.cambios().get("estado_actual").nuevo()));
+            if (pagina.size() < 2) break;
+            antesFecha = pagina.get(1).fecha();
+            antesId = pagina.get(1).id();
+        }
+
+        assertEquals(List.of("E4", "E3", "E2", "E1"), nuevos);
+    }
+}
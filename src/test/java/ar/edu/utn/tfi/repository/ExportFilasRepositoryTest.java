@@ -0,0 +1,91 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ExportFilasRepository.class)
+class ExportFilasRepositoryTest extends PostgresTestBase {
+
+    @Autowired
+    ExportFilasRepository repo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("ordenesEntre(...) recorre las filas con las 6 columnas esperadas")
+    void ordenesEntre_ok() {
+        List<Object[]> filas = new ArrayList<>();
+        repo.ordenesEntre(LocalDateTime.now().minusYears(5), LocalDateTime.now().plusDays(1), filas::add);
+
+        for (Object[] f : filas) {
+            assertEquals(6, f.length);
+            assertNotNull(f[0], "nro_orden");
+            assertTrue(f[1] == null || f[1] instanceof LocalDateTime);
+        }
+    }
+
+    @Test
+    @DisplayName("pagosEntre(...) corre sin errores y respeta tipos de columna")
+    void pagosEntre_ok() {
+        List<Object[]> filas = new ArrayList<>();
+        repo.pagosEntre(LocalDateTime.now().minusYears(5), LocalDateTime.now().plusDays(1), filas::add);
+
+        for (Object[] f : filas) {
+            assertEquals(7, f.length);
+            assertInstanceOf(LocalDateTime.class, f[0]);
+            assertTrue("SENA".equals(f[1]) || "FINAL".equals(f[1]));
+            assertTrue("MERCADO_PAGO".equals(f[2]) || "MANUAL".equals(f[2]));
+            assertTrue(f[4] == null || f[4] instanceof BigDecimal);
+        }
+    }
+
+    @Test
+    @DisplayName("facturasPagina(...) pagina por (fecha_emision, id) sin saltear ni repetir facturas")
+    void facturasPagina_keyset() {
+        // dos con la misma fecha (desempata el id) y una fuera del rango; una factura por presupuesto
+        LocalDateTime t = LocalDateTime.of(2031, 6, 10, 12, 0);
+        for (Object[] f : new Object[][]{
+                {"FB-Z1", t}, {"FB-Z2", t}, {"FB-Z3", t.plusDays(1)}, {"FB-Z4", t.plusMonths(1)}}) {
+            Long pid = jdbc.queryForObject("""
+                    INSERT INTO presupuesto (solicitud_id, cliente_nombre, vehiculo_tipo, total, estado)
+                    VALUES (-1, 'Test zip', 'CONVENCIONAL', 1000, 'APROBADO')
+                    RETURNING id
+                    """, Long.class);
+            jdbc.update("""
+                    INSERT INTO factura_mock (presupuesto_id, tipo, numero, fecha_emision, total)
+                    VALUES (?, 'B', ?, ?, 1000)
+                    """, pid, f[0], f[1]);
+        }
+
+        LocalDateTime desde = LocalDateTime.of(2031, 6, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2031, 7, 1, 0, 0);
+        List<String> numeros = new ArrayList<>();
+        LocalDateTime despuesFecha = desde;
+        long despuesId = 0;
+        while (true) {
+            var pagina = repo.facturasPagina(desde, hasta, despuesFecha, despuesId, 2);
+            pagina.forEach(f -> numeros.add(f.numero()));
+            if (pagina.size() < 2) break;
+            despuesFecha = pagina.get(1).fechaEmision();
+            despuesId = pagina.get(1).id();
+        }
+
+        assertEquals(List.of("FB-Z1", "FB-Z2", "FB-Z3"), numeros);
+    }
+}
@@ -0,0 +1,75 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MovimientoPagoRepositoryTest extends PostgresTestBase {
+
+    @Autowired
+    MovimientoPagoRepository repo;
+
+    @Autowired
+    IngresosReportRepository ingresosRepo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private Long nuevoPresupuesto() {
+        return jdbc.queryForObject("""
+                INSERT INTO presupuesto (solicitud_id, cliente_nombre, vehiculo_tipo, total, estado)
+                VALUES (-1, 'Test ledger', 'CONVENCIONAL', 100000, 'APROBADO')
+                RETURNING id
+                """, Long.class);
+    }
+
+    @Test
+    @DisplayName("registrar(...): el mismo tipo para el mismo presupuesto se agrega una sola vez")
+    void registrar_idempotentePorTipo() {
+        Long pid = nuevoPresupuesto();
+        LocalDateTime fecha = LocalDateTime.of(2031, 3, 10, 12, 0);
+
+        assertEquals(1, repo.registrar(pid, "SENA", new BigDecimal("30000.00"), fecha, "MERCADO_PAGO", null, "555"));
+        assertEquals(0, repo.registrar(pid, "SENA", new BigDecimal("30000.00"), fecha, "MERCADO_PAGO", null, "555"));
+        assertEquals(1, repo.registrar(pid, "FINAL", new BigDecimal("70000.00"), fecha.plusDays(30), "MANUAL", "EFECTIVO", "R-1"));
+
+        var movs = repo.findByPresupuestoIdOrderByFechaAsc(pid);
+        assertEquals(2, movs.size());
+        assertEquals("SENA", movs.get(0).getTipo());
+        assertEquals("FINAL", movs.get(1).getTipo());
+        assertNotNull(movs.get(0).getCreadoEn());
+    }
+
+    @Test
+    @DisplayName("listarIngresos(...) agrupa el libro de pagos por mes y tipo")
+    void listarIngresos_desdeLibro() {
+        Long p1 = nuevoPresupuesto();
+        Long p2 = nuevoPresupuesto();
+        repo.registrar(p1, "SENA", new BigDecimal("30000.00"), LocalDateTime.of(2031, 3, 1, 9, 0), "MERCADO_PAGO", null, "1");
+        repo.registrar(p2, "SENA", new BigDecimal("15000.00"), LocalDateTime.of(2031, 3, 31, 23, 0), "MANUAL", "EFECTIVO", "R-2");
+        repo.registrar(p1, "FINAL", new BigDecimal("70000.00"), LocalDateTime.of(2031, 4, 2, 9, 0), "MANUAL", "TRANSFERENCIA", "R-3");
+
+        List<IngresosReportRepository.IngresoMesTipo> res = ingresosRepo.listarIngresos(
+                LocalDateTime.of(2031, 3, 1, 0, 0), LocalDateTime.of(2031, 5, 1, 0, 0));
+
+        assertEquals(2, res.size());
+        assertEquals("2031-03", res.get(0).getMes());
+        assertEquals("SENA", res.get(0).getTipo());
+        assertEquals(0, new BigDecimal("45000.00").compareTo(res.get(0).getTotal()));
+        assertEquals("2031-04", res.get(1).getMes());
+        assertEquals("FINAL", res.get(1).getTipo());
+        assertEquals(0, new BigDecimal("70000.00").compareTo(res.get(1).getTotal()));
+    }
+}
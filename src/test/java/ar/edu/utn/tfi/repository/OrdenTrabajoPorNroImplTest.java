@@ -0,0 +1,117 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrdenTrabajoPorNroImplTest {
+
+    @Mock
+    EntityManager em;
+
+    @Mock
+    TypedQuery<OrdenTrabajo> query;
+
+    private static OrdenTrabajo ot(long id, String nro) {
+        OrdenTrabajo ot = new OrdenTrabajo();
+        ot.setId(id);
+        ot.setNroOrden(nro);
+        return ot;
+    }
+
+    private void porNroDevuelve(OrdenTrabajo... filas) {
+        when(em.createQuery(OrdenTrabajoPorNroImpl.POR_NRO, OrdenTrabajo.class)).thenReturn(query);
+        when(query.setParameter(eq("nro"), anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(filas));
+    }
+
+    @Test
+    @DisplayName("findByNroOrden: la primera vez consulta por nro; después va por id (em.find)")
+    void hit_vaPorId() {
+        var repo = new OrdenTrabajoPorNroImpl(em, 10);
+        OrdenTrabajo ot = ot(7L, "OT-0007");
+        porNroDevuelve(ot);
+        when(em.find(OrdenTrabajo.class, 7L)).thenReturn(ot);
+
+        assertSame(ot, repo.findByNroOrden("OT-0007").orElseThrow());
+        assertSame(ot, repo.findByNroOrden("OT-0007").orElseThrow());
+        assertSame(ot, repo.findByNroOrden("OT-0007").orElseThrow());
+
+        verify(query, times(1)).getResultList();
+        verify(em, times(2)).find(OrdenTrabajo.class, 7L);
+        assertEquals(2L, repo.estadisticasCacheNro().get("hits"));
+        assertEquals(1L, repo.estadisticasCacheNro().get("misses"));
+    }
+
+    @Test
+    @DisplayName("findByNroOrden: la cache está acotada (LRU)")
+    void acotada() {
+        var repo = new OrdenTrabajoPorNroImpl(em, 2);
+        when(em.createQuery(OrdenTrabajoPorNroImpl.POR_NRO, OrdenTrabajo.class)).thenReturn(query);
+        when(query.setParameter(eq("nro"), anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(ot(1L, "OT-1")), List.of(ot(2L, "OT-2")), List.of(ot(3L, "OT-3")));
+
+        repo.findByNroOrden("OT-1");
+        repo.findByNroOrden("OT-2");
+        repo.findByNroOrden("OT-3");
+
+        assertEquals(2, repo.estadisticasCacheNro().get("entradas"));
+    }
+
+    @Test
+    @DisplayName("findByNroOrden: id cacheado que ya no corresponde → se descarta y se vuelve a buscar")
+    void obsoleta_vuelveABuscar() {
+        var repo = new OrdenTrabajoPorNroImpl(em, 10);
+        OrdenTrabajo nueva = ot(9L, "OT-0007");
+        when(em.createQuery(OrdenTrabajoPorNroImpl.POR_NRO, OrdenTrabajo.class)).thenReturn(query);
+        when(query.setParameter(eq("nro"), anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(ot(7L, "OT-0007")), List.of(nueva));
+        when(em.find(OrdenTrabajo.class, 7L)).thenReturn(null);
+
+        repo.findByNroOrden("OT-0007");
+        assertSame(nueva, repo.findByNroOrden("OT-0007").orElseThrow());
+        assertEquals(1L, repo.estadisticasCacheNro().get("obsoletas"));
+    }
+
+    @Test
+    @DisplayName("nro inexistente: no se cachea, la búsqueda siguiente vuelve a la base y ve el alta")
+    void inexistente_noSeCachea() {
+        var repo = new OrdenTrabajoPorNroImpl(em, 10);
+        OrdenTrabajo ot = ot(100L, "OT-0100");
+        when(em.createQuery(OrdenTrabajoPorNroImpl.POR_NRO, OrdenTrabajo.class)).thenReturn(query);
+        when(query.setParameter(eq("nro"), anyString())).thenReturn(query);
+        // el alta la hizo otra instancia entre las dos búsquedas
+        when(query.getResultList()).thenReturn(List.of(), List.of(ot));
+
+        assertTrue(repo.findByNroOrden("OT-0100").isEmpty());
+        assertSame(ot, repo.findByNroOrden("OT-0100").orElseThrow());
+        verify(query, times(2)).getResultList();
+        assertEquals(2L, repo.estadisticasCacheNro().get("misses"));
+    }
+
+    @Test
+    @DisplayName("max-entradas 0: sin cache, siempre consulta por nro")
+    void sinCache() {
+        var repo = new OrdenTrabajoPorNroImpl(em, 0);
+        porNroDevuelve(ot(7L, "OT-0007"));
+
+        repo.findByNroOrden("OT-0007");
+        repo.findByNroOrden("OT-0007");
+
+        verify(query, times(2)).getResultList();
+        verify(em, never()).find(eq(OrdenTrabajo.class), any());
+    }
+}
@@ -0,0 +1,126 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import ar.edu.utn.tfi.service.CrearOrdenService;
+import ar.edu.utn.tfi.service.MailService;
+import ar.edu.utn.tfi.service.NotificationService;
+import ar.edu.utn.tfi.service.OrdenRepuestoService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cuántas veces va a la base cada endpoint para resolver la OT por número, con las estadísticas de
+ * Hibernate: consultas por nro (la JPQL de OrdenTrabajoPorNroImpl) y cargas de OrdenTrabajo.
+ * Con la cache caliente ningún endpoint consulta por nro, y dentro de un request la OT se carga una vez.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@SuppressWarnings("removal")
+class OrdenTrabajoPorNroQueryCountTest extends PostgresTestBase {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    OrdenRepuestoService repuestoService;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    MailService mailService;
+
+    Statistics stats;
+    String nro;
+
+    interface Paso {
+        void correr() throws Exception;
+    }
+
+    record Consultas(long porNro, long cargas) {}
+
+    @BeforeEach
+    void setUp() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        nro = crearOrdenService.crearOT(new CrearOrdenService.CreateOTReq(
+                "Cliente cache", "3515550000", "MOTOR", "Ford", "Falcon", null), "test").nroOrden();
+    }
+
+    private Consultas medir(Paso paso) throws Exception {
+        long porNro = stats.getQueryStatistics(OrdenTrabajoPorNroImpl.POR_NRO).getExecutionCount();
+        long cargas = stats.getEntityStatistics(OrdenTrabajo.class.getName()).getLoadCount();
+        paso.correr();
+        return new Consultas(
+                stats.getQueryStatistics(OrdenTrabajoPorNroImpl.POR_NRO).getExecutionCount() - porNro,
+                stats.getEntityStatistics(OrdenTrabajo.class.getName()).getLoadCount() - cargas);
+    }
+
+    @Test
+    @DisplayName("endpoints por nro: la primera vez una consulta por nro; después sólo la carga por PK, una por request")
+    void endpoints_cacheCaliente() throws Exception {
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/estado", nro)).andExpect(status().isOk())))
+                .isEqualTo(new Consultas(1, 1));
+
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/estado", nro)).andExpect(status().isOk())))
+                .as("GET /public/ordenes/{nro}/estado").isEqualTo(new Consultas(0, 1));
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/historial", nro)).andExpect(status().isOk())))
+                .as("GET /public/ordenes/{nro}/historial").isEqualTo(new Consultas(0, 1));
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/auditoria", nro)).andExpect(status().isOk())))
+                .as("GET /public/ordenes/{nro}/auditoria").isEqualTo(new Consultas(0, 1));
+        assertThat(medir(() -> mvc.perform(get("/admin/ordenes/{nro}/repuestos", nro)
+                .with(httpBasic("admin", "admin"))).andExpect(status().isOk())))
+                .as("GET /admin/ordenes/{nro}/repuestos").isEqualTo(new Consultas(0, 1));
+        // el controller busca por nro y el servicio vuelve a leer por id: misma OT del contexto del request
+        assertThat(medir(() -> mvc.perform(post("/admin/ordenes/{nro}/avanzar", nro)
+                .with(httpBasic("admin", "admin"))).andExpect(status().isOk())))
+                .as("POST /admin/ordenes/{nro}/avanzar").isEqualTo(new Consultas(0, 1));
+    }
+
+    @Test
+    @DisplayName("varias búsquedas del mismo nro en una transacción (como al facturar) cargan la OT una sola vez")
+    void mismoRequest_unaCarga() throws Exception {
+        mvc.perform(get("/public/ordenes/{nro}/estado", nro)).andExpect(status().isOk());
+
+        assertThat(medir(() -> tx.executeWithoutResult(s -> {
+            repuestoService.getEtapaActualPorNroOrden(nro);
+            repuestoService.totalPorNro(nro);
+            repuestoService.listarPorNro(nro);
+        }))).isEqualTo(new Consultas(0, 1));
+    }
+
+    @Test
+    @DisplayName("nro inexistente: la segunda búsqueda seguida no vuelve a consultar")
+    void inexistente_recordado() throws Exception {
+        String nope = nro + "-NO";
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/estado", nope)).andExpect(status().isNotFound())))
+                .isEqualTo(new Consultas(1, 0));
+        assertThat(medir(() -> mvc.perform(get("/public/ordenes/{nro}/estado", nope)).andExpect(status().isNotFound())))
+                .isEqualTo(new Consultas(0, 0));
+    }
+}
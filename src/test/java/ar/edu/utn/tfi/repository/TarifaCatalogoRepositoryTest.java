@@ -0,0 +1,63 @@
+package ar.edu.utn.tfi.repository;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TarifaCatalogoRepository.class)
+class TarifaCatalogoRepositoryTest extends PostgresTestBase {
+
+    @Autowired
+    TarifaCatalogoRepository repo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("cargar(): todas las tarifas de las migraciones con la versión actual")
+    void cargar_conVersion() {
+        long v = repo.version();
+        TarifaCatalogoRepository.Carga c = repo.cargar();
+
+        assertEquals(v, c.version());
+        assertEquals(jdbc.queryForObject("SELECT COUNT(*) FROM servicio_tarifa", Integer.class), c.tarifas().size());
+        assertTrue(c.tarifas().contains(
+                new Tarifa("CONVENCIONAL", "Planeado de tapa", new BigDecimal("25000.00"))));
+    }
+
+    @Test
+    @DisplayName("el trigger sube la versión una vez por sentencia sobre servicio_tarifa")
+    void trigger_subeVersionPorSentencia() {
+        long v = repo.version();
+
+        // un aumento general de precios = una sola versión nueva
+        int filas = jdbc.update("UPDATE servicio_tarifa SET precio = precio * 1.10 WHERE vehiculo_tipo = 'CONVENCIONAL'");
+        assertTrue(filas > 1);
+        assertEquals(v + 1, repo.version());
+
+        jdbc.update("INSERT INTO servicio_tarifa (nombre_servicio, vehiculo_tipo, precio) VALUES ('Soldadura de tapa', 'IMPORTADO', 40000)");
+        jdbc.update("DELETE FROM servicio_tarifa WHERE nombre_servicio = 'Soldadura de tapa'");
+        assertEquals(v + 3, repo.version());
+
+        // una sentencia que no toca filas también cuenta (es por sentencia, no por fila)
+        jdbc.update("UPDATE servicio_tarifa SET precio = 0 WHERE id = -1");
+        assertEquals(v + 4, repo.version());
+
+        TarifaCatalogoRepository.Carga c = repo.cargar();
+        assertEquals(v + 4, c.version());
+        assertTrue(c.tarifas().contains(
+                new Tarifa("CONVENCIONAL", "Planeado de tapa", new BigDecimal("27500.00"))));
+    }
+}
@@ -1,11 +1,13 @@
 // src/test/java/ar/edu/utn/tfi/service/AuditoriaServiceTest.java
 package ar.edu.utn.tfi.service;
 
-import ar.edu.utn.tfi.domain.AuditoriaCambio;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
 import ar.edu.utn.tfi.domain.OrdenTrabajo;
-import ar.edu.utn.tfi.repository.AuditoriaCambioRepository;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
 import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,8 +16,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,81 +32,149 @@ import static org.mockito.Mockito.*;
 class AuditoriaServiceTest {
 
     @Mock
-    AuditoriaCambioRepository repo;
+    AuditoriaOperacionRepository repo;
 
     @Mock
     OrdenTrabajoRepository ordenRepo;
 
+    @Mock
+    AuditoriaWriter writer;
+
     @Captor
-    ArgumentCaptor<AuditoriaCambio> auditoriaCaptor;
+    ArgumentCaptor<AuditoriaOperacion> auditoriaCaptor;
 
     AuditoriaService service;
 
     @BeforeEach
     void setUp() {
-        service = new AuditoriaService(repo, ordenRepo);
+        service = new AuditoriaService(repo, ordenRepo, writer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Correlacion.limpiar();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static AuditoriaOperacion op(long id, LocalDateTime fecha) {
+        return new AuditoriaOperacion(id, 5L, AuditoriaService.AVANCE_ETAPA, "admin", null, fecha,
+                Map.of("estado_actual", new Cambio("INGRESO", "DESPIECE_LAVADO")));
     }
 
     @Test
-    @DisplayName("registrarCambio guarda un registro de auditoría con los datos correctos")
-    void registrarCambio_guardaAuditoria() {
-        Long ordenId = 10L;
-        String campo = "estado_actual";
-        String anterior = "INGRESO";
-        String nuevo = "DIAGNOSTICO";
-        String usuario = "admin";
-
-        // act
-        service.registrarCambio(ordenId, campo, anterior, nuevo, usuario);
-
-        // assert: capturamos el AuditoriaCambio que se guardó
-        verify(repo).saveAndFlush(auditoriaCaptor.capture());
-        AuditoriaCambio a = auditoriaCaptor.getValue();
-
-        assertEquals(ordenId, a.getOrdenId());
-        assertEquals(campo, a.getCampo());
-        assertEquals(anterior, a.getValorAnterior());
-        assertEquals(nuevo, a.getValorNuevo());
-        assertEquals(usuario, a.getUsuario());
+    @DisplayName("registrarCambio fuera de una transacción: encola una operación con un solo campo")
+    void registrarCambio_sinTransaccion() {
+        Correlacion.fijar("req-1");
+
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "estado_actual", "INGRESO", "DIAGNOSTICO", "admin");
+
+        verify(writer).encolar(auditoriaCaptor.capture());
+        AuditoriaOperacion a = auditoriaCaptor.getValue();
+
+        assertEquals(10L, a.ordenId());
+        assertEquals(AuditoriaService.AVANCE_ETAPA, a.operacion());
+        assertEquals("admin", a.usuario());
+        assertEquals("req-1", a.correlacion());
+        assertNotNull(a.fecha());
+        assertEquals(Map.of("estado_actual", new Cambio("INGRESO", "DIAGNOSTICO")), a.cambios());
+        // ya no escribe en una transacción propia
+        verifyNoInteractions(repo);
     }
 
     @Test
-    @DisplayName("listarPorNro devuelve la lista de cambios de la OT")
-    void listarPorNro_ok() {
-        String nro = "OT-0005";
+    @DisplayName("registrarCambio en una transacción: los campos de la misma operación van juntos al commit")
+    void registrarCambio_enTransaccion_unaOperacion() {
+        TransactionSynchronizationManager.initSynchronization();
+        Correlacion.fijar("req-2");
+
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "garantia_desde", null, "2031-01-01", "admin");
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "garantia_hasta", null, "2031-04-01", "admin");
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "estado_actual", "LISTO_RETIRAR", "ENTREGADO", "admin");
+        verifyNoInteractions(writer);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(writer).encolar(auditoriaCaptor.capture());
+        AuditoriaOperacion a = auditoriaCaptor.getValue();
+        assertEquals("req-2", a.correlacion());
+        assertEquals(List.of("garantia_desde", "garantia_hasta", "estado_actual"), new ArrayList<>(a.cambios().keySet()));
+        assertEquals(new Cambio("LISTO_RETIRAR", "ENTREGADO"), a.cambios().get("estado_actual"));
+    }
 
-        OrdenTrabajo ot = new OrdenTrabajo();
-        ot.setId(5L);
-        ot.setNroOrden(nro);
+    @Test
+    @DisplayName("registrarCambio en una transacción: OT u operación distinta → filas distintas")
+    void registrarCambio_enTransaccion_variasOperaciones() {
+        TransactionSynchronizationManager.initSynchronization();
 
-        List<AuditoriaCambio> cambios = List.of(
-                new AuditoriaCambio(),
-                new AuditoriaCambio()
-        );
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "estado_actual", "A", "B", "admin");
+        service.registrarCambio(11L, AuditoriaService.AVANCE_ETAPA, "estado_actual", "A", "B", "admin");
+        service.registrarCambio(10L, AuditoriaService.DEMORA, "demora", null, "DEMORA: X", "admin");
 
-        when(ordenRepo.findByNroOrden(nro)).thenReturn(java.util.Optional.of(ot));
-        when(repo.findByOrdenIdOrderByFechaDesc(5L)).thenReturn(cambios);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
 
-        // act
-        List<AuditoriaCambio> result = service.listarPorNro(nro);
+        verify(writer, times(3)).encolar(auditoriaCaptor.capture());
+        // la misma correlación (generada) para todo lo de la transacción
+        assertEquals(1, auditoriaCaptor.getAllValues().stream().map(AuditoriaOperacion::correlacion).distinct().count());
+    }
 
-        // assert
-        assertEquals(cambios, result);
-        verify(ordenRepo).findByNroOrden(nro);
-        verify(repo).findByOrdenIdOrderByFechaDesc(5L);
+    @Test
+    @DisplayName("registrarCambio con rollback: no se audita")
+    void registrarCambio_rollback_noEncola() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.registrarCambio(10L, AuditoriaService.AVANCE_ETAPA, "estado_actual", "INGRESO", "DESPIECE_LAVADO", "admin");
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    @DisplayName("pagina(): pide uno de más y devuelve el cursor de la última si hay otra página")
+    void pagina_conSiguiente() {
+        OrdenTrabajo ot = new OrdenTrabajo();
+        ot.setId(5L);
+        LocalDateTime t = LocalDateTime.of(2031, 5, 2, 10, 0, 0, 123_000);
+        when(ordenRepo.findByNroOrden("OT-0005")).thenReturn(Optional.of(ot));
+        when(repo.pagina(5L, null, 0, 3)).thenReturn(List.of(op(9, t), op(8, t), op(7, t.minusDays(1))));
+
+        var p = service.pagina("OT-0005", null, 2);
+
+        assertEquals(2, p.items().size());
+        assertNotNull(p.siguiente());
+        AuditoriaService.Clave clave = AuditoriaService.leerCursor(p.siguiente());
+        assertEquals(t, clave.fecha());
+        assertEquals(8L, clave.id());
+
+        // la página siguiente sigue desde esa clave
+        when(repo.pagina(5L, t, 8L, 3)).thenReturn(List.of(op(7, t.minusDays(1))));
+        var p2 = service.pagina("OT-0005", p.siguiente(), 2);
+        assertEquals(1, p2.items().size());
+        assertNull(p2.siguiente());
+    }
+
+    @Test
+    @DisplayName("pagina(): cursor o límite inválido → IllegalArgumentException sin consultar")
+    void pagina_parametrosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> service.pagina("OT-0005", "no-es-un-cursor", null));
+        assertThrows(IllegalArgumentException.class, () -> service.pagina("OT-0005", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.pagina("OT-0005", null, AuditoriaService.LIMITE_MAX + 1));
+        verifyNoInteractions(ordenRepo, repo);
     }
 
     @Test
-    @DisplayName("listarPorNro lanza EntityNotFound si la OT no existe")
-    void listarPorNro_ordenNoEncontrada() {
+    @DisplayName("pagina() lanza EntityNotFound si la OT no existe")
+    void pagina_ordenNoEncontrada() {
         String nro = "OT-9999";
 
-        when(ordenRepo.findByNroOrden(nro)).thenReturn(java.util.Optional.empty());
+        when(ordenRepo.findByNroOrden(nro)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class,
-                () -> service.listarPorNro(nro));
+                () -> service.pagina(nro, null, null));
 
         verify(ordenRepo).findByNroOrden(nro);
         verifyNoInteractions(repo); // nunca debería consultar auditoría si no existe la OT
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latencia de avanzarEtapa contra Postgres real con la auditoría escrita en el hilo del request
+ * (un INSERT + commit por operación) y con el escritor por lotes. El avance a ENTREGADO se reporta
+ * aparte: además de la etapa cambia la garantía.
+ * Al final de cada escenario se vacía la cola y se verifica que estén todas las operaciones.
+ *
+ * No corre en el build normal:
+ *   mvn test -Dbenchmarks=true -Dtest=AuditoriaWriterBenchmarkTest [-Dbench.ordenes=40]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class AuditoriaWriterBenchmarkTest extends PostgresTestBase {
+
+    static final int ORDENES = Integer.getInteger("bench.ordenes", 40);
+    static final int AVANCES = 7;                       // INGRESO → ... → ENTREGADO, una operación cada uno
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    OrderAdvanceService advanceService;
+
+    @Autowired
+    AuditoriaWriter writer;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    MailService mailService;
+
+    @Test
+    @DisplayName("avanzarEtapa: auditoría en el request vs escritor por lotes, sin operaciones perdidas")
+    void latenciaAvance() {
+        try {
+            medir("calentamiento", true, Math.max(1, ORDENES / 4), false);
+            medir("sincronico", false, ORDENES, true);
+            medir("por-lotes", true, ORDENES, true);
+        } finally {
+            writer.setAsync(true);
+        }
+    }
+
+    private void medir(String nombre, boolean async, int cantidad, boolean reportar) {
+        writer.setAsync(async);
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ids.add(crearOrdenService.crearOT(new CrearOrdenService.CreateOTReq(
+                    "Cliente audit " + i, "351" + i, "MOTOR", "Ford", "Falcon", null), "bench").ordenId());
+        }
+
+        long[] todos = new long[cantidad * AVANCES];
+        long[] entregado = new long[cantidad];
+        int n = 0;
+        for (int i = 0; i < cantidad; i++) {
+            for (int paso = 1; paso <= AVANCES; paso++) {
+                long t0 = System.nanoTime();
+                advanceService.avanzarEtapa(ids.get(i), "bench");
+                long t = System.nanoTime() - t0;
+                todos[n++] = t;
+                if (paso == AVANCES) entregado[i] = t;
+            }
+        }
+
+        writer.flush();
+        String enIds = ids.toString().replace('[', '(').replace(']', ')');
+        Integer filas = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM auditoria_operacion WHERE orden_id IN " + enIds, Integer.class);
+        assertThat(filas).as("operaciones auditadas (%s)", nombre).isEqualTo(cantidad * AVANCES);
+
+        if (!reportar) return;
+        Arrays.sort(todos);
+        Arrays.sort(entregado);
+        System.out.printf("[BENCH] AUDITORIA %s ots=%d avances=%d avance p50=%.2fms p95=%.2fms p99=%.2fms "
+                        + "entregado p50=%.2fms p95=%.2fms perdidos=0 %s%n",
+                nombre, cantidad, todos.length, ms(todos, 0.50), ms(todos, 0.95), ms(todos, 0.99),
+                ms(entregado, 0.50), ms(entregado, 0.95), async ? writer.estadisticas() : "");
+    }
+
+    private static double ms(long[] ordenados, double p) {
+        int i = (int) Math.min(ordenados.length - 1, Math.round(p * (ordenados.length - 1)));
+        return ordenados[i] / 1e6;
+    }
+}
@@ -0,0 +1,174 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests de AuditoriaWriter con Mockito: lotes, disparo por tamaño, spool ante fallas y cierre.
+ */
+@ExtendWith(MockitoExtension.class)
+class AuditoriaWriterTest {
+
+    static final long NUNCA = 3_600_000;
+
+    @Mock
+    AuditoriaOperacionRepository repo;
+
+    @Captor
+    ArgumentCaptor<List<AuditoriaOperacion>> loteCaptor;
+
+    @TempDir
+    Path spool;
+
+    AuditoriaWriter writer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) writer.cerrar();
+    }
+
+    private AuditoriaWriter writer(boolean async, int lote) {
+        // intervalo y reintento larguísimos: sólo escribe lo que el test pide
+        writer = new AuditoriaWriter(repo, async, lote, NUNCA, spool.toString(), NUNCA);
+        return writer;
+    }
+
+    private static AuditoriaOperacion cambio(long ordenId, String nuevo) {
+        return new AuditoriaOperacion(null, ordenId, AuditoriaService.AVANCE_ETAPA, "admin", "corr-" + ordenId,
+                LocalDateTime.now(), Map.of("estado_actual", new Cambio(null, nuevo)));
+    }
+
+    private List<Path> archivosSpool() throws Exception {
+        try (Stream<Path> s = Files.list(spool)) {
+            return s.filter(p -> p.toString().endsWith(AuditoriaWriter.SPOOL_EXT)).toList();
+        }
+    }
+
+    @Test
+    @DisplayName("flush(): escribe lo encolado en lotes de a 'lote', en orden de llegada")
+    void flush_escribePorLotes() {
+        var w = writer(true, 2);
+        List<List<AuditoriaOperacion>> escritos = new ArrayList<>();
+        doAnswer(inv -> escritos.add(List.copyOf(inv.getArgument(0)))).when(repo).insertar(anyList());
+
+        // con lote=2 el segundo y el cuarto disparan escrituras en el hilo del escritor
+        for (int i = 1; i <= 5; i++) w.encolar(cambio(i, "E" + i));
+        w.flush();
+
+        assertThat(escritos).flatExtracting(l -> l).extracting(AuditoriaOperacion::ordenId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(escritos).allSatisfy(l -> assertThat(l).hasSizeLessThanOrEqualTo(2));
+        assertThat(w.estadisticas().get("escritos")).isEqualTo(5L);
+        assertThat(w.estadisticas().get("pendientes")).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("encolar(): al juntar 'lote' cambios escribe sin esperar el intervalo")
+    void encolar_loteCompleto_escribeEnseguida() {
+        var w = writer(true, 3);
+
+        w.encolar(cambio(1, "A"));
+        w.encolar(cambio(2, "B"));
+        verify(repo, after(100).never()).insertar(anyList());
+
+        w.encolar(cambio(3, "C"));
+        verify(repo, timeout(2000)).insertar(loteCaptor.capture());
+        assertThat(loteCaptor.getValue()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("falla la base: el lote va al spool y se recupera en el reintento")
+    void falla_spoolYReintento() throws Exception {
+        var w = writer(true, 10);
+        doThrow(new RuntimeException("sin conexión")).doNothing().when(repo).insertar(anyList());
+
+        w.encolar(cambio(1, "A"));
+        w.encolar(cambio(2, "B"));
+        w.flush();
+
+        assertThat(archivosSpool()).hasSize(1);
+        assertThat(w.estadisticas().get("alSpool")).isEqualTo(2L);
+
+        assertThat(w.reintentarSpool()).isEqualTo(2);
+        verify(repo, times(2)).insertar(loteCaptor.capture());
+        assertThat(loteCaptor.getValue()).extracting(AuditoriaOperacion::ordenId, a -> a.cambios().get("estado_actual").nuevo())
+                .containsExactly(tuple(1L, "A"), tuple(2L, "B"));
+        assertThat(archivosSpool()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("nombreSpool(): el orden alfabético de los archivos es el de escritura")
+    void nombreSpool_ordenAlfabetico() {
+        List<String> enOrden = List.of(
+                AuditoriaWriter.nombreSpool(1_700_000_000_000L, 9),
+                AuditoriaWriter.nombreSpool(1_700_000_000_000L, 10),
+                AuditoriaWriter.nombreSpool(1_700_000_000_001L, 2),
+                AuditoriaWriter.nombreSpool(10_000_000_000_000L, 1),
+                AuditoriaWriter.nombreSpool(Long.MAX_VALUE, 1));
+
+        assertThat(enOrden.stream().sorted().toList()).isEqualTo(enOrden);
+        assertThat(enOrden.get(0)).isEqualTo("auditoria-0000001700000000000-0000000000000000009");
+    }
+
+    @Test
+    @DisplayName("reintentarSpool(): si la base sigue caída el archivo queda para la próxima")
+    void reintento_sigueCaida() throws Exception {
+        var w = writer(true, 10);
+        doThrow(new RuntimeException("sin conexión")).when(repo).insertar(anyList());
+
+        w.encolar(cambio(1, "A"));
+        w.flush();
+
+        assertThat(w.reintentarSpool()).isZero();
+        assertThat(archivosSpool()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("cerrar(): vacía la cola; lo que llega después se escribe en el llamador")
+    void cerrar_vaciaCola() throws Exception {
+        var w = writer(true, 100);
+
+        w.encolar(cambio(1, "A"));
+        w.cerrar();
+        verify(repo).insertar(loteCaptor.capture());
+        assertThat(loteCaptor.getValue()).extracting(AuditoriaOperacion::ordenId).containsExactly(1L);
+
+        w.encolar(cambio(2, "B"));
+        verify(repo, times(2)).insertar(anyList());
+        assertThat(w.estadisticas().get("pendientes")).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("auditoria.async=false: cada cambio se escribe en el hilo del llamador")
+    void sincronico_escribeEnElLlamador() {
+        var w = writer(false, 100);
+
+        w.encolar(cambio(1, "A"));
+
+        verify(repo).insertar(loteCaptor.capture());
+        assertThat(loteCaptor.getValue()).hasSize(1);
+        assertThat(w.estadisticas().get("directos")).isEqualTo(1L);
+    }
+}
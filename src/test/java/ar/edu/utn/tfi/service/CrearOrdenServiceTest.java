@@ -16,6 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 
@@ -42,6 +43,12 @@ class CrearOrdenServiceTest {
     @Mock
     NotificationService notificationService;
 
+    @Mock
+    ApplicationEventPublisher events;
+
+    @Mock
+    NumeradorService numerador;
+
     @InjectMocks
     CrearOrdenService service;
 
@@ -67,8 +74,8 @@ class CrearOrdenServiceTest {
         when(unidadRepo.findByNroMotor(req.nroMotor()))
                 .thenReturn(Optional.empty());
 
-        // simulo que la próxima OT es la número 6 -> OT-0006
-        when(ordenRepo.count()).thenReturn(5L);
+        // simulo que la secuencia entrega la número 6 -> OT-0006
+        when(numerador.siguiente(NumeradorService.Serie.OT)).thenReturn("OT-0006");
 
         // stub: al guardar cliente, le pongo un id
         when(clienteRepo.save(any(Cliente.class)))
@@ -128,6 +135,11 @@ class CrearOrdenServiceTest {
 
         // notificación de ingreso enviada
         verify(notificationService).notificarIngresoOrden(any(OrdenTrabajo.class), any(Cliente.class));
+
+        // reportes afectados por la fecha de alta
+        verify(events).publishEvent(argThat((Object ev) -> ev instanceof ReportCache.DatosReporteCambiados d
+                && d.reportes().contains(ReportCache.MOTORES_VS_TAPAS)
+                && d.reportes().contains(ReportCache.MOTORES_POR_ETAPA)));
     }
 
     @Test
@@ -156,7 +168,7 @@ class CrearOrdenServiceTest {
                 .thenReturn(Optional.of(existente));
         when(unidadRepo.findByNroMotor("MOTOR-1"))
                 .thenReturn(Optional.of(unidadExistente));
-        when(ordenRepo.count()).thenReturn(0L);
+        when(numerador.siguiente(NumeradorService.Serie.OT)).thenReturn("OT-0001");
         when(ordenRepo.save(any(OrdenTrabajo.class)))
                 .thenAnswer(inv -> {
                     OrdenTrabajo ot = inv.getArgument(0);
@@ -0,0 +1,154 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
+import ar.edu.utn.tfi.repository.OrdenSnapshotRepository;
+import ar.edu.utn.tfi.service.EstadoHistoricoService.EstadoOrden;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * "Estado al" contra Postgres real sobre una OT con 100.000 operaciones auditadas, generadas con una
+ * regla de la que se sabe el estado esperado en cada punto:
+ * - operación i (1..N) a BASE + i minutos;
+ * - i múltiplo de 10: DEMORA "D{i}" (se borra con el siguiente cambio de etapa);
+ * - el resto: cambio de etapa a ETAPA_{i % 7} (la anterior es la de la última operación de etapa);
+ * - i % 1000 == 1: además, garantia_desde = 2030-01-01 + i/1000 días.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EstadoHistoricoService.class, AuditoriaOperacionRepository.class, OrdenSnapshotRepository.class})
+@TestPropertySource(properties = {"auditoria.snapshot.cada=500", "auditoria.snapshot.margen-ms=0"})
+class EstadoHistoricoHistorialLargoTest extends PostgresTestBase {
+
+    static final int N = 100_000;
+    static final int CADA = 500;
+    static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+    static final LocalDate GARANTIA = LocalDate.of(2030, 1, 1);
+    static final String NRO = "OT-HIST-1";
+
+    @Autowired
+    EstadoHistoricoService service;
+
+    @Autowired
+    AuditoriaOperacionRepository auditoriaRepo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    long ordenId;
+
+    @BeforeEach
+    void historial() {
+        Long cliente = jdbc.queryForObject("INSERT INTO cliente (nombre) VALUES ('Historial') RETURNING id", Long.class);
+        Long unidad = jdbc.queryForObject(
+                "INSERT INTO unidad_trabajo (cliente_id, tipo) VALUES (?, 'MOTOR') RETURNING id", Long.class, cliente);
+        ordenId = jdbc.queryForObject("""
+                INSERT INTO orden_trabajo (nro_orden, unidad_id, estado_actual, creada_en)
+                VALUES (?, ?, ?, ?) RETURNING id
+                """, Long.class, NRO, unidad, etapa(ultimaEtapaHasta(N)), BASE);
+
+        jdbc.update("""
+                INSERT INTO auditoria_operacion (orden_id, operacion, usuario, fecha, cambios)
+                SELECT ?,
+                       CASE WHEN i % 10 = 0 THEN 'DEMORA' ELSE 'AVANCE_ETAPA' END,
+                       'generador',
+                       ? + i * INTERVAL '1 minute',
+                       CASE
+                           WHEN i % 10 = 0 THEN
+                               jsonb_build_object('demora', jsonb_build_array(NULL::text, 'D' || i))
+                           ELSE
+                               jsonb_build_object('estado_actual', jsonb_build_array(
+                                   'ETAPA_' || ((CASE WHEN i > 1 AND (i - 1) % 10 = 0 THEN i - 2 ELSE i - 1 END) % 7),
+                                   'ETAPA_' || (i % 7)))
+                               || CASE WHEN i % 1000 = 1 THEN
+                                      jsonb_build_object('garantia_desde', jsonb_build_array(
+                                          CASE WHEN i > 1000 THEN (DATE '2030-01-01' + (i - 1000) / 1000)::text END,
+                                          (DATE '2030-01-01' + i / 1000)::text))
+                                  ELSE '{}'::jsonb END
+                       END
+                FROM generate_series(1, ?) AS i
+                """, ordenId, BASE, N);
+    }
+
+    // ─── estado esperado después de la operación k ───
+
+    private static int ultimaEtapaHasta(int k) {
+        return k % 10 == 0 ? k - 1 : k;
+    }
+
+    private static String etapa(int i) {
+        return "ETAPA_" + (i % 7);
+    }
+
+    /** Límite (exclusivo) que deja adentro la operación k y afuera la k + 1. */
+    private static LocalDateTime despuesDe(int k) {
+        return BASE.plusMinutes(k).plusSeconds(30);
+    }
+
+    private void assertEstado(EstadoOrden e, int k) {
+        int j = Math.max(ultimaEtapaHasta(k), 0);
+        assertThat(e.estadoActual()).as("etapa en k=%d", k).isEqualTo(etapa(j));
+        assertThat(e.etapaDesde()).isEqualTo(BASE.plusMinutes(j));
+        assertThat(e.demora()).isEqualTo(k > 0 && k % 10 == 0 ? "D" + k : null);
+        assertThat(e.garantiaDesde()).isEqualTo(k >= 1 ? GARANTIA.plusDays((k - 1) / 1000) : null);
+    }
+
+    @Test
+    @DisplayName("estadoAl(): coincide con la regla de generación en distintos puntos de 100k operaciones")
+    void estadoAl_coincide() {
+        for (int k : List.of(0, 1, 9, 10, 11, 999, 1_000, 1_001, 1_002, 12_345, 50_000, 77_770, 99_999, N)) {
+            assertEstado(service.estadoAl(NRO, despuesDe(k)), k);
+        }
+        // el límite es exclusivo: justo en la fecha de una operación vale la anterior
+        assertEstado(service.estadoAl(NRO, BASE.plusMinutes(4_321)), 4_320);
+    }
+
+    @Test
+    @DisplayName("estadoAl(): la primera consulta deja checkpoints y las siguientes reproducen menos de 'cada'")
+    void estadoAl_acotadoPorCheckpoints() {
+        EstadoOrden primera = service.estadoAl(NRO, despuesDe(N));
+        assertThat(primera.snapshot()).isNull();
+        assertThat(primera.eventosReproducidos()).isEqualTo(N);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM orden_snapshot WHERE orden_id = ?", Integer.class, ordenId))
+                .isEqualTo(N / CADA);
+
+        for (int k : List.of(N, 99_999, 73_210, 40_001, 500, 499)) {
+            EstadoOrden e = service.estadoAl(NRO, despuesDe(k));
+            assertEstado(e, k);
+            assertThat(e.eventosReproducidos()).as("reproducidas para k=%d", k).isLessThan(CADA);
+        }
+    }
+
+    @Test
+    @DisplayName("una operación que llega tarde con fecha vieja invalida los checkpoints posteriores")
+    void operacionTardia_invalidaCheckpoints() {
+        service.estadoAl(NRO, despuesDe(N));
+
+        // como la escribiría el AuditoriaWriter al reintentar un lote del spool
+        auditoriaRepo.insertar(List.of(new AuditoriaOperacion(null, ordenId, AuditoriaService.DEMORA, "spool", null,
+                BASE.plusMinutes(N - 10).plusSeconds(1), Map.of("demora", new Cambio(null, "TARDIA")))));
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM orden_snapshot WHERE orden_id = ?", Integer.class, ordenId))
+                .isEqualTo((N - 10) / CADA);
+
+        EstadoOrden e = service.estadoAl(NRO, despuesDe(N - 10));
+        assertThat(e.demora()).isEqualTo("TARDIA");
+        assertThat(e.estadoActual()).isEqualTo(etapa(N - 11));
+    }
+}
@@ -0,0 +1,196 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
+import ar.edu.utn.tfi.domain.AuditoriaOperacion.Cambio;
+import ar.edu.utn.tfi.domain.OrdenSnapshot;
+import ar.edu.utn.tfi.domain.OrdenTrabajo;
+import ar.edu.utn.tfi.repository.AuditoriaOperacionRepository;
+import ar.edu.utn.tfi.repository.OrdenSnapshotRepository;
+import ar.edu.utn.tfi.repository.OrdenTrabajoRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EstadoHistoricoServiceTest {
+
+    static final LocalDateTime ALTA = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    @Mock
+    OrdenTrabajoRepository ordenRepo;
+
+    @Mock
+    AuditoriaOperacionRepository auditoriaRepo;
+
+    @Mock
+    OrdenSnapshotRepository snapshotRepo;
+
+    EstadoHistoricoService service;
+
+    OrdenTrabajo ot;
+
+    @BeforeEach
+    void setUp() {
+        // checkpoint cada 2 operaciones, sin margen
+        service = new EstadoHistoricoService(ordenRepo, auditoriaRepo, snapshotRepo, 2, 0, 100);
+        ot = new OrdenTrabajo();
+        ot.setId(5L);
+        ot.setNroOrden("OT-0005");
+        ot.setEstadoActual("ENTREGADO");
+        ot.setGarantiaDesde(LocalDate.of(2025, 3, 20));
+        ot.setCreadaEn(ALTA);
+    }
+
+    private static AuditoriaOperacion op(long id, LocalDateTime fecha, String campo, String anterior, String nuevo) {
+        return new AuditoriaOperacion(id, 5L, AuditoriaService.AVANCE_ETAPA, "admin", null, fecha,
+                Map.of(campo, new Cambio(anterior, nuevo)));
+    }
+
+    @Test
+    @DisplayName("aplicar(): el cambio de etapa fija etapa_desde y borra la demora de la etapa anterior")
+    void aplicar_etapaReiniciaDemora() {
+        Map<String, String> estado = new HashMap<>(Map.of("estado_actual", "SEMI_ARMADO", "demora", "DEMORA: X"));
+        LocalDateTime t = ALTA.plusDays(3);
+
+        EstadoHistoricoService.aplicar(estado, op(1, t, "estado_actual", "SEMI_ARMADO", "CONTROL_CALIDAD"));
+
+        assertEquals("CONTROL_CALIDAD", estado.get("estado_actual"));
+        assertEquals(t.toString(), estado.get("etapa_desde"));
+        assertFalse(estado.containsKey("demora"));
+    }
+
+    @Test
+    @DisplayName("estadoAl() sin checkpoint: parte del alta (anterior del primer cambio) y guarda checkpoints cada N")
+    void estadoAl_sinCheckpoint() {
+        LocalDateTime al = ALTA.plusDays(10);
+        when(ordenRepo.findByNroOrden("OT-0005")).thenReturn(Optional.of(ot));
+        when(snapshotRepo.ultimo(5L, al)).thenReturn(Optional.empty());
+        when(auditoriaRepo.primerAnterior(5L, "estado_actual")).thenReturn(List.of("INGRESO"));
+        when(auditoriaRepo.primerAnterior(5L, "garantia_desde")).thenReturn(Collections.singletonList(null));
+        when(auditoriaRepo.primerAnterior(5L, "garantia_hasta")).thenReturn(List.of());
+        when(auditoriaRepo.posteriores(5L, null, 0, al, EstadoHistoricoService.LOTE)).thenReturn(List.of(
+                op(1, ALTA.plusDays(1), "estado_actual", "INGRESO", "DESPIECE_LAVADO"),
+                op(2, ALTA.plusDays(2), "estado_actual", "DESPIECE_LAVADO", "DIAGNOSTICO"),
+                op(3, ALTA.plusDays(3), "estado_actual", "DIAGNOSTICO", "MAQUINADO")));
+
+        var e = service.estadoAl("OT-0005", al);
+
+        assertEquals("MAQUINADO", e.estadoActual());
+        assertEquals(ALTA.plusDays(3), e.etapaDesde());
+        assertNull(e.garantiaDesde());                        // antes del primer cambio era null
+        assertNull(e.garantiaHasta());                        // nunca cambió: lo que vale hoy (null)
+        assertNull(e.snapshot());
+        assertEquals(3, e.eventosReproducidos());
+
+        ArgumentCaptor<OrdenSnapshot> guardado = ArgumentCaptor.forClass(OrdenSnapshot.class);
+        verify(snapshotRepo).guardar(guardado.capture());
+        assertEquals(2L, guardado.getValue().hastaId());
+        assertEquals("DIAGNOSTICO", guardado.getValue().estado().get("estado_actual"));
+    }
+
+    @Test
+    @DisplayName("estadoAl() con checkpoint: sólo reproduce lo posterior a la clave del checkpoint")
+    void estadoAl_desdeCheckpoint() {
+        LocalDateTime al = ALTA.plusDays(30);
+        LocalDateTime tSnap = ALTA.plusDays(19);
+        Map<String, String> estado = new LinkedHashMap<>();
+        estado.put("estado_actual", "LISTO_RETIRAR");
+        estado.put("etapa_desde", tSnap.toString());
+        when(ordenRepo.findByNroOrden("OT-0005")).thenReturn(Optional.of(ot));
+        when(snapshotRepo.ultimo(5L, al)).thenReturn(Optional.of(new OrdenSnapshot(5L, tSnap, 40L, estado)));
+        when(auditoriaRepo.posteriores(5L, tSnap, 40L, al, EstadoHistoricoService.LOTE)).thenReturn(List.of(
+                new AuditoriaOperacion(41L, 5L, AuditoriaService.AVANCE_ETAPA, "admin", null, ALTA.plusDays(20),
+                        Map.of("garantia_desde", new Cambio(null, "2025-03-21"),
+                                "garantia_hasta", new Cambio(null, "2025-06-19"),
+                                "estado_actual", new Cambio("LISTO_RETIRAR", "ENTREGADO")))));
+
+        var e = service.estadoAl("OT-0005", al);
+
+        assertEquals("ENTREGADO", e.estadoActual());
+        assertEquals(LocalDate.of(2025, 3, 21), e.garantiaDesde());
+        assertEquals(LocalDate.of(2025, 6, 19), e.garantiaHasta());
+        assertEquals(tSnap, e.snapshot());
+        assertEquals(1, e.eventosReproducidos());
+        verify(auditoriaRepo, never()).primerAnterior(anyLong(), anyString());
+        verify(snapshotRepo, never()).guardar(any());
+    }
+
+    @Test
+    @DisplayName("estadoAl() con operaciones más nuevas que el margen: no guarda checkpoint sobre ellas")
+    void estadoAl_margen() {
+        service = new EstadoHistoricoService(ordenRepo, auditoriaRepo, snapshotRepo, 1, 3_600_000, 100);
+        LocalDateTime ahora = LocalDateTime.now();
+        when(ordenRepo.findByNroOrden("OT-0005")).thenReturn(Optional.of(ot));
+        when(snapshotRepo.ultimo(eq(5L), any())).thenReturn(Optional.empty());
+        when(auditoriaRepo.primerAnterior(eq(5L), anyString())).thenReturn(List.of());
+        List<AuditoriaOperacion> ops = new ArrayList<>();
+        ops.add(op(1, ALTA.plusDays(1), "estado_actual", "INGRESO", "DESPIECE_LAVADO"));
+        ops.add(op(2, ahora.minusMinutes(5), "estado_actual", "DESPIECE_LAVADO", "DIAGNOSTICO"));
+        when(auditoriaRepo.posteriores(eq(5L), isNull(), eq(0L), any(), anyInt())).thenReturn(ops);
+
+        service.estadoAl("OT-0005", ahora);
+
+        ArgumentCaptor<OrdenSnapshot> guardado = ArgumentCaptor.forClass(OrdenSnapshot.class);
+        verify(snapshotRepo).guardar(guardado.capture());
+        assertEquals(1L, guardado.getValue().hastaId());
+    }
+
+    @Test
+    @DisplayName("estadoAl(): OT inexistente o fecha hasta el alta (el límite es exclusivo) → EntityNotFound")
+    void estadoAl_noEncontrada() {
+        when(ordenRepo.findByNroOrden("OT-9999")).thenReturn(Optional.empty());
+        when(ordenRepo.findByNroOrden("OT-0005")).thenReturn(Optional.of(ot));
+
+        assertThrows(EntityNotFoundException.class, () -> service.estadoAl("OT-9999", ALTA));
+        assertThrows(EntityNotFoundException.class, () -> service.estadoAl("OT-0005", ALTA.minusDays(1)));
+        assertThrows(EntityNotFoundException.class, () -> service.estadoAl("OT-0005", ALTA));
+        verifyNoInteractions(auditoriaRepo, snapshotRepo);
+    }
+
+    @Test
+    @DisplayName("instante(): fecha sola = comienzo del día siguiente; fecha y hora tal cual; lo demás → IllegalArgument")
+    void instante() {
+        assertEquals(LocalDateTime.of(2025, 3, 11, 0, 0), EstadoHistoricoService.instante("2025-03-10"));
+        assertEquals(LocalDateTime.of(2026, 1, 1, 0, 0), EstadoHistoricoService.instante("2025-12-31"));
+        assertEquals(LocalDateTime.of(2025, 3, 10, 14, 30), EstadoHistoricoService.instante("2025-03-10T14:30"));
+        assertThrows(IllegalArgumentException.class, () -> EstadoHistoricoService.instante(null));
+        assertThrows(IllegalArgumentException.class, () -> EstadoHistoricoService.instante("10/03/2025"));
+    }
+
+    @Test
+    @DisplayName("checkpoints(): recorre las OTs con operaciones nuevas y avanza la marca")
+    void checkpoints_avanzaMarca() {
+        when(snapshotRepo.maxHastaId()).thenReturn(100L);
+        when(auditoriaRepo.tocadas(eq(100L), any(), eq(100))).thenReturn(Map.of(5L, 130L));
+        when(ordenRepo.findById(5L)).thenReturn(Optional.of(ot));
+        when(snapshotRepo.ultimo(eq(5L), any())).thenReturn(Optional.empty());
+        when(auditoriaRepo.primerAnterior(eq(5L), anyString())).thenReturn(List.of());
+        when(auditoriaRepo.posteriores(eq(5L), isNull(), eq(0L), any(), anyInt())).thenReturn(List.of());
+
+        service.checkpoints();
+
+        assertEquals(130L, service.estadisticas().get("marcaJob"));
+        service.checkpoints();
+        verify(auditoriaRepo).tocadas(eq(130L), any(), eq(100));
+        verify(snapshotRepo, times(1)).maxHastaId();
+    }
+}
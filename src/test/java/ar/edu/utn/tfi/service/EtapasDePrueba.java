@@ -0,0 +1,49 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.EtapaCatalogo;
+import ar.edu.utn.tfi.repository.EtapaCatalogoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Catálogo de etapas de las migraciones (V1, V4 y V41) para los tests unitarios que usan MaquinaEtapas.
+ */
+public final class EtapasDePrueba {
+
+    private EtapasDePrueba() {}
+
+    public static EtapaCatalogo etapa(String codigo, int orden, String acciones) {
+        EtapaCatalogo e = new EtapaCatalogo();
+        e.setCodigo(codigo);
+        e.setOrden(orden);
+        e.setAcciones(acciones);
+        return e;
+    }
+
+    public static List<EtapaCatalogo> catalogo() {
+        return new ArrayList<>(List.of(
+                etapa("INGRESO", 1, ""),
+                etapa("DESPIECE_LAVADO", 2, "REPUESTOS"),
+                etapa("DIAGNOSTICO", 3, "REPUESTOS,IRREPARABLE"),
+                etapa("MAQUINADO", 4, "REPUESTOS"),
+                etapa("SEMI_ARMADO", 5, "REPUESTOS,DEMORA"),
+                etapa("CONTROL_CALIDAD", 6, ""),
+                etapa("LISTO_RETIRAR", 7, "PAGO_FINAL"),
+                etapa("ENTREGADO", 8, "PAGO_FINAL,FACTURAR"),
+                etapa("PIEZA_IRREPARABLE", 99, "")));
+    }
+
+    /**
+     * MaquinaEtapas sobre el catálogo de prueba. El stub es lenient: el catálogo se carga recién al primer
+     * uso, y los tests que no llegan a consultarlo no deben fallar por UnnecessaryStubbing.
+     */
+    public static MaquinaEtapas maquina() {
+        EtapaCatalogoRepository repo = mock(EtapaCatalogoRepository.class);
+        lenient().when(repo.findAll()).thenReturn(catalogo());
+        return new MaquinaEtapas(repo);
+    }
+}
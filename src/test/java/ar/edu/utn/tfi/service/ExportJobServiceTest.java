@@ -0,0 +1,192 @@
+package ar.edu.utn.tfi.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExportJobServiceTest {
+
+    static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    static final LocalDate TO = LocalDate.of(2025, 1, 31);
+
+    @TempDir
+    Path dir;
+
+    ReporteExportService exportService = mock(ReporteExportService.class);
+    NotificationHub hub = mock(NotificationHub.class);
+    ExportJobService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) service.shutdown();
+    }
+
+    private ExportJobService crear(long ttlMinutos, int threads, int cola) {
+        service = new ExportJobService(exportService, hub, dir.toString(), ttlMinutos, threads, cola);
+        return service;
+    }
+
+    private ExportJobService.ExportJobDTO esperarFin(String id) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        var dto = service.estado(id);
+        while (("PENDIENTE".equals(dto.estado()) || "EN_CURSO".equals(dto.estado())) && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            dto = service.estado(id);
+        }
+        return dto;
+    }
+
+    @Test
+    @DisplayName("enviar: genera el archivo en disco y lo deja listo para descargar")
+    void enviar_generaArchivo() throws Exception {
+        crear(60, 2, 10);
+        when(exportService.motoresVsTapasPdf(FROM, TO)).thenReturn("PDF".getBytes());
+
+        var job = service.enviar(new ExportJobService.ExportJobReq("motores-vs-tapas", FROM, TO, "PDF", null));
+        var fin = esperarFin(job.id());
+
+        assertEquals("LISTO", fin.estado());
+        assertEquals("/api/reportes/export/jobs/" + job.id() + "/archivo", fin.archivo());
+        Path archivo = service.archivo(job.id());
+        assertArrayEquals("PDF".getBytes(), Files.readAllBytes(archivo));
+        assertEquals("motores-vs-tapas-2025-01-01_2025-01-31.pdf", service.nombreArchivo(job.id()));
+        // avance publicado por SSE (EN_CURSO y LISTO como mínimo)
+        verify(hub, atLeast(2)).pushAhora(eq("export:" + job.id()), eq("progreso"), any());
+        // terminado: después del último avance se cierran los streams
+        var orden = inOrder(hub);
+        orden.verify(hub, timeout(1000).atLeast(2)).pushAhora(eq("export:" + job.id()), eq("progreso"), any());
+        orden.verify(hub, timeout(1000)).completar("export:" + job.id());
+    }
+
+    @Test
+    @DisplayName("export fila a fila: informa filas procesadas")
+    void enviar_filas_informaAvance() throws Exception {
+        crear(60, 1, 10);
+        when(exportService.ordenesXlsx(eq(FROM), eq(TO), any(OutputStream.class), any(LongConsumer.class)))
+                .thenAnswer(inv -> {
+                    inv.<LongConsumer>getArgument(3).accept(5_000);
+                    inv.<OutputStream>getArgument(2).write("XLSX".getBytes());
+                    return 7_500;
+                });
+
+        var job = service.enviar(new ExportJobService.ExportJobReq("ordenes", TO, FROM, null, null));
+        var fin = esperarFin(job.id());
+
+        assertEquals("LISTO", fin.estado());
+        assertEquals(7_500, fin.filas());
+        // rango normalizado
+        assertEquals(FROM, fin.from());
+        assertEquals("xlsx", fin.format());
+    }
+
+    @Test
+    @DisplayName("mismo export en curso → devuelve el mismo job (dedupe)")
+    void enviar_dedupe() throws Exception {
+        crear(60, 1, 10);
+        var liberar = new CountDownLatch(1);
+        when(exportService.clientesFrecuentesXlsx(FROM, TO, 10)).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return new byte[]{1};
+        });
+
+        var a = service.enviar(new ExportJobService.ExportJobReq("clientes", FROM, TO, "xlsx", null));
+        var b = service.enviar(new ExportJobService.ExportJobReq("clientes", FROM, TO, "xlsx", 10));
+        assertEquals(a.id(), b.id());
+
+        liberar.countDown();
+        assertEquals("LISTO", esperarFin(a.id()).estado());
+        verify(exportService, times(1)).clientesFrecuentesXlsx(FROM, TO, 10);
+
+        // terminado: un nuevo pedido igual arranca otro job
+        var c = service.enviar(new ExportJobService.ExportJobReq("clientes", FROM, TO, "xlsx", 10));
+        assertNotEquals(a.id(), c.id());
+    }
+
+    @Test
+    @DisplayName("cola llena → ServicioSaturadoException (503)")
+    void enviar_colaLlena() throws Exception {
+        crear(60, 1, 1);
+        var liberar = new CountDownLatch(1);
+        when(exportService.motoresPorEtapaXlsx(any(), any())).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return new byte[]{1};
+        });
+
+        service.enviar(new ExportJobService.ExportJobReq("motores-por-etapa", FROM, TO, "xlsx", null));
+        Thread.sleep(50); // el primero ya tomó el único hilo
+        service.enviar(new ExportJobService.ExportJobReq("motores-por-etapa", FROM, TO.plusDays(1), "xlsx", null));
+
+        var ex = assertThrows(ServicioSaturadoException.class, () ->
+                service.enviar(new ExportJobService.ExportJobReq("motores-por-etapa", FROM, TO.plusDays(2), "xlsx", null)));
+        assertTrue(ex.getRetryAfterSegundos() > 0);
+
+        liberar.countDown();
+    }
+
+    @Test
+    @DisplayName("archivo: 409 si no terminó, 404 si no existe; error del export queda en el job")
+    void archivo_estados() throws Exception {
+        crear(60, 1, 10);
+        var liberar = new CountDownLatch(1);
+        when(exportService.ingresosSenasFinalesXlsx(FROM, TO)).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            throw new RuntimeException("se cayó la base");
+        });
+
+        var job = service.enviar(new ExportJobService.ExportJobReq("ingresos-senas-finales", FROM, TO, "xlsx", null));
+        assertThrows(IllegalStateException.class, () -> service.archivo(job.id()));
+        assertThrows(EntityNotFoundException.class, () -> service.archivo("no-existe"));
+
+        liberar.countDown();
+        var fin = esperarFin(job.id());
+        assertEquals("ERROR", fin.estado());
+        assertEquals("se cayó la base", fin.error());
+        verify(hub, timeout(1000)).completar("export:" + job.id());
+        try (var archivos = Files.list(dir)) {
+            assertEquals(0, archivos.count(), "no deja el .part");
+        }
+    }
+
+    @Test
+    @DisplayName("validaciones: reporte desconocido / formato inválido → IllegalArgumentException")
+    void enviar_validaciones() {
+        crear(60, 1, 10);
+        assertThrows(IllegalArgumentException.class, () ->
+                service.enviar(new ExportJobService.ExportJobReq("otro", FROM, TO, "xlsx", null)));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.enviar(new ExportJobService.ExportJobReq("pagos", FROM, TO, "pdf", null)));
+    }
+
+    @Test
+    @DisplayName("limpiarVencidos: borra jobs terminados y sus archivos pasado el TTL")
+    void limpieza() throws Exception {
+        crear(0, 1, 10);
+        when(exportService.motoresVsTapasXlsx(FROM, TO)).thenReturn(new byte[]{1, 2, 3});
+
+        var job = service.enviar(new ExportJobService.ExportJobReq("motores-vs-tapas", FROM, TO, "xlsx", null));
+        assertEquals("LISTO", esperarFin(job.id()).estado());
+        Path archivo = service.archivo(job.id());
+        Files.writeString(dir.resolve("huerfano.xlsx"), "x");
+        Thread.sleep(20);
+
+        service.limpiarVencidos();
+
+        assertFalse(Files.exists(archivo));
+        assertFalse(Files.exists(dir.resolve("huerfano.xlsx")));
+        assertThrows(EntityNotFoundException.class, () -> service.estado(job.id()));
+    }
+}
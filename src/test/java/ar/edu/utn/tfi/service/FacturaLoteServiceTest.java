@@ -0,0 +1,179 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.FacturaMock;
+import ar.edu.utn.tfi.domain.Presupuesto;
+import ar.edu.utn.tfi.repository.EtapaCatalogoRepository;
+import ar.edu.utn.tfi.repository.FacturaMockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests de FacturaLoteService (emisión masiva) con Mockito: bloques, reintento individual y PDFs.
+ */
+@ExtendWith(MockitoExtension.class)
+class FacturaLoteServiceTest {
+
+    @Mock
+    FacturaMockService facturaService;
+
+    @Mock
+    FacturaMockRepository facturaRepo;
+
+    FacturaLoteService service;
+
+    @BeforeEach
+    void setUp() {
+        // bloques de 2 presupuestos, 2 hilos de render
+        service = new FacturaLoteService(facturaService, facturaRepo, EtapasDePrueba.maquina(),
+                new RenderBulkhead(2, 2, 1000, 5), 2, 100, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.shutdown();
+    }
+
+    private static FacturaMock factura(long presupuestoId, long facturaId) {
+        Presupuesto p = new Presupuesto();
+        p.setId(presupuestoId);
+        FacturaMock f = new FacturaMock();
+        f.setId(facturaId);
+        f.setNumero("FB-%06d".formatted(facturaId));
+        f.setPresupuesto(p);
+        return f;
+    }
+
+    private static FacturaPdfStore.PdfGuardado pdf(long facturaId) {
+        return new FacturaPdfStore.PdfGuardado(Path.of(facturaId + ".pdf"), "h" + facturaId);
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): emite por bloques y renderiza el PDF de cada factura")
+    void emitePorBloques() {
+        when(facturaRepo.findPresupuestosAFacturar(List.of("ENTREGADO"), 100)).thenReturn(List.of(10L, 11L, 12L));
+        when(facturaService.emitirBloque(List.of(10L, 11L), "B")).thenReturn(List.of(factura(10, 1), factura(11, 2)));
+        when(facturaService.emitirBloque(List.of(12L), "B")).thenReturn(List.of(factura(12, 3)));
+        when(facturaService.pdf(anyLong())).thenAnswer(inv -> pdf(inv.getArgument(0)));
+
+        var res = service.emitirPendientes(null);
+
+        assertThat(res.candidatos()).isEqualTo(3);
+        assertThat(res.emitidas()).isEqualTo(3);
+        assertThat(res.errores()).isZero();
+        assertThat(res.items()).extracting(FacturaLoteService.ItemLote::presupuestoId).containsExactly(10L, 11L, 12L);
+        assertThat(res.items()).extracting(FacturaLoteService.ItemLote::numero)
+                .containsExactly("FB-000001", "FB-000002", "FB-000003");
+
+        verify(facturaService).pdf(1L);
+        verify(facturaService).pdf(2L);
+        verify(facturaService).pdf(3L);
+        verify(facturaService, never()).emitirSinPdf(anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): si falla un bloque, sus presupuestos se reintentan de a uno")
+    void bloqueFallido_reintentaIndividual() {
+        when(facturaRepo.findPresupuestosAFacturar(List.of("ENTREGADO"), 100)).thenReturn(List.of(10L, 11L));
+        when(facturaService.emitirBloque(List.of(10L, 11L), "A"))
+                .thenThrow(new IllegalStateException("Ya existe una factura para este presupuesto."));
+        when(facturaService.emitirSinPdf(10L, "A")).thenReturn(factura(10, 1));
+        when(facturaService.emitirSinPdf(11L, "A"))
+                .thenThrow(new IllegalStateException("Ya existe una factura para este presupuesto."));
+        when(facturaService.pdf(1L)).thenReturn(pdf(1));
+
+        var res = service.emitirPendientes("a");
+
+        assertThat(res.emitidas()).isEqualTo(1);
+        assertThat(res.errores()).isEqualTo(1);
+        assertThat(res.items().get(0).estado()).isEqualTo(FacturaLoteService.EMITIDA);
+        assertThat(res.items().get(1).estado()).isEqualTo(FacturaLoteService.ERROR);
+        assertThat(res.items().get(1).mensaje()).contains("Ya existe");
+        verify(facturaService, never()).pdf(isNull());
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): si falla el PDF la factura queda emitida (se renderiza al descargar)")
+    void pdfFallido_quedaEmitida() {
+        when(facturaRepo.findPresupuestosAFacturar(List.of("ENTREGADO"), 100)).thenReturn(List.of(10L));
+        when(facturaService.emitirBloque(List.of(10L), "B")).thenReturn(List.of(factura(10, 1)));
+        when(facturaService.pdf(1L)).thenThrow(new RuntimeException("disco lleno"));
+
+        var res = service.emitirPendientes("B");
+
+        assertThat(res.emitidas()).isZero();
+        assertThat(res.sinPdf()).isEqualTo(1);
+        assertThat(res.items().get(0).estado()).isEqualTo(FacturaLoteService.EMITIDA_SIN_PDF);
+        assertThat(res.items().get(0).facturaId()).isEqualTo(1L);
+        assertThat(res.items().get(0).mensaje()).isEqualTo("disco lleno");
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): tipo inválido → IllegalArgumentException sin consultar nada")
+    void tipoInvalido() {
+        assertThatThrownBy(() -> service.emitirPendientes("Z"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(facturaRepo, facturaService);
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): busca en las etapas que permiten FACTURAR según el catálogo")
+    void etapasDelCatalogo() throws Exception {
+        var catalogo = EtapasDePrueba.catalogo();
+        catalogo.set(6, EtapasDePrueba.etapa("LISTO_RETIRAR", 7, "PAGO_FINAL,FACTURAR"));
+        EtapaCatalogoRepository etapaRepo = mock(EtapaCatalogoRepository.class);
+        when(etapaRepo.findAll()).thenReturn(catalogo);
+        service.shutdown();
+        service = new FacturaLoteService(facturaService, facturaRepo, new MaquinaEtapas(etapaRepo),
+                new RenderBulkhead(2, 2, 1000, 5), 2, 100, 2);
+
+        when(facturaRepo.findPresupuestosAFacturar(List.of("LISTO_RETIRAR", "ENTREGADO"), 100)).thenReturn(List.of());
+
+        assertThat(service.emitirPendientes("B").candidatos()).isZero();
+        verify(facturaRepo).findPresupuestosAFacturar(List.of("LISTO_RETIRAR", "ENTREGADO"), 100);
+    }
+
+    @Test
+    @DisplayName("emitirPendientes(): una sola corrida a la vez")
+    void unaCorridaALaVez() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        when(facturaRepo.findPresupuestosAFacturar(List.of("ENTREGADO"), 100)).thenAnswer(inv -> {
+            dentro.countDown();
+            soltar.await();
+            return List.of();
+        });
+
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        try {
+            Future<FacturaLoteService.ResultadoLote> primera = ex.submit(() -> service.emitirPendientes("B"));
+            dentro.await();
+
+            assertThatThrownBy(() -> service.emitirPendientes("B"))
+                    .isInstanceOf(IllegalStateException.class);
+
+            soltar.countDown();
+            assertThat(primera.get().candidatos()).isZero();
+            // terminada la primera, se puede volver a correr
+            assertThat(service.emitirPendientes("B").candidatos()).isZero();
+        } finally {
+            soltar.countDown();
+            ex.shutdownNow();
+        }
+    }
+}
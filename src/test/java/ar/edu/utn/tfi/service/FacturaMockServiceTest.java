@@ -6,6 +6,8 @@ import ar.edu.utn.tfi.domain.PresupuestoItem;
 import ar.edu.utn.tfi.repository.FacturaMockRepository;
 import ar.edu.utn.tfi.repository.PresupuestoItemRepository;
 import ar.edu.utn.tfi.repository.PresupuestoRepository;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,9 +15,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,6 +49,20 @@ class FacturaMockServiceTest {
     @Mock
     OrdenRepuestoService ordenRepuestoService;
 
+    @Mock
+    NumeradorService numerador;
+
+    @Mock
+    FacturaPdfStore pdfStore;
+
+    // real: el PDF se arma de verdad con las fuentes y el logo compartidos
+    @Spy
+    PdfKit pdfKit = new PdfKit();
+
+    // real: catálogo de etapas de las migraciones
+    @Spy
+    MaquinaEtapas etapas = EtapasDePrueba.maquina();
+
     @InjectMocks
     FacturaMockService service;
 
@@ -77,8 +95,8 @@ class FacturaMockServiceTest {
         when(facturaRepo.findByPresupuestoId(presupuestoId))
                 .thenReturn(Optional.empty());
 
-        // Cantidad actual de facturas (para armar número correlativo)
-        when(facturaRepo.count()).thenReturn(0L); // → FB-000001
+        // Próximo número de la serie B
+        when(numerador.siguiente(NumeradorService.Serie.FB)).thenReturn("FB-000001");
 
         // Total de repuestos
         when(ordenRepuestoService.totalPorNro("OT-0001"))
@@ -89,6 +107,10 @@ class FacturaMockServiceTest {
         when(facturaRepo.save(any(FacturaMock.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0, FacturaMock.class));
 
+        // El PDF se guarda en el almacén al emitir
+        when(pdfStore.guardar(any(), eq(FacturaMockService.PLANTILLA_PDF), any(byte[].class)))
+                .thenReturn(new FacturaPdfStore.PdfGuardado(Path.of("f.pdf"), "abc123"));
+
         // ---------- Act ----------
         FacturaMock f = service.generar(presupuestoId, "b"); // minúscula para probar normalización
 
@@ -118,6 +140,32 @@ class FacturaMockServiceTest {
 
         // Se envió el mail de factura emitida
         verify(mailService).enviarFacturaEmitida(f);
+
+        // PDF renderizado una vez y referenciado por hash + versión de plantilla
+        assertThat(f.getPdfHash()).isEqualTo("abc123");
+        assertThat(f.getPdfPlantilla()).isEqualTo(FacturaMockService.PLANTILLA_PDF);
+    }
+
+    @Test
+    @DisplayName("emitirBloque(): emite todas las del bloque, encola los mails y no renderiza PDFs")
+    void emitirBloque_sinPdf() {
+        for (long id : new long[]{20L, 21L}) {
+            Presupuesto p = new Presupuesto();
+            p.setId(id);
+            p.setFinalEstado("ACREDITADA");
+            p.setTotal(new BigDecimal("1000.00"));
+            when(presupuestoRepo.findById(id)).thenReturn(Optional.of(p));
+            when(facturaRepo.findByPresupuestoId(id)).thenReturn(Optional.empty());
+        }
+        when(numerador.siguiente(NumeradorService.Serie.FA)).thenReturn("FA-000001", "FA-000002");
+        when(facturaRepo.save(any(FacturaMock.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0, FacturaMock.class));
+
+        List<FacturaMock> emitidas = service.emitirBloque(List.of(20L, 21L), "A");
+
+        assertThat(emitidas).extracting(FacturaMock::getNumero).containsExactly("FA-000001", "FA-000002");
+        verify(mailService, times(2)).enviarFacturaEmitida(any(FacturaMock.class));
+        verifyNoInteractions(pdfStore);
     }
 
     // ─────────────────────────────────────────────
@@ -213,16 +261,17 @@ class FacturaMockServiceTest {
 
         assertThat(result).isSameAs(existente);
 
-        // No debería haber conteo ni generar nueva
+        // No debería pedir número ni generar nueva
         verify(facturaRepo, never()).count();
+        verifyNoInteractions(numerador);
     }
 
     // ─────────────────────────────────────────────
-    // 4) renderPdfByPresupuesto(): PDF no vacío
+    // 4) pdfByPresupuesto(): renderiza y guarda si no estaba en el almacén
     // ─────────────────────────────────────────────
     @Test
-    @DisplayName("renderPdfByPresupuesto(): genera un PDF no vacío para la factura existente")
-    void renderPdfByPresupuesto_devuelveBytes() {
+    @DisplayName("pdfByPresupuesto(): sin PDF guardado renderiza uno no vacío y lo guarda")
+    void pdfByPresupuesto_renderizaYGuarda() {
         // ---------- Arrange ----------
         Long presupuestoId = 10L;
 
@@ -253,14 +302,222 @@ class FacturaMockServiceTest {
         when(itemRepo.findByPresupuestoId(presupuestoId))
                 .thenReturn(List.of(it));
 
+        var guardado = new FacturaPdfStore.PdfGuardado(Path.of("1-v1-abc.pdf"), "abc");
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        when(pdfStore.guardar(eq(1L), eq(FacturaMockService.PLANTILLA_PDF), bytes.capture()))
+                .thenReturn(guardado);
+
         // ---------- Act ----------
-        byte[] pdf = service.renderPdfByPresupuesto(presupuestoId, "B");
+        var pdf = service.pdfByPresupuesto(presupuestoId, "B");
 
         // ---------- Assert ----------
-        assertThat(pdf).isNotNull();
-        assertThat(pdf.length).isGreaterThan(0);
+        assertThat(pdf).isSameAs(guardado);
+        assertThat(bytes.getValue()).isNotEmpty();
+        assertThat(new String(bytes.getValue(), 0, 5)).isEqualTo("%PDF-");
+        assertThat(f.getPdfHash()).isEqualTo("abc");
+        assertThat(f.getPdfPlantilla()).isEqualTo(FacturaMockService.PLANTILLA_PDF);
+    }
+
+    @Test
+    @DisplayName("pdf(): si ya está guardado con la plantilla actual no vuelve a renderizar")
+    void pdf_guardado_noRenderiza() {
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setPdfHash("abc");
+        f.setPdfPlantilla(FacturaMockService.PLANTILLA_PDF);
+        var guardado = new FacturaPdfStore.PdfGuardado(Path.of("1-v1-abc.pdf"), "abc");
+
+        when(facturaRepo.findById(1L)).thenReturn(Optional.of(f));
+        when(pdfStore.buscar(1L, FacturaMockService.PLANTILLA_PDF, "abc")).thenReturn(Optional.of(guardado));
+
+        assertThat(service.pdf(1L)).isSameAs(guardado);
+
+        verifyNoInteractions(itemRepo);
+        verify(pdfStore, never()).guardar(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("pdf(): con una plantilla vieja vuelve a renderizar")
+    void pdf_plantillaVieja_reRenderiza() {
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        p.setTotal(new BigDecimal("1000.00"));
+
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setTipo("B");
+        f.setNumero("FB-000001");
+        f.setTotal(new BigDecimal("1000.00"));
+        f.setPresupuesto(p);
+        f.setPdfHash("viejo");
+        f.setPdfPlantilla(FacturaMockService.PLANTILLA_PDF - 1);
+
+        when(facturaRepo.findById(1L)).thenReturn(Optional.of(f));
+        when(itemRepo.findByPresupuestoId(10L)).thenReturn(List.of());
+        when(pdfStore.guardar(eq(1L), eq(FacturaMockService.PLANTILLA_PDF), any(byte[].class)))
+                .thenReturn(new FacturaPdfStore.PdfGuardado(Path.of("1-v1-nuevo.pdf"), "nuevo"));
+
+        service.pdf(1L);
+
+        assertThat(f.getPdfHash()).isEqualTo("nuevo");
+        verify(pdfStore, never()).buscar(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("pdf(): re-renderizar la misma factura da los mismos bytes (fechas e /ID fijos)")
+    void pdf_renderDeterministico() throws Exception {
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        p.setTotal(new BigDecimal("1000.00"));
+
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setTipo("B");
+        f.setNumero("FB-000001");
+        f.setTotal(new BigDecimal("1000.00"));
+        f.setFechaEmision(java.time.LocalDateTime.of(2025, 3, 4, 10, 20, 30));
+        f.setPresupuesto(p);
+
+        when(facturaRepo.findById(1L)).thenReturn(Optional.of(f));
+        when(itemRepo.findByPresupuestoId(10L)).thenReturn(List.of());
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        when(pdfStore.guardar(eq(1L), eq(FacturaMockService.PLANTILLA_PDF), bytes.capture()))
+                .thenReturn(new FacturaPdfStore.PdfGuardado(Path.of("1-v1-x.pdf"), "x"));
+
+        service.pdf(1L);
+        Thread.sleep(1100);   // la fecha por defecto de OpenPDF tiene resolución de segundos
+        service.pdf(1L);
+
+        assertThat(bytes.getAllValues()).hasSize(2);
+        assertThat(bytes.getAllValues().get(1)).isEqualTo(bytes.getAllValues().get(0));
+        assertThat(new String(bytes.getValue(), java.nio.charset.StandardCharsets.ISO_8859_1))
+                .contains("/CreationDate(D:20250304102030)");
+    }
 
-        // (Opcional) Podríamos hacer asserts más finos sobre contenido,
-        // pero con que no explote y genere algo, ya cubrimos el flujo feliz del PDF.
+    // ─────────────────────────────────────────────
+    // Descarga pública (solo lectura)
+    // ─────────────────────────────────────────────
+
+    private Presupuesto presupuestoAprobado(Long solicitudId) {
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        p.setTotal(new BigDecimal("1000.00"));
+        when(presupuestoRepo.findFirstBySolicitudIdAndEstadoOrderByCreadaEnDesc(solicitudId, "APROBADO"))
+                .thenReturn(Optional.of(p));
+        return p;
+    }
+
+    @Test
+    @DisplayName("pdfBySolicitud(): sin factura emitida → vacío, sin crearla ni mandar mail")
+    void pdfBySolicitud_sinFactura_noEmite() {
+        presupuestoAprobado(5L);
+        when(facturaRepo.findByPresupuestoId(10L)).thenReturn(Optional.empty());
+
+        assertThat(service.pdfBySolicitud(5L)).isEmpty();
+
+        verify(facturaRepo, never()).save(any());
+        verifyNoInteractions(mailService, numerador, pdfStore);
+    }
+
+    @Test
+    @DisplayName("pdfBySolicitud(): sin PDF guardado lo renderiza y guarda el archivo, sin tocar la factura")
+    void pdfBySolicitud_renderizaSinEscribirFactura() {
+        Presupuesto p = presupuestoAprobado(5L);
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setTipo("B");
+        f.setNumero("FB-000001");
+        f.setTotal(new BigDecimal("1000.00"));
+        f.setPresupuesto(p);
+
+        when(facturaRepo.findByPresupuestoId(10L)).thenReturn(Optional.of(f));
+        when(itemRepo.findByPresupuestoId(10L)).thenReturn(List.of());
+        var guardado = new FacturaPdfStore.PdfGuardado(Path.of("1-v2-abc.pdf"), "abc");
+        when(pdfStore.guardar(eq(1L), eq(FacturaMockService.PLANTILLA_PDF), any(byte[].class))).thenReturn(guardado);
+
+        assertThat(service.pdfBySolicitud(5L)).contains(guardado);
+
+        assertThat(f.getPdfHash()).isNull();
+        assertThat(f.getPdfPlantilla()).isNull();
+        verify(facturaRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("pdfBySolicitud(): si el archivo vigente ya está en el almacén no renderiza")
+    void pdfBySolicitud_archivoVigente_noRenderiza() {
+        Presupuesto p = presupuestoAprobado(5L);
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setPresupuesto(p);
+
+        when(facturaRepo.findByPresupuestoId(10L)).thenReturn(Optional.of(f));
+        var vigente = new FacturaPdfStore.PdfGuardado(Path.of("1-v2-abc.pdf"), "abc");
+        when(pdfStore.buscarVigente(1L, FacturaMockService.PLANTILLA_PDF)).thenReturn(Optional.of(vigente));
+
+        assertThat(service.pdfBySolicitud(5L)).contains(vigente);
+
+        verify(pdfStore, never()).guardar(any(), anyInt(), any());
+        verifyNoInteractions(itemRepo);
+    }
+
+    // ─────────────────────────────────────────────
+    // Copias fiscales
+    // ─────────────────────────────────────────────
+
+    private FacturaMock facturaParaCopias() {
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        p.setTotal(new BigDecimal("1000.00"));
+        FacturaMock f = new FacturaMock();
+        f.setId(1L);
+        f.setTipo("B");
+        f.setNumero("FB-000001");
+        f.setTotal(new BigDecimal("1000.00"));
+        f.setPresupuesto(p);
+        when(facturaRepo.findById(1L)).thenReturn(Optional.of(f));
+        when(itemRepo.findByPresupuestoId(10L)).thenReturn(List.of());
+        return f;
+    }
+
+    @Test
+    @DisplayName("copias(): un render y un PDF con una página por copia, cada una con su leyenda")
+    void copias_unRenderTresPaginas() throws Exception {
+        facturaParaCopias();
+
+        byte[] pdf = service.copias(1L, null);
+
+        var reader = new PdfReader(pdf);
+        var texto = new PdfTextExtractor(reader);
+        assertThat(reader.getNumberOfPages()).isEqualTo(3);
+        assertThat(texto.getTextFromPage(1)).contains("ORIGINAL").doesNotContain("DUPLICADO");
+        assertThat(texto.getTextFromPage(2)).contains("DUPLICADO").contains("FB-000001");
+        assertThat(texto.getTextFromPage(3)).contains("TRIPLICADO");
+
+        // el cuerpo se armó una sola vez
+        verify(pdfKit, times(1)).cabeceraEmpresa();
+        verifyNoInteractions(pdfStore);
+    }
+
+    @Test
+    @DisplayName("copiasSeparadas(): un PDF por copia pedida, en el orden pedido y sin repetir")
+    void copiasSeparadas_unPdfPorCopia() throws Exception {
+        facturaParaCopias();
+
+        var pdfs = service.copiasSeparadas(1L, List.of("triplicado", "ORIGINAL", "TRIPLICADO"));
+
+        assertThat(pdfs).containsOnlyKeys("TRIPLICADO", "ORIGINAL");
+        assertThat(pdfs.keySet()).containsExactly("TRIPLICADO", "ORIGINAL");
+        var reader = new PdfReader(pdfs.get("TRIPLICADO"));
+        assertThat(reader.getNumberOfPages()).isEqualTo(1);
+        assertThat(new PdfTextExtractor(reader).getTextFromPage(1)).contains("TRIPLICADO");
+        verify(pdfKit, times(1)).cabeceraEmpresa();
+    }
+
+    @Test
+    @DisplayName("copias(): leyenda inválida → IllegalArgumentException sin renderizar")
+    void copias_leyendaInvalida() {
+        assertThatThrownBy(() -> service.copias(1L, List.of("CUADRUPLICADO")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(facturaRepo, itemRepo);
     }
-}
\ No newline at end of file
+}
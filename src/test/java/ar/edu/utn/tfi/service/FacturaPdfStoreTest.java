@@ -0,0 +1,112 @@
+package ar.edu.utn.tfi.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacturaPdfStoreTest {
+
+    static final Duration GRACIA = Duration.ofMinutes(10);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("guardar: el archivo queda direccionado por id, plantilla y hash del contenido")
+    void guardar_yBuscar() throws Exception {
+        var store = new FacturaPdfStore(dir.toString(), GRACIA);
+        byte[] pdf = "%PDF-1.4 demo".getBytes(StandardCharsets.US_ASCII);
+
+        var g = store.guardar(1234L, 1, pdf);
+
+        assertThat(g.hash()).isEqualTo(FacturaPdfStore.sha256(pdf)).hasSize(64);
+        assertThat(g.archivo()).isEqualTo(dir.resolve("1").resolve("1234-v1-" + g.hash() + ".pdf"));
+        assertThat(Files.readAllBytes(g.archivo())).isEqualTo(pdf);
+        assertThat(store.buscar(1234L, 1, g.hash())).contains(g);
+        assertThat(store.buscar(1234L, 2, g.hash())).isEmpty();
+        assertThat(store.buscar(1234L, 1, null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("guardar: mismo contenido no reescribe; nueva plantilla no borra la anterior en el momento")
+    void guardar_idempotente_yConservaAnteriores() throws Exception {
+        var store = new FacturaPdfStore(dir.toString(), GRACIA);
+        byte[] v1 = "%PDF v1".getBytes(StandardCharsets.US_ASCII);
+        byte[] v2 = "%PDF v2".getBytes(StandardCharsets.US_ASCII);
+
+        var g1 = store.guardar(7L, 1, v1);
+        var mod = Files.getLastModifiedTime(g1.archivo());
+        assertThat(store.guardar(7L, 1, v1)).isEqualTo(g1);
+        assertThat(Files.getLastModifiedTime(g1.archivo())).isEqualTo(mod);
+
+        var g2 = store.guardar(7L, 2, v2);
+        assertThat(Files.exists(g2.archivo())).isTrue();
+        // puede haber una descarga en curso de la versión anterior
+        assertThat(Files.exists(g1.archivo())).isTrue();
+        try (var archivos = Files.list(g2.archivo().getParent())) {
+            assertThat(archivos.noneMatch(p -> p.toString().endsWith(".part"))).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("limpiarVersiones: borra las reemplazadas recién cuando la nueva pasó la gracia")
+    void limpiarVersiones_respetaGracia() throws Exception {
+        var store = new FacturaPdfStore(dir.toString(), GRACIA);
+        var g1 = store.guardar(7L, 1, "%PDF v1".getBytes(StandardCharsets.US_ASCII));
+        var otra = store.guardar(70L, 1, "%PDF v1".getBytes(StandardCharsets.US_ASCII));
+        var sola = store.guardar(8L, 1, "%PDF sola".getBytes(StandardCharsets.US_ASCII));
+        envejecer(g1.archivo(), Duration.ofHours(2));
+        envejecer(otra.archivo(), Duration.ofHours(2));
+        envejecer(sola.archivo(), Duration.ofHours(2));
+        var g2 = store.guardar(7L, 2, "%PDF v2".getBytes(StandardCharsets.US_ASCII));
+
+        // la nueva se escribió recién: la anterior sigue
+        assertThat(store.limpiarVersiones()).isZero();
+        assertThat(Files.exists(g1.archivo())).isTrue();
+
+        envejecer(g2.archivo(), GRACIA.plusMinutes(1));
+        assertThat(store.limpiarVersiones()).isEqualTo(1);
+        assertThat(Files.exists(g1.archivo())).isFalse();
+        assertThat(Files.exists(g2.archivo())).isTrue();
+        // otra factura en la misma carpeta y la única versión de otra no se tocan
+        assertThat(Files.exists(otra.archivo())).isTrue();
+        assertThat(Files.exists(sola.archivo())).isTrue();
+    }
+
+    private static void envejecer(Path archivo, Duration edad) throws Exception {
+        Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().minus(edad)));
+    }
+
+    @Test
+    @DisplayName("buscarVigente: encuentra el archivo de la plantilla sin conocer el hash")
+    void buscarVigente() {
+        var store = new FacturaPdfStore(dir.toString(), GRACIA);
+        assertThat(store.buscarVigente(7L, 1)).isEmpty();
+
+        var g = store.guardar(7L, 1, "%PDF v1".getBytes(StandardCharsets.US_ASCII));
+        store.guardar(77L, 1, "%PDF otra".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(store.buscarVigente(7L, 1)).contains(g);
+        assertThat(store.buscarVigente(7L, 2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("buscarVigente: con dos archivos de la misma plantilla (uno en gracia) devuelve el más nuevo")
+    void buscarVigente_elMasNuevo() throws Exception {
+        var store = new FacturaPdfStore(dir.toString(), GRACIA);
+        var viejo = store.guardar(7L, 1, "%PDF render viejo".getBytes(StandardCharsets.US_ASCII));
+        envejecer(viejo.archivo(), Duration.ofHours(1));
+        var nuevo = store.guardar(7L, 1, "%PDF render nuevo".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(store.buscarVigente(7L, 1)).contains(nuevo);
+    }
+}
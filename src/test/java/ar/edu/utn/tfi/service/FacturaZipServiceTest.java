@@ -0,0 +1,141 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.repository.ExportFilasRepository;
+import ar.edu.utn.tfi.repository.ExportFilasRepository.FacturaArchivo;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests de FacturaZipService con Mockito: paginado keyset, PDFs del almacén / renderizados y errores.
+ */
+@ExtendWith(MockitoExtension.class)
+class FacturaZipServiceTest {
+
+    @Mock
+    ExportFilasRepository filasRepo;
+
+    @Mock
+    FacturaMockService facturaService;
+
+    @Mock
+    FacturaPdfStore pdfStore;
+
+    @Mock
+    EntityManager em;
+
+    @TempDir
+    Path dir;
+
+    FacturaZipService service;
+
+    static final LocalDate FROM = LocalDate.of(2031, 3, 1);
+    static final LocalDate TO = LocalDate.of(2031, 3, 31);
+    static final LocalDateTime DESDE = FROM.atStartOfDay();
+    static final LocalDateTime HASTA = TO.plusDays(1).atStartOfDay();
+
+    @BeforeEach
+    void setUp() {
+        // páginas de 2 facturas
+        service = new FacturaZipService(filasRepo, facturaService, pdfStore, em, 2);
+    }
+
+    private FacturaPdfStore.PdfGuardado archivo(String nombre, String contenido) throws Exception {
+        Path p = Files.writeString(dir.resolve(nombre), contenido);
+        return new FacturaPdfStore.PdfGuardado(p, nombre);
+    }
+
+    private static Map<String, String> leer(byte[] zip) throws Exception {
+        Map<String, String> entradas = new LinkedHashMap<>();
+        try (var in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry e;
+            while ((e = in.getNextEntry()) != null) {
+                entradas.put(e.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entradas;
+    }
+
+    @Test
+    @DisplayName("zip(): recorre por páginas keyset y toma cada PDF del almacén o lo renderiza")
+    void zip_paginasYAlmacen() throws Exception {
+        LocalDateTime t1 = LocalDateTime.of(2031, 3, 2, 10, 0);
+        LocalDateTime t2 = LocalDateTime.of(2031, 3, 5, 10, 0);
+        LocalDateTime t3 = LocalDateTime.of(2031, 3, 9, 10, 0);
+        var f1 = new FacturaArchivo(1, "FB-000001", t1, "h1", FacturaMockService.PLANTILLA_PDF);
+        var f2 = new FacturaArchivo(2, "FB-000002", t2, null, null);
+        var f3 = new FacturaArchivo(3, "FA-000001", t3, "h3", FacturaMockService.PLANTILLA_PDF);
+
+        when(filasRepo.facturasPagina(DESDE, HASTA, DESDE, 0, 2)).thenReturn(List.of(f1, f2));
+        when(filasRepo.facturasPagina(DESDE, HASTA, t2, 2, 2)).thenReturn(List.of(f3));
+
+        when(pdfStore.buscar(1L, FacturaMockService.PLANTILLA_PDF, "h1")).thenReturn(Optional.of(archivo("1.pdf", "PDF-1")));
+        when(pdfStore.buscar(3L, FacturaMockService.PLANTILLA_PDF, "h3")).thenReturn(Optional.of(archivo("3.pdf", "PDF-3")));
+        // sin PDF guardado: se renderiza
+        when(facturaService.pdf(2L)).thenReturn(archivo("2.pdf", "PDF-2"));
+
+        var out = new ByteArrayOutputStream();
+        int n = service.zip(FROM, TO, out);
+
+        assertThat(n).isEqualTo(3);
+        assertThat(leer(out.toByteArray())).containsExactly(
+                entry("FB-000001.pdf", "PDF-1"),
+                entry("FB-000002.pdf", "PDF-2"),
+                entry("FA-000001.pdf", "PDF-3"));
+
+        verify(facturaService, never()).pdf(1L);
+        verify(facturaService, never()).pdf(3L);
+        // se limpia el contexto de persistencia entre páginas
+        verify(em).clear();
+    }
+
+    @Test
+    @DisplayName("zip(): una factura sin PDF no corta la descarga y queda en ERRORES.txt")
+    void zip_errorEnUnaFactura() throws Exception {
+        var f1 = new FacturaArchivo(1, "FB-000001", LocalDateTime.of(2031, 3, 2, 10, 0), null, null);
+        when(filasRepo.facturasPagina(DESDE, HASTA, DESDE, 0, 2)).thenReturn(List.of(f1));
+        when(facturaService.pdf(1L)).thenThrow(new IllegalStateException("disco lleno"));
+
+        var out = new ByteArrayOutputStream();
+        int n = service.zip(FROM, TO, out);
+
+        assertThat(n).isZero();
+        Map<String, String> entradas = leer(out.toByteArray());
+        assertThat(entradas).containsOnlyKeys(FacturaZipService.ERRORES);
+        assertThat(entradas.get(FacturaZipService.ERRORES)).contains("FB-000001").contains("disco lleno");
+        verifyNoInteractions(em);
+    }
+
+    @Test
+    @DisplayName("zip(): período sin facturas → ZIP válido y vacío")
+    void zip_vacio() throws Exception {
+        when(filasRepo.facturasPagina(eq(DESDE), eq(HASTA), eq(DESDE), eq(0L), eq(2))).thenReturn(List.of());
+
+        var out = new ByteArrayOutputStream();
+        assertThat(service.zip(FROM, TO, out)).isZero();
+        assertThat(leer(out.toByteArray())).isEmpty();
+    }
+}
@@ -29,7 +29,7 @@ class IngresosReportServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new IngresosReportService(repo);
+        service = new IngresosReportService(repo, ReportCache.sinCache());
     }
 
     // Pequeño helper para crear mocks de la proyección IngresoMesTipo
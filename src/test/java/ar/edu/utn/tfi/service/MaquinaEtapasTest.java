@@ -0,0 +1,86 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.EtapaCatalogo;
+import ar.edu.utn.tfi.repository.EtapaCatalogoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static ar.edu.utn.tfi.service.EtapasDePrueba.etapa;
+import static ar.edu.utn.tfi.service.MaquinaEtapas.Accion.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MaquinaEtapasTest {
+
+    @Mock
+    EtapaCatalogoRepository etapaRepo;
+
+    @Test
+    @DisplayName("siguienteDe(): sigue el orden del catálogo; terminal o desconocida → IllegalStateException")
+    void siguienteDe() {
+        when(etapaRepo.findAll()).thenReturn(EtapasDePrueba.catalogo());
+        var m = new MaquinaEtapas(etapaRepo);
+
+        assertThat(m.siguienteDe("INGRESO")).isEqualTo("DESPIECE_LAVADO");
+        assertThat(m.siguienteDe("listo_retirar")).isEqualTo("ENTREGADO");
+        assertThatThrownBy(() -> m.siguienteDe("ENTREGADO"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("No hay siguiente etapa");
+        assertThatThrownBy(() -> m.siguienteDe("PIEZA_IRREPARABLE"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("No hay siguiente etapa");
+        assertThatThrownBy(() -> m.siguienteDe("TRABAJO"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("Etapa actual no válida");
+
+        // el catálogo se leyó una sola vez
+        verify(etapaRepo, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("permite(): acciones por etapa desde la columna acciones")
+    void permite() {
+        when(etapaRepo.findAll()).thenReturn(EtapasDePrueba.catalogo());
+        var m = new MaquinaEtapas(etapaRepo);
+
+        assertThat(m.permite("SEMI_ARMADO", DEMORA)).isTrue();
+        assertThat(m.permite("SEMI_ARMADO", REPUESTOS)).isTrue();
+        assertThat(m.permite("MAQUINADO", DEMORA)).isFalse();
+        assertThat(m.permite("ENTREGADO", FACTURAR)).isTrue();
+        assertThat(m.permite("LISTO_RETIRAR", FACTURAR)).isFalse();
+        assertThat(m.permite(null, PAGO_FINAL)).isFalse();
+        assertThat(m.permite("INEXISTENTE", REPUESTOS)).isFalse();
+        assertThat(m.etapasQuePermiten(PAGO_FINAL)).containsExactly("LISTO_RETIRAR", "ENTREGADO");
+    }
+
+    @Test
+    @DisplayName("recargar(): reemplaza el catálogo sólo si cambió")
+    void recargar() {
+        List<EtapaCatalogo> cambiado = EtapasDePrueba.catalogo();
+        cambiado.add(etapa("LAVADO_FINAL", 9, ""));
+        when(etapaRepo.findAll()).thenReturn(EtapasDePrueba.catalogo(), EtapasDePrueba.catalogo(), cambiado);
+        var m = new MaquinaEtapas(etapaRepo);
+
+        var antes = m.catalogo();
+        assertThat(m.recargar()).isFalse();
+        assertThat(m.catalogo()).isSameAs(antes);
+
+        assertThat(m.recargar()).isTrue();
+        assertThat(m.siguienteDe("ENTREGADO")).isEqualTo("LAVADO_FINAL");
+        // el compilado anterior no cambia
+        assertThat(antes.esTerminal(antes.indice("ENTREGADO"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("acción desconocida en el catálogo: se ignora sin romper la carga")
+    void accionDesconocida() {
+        when(etapaRepo.findAll()).thenReturn(List.of(etapa("INGRESO", 1, "REPUESTOS, VOLAR")));
+        var m = new MaquinaEtapas(etapaRepo);
+
+        assertThat(m.permite("INGRESO", REPUESTOS)).isTrue();
+        assertThat(m.catalogo().esTerminal(0)).isTrue();
+    }
+}
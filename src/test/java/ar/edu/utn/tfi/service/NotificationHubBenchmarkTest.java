@@ -0,0 +1,93 @@
+package ar.edu.utn.tfi.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de latencia de push() con 10k emitters (1% lentos).
+ * No corre en el build normal: mvn test -Dbenchmarks=true -Dtest=NotificationHubBenchmarkTest
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class NotificationHubBenchmarkTest {
+
+    static final int EMITTERS = 10_000;
+    static final int ORDENES = 100;          // 100 suscriptores por orden
+    static final int PUSHES = 10_000;
+    static final int SLOW_EVERY = 100;       // 1 de cada 100 es lento
+    static final long SLOW_MS = 5;            // cada send del lento tarda 5 ms
+    static final int RAFAGA = 5;             // pausa de 1 ms cada 5 push (~500 eventos/ms)
+
+    static class BenchEmitter extends SseEmitter {
+        final boolean lento;
+        final AtomicLong recibidos;
+
+        BenchEmitter(boolean lento, AtomicLong recibidos) {
+            this.lento = lento;
+            this.recibidos = recibidos;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            builder.build();
+            if (lento) {
+                try { Thread.sleep(SLOW_MS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            }
+            recibidos.incrementAndGet();
+        }
+
+        @Override
+        public synchronized void complete() {
+        }
+    }
+
+    @Test
+    @DisplayName("push: p99 con 10k emitters, algunos lentos")
+    void pushLatency() throws Exception {
+        NotificationHub hub = new NotificationHub(64, 8);
+        AtomicLong recibidos = new AtomicLong();
+        for (int i = 0; i < EMITTERS; i++) {
+            hub.register("OT-" + (i % ORDENES), new BenchEmitter(i % SLOW_EVERY == 0, recibidos));
+        }
+
+        // warm-up
+        for (int i = 0; i < 1_000; i++) {
+            hub.push("OT-" + (i % ORDENES), "warmup", i);
+            if (i % RAFAGA == RAFAGA - 1) Thread.sleep(1);
+        }
+
+        long[] lat = new long[PUSHES];
+        for (int i = 0; i < PUSHES; i++) {
+            long t0 = System.nanoTime();
+            hub.push("OT-" + (i % ORDENES), "ev", "{\"i\":" + i + "}");
+            lat[i] = System.nanoTime() - t0;
+            if (i % RAFAGA == RAFAGA - 1) Thread.sleep(1);
+        }
+        Arrays.sort(lat);
+
+        // esperamos a que los dispatchers terminen de drenar (solo para reportar entregas)
+        long previo = -1;
+        while (previo != recibidos.get()) {
+            previo = recibidos.get();
+            Thread.sleep(200);
+        }
+
+        System.out.printf("[BENCH] NotificationHub.push emitters=%d pushes=%d p50=%.1fus p99=%.1fus max=%.1fus descartados=%d entregados=%d%n",
+                EMITTERS, PUSHES,
+                lat[PUSHES / 2] / 1_000.0,
+                lat[(int) (PUSHES * 0.99)] / 1_000.0,
+                lat[PUSHES - 1] / 1_000.0,
+                hub.getDescartados(),
+                recibidos.get());
+
+        hub.shutdown();
+        assertTrue(recibidos.get() > 0);
+    }
+}
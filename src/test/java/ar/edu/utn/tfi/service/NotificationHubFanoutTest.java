@@ -0,0 +1,133 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos "instancias" (bus + hub cada una) contra el mismo Postgres:
+ * un push en A tiene que llegar a los suscriptores conectados a B.
+ */
+class NotificationHubFanoutTest extends PostgresTestBase {
+
+    PgNotifyBus busA;
+    PgNotifyBus busB;
+    NotificationHub hubA;
+    NotificationHub hubB;
+
+    private PgNotifyBus nuevoBus() {
+        var ds = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        return new PgNotifyBus(new JdbcTemplate(ds),
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+    }
+
+    private static void esperar(BooleanSupplier cond) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!cond.getAsBoolean() && System.nanoTime() < limite) Thread.sleep(20);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        busA = nuevoBus();
+        busB = nuevoBus();
+        hubA = new NotificationHub(busA, new ObjectMapper(), 64, 2);
+        hubB = new NotificationHub(busB, new ObjectMapper(), 64, 2);
+        busA.start();
+        busB.start();
+        esperar(() -> busA.isListening() && busB.isListening());
+        assertTrue(busA.isListening() && busB.isListening(), "ambos nodos deben estar escuchando");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        busA.stop();
+        busB.stop();
+        hubA.shutdown();
+        hubB.shutdown();
+    }
+
+    @Test
+    @DisplayName("push en el nodo A llega a un suscriptor del nodo B (y una sola vez al de A)")
+    void push_cruzaInstancias() throws Exception {
+        var enA = new NotificationHubTest.FakeEmitter(null);
+        var enB = new NotificationHubTest.FakeEmitter(null);
+        hubA.register("OT-0007", enA);
+        hubB.register("OT-0007", enB);
+
+        hubA.push("OT-0007", "listo-retirar", "{\"tipo\":\"LISTO_RETIRAR\"}");
+
+        esperar(() -> enB.recibidos.size() == 2);
+        Thread.sleep(300); // margen para detectar un eco duplicado en A
+
+        assertEquals(List.of("connected", "listo-retirar"), enB.recibidos);
+        assertEquals(List.of("connected", "listo-retirar"), enA.recibidos);
+    }
+
+    @Test
+    @DisplayName("streams por email también cruzan instancias")
+    void push_email_cruzaInstancias() throws Exception {
+        var enB = new NotificationHubTest.FakeEmitter(null);
+        hubB.register(NotificationHub.claveEmail("cliente@mail.com"), enB);
+
+        hubA.push(NotificationHub.claveEmail("cliente@mail.com"), "aviso", "hola");
+
+        esperar(() -> enB.recibidos.size() == 2);
+        assertEquals(List.of("connected", "aviso"), enB.recibidos);
+    }
+
+    @Test
+    @DisplayName("push dentro de una transacción: ni A ni B lo ven antes del commit")
+    void push_enTransaccion_llegaAlCommit() throws Exception {
+        var enA = new NotificationHubTest.FakeEmitter(null);
+        var enB = new NotificationHubTest.FakeEmitter(null);
+        hubA.register("OT-0008", enA);
+        hubB.register("OT-0008", enB);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            hubA.push("OT-0008", "listo-retirar", "{}");
+            Thread.sleep(300);
+            assertEquals(List.of("connected"), enA.recibidos);
+            assertEquals(List.of("connected"), enB.recibidos);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        esperar(() -> enA.recibidos.size() == 2 && enB.recibidos.size() == 2);
+        assertEquals(List.of("connected", "listo-retirar"), enA.recibidos);
+        assertEquals(List.of("connected", "listo-retirar"), enB.recibidos);
+    }
+
+    @Test
+    @DisplayName("completar en A cierra también los streams de la clave en B, después del último evento")
+    void completar_cruzaInstancias() throws Exception {
+        var enA = new NotificationHubTest.FakeEmitter(null);
+        var enB = new NotificationHubTest.FakeEmitter(null);
+        hubA.register("export:job-1", enA);
+        hubB.register("export:job-1", enB);
+
+        hubA.push("export:job-1", "progreso", "{\"estado\":\"LISTO\"}");
+        hubA.completar("export:job-1");
+
+        esperar(() -> enA.completado && enB.completado);
+        assertEquals(List.of("connected", "progreso"), enA.recibidos);
+        assertEquals(List.of("connected", "progreso"), enB.recibidos);
+        assertTrue(enB.completado);
+        assertEquals(0, hubB.estadisticas().get("activos"));
+    }
+}
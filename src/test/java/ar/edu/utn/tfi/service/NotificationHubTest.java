@@ -0,0 +1,304 @@
+package ar.edu.utn.tfi.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationHubTest {
+
+    NotificationHub hub = new NotificationHub(4, 2);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        hub.shutdown();
+    }
+
+    /** Emitter simulado: guarda los nombres de evento en vez de escribir en un socket. */
+    static class FakeEmitter extends SseEmitter {
+        final List<String> recibidos = new CopyOnWriteArrayList<>();
+        final List<String> ids = new CopyOnWriteArrayList<>();
+        final CountDownLatch bloqueo;
+        volatile boolean completado;
+
+        FakeEmitter(CountDownLatch bloqueo) {
+            this.bloqueo = bloqueo;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (bloqueo != null) {
+                try { bloqueo.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            }
+            // primer bloque: "[id:<id>\n]event:<nombre>\ndata:"
+            String raw = builder.build().iterator().next().getData().toString();
+            raw.lines().forEach(l -> {
+                if (l.startsWith("event:")) recibidos.add(l.substring("event:".length()));
+                if (l.startsWith("id:")) ids.add(l.substring("id:".length()));
+            });
+        }
+
+        @Override
+        public synchronized void complete() {
+            completado = true;
+        }
+    }
+
+    private static void esperar(java.util.function.BooleanSupplier cond) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!cond.getAsBoolean() && System.nanoTime() < limite) Thread.sleep(10);
+    }
+
+    @Test
+    @DisplayName("push entrega los eventos en orden a cada suscriptor de la orden")
+    void push_entregaEnOrden() throws Exception {
+        var a = new FakeEmitter(null);
+        var b = new FakeEmitter(null);
+        hub.register("OT-0001", a);
+        hub.register("OT-0001", b);
+
+        hub.push("OT-0001", "uno", "1");
+        hub.push("OT-0001", "dos", "2");
+        hub.push("OT-0002", "otra", "x");
+
+        esperar(() -> a.recibidos.size() == 3 && b.recibidos.size() == 3);
+
+        assertEquals(List.of("connected", "uno", "dos"), a.recibidos);
+        assertEquals(List.of("connected", "uno", "dos"), b.recibidos);
+    }
+
+    @Test
+    @DisplayName("un suscriptor colgado no frena push y se descarta al llenar su cola")
+    void push_descartaConsumidorLento() throws Exception {
+        var trabado = new CountDownLatch(1);
+        var lento = new FakeEmitter(trabado);
+        var rapido = new FakeEmitter(null);
+        hub.register("OT-0001", lento);
+        hub.register("OT-0001", rapido);
+
+        long peorMs = 0;
+        for (int i = 0; i < 10; i++) {
+            long t0 = System.nanoTime();
+            hub.push("OT-0001", "ev", i);
+            peorMs = Math.max(peorMs, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+            Thread.sleep(5); // ritmo "humano": el rápido alcanza a drenar
+        }
+
+        esperar(() -> rapido.recibidos.size() == 11);
+        trabado.countDown();
+        esperar(() -> lento.completado);
+
+        assertTrue(peorMs < 100, "push no debe bloquearse por el cliente lento");
+        assertEquals(11, rapido.recibidos.size());
+        assertTrue(lento.completado, "el suscriptor lento debe cerrarse");
+        assertEquals(1, hub.getDescartados());
+    }
+
+    @Test
+    @DisplayName("tope por clave y global: rechaza la suscripción y lo cuenta")
+    void register_respetaTopes() {
+        hub.configurarLimites(2, 3, 60_000);
+        hub.register("OT-0001", new FakeEmitter(null));
+        hub.register("OT-0001", new FakeEmitter(null));
+
+        var porClave = assertThrows(SuscripcionRechazadaException.class,
+                () -> hub.register("OT-0001", new FakeEmitter(null)));
+        assertFalse(porClave.isGlobal());
+
+        hub.register("OT-0002", new FakeEmitter(null));
+        var global = assertThrows(SuscripcionRechazadaException.class,
+                () -> hub.register("OT-0003", new FakeEmitter(null)));
+        assertTrue(global.isGlobal());
+
+        assertEquals(3, hub.estadisticas().get("activos"));
+        assertEquals(2L, hub.estadisticas().get("rechazados"));
+    }
+
+    @Test
+    @DisplayName("latido: desaloja suscriptores inactivos y libera su lugar")
+    void latido_desalojaInactivos() throws Exception {
+        hub.configurarLimites(20, 100, 0); // cualquier suscriptor ya cuenta como inactivo
+        var em = new FakeEmitter(null);
+        hub.register("OT-0001", em);
+        Thread.sleep(5);
+
+        hub.latido();
+        esperar(() -> em.completado);
+
+        assertTrue(em.completado);
+        assertEquals(0, hub.estadisticas().get("activos"));
+        assertEquals(1L, hub.estadisticas().get("desalojadosInactivos"));
+    }
+
+    @Test
+    @DisplayName("latido: un peer muerto falla en el send y se quita")
+    void latido_detectaPeerMuerto() throws Exception {
+        var muerto = new FakeEmitter(null) {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                // el handshake pasa; después el cliente ya no está
+                if (!recibidos.isEmpty()) throw new IOException("Broken pipe");
+                super.send(builder);
+            }
+        };
+        hub.register("OT-0001", muerto);
+        esperar(() -> muerto.recibidos.size() == 1);
+
+        hub.latido();
+        esperar(() -> (Integer) hub.estadisticas().get("activos") == 0);
+
+        assertEquals(0, hub.estadisticas().get("activos"));
+        assertEquals(1L, hub.estadisticas().get("caidos"));
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID cubierto por el buffer: reenvía solo lo posterior, sin ir a la base")
+    void replay_desdeBuffer() throws Exception {
+        hub.push("OT-0001", "listo-retirar", "a", 10L);
+        hub.push("OT-0001", "listo-retirar", "b", 11L);
+        hub.push("OT-0001", "listo-retirar", "c", 12L);
+
+        var em = new FakeEmitter(null);
+        hub.register("OT-0001", em, 10L, desde -> fail("no debería consultar la base"));
+
+        esperar(() -> em.recibidos.size() == 3);
+        assertEquals(List.of("connected", "listo-retirar", "listo-retirar"), em.recibidos);
+        assertEquals(List.of("11", "12"), em.ids);
+        assertEquals(1L, hub.estadisticas().get("replayDesdeBuffer"));
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID más viejo que el buffer: completa desde la base")
+    void replay_fallbackDb() throws Exception {
+        hub.push("OT-0001", "listo-retirar", "c", 12L);
+
+        var em = new FakeEmitter(null);
+        List<Long> pedidos = new CopyOnWriteArrayList<>();
+        hub.register("OT-0001", em, 5L, desde -> {
+            pedidos.add(desde);
+            return enBase(desde, 8L, 12L);
+        });
+
+        esperar(() -> em.recibidos.size() == 3);
+        assertEquals(List.of("8", "12"), em.ids);
+        assertEquals(List.of(5L, 12L), pedidos);   // pagina hasta que la base no devuelve más
+        assertEquals(1L, hub.estadisticas().get("replayDesdeDb"));
+    }
+
+    /** Página de la "base": eventos con id &gt; desde, de a 2 como mucho. */
+    private static List<NotificationHub.EventoSse> enBase(long desde, Long... ids) {
+        return java.util.Arrays.stream(ids).filter(id -> id > desde).limit(2)
+                .map(id -> new NotificationHub.EventoSse(id, "listo-retirar", "x" + id)).toList();
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID con más perdidos de los que entran en la cola: un solo evento 'recargar'")
+    void replay_huecoGrande_recargar() throws Exception {
+        // cola de 4: entran 2 reenviados además del connected
+        var em = new FakeEmitter(null);
+        hub.register("OT-0001", em, 1L, desde -> enBase(desde, 2L, 3L, 4L, 5L, 6L));
+
+        esperar(() -> em.recibidos.size() == 2);
+        Thread.sleep(100);
+        assertEquals(List.of("connected", "recargar"), em.recibidos);
+        assertEquals(List.of("6"), em.ids);          // la próxima reconexión sigue desde el último
+        assertEquals(1L, hub.estadisticas().get("replayRecargar"));
+    }
+
+    @Test
+    @DisplayName("completar: envía lo encolado y después cierra todos los emitters de la clave")
+    void completar_cierraDespuesDelUltimoEvento() throws Exception {
+        var bloqueo = new CountDownLatch(1);
+        var a = new FakeEmitter(bloqueo);
+        var b = new FakeEmitter(null);
+        var otra = new FakeEmitter(null);
+        hub.register("export:job-1", a);
+        hub.register("export:job-1", b);
+        hub.register("export:job-2", otra);
+
+        hub.push("export:job-1", "progreso", "LISTO");
+        hub.completar("export:job-1");
+        bloqueo.countDown();   // a tenía el connected trabado en el send: lo pendiente igual sale antes del cierre
+
+        esperar(() -> a.completado && b.completado);
+        assertEquals(List.of("connected", "progreso"), a.recibidos);
+        assertEquals(List.of("connected", "progreso"), b.recibidos);
+        assertFalse(otra.completado);
+        assertEquals(1, hub.estadisticas().get("activos"));
+    }
+
+    @Test
+    @DisplayName("varias pestañas de la misma orden reciben el mismo evento con su id")
+    void multiplesPestanias() throws Exception {
+        var tab1 = new FakeEmitter(null);
+        var tab2 = new FakeEmitter(null);
+        hub.register("email:cliente@mail.com", tab1);
+        hub.register("email:cliente@mail.com", tab2);
+
+        hub.push("email:cliente@mail.com", "aviso", "hola", 40L);
+
+        esperar(() -> tab1.ids.size() == 1 && tab2.ids.size() == 1);
+        assertEquals(List.of("40"), tab1.ids);
+        assertEquals(List.of("40"), tab2.ids);
+    }
+
+    @Test
+    @DisplayName("push dentro de una transacción: se entrega recién al commit; con rollback, nunca")
+    void push_enTransaccion_alCommit() throws Exception {
+        var em = new FakeEmitter(null);
+        hub.register("OT-0001", em);
+        esperar(() -> em.recibidos.size() == 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        hub.push("OT-0001", "listo-retirar", "a", 10L);
+        Thread.sleep(100);
+        assertEquals(List.of("connected"), em.recibidos);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        esperar(() -> em.recibidos.size() == 2);
+        assertEquals(List.of("10"), em.ids);
+
+        TransactionSynchronizationManager.initSynchronization();
+        hub.push("OT-0001", "listo-retirar", "b", 11L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        Thread.sleep(100);
+        assertEquals(List.of("10"), em.ids);
+
+        // el evento de la transacción deshecha tampoco queda para replay
+        var otra = new FakeEmitter(null);
+        hub.register("OT-0001", otra, 10L, desde -> fail("el buffer cubre el hueco"));
+        Thread.sleep(100);
+        assertEquals(List.of(), otra.ids);
+    }
+
+    @Test
+    @DisplayName("pushAhora dentro de una transacción: se entrega en el momento, sin esperar el commit")
+    void pushAhora_enTransaccion_enElMomento() throws Exception {
+        var em = new FakeEmitter(null);
+        hub.register("export:job-1", em);
+        esperar(() -> em.recibidos.size() == 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        hub.pushAhora("export:job-1", "progreso", "{\"filas\":1000}");
+
+        esperar(() -> em.recibidos.size() == 2);
+        assertEquals(List.of("connected", "progreso"), em.recibidos);
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+}
@@ -6,7 +6,6 @@ import ar.edu.utn.tfi.domain.Presupuesto;
 import ar.edu.utn.tfi.domain.SolicitudPresupuesto;
 import ar.edu.utn.tfi.repository.NotificacionRepository;
 import ar.edu.utn.tfi.repository.SolicitudPresupuestoRepository;
-import ar.edu.utn.tfi.service.WhatsAppGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -31,7 +30,7 @@ class NotificationServiceTest {
     NotificationHub hub;
 
     @Mock
-    WhatsAppGateway whatsapp;
+    OutboxService outbox;
 
     @Mock
     SolicitudPresupuestoRepository solicitudRepo;
@@ -43,11 +42,11 @@ class NotificationServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new NotificationService(repo, hub, whatsapp, solicitudRepo);
+        service = new NotificationService(repo, hub, outbox, solicitudRepo);
     }
 
     @Test
-    void notificarDecisionSolicitud_aprobada_enviaWhatsAppYGuardaNotificacion() {
+    void notificarDecisionSolicitud_aprobada_encolaWhatsAppYGuardaNotificacion() {
         // arrange
         SolicitudPresupuesto s = new SolicitudPresupuesto();
         s.setId(15L);
@@ -63,8 +62,8 @@ class NotificationServiceTest {
         String expectedMsg = "Hola " + s.getClienteNombre()
                 + ", tu solicitud #" + s.getId() + " fue APROBADA. Motivo: " + s.getDecisionMotivo();
 
-        // se envía WhatsApp
-        verify(whatsapp).send(s.getClienteTelefono(), expectedMsg);
+        // se encola el WhatsApp (lo entrega el dispatcher)
+        verify(outbox).encolarWhatsApp(eq(s.getClienteTelefono()), eq(expectedMsg), any());
 
         // se persiste la notificación
         verify(repo).save(notificacionCaptor.capture());
@@ -76,11 +75,12 @@ class NotificationServiceTest {
         assertEquals("Estado de tu solicitud", n.getTitle());
         assertEquals(expectedMsg, n.getMessage());
         assertEquals(s.getClienteTelefono(), n.getClienteDestino());
-        assertEquals("ENVIADA", n.getEstado());
+        // queda PENDIENTE hasta que el dispatcher confirme la entrega
+        assertEquals("PENDIENTE", n.getEstado());
     }
 
     @Test
-    void notificarDecisionSolicitud_rechazada_enviaWhatsAppYGuardaNotificacion() {
+    void notificarDecisionSolicitud_rechazada_encolaWhatsAppYGuardaNotificacion() {
         // arrange
         SolicitudPresupuesto s = new SolicitudPresupuesto();
         s.setId(20L);
@@ -95,7 +95,7 @@ class NotificationServiceTest {
         String expectedMsg = "Hola " + s.getClienteNombre()
                 + ", tu solicitud #" + s.getId() + " fue RECHAZADA. Motivo: " + s.getDecisionMotivo();
 
-        verify(whatsapp).send(s.getClienteTelefono(), expectedMsg);
+        verify(outbox).encolarWhatsApp(eq(s.getClienteTelefono()), eq(expectedMsg), any());
 
         verify(repo).save(notificacionCaptor.capture());
         Notificacion n = notificacionCaptor.getValue();
@@ -109,7 +109,7 @@ class NotificationServiceTest {
     }
 
     @Test
-    void notificarPresupuestoGenerado_enviaWhatsAppYRegistraNotificacion() {
+    void notificarPresupuestoGenerado_encolaWhatsAppYRegistraNotificacion() {
         // arrange
         Presupuesto p = new Presupuesto();
         p.setId(14L);
@@ -130,7 +130,7 @@ class NotificationServiceTest {
                 + ". Monto estimado: " + p.getTotal()
                 + ". Podés verlo acá: " + linkSolicitud;
 
-        verify(whatsapp).send(s.getClienteTelefono(), expectedMsg);
+        verify(outbox).encolarWhatsApp(eq(s.getClienteTelefono()), eq(expectedMsg), any());
 
         verify(repo).save(notificacionCaptor.capture());
         Notificacion n = notificacionCaptor.getValue();
@@ -144,7 +144,7 @@ class NotificationServiceTest {
     }
 
     @Test
-    void emitirListoRetirar_enviaWhatsApp_inAppYEventoSSE() {
+    void emitirListoRetirar_encolaWhatsApp_inAppYEventoSSE() {
         // arrange
         OrdenTrabajo ot = new OrdenTrabajo();
         ot.setId(3L);
@@ -157,8 +157,8 @@ class NotificationServiceTest {
 
         String expectedMsg = "Tu orden " + ot.getNroOrden() + " está lista para retirar.";
 
-        // 1) WhatsApp
-        verify(whatsapp).send(telefono, expectedMsg);
+        // 1) WhatsApp encolado en el outbox
+        verify(outbox).encolarWhatsApp(eq(telefono), eq(expectedMsg), any());
 
         // 2) Se guardan 2 notificaciones (IN_APP + WHATSAPP)
         verify(repo, times(2)).save(notificacionCaptor.capture());
@@ -177,7 +177,7 @@ class NotificationServiceTest {
         assertTrue(tieneInApp, "Debe guardar una notificación IN_APP");
         assertTrue(tieneWhatsApp, "Debe guardar una notificación WHATSAPP");
 
-        // 3) Evento SSE al hub
-        verify(hub).push(eq(ot.getNroOrden()), eq("listo-retirar"), contains("LISTO_RETIRAR"));
+        // 3) Evento SSE al hub (con id de evento = id de la notificación IN_APP)
+        verify(hub).push(eq(ot.getNroOrden()), eq("listo-retirar"), contains("LISTO_RETIRAR"), any());
     }
 }
\ No newline at end of file
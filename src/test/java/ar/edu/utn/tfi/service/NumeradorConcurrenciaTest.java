@@ -0,0 +1,105 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Alta de miles de OT y facturas en paralelo contra Postgres real:
+ * ningún número repetido (huecos permitidos) y cada serie de factura con su propio correlativo.
+ */
+@SpringBootTest
+class NumeradorConcurrenciaTest extends PostgresTestBase {
+
+    static final int HILOS = 16;
+    static final int ORDENES = 2_000;
+    static final int FACTURAS_POR_TIPO = 500;
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    FacturaMockService facturaService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    MailService mailService;
+
+    @Test
+    @DisplayName("crearOT en paralelo: números de OT únicos")
+    void ordenesEnParalelo_sinRepetidos() throws Exception {
+        List<String> nros = enParalelo(ORDENES, i -> crearOrdenService.crearOT(
+                new CrearOrdenService.CreateOTReq("Cliente conc " + i, "351" + i, (i % 2 == 0) ? "MOTOR" : "TAPA",
+                        "Ford", "Falcon", null),
+                "test").nroOrden());
+
+        assertThat(nros).hasSize(ORDENES).doesNotHaveDuplicates().allMatch(n -> n.matches("OT-\\d{4,}"));
+
+        Integer enBase = jdbc.queryForObject(
+                "SELECT COUNT(DISTINCT nro_orden) FROM orden_trabajo WHERE nro_orden = ANY (?)",
+                Integer.class, (Object) nros.toArray(String[]::new));
+        assertThat(enBase).isEqualTo(ORDENES);
+    }
+
+    @Test
+    @DisplayName("generar factura en paralelo: cada serie A/B/C sin repetidos")
+    void facturasEnParalelo_sinRepetidosPorSerie() throws Exception {
+        String[] tipos = {"A", "B", "C"};
+        int total = FACTURAS_POR_TIPO * tipos.length;
+
+        List<Long> presupuestos = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            presupuestos.add(jdbc.queryForObject("""
+                    INSERT INTO presupuesto (solicitud_id, cliente_nombre, vehiculo_tipo, total, estado, final_estado)
+                    VALUES (-1, 'Cliente factura', 'CONVENCIONAL', 1000, 'APROBADO', 'ACREDITADA')
+                    RETURNING id
+                    """, Long.class));
+        }
+
+        List<String> numeros = enParalelo(total,
+                i -> facturaService.generar(presupuestos.get(i), tipos[i % tipos.length]).getNumero());
+
+        assertThat(numeros).hasSize(total).doesNotHaveDuplicates();
+        for (String t : tipos) {
+            assertThat(numeros.stream().filter(n -> n.startsWith("F" + t + "-")).count())
+                    .isEqualTo(FACTURAS_POR_TIPO);
+        }
+    }
+
+    interface Alta {
+        String crear(int i) throws Exception;
+    }
+
+    private static List<String> enParalelo(int cantidad, Alta alta) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<String>> futuros = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            final int n = i;
+            futuros.add(pool.submit(() -> {
+                largada.await();
+                return alta.crear(n);
+            }));
+        }
+        largada.countDown();
+
+        List<String> out = new ArrayList<>(cantidad);
+        for (Future<String> f : futuros) out.add(f.get(2, TimeUnit.MINUTES));
+        pool.shutdown();
+        return out;
+    }
+}
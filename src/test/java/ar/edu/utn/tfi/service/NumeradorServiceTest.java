@@ -0,0 +1,102 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.repository.SecuenciaRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class NumeradorServiceTest {
+
+    /** Secuencias en memoria con INCREMENT BY BLOQUE, como las de V38. */
+    static class SecuenciasFake extends SecuenciaRepository {
+        final Map<String, AtomicLong> valores = new ConcurrentHashMap<>();
+        final AtomicLong llamadas = new AtomicLong();
+
+        SecuenciasFake() {
+            super(null);
+        }
+
+        @Override
+        public long siguiente(String secuencia) {
+            llamadas.incrementAndGet();
+            return valores.computeIfAbsent(secuencia, k -> new AtomicLong(1 - NumeradorService.BLOQUE))
+                    .addAndGet(NumeradorService.BLOQUE);
+        }
+    }
+
+    @Test
+    @DisplayName("siguiente: formatea por serie y va a la base una vez por bloque")
+    void siguiente_porBloque() {
+        var seq = new SecuenciasFake();
+        var numerador = new NumeradorService(seq);
+
+        assertThat(numerador.siguiente(NumeradorService.Serie.OT)).isEqualTo("OT-0001");
+        assertThat(numerador.siguiente(NumeradorService.Serie.OT)).isEqualTo("OT-0002");
+        assertThat(numerador.siguiente(NumeradorService.Serie.FB)).isEqualTo("FB-000001");
+        assertThat(numerador.siguiente(NumeradorService.Serie.FA)).isEqualTo("FA-000001");
+
+        for (int i = 0; i < NumeradorService.BLOQUE; i++) numerador.siguienteNumero(NumeradorService.Serie.OT);
+
+        // OT: 2 bloques; FA y FB: 1 cada una
+        assertThat(seq.llamadas.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("siguiente: dos JVMs con la misma secuencia nunca repiten números")
+    void dosInstancias_sinRepetidos() {
+        var seq = new SecuenciasFake();
+        var a = new NumeradorService(seq);
+        var b = new NumeradorService(seq);
+
+        Set<Long> vistos = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(vistos.add(a.siguienteNumero(NumeradorService.Serie.FC))).isTrue();
+            assertThat(vistos.add(b.siguienteNumero(NumeradorService.Serie.FC))).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("siguiente: en paralelo no hay repetidos y cada serie es independiente")
+    void concurrente_sinRepetidos() throws Exception {
+        var numerador = new NumeradorService(new SecuenciasFake());
+        int hilos = 16, porHilo = 2_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<List<String>>> futuros = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            NumeradorService.Serie serie = NumeradorService.Serie.values()[h % 4];
+            futuros.add(pool.submit(() -> {
+                largada.await();
+                List<String> out = new ArrayList<>(porHilo);
+                for (int i = 0; i < porHilo; i++) out.add(numerador.siguiente(serie));
+                return out;
+            }));
+        }
+        largada.countDown();
+
+        Set<String> todos = new HashSet<>();
+        for (Future<List<String>> f : futuros) todos.addAll(f.get(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertThat(todos).hasSize(hilos * porHilo);
+        // una sola JVM: cada serie queda contigua (4 hilos x 2000 = 8000 por serie)
+        assertThat(todos).contains("OT-8000", "FA-008000", "FB-008000", "FC-008000");
+        assertThat(todos).doesNotContain("OT-8001");
+    }
+
+    @Test
+    @DisplayName("Serie.factura: mapea A/B/C y rechaza otros tipos")
+    void serieFactura() {
+        assertThat(NumeradorService.Serie.factura(" a ")).isEqualTo(NumeradorService.Serie.FA);
+        assertThat(NumeradorService.Serie.factura("B")).isEqualTo(NumeradorService.Serie.FB);
+        assertThat(NumeradorService.Serie.factura("c")).isEqualTo(NumeradorService.Serie.FC);
+        assertThatThrownBy(() -> NumeradorService.Serie.factura("X"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
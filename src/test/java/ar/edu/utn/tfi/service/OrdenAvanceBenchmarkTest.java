@@ -0,0 +1,128 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de contención del avance de etapa (compare-and-set) contra Postgres real.
+ * Dos escenarios con los mismos hilos: todos sobre pocas OT (contención alta) y cada hilo sobre
+ * sus propias OT (sin contención). Reporta intentos/s y avances/s, y verifica que no se pierda ni se
+ * duplique ningún avance: por OT, avances exitosos = filas de historial - 1 = posición de su etapa - 1.
+ *
+ * No corre en el build normal:
+ *   mvn test -Dbenchmarks=true -Dtest=OrdenAvanceBenchmarkTest [-Dbench.hilos=16] [-Dbench.ordenes=64]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class OrdenAvanceBenchmarkTest extends PostgresTestBase {
+
+    static final int HILOS = Integer.getInteger("bench.hilos", 16);
+    static final int ORDENES = Integer.getInteger("bench.ordenes", 64);
+    static final int CALIENTES = 4;
+    static final int ETAPAS = 8;
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    OrderAdvanceService advanceService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    MailService mailService;
+
+    interface Eleccion {
+        /** Índice de la OT que intenta avanzar el hilo {@code hilo} en su intento {@code i}. */
+        int orden(int hilo, int i);
+    }
+
+    @Test
+    @DisplayName("avanzarEtapa: misma OT vs OT distintas, sin avances perdidos ni duplicados")
+    void contencion() throws Exception {
+        // todos los hilos sobre CALIENTES OT: la mayoría de los intentos pierden el compare-and-set
+        medir("misma-ot", CALIENTES, HILOS * ETAPAS, (h, i) -> i % CALIENTES);
+        // cada hilo sobre las suyas: ORDENES / HILOS OT por hilo, ninguna compartida
+        int porHilo = Math.max(1, ORDENES / HILOS);
+        medir("ot-distintas", porHilo * HILOS, porHilo * (ETAPAS - 1), (h, i) -> h * porHilo + i % porHilo);
+    }
+
+    private void medir(String nombre, int cantidad, int intentosPorHilo, Eleccion eleccion) throws Exception {
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ids.add(crearOrdenService.crearOT(new CrearOrdenService.CreateOTReq(
+                    "Cliente bench " + i, "351" + i, "MOTOR", "Ford", "Falcon", null), "bench").ordenId());
+        }
+
+        AtomicIntegerArray avancesPorOt = new AtomicIntegerArray(cantidad);
+        AtomicInteger rechazos = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            final int hilo = h;
+            futuros.add(pool.submit(() -> {
+                largada.await();
+                for (int i = 0; i < intentosPorHilo; i++) {
+                    int n = eleccion.orden(hilo, i);
+                    try {
+                        advanceService.avanzarEtapa(ids.get(n), "bench-" + hilo);
+                        avancesPorOt.incrementAndGet(n);
+                    } catch (IllegalStateException e) {
+                        rechazos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long t0 = System.nanoTime();
+        largada.countDown();
+        for (Future<?> f : futuros) f.get(10, TimeUnit.MINUTES);
+        long t = System.nanoTime() - t0;
+        pool.shutdown();
+
+        int intentos = HILOS * intentosPorHilo;
+        int avances = 0;
+        for (int i = 0; i < cantidad; i++) {
+            Long id = ids.get(i);
+            int exitos = avancesPorOt.get(i);
+            avances += exitos;
+            Integer filas = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM orden_etapa_historial WHERE orden_id = ?", Integer.class, id);
+            Integer abiertas = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM orden_etapa_historial WHERE orden_id = ? AND fecha_fin IS NULL",
+                    Integer.class, id);
+            Integer posicion = jdbc.queryForObject("""
+                    SELECT e.orden FROM orden_trabajo o JOIN etapa_catalogo e ON e.codigo = o.estado_actual
+                    WHERE o.id = ?
+                    """, Integer.class, id);
+            assertThat(filas).as("historial de la OT %d", id).isEqualTo(exitos + 1);
+            assertThat(abiertas).as("etapas abiertas de la OT %d", id).isEqualTo(1);
+            assertThat(posicion).as("etapa de la OT %d", id).isEqualTo(exitos + 1);
+        }
+        assertThat(avances + rechazos.get()).isEqualTo(intentos);
+
+        System.out.printf("[BENCH] AVANCE %s hilos=%d ots=%d intentos=%d avances=%d rechazos=%d "
+                        + "intentos/s=%.0f avances/s=%.0f perdidos=0%n",
+                nombre, HILOS, cantidad, intentos, avances, rechazos.get(),
+                intentos / (t / 1e9), avances / (t / 1e9));
+    }
+}
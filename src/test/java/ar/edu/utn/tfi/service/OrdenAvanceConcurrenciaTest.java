@@ -0,0 +1,92 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Muchos operadores avanzando la misma OT a la vez contra Postgres real: cada etapa se avanza una
+ * sola vez (compare-and-set) y el historial queda con una fila por etapa y una sola abierta.
+ */
+@SpringBootTest
+class OrdenAvanceConcurrenciaTest extends PostgresTestBase {
+
+    static final int HILOS = 16;
+    static final int INTENTOS_POR_HILO = 10;
+    static final int ETAPAS = 8;   // INGRESO ... ENTREGADO
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    OrderAdvanceService advanceService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    MailService mailService;
+
+    @Test
+    @DisplayName("avanzarEtapa en paralelo sobre la misma OT: sin avances dobles ni etapas salteadas")
+    void mismaOrden_unAvancePorEtapa() throws Exception {
+        Long id = crearOrdenService.crearOT(
+                new CrearOrdenService.CreateOTReq("Cliente avance", "3510000000", "MOTOR", "Ford", "Falcon", null),
+                "test").ordenId();
+
+        AtomicInteger avances = new AtomicInteger();
+        AtomicInteger rechazos = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            futuros.add(pool.submit(() -> {
+                largada.await();
+                for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                    try {
+                        advanceService.avanzarEtapa(id, "operador");
+                        avances.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        // la avanzó otro operador, o ya está ENTREGADO
+                        rechazos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> f : futuros) f.get(2, TimeUnit.MINUTES);
+        pool.shutdown();
+
+        assertThat(avances.get()).isEqualTo(ETAPAS - 1);
+        assertThat(rechazos.get()).isEqualTo(HILOS * INTENTOS_POR_HILO - (ETAPAS - 1));
+
+        assertThat(jdbc.queryForObject("SELECT estado_actual FROM orden_trabajo WHERE id = ?", String.class, id))
+                .isEqualTo("ENTREGADO");
+        List<Map<String, Object>> historial = jdbc.queryForList("""
+                SELECT h.etapa_codigo, h.fecha_fin
+                FROM orden_etapa_historial h JOIN etapa_catalogo e ON e.codigo = h.etapa_codigo
+                WHERE h.orden_id = ? ORDER BY e.orden
+                """, id);
+        assertThat(historial).extracting(r -> r.get("etapa_codigo")).containsExactly(
+                "INGRESO", "DESPIECE_LAVADO", "DIAGNOSTICO", "MAQUINADO",
+                "SEMI_ARMADO", "CONTROL_CALIDAD", "LISTO_RETIRAR", "ENTREGADO");
+        assertThat(historial).filteredOn(r -> r.get("fecha_fin") == null)
+                .extracting(r -> r.get("etapa_codigo")).containsExactly("ENTREGADO");
+    }
+}
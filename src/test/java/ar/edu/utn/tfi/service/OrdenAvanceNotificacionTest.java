@@ -0,0 +1,87 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.infra.PostgresTestBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.when;
+
+/**
+ * La notificación LISTO_RETIRAR va en la transacción del avance (outbox transaccional): si no se puede
+ * encolar, el avance falla entero y a propósito; no queda la OT avanzada sin aviso ni un
+ * UnexpectedRollbackException por un error tragado.
+ */
+@SpringBootTest
+class OrdenAvanceNotificacionTest extends PostgresTestBase {
+
+    static final int HASTA_CONTROL_CALIDAD = 5;   // INGRESO → ... → CONTROL_CALIDAD
+
+    @Autowired
+    CrearOrdenService crearOrdenService;
+
+    @Autowired
+    OrderAdvanceService advanceService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockBean
+    OutboxService outbox;
+
+    @MockBean
+    MailService mailService;
+
+    private Long ordenEnControlCalidad(String telefono) {
+        Long id = crearOrdenService.crearOT(
+                new CrearOrdenService.CreateOTReq("Cliente aviso", telefono, "MOTOR", "Ford", "Falcon", null),
+                "test").ordenId();
+        for (int i = 0; i < HASTA_CONTROL_CALIDAD; i++) advanceService.avanzarEtapa(id, "operador");
+        return id;
+    }
+
+    private String estado(Long id) {
+        return jdbc.queryForObject("SELECT estado_actual FROM orden_trabajo WHERE id = ?", String.class, id);
+    }
+
+    private int avisos(Long id) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM notification WHERE orden_id = ? AND type = 'LISTO_RETIRAR'",
+                Integer.class, id);
+    }
+
+    @Test
+    @DisplayName("avanzarEtapa a LISTO_RETIRAR: la notificación commitea junto con el avance")
+    void listoRetirar_commiteaConElAvance() {
+        Long id = ordenEnControlCalidad("3510000001");
+
+        advanceService.avanzarEtapa(id, "operador");
+
+        assertThat(estado(id)).isEqualTo("LISTO_RETIRAR");
+        assertThat(avisos(id)).isEqualTo(2);   // IN_APP + WHATSAPP
+    }
+
+    @Test
+    @DisplayName("avanzarEtapa a LISTO_RETIRAR con el outbox fallando: el error sale y el avance no commitea")
+    void listoRetirar_falloNotificacion_noAvanza() {
+        Long id = ordenEnControlCalidad("3510000002");
+        when(outbox.encolarWhatsApp(any(), contains("lista para retirar"), any()))
+                .thenThrow(new IllegalStateException("outbox caído"));
+
+        assertThatThrownBy(() -> advanceService.avanzarEtapa(id, "operador"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("outbox caído");
+
+        assertThat(estado(id)).isEqualTo("CONTROL_CALIDAD");
+        assertThat(avisos(id)).isZero();
+        assertThat(jdbc.queryForObject(
+                "SELECT COUNT(*) FROM orden_etapa_historial WHERE orden_id = ? AND etapa_codigo = 'LISTO_RETIRAR'",
+                Integer.class, id)).isZero();
+    }
+}
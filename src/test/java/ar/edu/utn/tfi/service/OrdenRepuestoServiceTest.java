@@ -45,7 +45,7 @@ class OrdenRepuestoServiceTest {
     @BeforeEach
     void setUp() {
         // Construimos el service con los mocks
-        service = new OrdenRepuestoService(ordenRepo, repuestoRepo);
+        service = new OrdenRepuestoService(ordenRepo, repuestoRepo, EtapasDePrueba.maquina());
     }
 
     @Test
@@ -102,7 +102,7 @@ class OrdenRepuestoServiceTest {
         String nroOrden = "OT-0002";
         OrdenTrabajo ot = new OrdenTrabajo();
         ot.setId(20L);
-        // Etapa válida para repuestos (DEBE estar en el set ETAPAS_PERMITEN_REPUESTOS)
+        // Etapa válida para repuestos (REPUESTOS en etapa_catalogo.acciones)
         ot.setEstadoActual("DIAGNOSTICO");
 
         RepuestoCreateReq req = new RepuestoCreateReq(
@@ -0,0 +1,121 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.Notificacion;
+import ar.edu.utn.tfi.domain.NotificacionOutbox;
+import ar.edu.utn.tfi.repository.NotificacionOutboxRepository;
+import ar.edu.utn.tfi.repository.NotificacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    NotificacionOutboxRepository outboxRepo;
+
+    @Mock
+    NotificacionRepository notificacionRepo;
+
+    OutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new OutboxService(outboxRepo, notificacionRepo);
+    }
+
+    private NotificacionOutbox mensaje(Long id, Long notificacionId) {
+        var o = new NotificacionOutbox();
+        o.setId(id);
+        o.setCanal(OutboxService.CANAL_WHATSAPP);
+        o.setDestino("+5493574000000");
+        o.setCuerpo("hola");
+        o.setNotificacionId(notificacionId);
+        return o;
+    }
+
+    @Test
+    @DisplayName("encolarWhatsApp: guarda el mensaje PENDIENTE apuntando a la notificación")
+    void encolarWhatsApp_guardaPendiente() {
+        when(outboxRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.encolarWhatsApp(" +5493574000000 ", "hola", 9L);
+
+        ArgumentCaptor<NotificacionOutbox> captor = ArgumentCaptor.forClass(NotificacionOutbox.class);
+        verify(outboxRepo).save(captor.capture());
+        NotificacionOutbox o = captor.getValue();
+        assertEquals("WHATSAPP", o.getCanal());
+        assertEquals("+5493574000000", o.getDestino());
+        assertEquals("PENDIENTE", o.getEstado());
+        assertEquals(9L, o.getNotificacionId());
+    }
+
+    @Test
+    @DisplayName("marcarEnviado: el mensaje pasa a ENVIADO y la notificación a sent=true / ENVIADA")
+    void marcarEnviado_actualizaNotificacion() {
+        NotificacionOutbox o = mensaje(1L, 9L);
+        Notificacion n = new Notificacion();
+        n.setEstado("PENDIENTE");
+        n.setSent(false);
+        when(outboxRepo.findById(1L)).thenReturn(Optional.of(o));
+        when(notificacionRepo.findById(9L)).thenReturn(Optional.of(n));
+
+        service.marcarEnviado(1L);
+
+        assertEquals("ENVIADO", o.getEstado());
+        assertNotNull(o.getEnviadoEn());
+        assertTrue(n.getSent());
+        assertEquals("ENVIADA", n.getEstado());
+    }
+
+    @Test
+    @DisplayName("registrarFallo: reintenta con backoff mientras queden intentos")
+    void registrarFallo_reintenta() {
+        NotificacionOutbox o = mensaje(1L, null);
+        when(outboxRepo.findById(1L)).thenReturn(Optional.of(o));
+
+        LocalDateTime antes = LocalDateTime.now();
+        service.registrarFallo(1L, "timeout", false);
+
+        assertEquals("PENDIENTE", o.getEstado());
+        assertEquals(1, o.getIntentos());
+        assertEquals("timeout", o.getUltimoError());
+        assertTrue(o.getProximoIntento().isAfter(antes));
+    }
+
+    @Test
+    @DisplayName("registrarFallo: al agotar intentos pasa a DEAD y la notificación a FALLIDA")
+    void registrarFallo_deadLetter() {
+        NotificacionOutbox o = mensaje(1L, 9L);
+        o.setIntentos(5);
+        Notificacion n = new Notificacion();
+        when(outboxRepo.findById(1L)).thenReturn(Optional.of(o));
+        when(notificacionRepo.findById(9L)).thenReturn(Optional.of(n));
+
+        service.registrarFallo(1L, "500 Internal Server Error", false);
+
+        assertEquals("DEAD", o.getEstado());
+        assertEquals(6, o.getIntentos());
+        assertFalse(n.getSent());
+        assertEquals("FALLIDA", n.getEstado());
+    }
+
+    @Test
+    @DisplayName("backoff: crece exponencialmente hasta el máximo")
+    void backoff_exponencial() {
+        assertEquals(10, service.backoffSegundos(1));
+        assertEquals(20, service.backoffSegundos(2));
+        assertEquals(40, service.backoffSegundos(3));
+        assertEquals(3600, service.backoffSegundos(20));
+    }
+}
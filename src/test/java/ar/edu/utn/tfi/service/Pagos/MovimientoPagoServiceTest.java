@@ -0,0 +1,69 @@
+package ar.edu.utn.tfi.service.Pagos;
+
+import ar.edu.utn.tfi.repository.MovimientoPagoRepository;
+import ar.edu.utn.tfi.service.ReportCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovimientoPagoServiceTest {
+
+    @Mock
+    MovimientoPagoRepository repo;
+
+    @Mock
+    ApplicationEventPublisher events;
+
+    @InjectMocks
+    MovimientoPagoService service;
+
+    static final LocalDateTime FECHA = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+    @Test
+    @DisplayName("registrar: agrega la fila e invalida el reporte de ingresos del día")
+    void registrar_nuevo() {
+        when(repo.registrar(10L, "SENA", new BigDecimal("30000.00"), FECHA, "MERCADO_PAGO", null, "555"))
+                .thenReturn(1);
+
+        assertTrue(service.registrar(10L, "SENA", new BigDecimal("30000"), FECHA, "MERCADO_PAGO", null, "555"));
+
+        verify(events).publishEvent(new ReportCache.DatosReporteCambiados(
+                List.of(ReportCache.INGRESOS), LocalDate.of(2025, 3, 10)));
+    }
+
+    @Test
+    @DisplayName("registrar: si ya estaba (webhook repetido) no invalida nada")
+    void registrar_repetido() {
+        when(repo.registrar(any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        assertFalse(service.registrar(10L, "SENA", new BigDecimal("30000"), FECHA, "MERCADO_PAGO", null, "555"));
+
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    @DisplayName("registrar: valida tipo, origen, monto y fecha")
+    void registrar_validaciones() {
+        BigDecimal m = BigDecimal.TEN;
+        assertThrows(IllegalArgumentException.class, () -> service.registrar(null, "SENA", m, FECHA, "MANUAL", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.registrar(1L, "OTRO", m, FECHA, "MANUAL", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.registrar(1L, "SENA", m, FECHA, "CAJA", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.registrar(1L, "SENA", null, FECHA, "MANUAL", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.registrar(1L, "SENA", m, null, "MANUAL", null, null));
+        verifyNoInteractions(repo, events);
+    }
+}
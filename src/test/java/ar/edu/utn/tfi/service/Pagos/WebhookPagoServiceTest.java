@@ -0,0 +1,173 @@
+package ar.edu.utn.tfi.service.Pagos;
+
+import ar.edu.utn.tfi.domain.MpEventLog;
+import ar.edu.utn.tfi.domain.Presupuesto;
+import ar.edu.utn.tfi.repository.MpEventLogRepository;
+import ar.edu.utn.tfi.repository.PresupuestoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookPagoServiceTest {
+
+    @Mock
+    PresupuestoRepository presupuestoRepo;
+
+    @Mock
+    MpEventLogRepository eventRepo;
+
+    @Mock
+    WebClient.Builder builder;
+
+    @Mock
+    WebClient webClient;
+
+    @Mock
+    MovimientoPagoService movimientos;
+
+    WebhookPagoService service;
+
+    @BeforeEach
+    void setUp() {
+        when(builder.baseUrl(anyString())).thenReturn(builder);
+        when(builder.build()).thenReturn(webClient);
+        service = new WebhookPagoService(presupuestoRepo, eventRepo, builder, movimientos);
+    }
+
+    @Test
+    @DisplayName("encolarNotificacion: guarda el evento sin llamar a MP")
+    void encolar_guardaEvento() {
+        when(eventRepo.existsByRequestId("req-1")).thenReturn(false);
+
+        service.encolarNotificacion("payment", "123", "req-1");
+
+        ArgumentCaptor<MpEventLog> captor = ArgumentCaptor.forClass(MpEventLog.class);
+        verify(eventRepo).save(captor.capture());
+        assertEquals("payment", captor.getValue().getTopic());
+        assertEquals("123", captor.getValue().getDataId());
+        assertFalse(captor.getValue().getProcessed());
+        verifyNoInteractions(webClient, presupuestoRepo);
+    }
+
+    @Test
+    @DisplayName("encolarNotificacion: x-request-id repetido no se vuelve a encolar")
+    void encolar_duplicado_ignorado() {
+        when(eventRepo.existsByRequestId("req-1")).thenReturn(true);
+
+        service.encolarNotificacion("payment", "123", "req-1");
+
+        verify(eventRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("aplicarResultado: pago approved acredita la seña y marca el evento procesado")
+    void aplicarResultado_approved() {
+        MpEventLog ev = new MpEventLog("req-1", "payment", "123");
+        ev.setId(7L);
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        when(eventRepo.findById(7L)).thenReturn(Optional.of(ev));
+        when(presupuestoRepo.findById(10L)).thenReturn(Optional.of(p));
+
+        service.aplicarResultado(7L, new WebhookPagoService.ResultadoPago(
+                10L, 555L, "approved", LocalDateTime.of(2025, 1, 1, 10, 0), new BigDecimal("30000")));
+
+        assertEquals("ACREDITADA", p.getSenaEstado());
+        assertEquals("555", p.getSenaPaymentId());
+        assertTrue(ev.getProcessed());
+        assertNotNull(ev.getProcessedAt());
+        verify(presupuestoRepo).save(p);
+        verify(eventRepo).save(ev);
+        // la seña queda con el monto acreditado por MP y se agrega al libro de pagos
+        assertEquals(new BigDecimal("30000.00"), p.getSenaMonto());
+        verify(movimientos).registrar(10L, "SENA", new BigDecimal("30000.00"), LocalDateTime.of(2025, 1, 1, 10, 0),
+                "MERCADO_PAGO", null, "555");
+    }
+
+    @Test
+    @DisplayName("aplicarResultado: sin transaction_amount usa el 30% del total")
+    void aplicarResultado_approved_sinMonto() {
+        MpEventLog ev = new MpEventLog("req-1", "payment", "123");
+        ev.setId(7L);
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        p.setTotal(new BigDecimal("100000"));
+        when(eventRepo.findById(7L)).thenReturn(Optional.of(ev));
+        when(presupuestoRepo.findById(10L)).thenReturn(Optional.of(p));
+
+        service.aplicarResultado(7L, new WebhookPagoService.ResultadoPago(
+                10L, 555L, "approved", LocalDateTime.of(2025, 1, 1, 10, 0), null));
+
+        assertEquals(new BigDecimal("30000.00"), p.getSenaMonto());
+        verify(movimientos).registrar(eq(10L), eq("SENA"), eq(new BigDecimal("30000.00")), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("aplicarResultado: pago pendiente no agrega movimientos")
+    void aplicarResultado_pending_sinMovimiento() {
+        MpEventLog ev = new MpEventLog("req-1", "payment", "123");
+        ev.setId(7L);
+        Presupuesto p = new Presupuesto();
+        p.setId(10L);
+        when(eventRepo.findById(7L)).thenReturn(Optional.of(ev));
+        when(presupuestoRepo.findById(10L)).thenReturn(Optional.of(p));
+
+        service.aplicarResultado(7L, new WebhookPagoService.ResultadoPago(10L, 555L, "pending", null, null));
+
+        assertEquals("PENDIENTE", p.getSenaEstado());
+        verifyNoInteractions(movimientos);
+    }
+
+    @Test
+    @DisplayName("registrarFallo: suma intento, guarda el error y reprograma con backoff")
+    void registrarFallo_reprograma() {
+        MpEventLog ev = new MpEventLog("req-1", "payment", "123");
+        ev.setId(7L);
+        when(eventRepo.findById(7L)).thenReturn(Optional.of(ev));
+
+        LocalDateTime antes = LocalDateTime.now();
+        service.registrarFallo(7L, "timeout");
+
+        assertEquals(1, ev.getRetryCount());
+        assertEquals("timeout", ev.getErrorMsg());
+        assertFalse(ev.getProcessed());
+        assertTrue(ev.getNextAttemptAt().isAfter(antes));
+    }
+
+    @Test
+    @DisplayName("backoff: crece exponencialmente hasta el máximo")
+    void backoff_exponencial() {
+        assertEquals(5, service.backoffSegundos(1));
+        assertEquals(10, service.backoffSegundos(2));
+        assertEquals(20, service.backoffSegundos(3));
+        assertEquals(3600, service.backoffSegundos(30));
+    }
+
+    @Test
+    @DisplayName("reservarLote: corre el próximo intento (lease) de los eventos reservados")
+    void reservarLote_aplicaLease() {
+        MpEventLog ev = new MpEventLog("req-1", "payment", "123");
+        LocalDateTime original = ev.getNextAttemptAt();
+        when(eventRepo.reservarPendientes(any(), anyInt(), eq(5))).thenReturn(List.of(ev));
+
+        List<MpEventLog> lote = service.reservarLote(5);
+
+        assertEquals(1, lote.size());
+        assertTrue(lote.get(0).getNextAttemptAt().isAfter(original));
+    }
+}
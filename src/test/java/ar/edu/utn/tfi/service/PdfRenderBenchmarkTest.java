@@ -0,0 +1,203 @@
+package ar.edu.utn.tfi.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de render de PDF de factura: armado como antes (logo leído y decodificado y fuentes
+ * buscadas en FontFactory en cada render) contra PdfKit (logo, fuentes y cabecera armados una vez).
+ * Reporta PDFs por segundo y bytes asignados por PDF (contador de asignación del hilo de la JVM).
+ *
+ * El segundo caso compara las copias fiscales ORIGINAL/DUPLICADO/TRIPLICADO armadas con tres renders
+ * completos contra un render y la leyenda estampada sobre las páginas importadas (PdfKit.estamparCopias).
+ *
+ * No corre en el build normal:
+ *   mvn test -Dbenchmarks=true -Dtest=PdfRenderBenchmarkTest [-Dbench.pdfs=50] [-Dbench.items=20]
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PdfRenderBenchmarkTest {
+
+    static final int PDFS = Integer.getInteger("bench.pdfs", 50);
+    static final int ITEMS = Integer.getInteger("bench.items", 20);
+    static final int CALENTAMIENTO = Math.max(1, PDFS / 4);
+
+    interface Render {
+        byte[] pdf(int n) throws Exception;
+    }
+
+    // ─── Antes: todo por render ───
+
+    static byte[] renderAntes(int n) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document doc = new Document(PageSize.A4, 36, 36, 36, 36);
+        PdfWriter.getInstance(doc, baos);
+        doc.open();
+
+        Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
+        Font normal    = FontFactory.getFont(FontFactory.HELVETICA, 10);
+        Font small     = FontFactory.getFont(FontFactory.HELVETICA, 8);
+
+        PdfPTable head = new PdfPTable(new float[]{3f, 1.2f});
+        head.setWidthPercentage(100);
+        PdfPCell left = new PdfPCell();
+        left.setBorder(Rectangle.BOX);
+        left.setPadding(6f);
+        Image logo = Image.getInstance(Objects.requireNonNull(
+                PdfRenderBenchmarkTest.class.getResource(PdfKit.LOGO)));
+        logo.scaleToFit(180, 80);
+        logo.setAlignment(Image.LEFT);
+        left.addElement(logo);
+        Paragraph empName = new Paragraph("RECTIFICADORA CORNEJO SAS", titleFont);
+        empName.setSpacingBefore(4f);
+        left.addElement(empName);
+        left.addElement(new Phrase("CUIT: 30-00000000-0", small));
+        head.addCell(left);
+        head.addCell(new PdfPCell(new Phrase("FACTURA B N° " + n, normal)));
+        doc.add(head);
+
+        PdfPTable items = new PdfPTable(new float[]{4f, 2f});
+        items.setWidthPercentage(100);
+        PdfPCell h1 = new PdfPCell(new Phrase("Concepto", small));
+        PdfPCell h2 = new PdfPCell(new Phrase("Precio", small));
+        h1.setBackgroundColor(new Color(240, 240, 240));
+        h2.setBackgroundColor(new Color(240, 240, 240));
+        items.addCell(h1);
+        items.addCell(h2);
+        cargarItems(items, normal);
+        doc.add(items);
+
+        doc.close();
+        return baos.toByteArray();
+    }
+
+    // ─── Después: recursos de PdfKit ───
+
+    static byte[] renderKit(PdfKit kit, int n) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document doc = new Document(PageSize.A4, 36, 36, 36, 36);
+        PdfWriter.getInstance(doc, baos);
+        doc.open();
+        cuerpoKit(doc, kit, n);
+        doc.close();
+        return baos.toByteArray();
+    }
+
+    private static void cuerpoKit(Document doc, PdfKit kit, int n) throws Exception {
+        PdfPTable head = new PdfPTable(new float[]{3f, 1.2f});
+        head.setWidthPercentage(100);
+        head.addCell(kit.cabeceraEmpresa());
+        head.addCell(new PdfPCell(new Phrase("FACTURA B N° " + n, PdfKit.NORMAL)));
+        doc.add(head);
+
+        PdfPTable items = new PdfPTable(new float[]{4f, 2f});
+        items.setWidthPercentage(100);
+        items.addCell(PdfKit.celdaEncabezadoItems("Concepto"));
+        items.addCell(PdfKit.celdaEncabezadoItems("Precio"));
+        cargarItems(items, PdfKit.NORMAL);
+        doc.add(items);
+    }
+
+    // ─── Copias fiscales ───
+
+    /** Un render completo por leyenda, en un mismo documento; " " deja la línea libre para estamparla. */
+    static byte[] renderCopias(PdfKit kit, int n, List<String> leyendas) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document doc = new Document(PageSize.A4, 36, 36, 54, 36);
+        PdfWriter.getInstance(doc, baos);
+        doc.open();
+        for (String leyenda : leyendas) {
+            doc.newPage();
+            Paragraph copia = new Paragraph(leyenda, PdfKit.CHICA);
+            copia.setAlignment(Element.ALIGN_RIGHT);
+            doc.add(copia);
+            cuerpoKit(doc, kit, n);
+        }
+        doc.close();
+        return baos.toByteArray();
+    }
+
+    private static void cargarItems(PdfPTable items, Font font) {
+        for (int i = 0; i < ITEMS; i++) {
+            items.addCell(new PdfPCell(new Phrase("Servicio " + i, font)));
+            items.addCell(new PdfPCell(new Phrase("$ " + (1000 + i * 37) + ",00", font)));
+        }
+    }
+
+    private static void medir(String nombre, Render render) throws Exception {
+        var mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        for (int i = 0; i < CALENTAMIENTO; i++) render.pdf(i);
+
+        long bytes = 0;
+        long a0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < PDFS; i++) bytes += render.pdf(i).length;
+        long t = System.nanoTime() - t0;
+        long asignado = mx.getThreadAllocatedBytes(tid) - a0;
+
+        assertTrue(bytes > 0);
+        System.out.printf("[BENCH] PDF %s pdfs=%d items=%d pdfs/s=%.0f asignado/pdf=%d KB tamaño/pdf=%d KB%n",
+                nombre, PDFS, ITEMS, PDFS / (t / 1e9), asignado / PDFS / 1024, bytes / PDFS / 1024);
+    }
+
+    @Test
+    @DisplayName("PDF: recursos por render vs PdfKit")
+    void antesVsKit() throws Exception {
+        PdfKit kit = new PdfKit();
+        medir("antes", PdfRenderBenchmarkTest::renderAntes);
+        medir("pdfkit", n -> renderKit(kit, n));
+    }
+
+    /** Los PDFs separados se cuentan juntos (sólo para el tamaño que reporta medir). */
+    private static byte[] unir(List<byte[]> pdfs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pdfs.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Copias fiscales: tres renders vs un render + leyenda estampada")
+    void tresRendersVsEstampado() throws Exception {
+        PdfKit kit = new PdfKit();
+        // antes: un render completo por copia (tres PDFs)
+        medir("copias-3-renders", n -> {
+            List<byte[]> pdfs = new ArrayList<>();
+            for (String c : PdfKit.COPIAS) pdfs.add(renderCopias(kit, n, List.of(c)));
+            return unir(pdfs);
+        });
+        // después: un render y la leyenda estampada, en un PDF de tres páginas o en tres PDFs
+        medir("copias-estampado-1-pdf", n -> PdfKit.estamparCopias(renderCopias(kit, n, List.of(" ")), PdfKit.COPIAS));
+        medir("copias-estampado-3-pdfs", n -> {
+            byte[] cuerpo = renderCopias(kit, n, List.of(" "));
+            List<byte[]> pdfs = new ArrayList<>();
+            for (String c : PdfKit.COPIAS) pdfs.add(PdfKit.estamparCopias(cuerpo, List.of(c)));
+            return unir(pdfs);
+        });
+        // costo agregado al ORIGINAL que se guarda en el almacén
+        medir("original-render", n -> renderCopias(kit, n, List.of(PdfKit.ORIGINAL)));
+        medir("original-estampado", n -> PdfKit.estamparCopias(renderCopias(kit, n, List.of(" ")), List.of(PdfKit.ORIGINAL)));
+    }
+}
@@ -4,13 +4,13 @@ package ar.edu.utn.tfi.service;
 import ar.edu.utn.tfi.domain.PagoManual;
 import ar.edu.utn.tfi.domain.Presupuesto;
 import ar.edu.utn.tfi.domain.PresupuestoItem;
-import ar.edu.utn.tfi.domain.ServicioTarifa;
 import ar.edu.utn.tfi.domain.SolicitudPresupuesto;
+import ar.edu.utn.tfi.domain.Tarifa;
 import ar.edu.utn.tfi.repository.PagoManualRepository;
 import ar.edu.utn.tfi.repository.PresupuestoItemRepository;
 import ar.edu.utn.tfi.repository.PresupuestoRepository;
-import ar.edu.utn.tfi.repository.ServicioTarifaRepository;
 import ar.edu.utn.tfi.repository.SolicitudPresupuestoRepository;
+import ar.edu.utn.tfi.service.Pagos.MovimientoPagoService;
 import ar.edu.utn.tfi.service.Pagos.PaymentApiService;
 import ar.edu.utn.tfi.web.dto.ExtraItemReq;
 import ar.edu.utn.tfi.web.dto.PagoApiReq;
@@ -40,7 +40,7 @@ import static org.mockito.Mockito.*;
 class PresupuestoGestionServiceTest {
 
     @Mock SolicitudPresupuestoRepository solicitudRepo;
-    @Mock ServicioTarifaRepository tarifaRepo;
+    @Mock TarifaCatalogo tarifas;
     @Mock PresupuestoRepository presupuestoRepo;
     @Mock PresupuestoItemRepository itemRepo;
     @Mock MailService mailService;
@@ -48,6 +48,8 @@ class PresupuestoGestionServiceTest {
     @Mock PagoManualRepository pagoManualRepo;
     @Mock OrdenRepuestoService ordenRepuestoService;
     @Mock NotificationService notificationService;
+    @Mock MovimientoPagoService movimientos;
+    @Spy MaquinaEtapas etapas = EtapasDePrueba.maquina();
 
     @InjectMocks
     PresupuestoGestionService service;
@@ -76,17 +78,11 @@ class PresupuestoGestionServiceTest {
         when(solicitudRepo.findById(solicitudId)).thenReturn(Optional.of(sol));
         when(presupuestoRepo.existsBySolicitudId(solicitudId)).thenReturn(false);
 
-        // Tarifas para los servicios
-        ServicioTarifa t1 = new ServicioTarifa();
-        t1.setNombreServicio("RECTIFICADO");
-        t1.setPrecio(new BigDecimal("100000"));
-
-        ServicioTarifa t2 = new ServicioTarifa();
-        t2.setNombreServicio("ARMADO");
-        t2.setPrecio(new BigDecimal("50000"));
-
-        when(tarifaRepo.findByVehiculoTipoAndNombreServicioIn("AUTO", List.of("RECTIFICADO", "ARMADO")))
-                .thenReturn(List.of(t1, t2));
+        // Tarifas para los servicios (catálogo en memoria, versión 7)
+        when(tarifas.catalogo()).thenReturn(new TarifaCatalogo.Catalogo(7L, List.of(
+                new Tarifa("AUTO", "RECTIFICADO", new BigDecimal("100000")),
+                new Tarifa("AUTO", "ARMADO", new BigDecimal("50000")),
+                new Tarifa("MOTO", "RECTIFICADO", new BigDecimal("1")))));
 
         // Extra como mock para no depender del constructor del record
         ExtraItemReq extra = mock(ExtraItemReq.class);
@@ -117,6 +113,9 @@ class PresupuestoGestionServiceTest {
         // Total = 100000 + 50000 + 20000 = 170000
         assertThat(result.getTotal()).isEqualByComparingTo("170000");
 
+        // Queda registrada la versión del catálogo con la que se cotizó
+        assertThat(result.getTarifaVersion()).isEqualTo(7L);
+
         // Verifico que se haya guardado el presupuesto
         verify(presupuestoRepo).save(any(Presupuesto.class));
 
@@ -146,12 +145,9 @@ class PresupuestoGestionServiceTest {
 
         // El front manda dos servicios, pero solo hay tarifa para uno
         List<String> servicios = List.of("RECTIFICADO", "ARMADO");
-        ServicioTarifa t1 = new ServicioTarifa();
-        t1.setNombreServicio("RECTIFICADO");
-        t1.setPrecio(new BigDecimal("100000"));
-
-        when(tarifaRepo.findByVehiculoTipoAndNombreServicioIn("AUTO", List.of("RECTIFICADO", "ARMADO")))
-                .thenReturn(List.of(t1)); // solo uno encontrado
+        when(tarifas.catalogo()).thenReturn(new TarifaCatalogo.Catalogo(7L, List.of(
+                new Tarifa("AUTO", "RECTIFICADO", new BigDecimal("100000")),
+                new Tarifa("IMPORTADO", "ARMADO", new BigDecimal("50000"))))); // ARMADO sólo para otro tipo
 
         // Act + Assert
         assertThatThrownBy(() -> service.generarDesdeSolicitud(
@@ -162,7 +158,8 @@ class PresupuestoGestionServiceTest {
                 List.of()
         ))
                 .isInstanceOf(IllegalArgumentException.class)
-                .hasMessageContaining("Servicios sin tarifa");
+                .hasMessageContaining("Servicios sin tarifa")
+                .hasMessageContaining("ARMADO");
 
         // No debe guardar presupuesto ni items ni notificar
         verify(presupuestoRepo, never()).save(any());
@@ -272,6 +269,9 @@ class PresupuestoGestionServiceTest {
 
         verify(paymentApiService).crearPago(eq(10L), eq(new BigDecimal("30000.00")), eq(req));
         verify(presupuestoRepo).save(p);
+        // la seña acreditada queda en el libro de pagos
+        verify(movimientos).registrar(eq(10L), eq("SENA"), eq(new BigDecimal("30000.00")), any(LocalDateTime.class),
+                eq("MERCADO_PAGO"), isNull(), eq("PAY-123"));
     }
 
     @Test
@@ -288,6 +288,7 @@ class PresupuestoGestionServiceTest {
                 () -> service.cobrarSenaApi(10L, null));
 
         verify(paymentApiService, never()).crearPago(anyLong(), any(), any());
+        verifyNoInteractions(movimientos);
     }
 
     // ───────────────────────────── getPagoInfoPublico ─────────────────────────────
@@ -365,6 +366,10 @@ class PresupuestoGestionServiceTest {
         assertThat(pm.getNota()).isEqualTo("Seña inicial");
 
         verify(pagoManualRepo).save(any(PagoManual.class));
+
+        // agrega el movimiento al libro de pagos con la fecha del pago
+        verify(movimientos).registrar(30L, "SENA", new BigDecimal("30000.00"), LocalDate.of(2025, 1, 1).atStartOfDay(),
+                "MANUAL", "EFECTIVO", "RECIBO-001");
     }
 
     // ───────────────────────────── registrarPagoManual (FINAL) ─────────────────────────────
@@ -421,6 +426,9 @@ class PresupuestoGestionServiceTest {
         assertThat(pm.getTipo()).isEqualTo("FINAL");
         assertThat(pm.getMonto()).isEqualByComparingTo("90000.00");
         assertThat(pm.getReferencia()).isEqualTo("OP-999");
+
+        verify(movimientos).registrar(eq(40L), eq("FINAL"), eq(new BigDecimal("90000.00")), any(LocalDateTime.class),
+                eq("MANUAL"), eq("TRANSFERENCIA"), eq("OP-999"));
     }
 
     @Test
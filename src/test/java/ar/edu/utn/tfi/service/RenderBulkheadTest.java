@@ -0,0 +1,107 @@
+package ar.edu.utn.tfi.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RenderBulkheadTest {
+
+    @Test
+    @DisplayName("ejecutar(): con lugar libre corre enseguida y libera el permiso al terminar")
+    void ejecutar_liberaPermiso() throws Exception {
+        var b = new RenderBulkhead(1, 0, 0, 5);
+
+        assertThat(b.ejecutar("pdf", () -> "ok")).isEqualTo("ok");
+        assertThat(b.ejecutar("pdf", () -> "otra vez")).isEqualTo("otra vez");
+
+        var m = b.estadisticas();
+        assertThat(m.get("admitidos")).isEqualTo(2L);
+        assertThat(m.get("activos")).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("ejecutar(): si la tarea falla el permiso se libera igual")
+    void ejecutar_errorLiberaPermiso() {
+        var b = new RenderBulkhead(1, 0, 0, 5);
+
+        assertThatThrownBy(() -> b.ejecutar("pdf", () -> { throw new IllegalStateException("boom"); }))
+                .isInstanceOf(IllegalStateException.class);
+
+        try (var p = b.entrar("pdf")) {
+            assertThat(p).isNotNull();
+        }
+    }
+
+    @Test
+    @DisplayName("entrar(): sin lugar y sin cola → 503 inmediato con Retry-After")
+    void entrar_sinCola_rechazaEnseguida() {
+        var b = new RenderBulkhead(1, 0, 10_000, 7);
+
+        try (var ocupado = b.entrar("pdf")) {
+            long t0 = System.nanoTime();
+            assertThatThrownBy(() -> b.entrar("pdf"))
+                    .isInstanceOf(ServicioSaturadoException.class)
+                    .satisfies(e -> assertThat(((ServicioSaturadoException) e).getRetryAfterSegundos()).isEqualTo(7));
+            // no esperó los 10 s de espera máxima
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0)).isLessThan(1_000);
+        }
+        assertThat(b.estadisticas().get("rechazadosColaLlena")).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("entrar(): en la cola espera su turno; si vence la espera máxima → 503")
+    void entrar_esperaVencida() {
+        var b = new RenderBulkhead(1, 4, 50, 5);
+
+        try (var ocupado = b.entrar("pdf")) {
+            assertThatThrownBy(() -> b.entrar("pdf")).isInstanceOf(ServicioSaturadoException.class);
+        }
+        assertThat(b.estadisticas().get("rechazadosPorEspera")).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("entrar(): el que espera en la cola entra cuando se libera un lugar")
+    void entrar_esperaYEntra() throws Exception {
+        var b = new RenderBulkhead(1, 4, 5_000, 5);
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        try {
+            var ocupado = b.entrar("pdf");
+            CountDownLatch intentando = new CountDownLatch(1);
+            Future<String> segundo = ex.submit(() -> {
+                intentando.countDown();
+                return b.ejecutar("pdf", () -> "entró");
+            });
+            intentando.await();
+            Thread.sleep(100);
+            assertThat(segundo.isDone()).isFalse();
+            assertThat(b.estadisticas().get("enEspera")).isEqualTo(1);
+
+            ocupado.close();
+            assertThat(segundo.get(5, TimeUnit.SECONDS)).isEqualTo("entró");
+            assertThat((Long) b.estadisticas().get("esperaMaxMs")).isGreaterThanOrEqualTo(50L);
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Permiso.close() es idempotente: no devuelve dos lugares")
+    void close_idempotente() {
+        var b = new RenderBulkhead(1, 0, 0, 5);
+
+        var p = b.entrar("pdf");
+        p.close();
+        p.close();
+
+        try (var uno = b.entrar("pdf")) {
+            assertThatThrownBy(() -> b.entrar("pdf")).isInstanceOf(ServicioSaturadoException.class);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ar.edu.utn.tfi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReportCacheTest {
+
+    /** Reloj que se puede adelantar a mano. */
+    static class RelojManual extends Clock {
+        Instant ahora = LocalDate.of(2025, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return ahora; }
+
+        void avanzar(Duration d) { ahora = ahora.plus(d); }
+    }
+
+    final RelojManual reloj = new RelojManual();
+    final ReportCache cache = new ReportCache(100, 300, reloj);
+    final AtomicInteger calculos = new AtomicInteger();
+
+    static final LocalDate ENE_1 = LocalDate.of(2025, 1, 1);
+    static final LocalDate ENE_31 = LocalDate.of(2025, 1, 31);
+    static final LocalDate FEB_1 = LocalDate.of(2025, 2, 1);
+    static final LocalDate FEB_28 = LocalDate.of(2025, 2, 28);
+    static final LocalDate MAR_1 = LocalDate.of(2025, 3, 1);
+    static final LocalDate MAR_31 = LocalDate.of(2025, 3, 31);
+
+    private String calcular(String reporte, LocalDate from, LocalDate to) {
+        return cache.obtener(reporte, from, to, null, () -> reporte + "#" + calculos.incrementAndGet());
+    }
+
+    @Test
+    @DisplayName("misma clave: la segunda consulta no vuelve a calcular")
+    void hit() {
+        assertEquals("ingresos-senas-finales#1", calcular(ReportCache.INGRESOS, ENE_1, ENE_31));
+        assertEquals("ingresos-senas-finales#1", calcular(ReportCache.INGRESOS, ENE_1, ENE_31));
+        assertEquals(1, calculos.get());
+
+        // top forma parte de la clave
+        cache.obtener(ReportCache.CLIENTES_FRECUENTES, ENE_1, ENE_31, 10, calculos::incrementAndGet);
+        cache.obtener(ReportCache.CLIENTES_FRECUENTES, ENE_1, ENE_31, 20, calculos::incrementAndGet);
+        assertEquals(3, calculos.get());
+        assertEquals(1L, cache.estadisticas().get("hits"));
+    }
+
+    @Test
+    @DisplayName("invalidar: solo el reporte afectado y los rangos que contienen la fecha")
+    void invalidacionSelectiva() {
+        calcular(ReportCache.INGRESOS, ENE_1, ENE_31);
+        calcular(ReportCache.INGRESOS, FEB_1, FEB_28);
+        calcular(ReportCache.MOTORES_VS_TAPAS, ENE_1, ENE_31);
+        assertEquals(3, calculos.get());
+
+        cache.onDatosCambiados(new ReportCache.DatosReporteCambiados(
+                List.of(ReportCache.INGRESOS), LocalDate.of(2025, 1, 15)));
+
+        calcular(ReportCache.INGRESOS, ENE_1, ENE_31);         // recalcula
+        calcular(ReportCache.INGRESOS, FEB_1, FEB_28);         // sigue en cache
+        calcular(ReportCache.MOTORES_VS_TAPAS, ENE_1, ENE_31); // otro reporte: sigue en cache
+        assertEquals(4, calculos.get());
+        assertEquals(1L, cache.estadisticas().get("invalidadas"));
+    }
+
+    @Test
+    @DisplayName("el mes en curso vence por TTL corto; los meses cerrados por el TTL largo")
+    void ttlPorTipoDeRango() {
+        calcular(ReportCache.MOTORES_POR_ETAPA, FEB_1, FEB_28);  // cerrado (hoy es 10/03)
+        calcular(ReportCache.MOTORES_POR_ETAPA, MAR_1, MAR_31);  // abierto
+        assertEquals(2, calculos.get());
+
+        reloj.avanzar(Duration.ofHours(6));
+
+        calcular(ReportCache.MOTORES_POR_ETAPA, FEB_1, FEB_28);
+        assertEquals(2, calculos.get());
+        calcular(ReportCache.MOTORES_POR_ETAPA, MAR_1, MAR_31);
+        assertEquals(3, calculos.get());
+
+        // red de seguridad: un día después también se recalcula el mes cerrado
+        reloj.avanzar(Duration.ofHours(19));
+        calcular(ReportCache.MOTORES_POR_ETAPA, FEB_1, FEB_28);
+        assertEquals(4, calculos.get());
+    }
+
+    @Test
+    @DisplayName("la invalidación de una instancia llega a las demás por el bus (al commit)")
+    void invalidacionEntreInstancias() {
+        // bus simulado: lo publicado se entrega a los handlers de todos los nodos
+        List<Consumer<String>> handlers = new ArrayList<>();
+        PgNotifyBus bus = mock(PgNotifyBus.class);
+        when(bus.isEnabled()).thenReturn(true);
+        doAnswer(inv -> handlers.add(inv.getArgument(1))).when(bus).subscribe(eq(ReportCache.CANAL_INVALIDACION), any());
+        doAnswer(inv -> {
+            handlers.forEach(h -> h.accept(inv.getArgument(1)));
+            return null;
+        }).when(bus).publish(eq(ReportCache.CANAL_INVALIDACION), anyString());
+
+        var nodoA = new ReportCache(100, 300, 86_400, reloj, bus, new ObjectMapper());
+        var nodoB = new ReportCache(100, 300, 86_400, reloj, bus, new ObjectMapper());
+        AtomicInteger enB = new AtomicInteger();
+        nodoB.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, enB::incrementAndGet);
+        nodoB.obtener(ReportCache.INGRESOS, FEB_1, FEB_28, null, enB::incrementAndGet);
+
+        // pago manual con fecha vieja, registrado en A dentro de una transacción
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            nodoA.onDatosCambiados(new ReportCache.DatosReporteCambiados(
+                    List.of(ReportCache.INGRESOS), LocalDate.of(2025, 1, 20)));
+            verify(bus, never()).publish(anyString(), anyString());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        nodoB.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, enB::incrementAndGet);   // recalcula
+        nodoB.obtener(ReportCache.INGRESOS, FEB_1, FEB_28, null, enB::incrementAndGet);   // sigue
+        assertEquals(3, enB.get());
+        assertEquals(1L, nodoB.estadisticas().get("invalidacionesRemotas"));
+        assertEquals(0L, nodoA.estadisticas().get("invalidacionesRemotas"));   // su propio mensaje lo ignora
+    }
+
+    @Test
+    @DisplayName("tamaño acotado: se desaloja la entrada menos usada")
+    void lru() {
+        var chica = new ReportCache(2, 300, reloj);
+        chica.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, calculos::incrementAndGet);
+        chica.obtener(ReportCache.INGRESOS, FEB_1, FEB_28, null, calculos::incrementAndGet);
+        chica.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, calculos::incrementAndGet); // toca enero
+        chica.obtener(ReportCache.INGRESOS, MAR_1, MAR_31, null, calculos::incrementAndGet); // desaloja febrero
+        assertEquals(3, calculos.get());
+        assertEquals(2, chica.estadisticas().get("entradas"));
+
+        chica.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, calculos::incrementAndGet);
+        assertEquals(3, calculos.get());
+        chica.obtener(ReportCache.INGRESOS, FEB_1, FEB_28, null, calculos::incrementAndGet);
+        assertEquals(4, calculos.get());
+    }
+
+    @Test
+    @DisplayName("un cálculo que se cruza con una invalidación no queda cacheado")
+    void noCacheaResultadoViejo() {
+        cache.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, () -> {
+            // commit concurrente mientras corre la consulta
+            cache.invalidar(List.of(ReportCache.INGRESOS), ENE_1);
+            return calculos.incrementAndGet();
+        });
+        calcular(ReportCache.INGRESOS, ENE_1, ENE_31);
+        assertEquals(2, calculos.get());
+    }
+
+    @Test
+    @DisplayName("sinCache: siempre calcula")
+    void deshabilitada() {
+        var sin = ReportCache.sinCache();
+        sin.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, calculos::incrementAndGet);
+        sin.obtener(ReportCache.INGRESOS, ENE_1, ENE_31, null, calculos::incrementAndGet);
+        assertEquals(2, calculos.get());
+    }
+}
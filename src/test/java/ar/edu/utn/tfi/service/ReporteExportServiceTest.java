@@ -1,7 +1,10 @@
 // src/test/java/ar/edu/utn/tfi/service/ReporteExportServiceTest.java
 package ar.edu.utn.tfi.service;
 
+import ar.edu.utn.tfi.repository.ExportFilasRepository;
 import ar.edu.utn.tfi.web.dto.ClienteRankingDTO;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,10 +12,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,12 +43,15 @@ class ReporteExportServiceTest {
     @Mock
     IngresosReportService ingresosReportService;
 
+    @Mock
+    ExportFilasRepository filasRepo;
+
     ReporteExportService service;
 
     @BeforeEach
     void setUp() {
         // Inyectamos los mocks en el service
-        service = new ReporteExportService(reportesService, ingresosReportService);
+        service = new ReporteExportService(reportesService, ingresosReportService, filasRepo);
     }
 
     // =========================================================
@@ -242,4 +253,81 @@ class ReporteExportServiceTest {
         assertTrue(bytes.length > 0);
         verify(ingresosReportService).ingresosSenasVsFinales(from, to);
     }
-}
\ No newline at end of file
+
+    // =========================================================
+    //        EXPORTS FILA A FILA (streaming)
+    // =========================================================
+
+    @Test
+    @DisplayName("ordenesXlsx escribe encabezado + una fila por orden en el OutputStream")
+    @SuppressWarnings("unchecked")
+    void ordenesXlsx_streaming() throws Exception {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to   = LocalDate.of(2025, 1, 31);
+
+        doAnswer(inv -> {
+            Consumer<Object[]> fila = inv.getArgument(2);
+            fila.accept(new Object[]{"OT-0001", LocalDateTime.of(2025, 1, 2, 9, 30), "MOTOR", "Juan", "351", "INGRESO"});
+            fila.accept(new Object[]{"OT-0002", LocalDateTime.of(2025, 1, 3, 10, 0), "TAPA", null, null, "DIAGNOSTICO"});
+            return null;
+        }).when(filasRepo).ordenesEntre(eq(from.atStartOfDay()), eq(LocalDateTime.of(2025, 2, 1, 0, 0)), any());
+
+        var out = new ByteArrayOutputStream();
+        int filas = service.ordenesXlsx(from, to, out);
+
+        assertEquals(2, filas);
+        try (var wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sh = wb.getSheetAt(0);
+            assertEquals("Nro orden", sh.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("OT-0002", sh.getRow(2).getCell(0).getStringCellValue());
+            assertEquals(LocalDateTime.of(2025, 1, 2, 9, 30), sh.getRow(1).getCell(1).getLocalDateTimeCellValue());
+            assertNull(sh.getRow(2).getCell(3));
+            // ancho precalculado (sin autoSize)
+            assertEquals(30 * 256, sh.getColumnWidth(3));
+        }
+    }
+
+    @Test
+    @DisplayName("pagosXlsx genera XLSX válido aunque no haya pagos")
+    void pagosXlsx_sinFilas() throws Exception {
+        var out = new ByteArrayOutputStream();
+        int filas = service.pagosXlsx(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), out);
+
+        assertEquals(0, filas);
+        try (var wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("Pagos", wb.getSheetAt(0).getSheetName());
+            assertEquals(0, wb.getSheetAt(0).getLastRowNum());
+        }
+        verify(filasRepo).pagosEntre(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("pagosXlsx: termina el cursor antes de escribir en el OutputStream; presupuesto null = celda vacía")
+    @SuppressWarnings("unchecked")
+    void pagosXlsx_cursorAntesDeEscribir() throws Exception {
+        AtomicBoolean cursorAbierto = new AtomicBoolean();
+        doAnswer(inv -> {
+            cursorAbierto.set(true);
+            Consumer<Object[]> fila = inv.getArgument(2);
+            fila.accept(new Object[]{LocalDateTime.of(2025, 1, 5, 12, 0), "SENA", "MANUAL", "EFECTIVO",
+                    new BigDecimal("1000.00"), null, "R-1"});
+            cursorAbierto.set(false);
+            return null;
+        }).when(filasRepo).pagosEntre(any(), any(), any());
+
+        var out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                assertFalse(cursorAbierto.get(), "escribió en la respuesta con el cursor abierto");
+                super.write(b, off, len);
+            }
+        };
+        int filas = service.pagosXlsx(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), out);
+
+        assertEquals(1, filas);
+        try (var wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertNull(wb.getSheetAt(0).getRow(1).getCell(5));
+            assertEquals("R-1", wb.getSheetAt(0).getRow(1).getCell(6).getStringCellValue());
+        }
+    }
+}
@@ -30,7 +30,7 @@ class ReportesServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new ReportesService(ordenReportRepo);
+        service = new ReportesService(ordenReportRepo, ReportCache.sinCache());
     }
 
     // ================== Test motoresVsTapas ==================
@@ -0,0 +1,97 @@
+package ar.edu.utn.tfi.service;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import ar.edu.utn.tfi.repository.TarifaCatalogoRepository;
+import ar.edu.utn.tfi.repository.TarifaCatalogoRepository.Carga;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TarifaCatalogoTest {
+
+    @Mock
+    TarifaCatalogoRepository repo;
+
+    TarifaCatalogo tarifas;
+
+    @BeforeEach
+    void setUp() {
+        tarifas = new TarifaCatalogo(repo, 30_000);
+    }
+
+    private static Carga carga(long version, String precioPlaneado) {
+        return new Carga(version, List.of(
+                new Tarifa("CONVENCIONAL", "Planeado de tapa", new BigDecimal(precioPlaneado)),
+                new Tarifa("CONVENCIONAL", "Cambio de retenes", new BigDecimal("12000")),
+                new Tarifa("IMPORTADO", "Planeado de tapa", new BigDecimal("35000"))));
+    }
+
+    @Test
+    @DisplayName("catalogo(): se carga una sola vez e indexa por (tipo, servicio)")
+    void catalogo_indexado() {
+        when(repo.cargar()).thenReturn(carga(3, "25000"));
+
+        TarifaCatalogo.Catalogo c = tarifas.catalogo();
+        assertSame(c, tarifas.catalogo());
+        verify(repo, times(1)).cargar();
+
+        assertEquals(3, c.version());
+        assertEquals("\"tarifas-3\"", c.etag());
+        assertEquals(new BigDecimal("25000"), c.tarifa("CONVENCIONAL", "Planeado de tapa").precio());
+        assertEquals(new BigDecimal("35000"), c.tarifa(" importado ", "Planeado de tapa ").precio());
+        assertNull(c.tarifa("IMPORTADO", "Cambio de retenes"));
+        assertNull(c.tarifa("MOTO", "Planeado de tapa"));
+        assertNull(c.tarifa("CONVENCIONAL", null));
+        assertEquals(2, c.tarifas("convencional").size());
+        assertEquals(3, c.tarifas(null).size());
+        assertThrows(UnsupportedOperationException.class, () -> c.tarifas(null).clear());
+    }
+
+    @Test
+    @DisplayName("recargar(): misma versión → no relee; versión nueva → reemplaza el catálogo entero")
+    void recargar_porVersion() {
+        when(repo.cargar()).thenReturn(carga(3, "25000"));
+        TarifaCatalogo.Catalogo anterior = tarifas.catalogo();
+
+        when(repo.version()).thenReturn(3L);
+        assertFalse(tarifas.recargar());
+        verify(repo, times(1)).cargar();
+
+        when(repo.version()).thenReturn(4L);
+        when(repo.cargar()).thenReturn(carga(4, "27500"));
+        assertTrue(tarifas.recargar());
+
+        TarifaCatalogo.Catalogo nuevo = tarifas.catalogo();
+        assertEquals(4, nuevo.version());
+        assertEquals(new BigDecimal("27500"), nuevo.tarifa("CONVENCIONAL", "Planeado de tapa").precio());
+        // quien tenía el anterior sigue viendo los precios de su versión
+        assertEquals(new BigDecimal("25000"), anterior.tarifa("CONVENCIONAL", "Planeado de tapa").precio());
+        assertEquals(2L, tarifas.estadisticas().get("recargas"));
+    }
+
+    @Test
+    @DisplayName("verificarCambios(): sin cargar no consulta; si la base falla se queda con el catálogo que tiene")
+    void verificarCambios() {
+        tarifas.verificarCambios();
+        verifyNoInteractions(repo);
+
+        when(repo.cargar()).thenReturn(carga(3, "25000"));
+        TarifaCatalogo.Catalogo c = tarifas.catalogo();
+        when(repo.version()).thenThrow(new IllegalStateException("sin conexión"));
+
+        tarifas.verificarCambios();
+
+        assertSame(c, tarifas.catalogo());
+        assertEquals(1L, tarifas.estadisticas().get("verificaciones"));
+    }
+}
@@ -0,0 +1,145 @@
+package ar.edu.utn.tfi.service;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark de export XLSX fila a fila: XSSFWorkbook en memoria + autoSizeColumn (como los reportes actuales)
+ * contra XlsxStreamWriter (SXSSF con ventana, anchos fijos, directo al OutputStream).
+ * Reporta tiempo y pico de heap usado (muestreado cada 5 ms).
+ *
+ * No corre en el build normal:
+ *   mvn test -Dbenchmarks=true -Dtest=XlsxExportBenchmarkTest [-Dbench.filas=1000000] [-Dbench.filasDom=200000]
+ * El modo DOM se corre con menos filas por defecto: con 1M filas no entra en un heap chico (si hay OOM se informa).
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class XlsxExportBenchmarkTest {
+
+    static final int FILAS = Integer.getInteger("bench.filas", 1_000_000);
+    static final int FILAS_DOM = Integer.getInteger("bench.filasDom", 200_000);
+
+    static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    /** OutputStream que solo cuenta bytes (simula el socket de la respuesta). */
+    static class ContadorOutputStream extends OutputStream {
+        long bytes;
+        @Override public void write(int b) { bytes++; }
+        @Override public void write(byte[] b, int off, int len) { bytes += len; }
+    }
+
+    /** Muestrea el heap usado en un hilo aparte y guarda el máximo. */
+    static class PicoHeap implements AutoCloseable {
+        final AtomicLong pico = new AtomicLong();
+        final long base;
+        final Thread hilo;
+        volatile boolean corriendo = true;
+
+        PicoHeap() {
+            System.gc();
+            Runtime rt = Runtime.getRuntime();
+            base = rt.totalMemory() - rt.freeMemory();
+            hilo = new Thread(() -> {
+                while (corriendo) {
+                    pico.accumulateAndGet(rt.totalMemory() - rt.freeMemory(), Math::max);
+                    try { Thread.sleep(5); } catch (InterruptedException e) { return; }
+                }
+            }, "heap-sampler");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+
+        long picoMb() {
+            return Math.max(0, pico.get() - base) / (1024 * 1024);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            corriendo = false;
+            hilo.join();
+        }
+    }
+
+    private static Object[] fila(int i) {
+        return new Object[]{
+                "OT-" + i,
+                BASE.plusMinutes(i),
+                (i % 3 == 0) ? "TAPA" : "MOTOR",
+                "Cliente " + (i % 5_000),
+                "351" + (1_000_000 + i % 9_000_000),
+                new BigDecimal(i % 100_000).movePointLeft(2)
+        };
+    }
+
+    @Test
+    @DisplayName("XLSX: DOM + autoSize vs streaming SXSSF")
+    void domVsStreaming() throws Exception {
+        var columnas = ReporteExportService.COLUMNAS_ORDENES;
+
+        // ---- streaming ----
+        long tStream;
+        long picoStream;
+        long bytesStream;
+        try (var heap = new PicoHeap()) {
+            long t0 = System.nanoTime();
+            var out = new ContadorOutputStream();
+            try (var xlsx = new XlsxStreamWriter("Órdenes", columnas)) {
+                for (int i = 0; i < FILAS; i++) xlsx.fila(fila(i));
+                xlsx.escribir(out);
+                assertEquals(FILAS, xlsx.filas());
+            }
+            tStream = System.nanoTime() - t0;
+            heap.close();
+            picoStream = heap.picoMb();
+            bytesStream = out.bytes;
+        }
+        System.out.printf("[BENCH] XLSX streaming filas=%d tiempo=%d ms picoHeap=%d MB tamaño=%d KB%n",
+                FILAS, tStream / 1_000_000, picoStream, bytesStream / 1024);
+
+        // ---- DOM actual (XSSFWorkbook + autoSizeColumn + ByteArrayOutputStream) ----
+        try (var heap = new PicoHeap()) {
+            long t0 = System.nanoTime();
+            long bytes;
+            try (Workbook wb = new XSSFWorkbook();
+                 ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                Sheet sh = wb.createSheet("Órdenes");
+                Row h = sh.createRow(0);
+                for (int c = 0; c < columnas.size(); c++) h.createCell(c).setCellValue(columnas.get(c).titulo());
+                for (int i = 0; i < FILAS_DOM; i++) {
+                    Object[] v = fila(i);
+                    Row row = sh.createRow(i + 1);
+                    row.createCell(0).setCellValue((String) v[0]);
+                    row.createCell(1).setCellValue((LocalDateTime) v[1]);
+                    row.createCell(2).setCellValue((String) v[2]);
+                    row.createCell(3).setCellValue((String) v[3]);
+                    row.createCell(4).setCellValue((String) v[4]);
+                    row.createCell(5).setCellValue(((BigDecimal) v[5]).doubleValue());
+                }
+                for (int c = 0; c < columnas.size(); c++) sh.autoSizeColumn(c);
+                wb.write(out);
+                bytes = out.size();
+            } catch (OutOfMemoryError oom) {
+                heap.close();
+                System.out.printf("[BENCH] XLSX DOM filas=%d → OutOfMemoryError (heap máx %d MB)%n",
+                        FILAS_DOM, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+                return;
+            }
+            long tDom = System.nanoTime() - t0;
+            heap.close();
+            System.out.printf("[BENCH] XLSX DOM+autoSize filas=%d tiempo=%d ms picoHeap=%d MB tamaño=%d KB%n",
+                    FILAS_DOM, tDom / 1_000_000, heap.picoMb(), bytes / 1024);
+        }
+    }
+}
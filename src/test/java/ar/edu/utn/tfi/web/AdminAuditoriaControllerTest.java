@@ -0,0 +1,65 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.AuditoriaWriter;
+import ar.edu.utn.tfi.service.EstadoHistoricoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminAuditoriaController.class)
+@Import(SecurityConfig.class)
+@SuppressWarnings("removal")
+class AdminAuditoriaControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    AuditoriaWriter writer;
+
+    @MockBean
+    EstadoHistoricoService historico;
+
+    @Test
+    @DisplayName("GET /admin/auditoria/estadisticas → devuelve las métricas del escritor de auditoría")
+    void estadisticas_ok() throws Exception {
+        when(writer.estadisticas()).thenReturn(Map.of("pendientes", 12, "alSpool", 0));
+
+        mvc.perform(get("/admin/auditoria/estadisticas")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendientes").value(12))
+                .andExpect(jsonPath("$.alSpool").value(0));
+    }
+
+    @Test
+    @DisplayName("GET /admin/auditoria/snapshots → devuelve las métricas de los checkpoints de estado")
+    void snapshots_ok() throws Exception {
+        when(historico.estadisticas()).thenReturn(Map.of("cada", 500, "eventosMaxPorConsulta", 499));
+
+        mvc.perform(get("/admin/auditoria/snapshots")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cada").value(500))
+                .andExpect(jsonPath("$.eventosMaxPorConsulta").value(499));
+    }
+
+    @Test
+    @DisplayName("GET /admin/auditoria/estadisticas sin credenciales → 401")
+    void estadisticas_sinAuth_401() throws Exception {
+        mvc.perform(get("/admin/auditoria/estadisticas"))
+                .andExpect(status().isUnauthorized());
+    }
+}
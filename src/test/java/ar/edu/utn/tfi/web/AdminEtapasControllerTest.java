@@ -0,0 +1,66 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.EtapasDePrueba;
+import ar.edu.utn.tfi.service.MaquinaEtapas;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminEtapasController.class)
+@Import({SecurityConfig.class, AdminEtapasControllerTest.Config.class})
+@SuppressWarnings("removal")
+class AdminEtapasControllerTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MaquinaEtapas maquinaEtapas() {
+            return EtapasDePrueba.maquina();
+        }
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    @DisplayName("GET /admin/etapas → catálogo compilado con siguiente, acciones y terminales")
+    void catalogo_ok() throws Exception {
+        mvc.perform(get("/admin/etapas")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.DIAGNOSTICO.siguiente").value("MAQUINADO"))
+                .andExpect(jsonPath("$.DIAGNOSTICO.acciones[1]").value("IRREPARABLE"))
+                .andExpect(jsonPath("$.ENTREGADO.terminal").value(true));
+    }
+
+    @Test
+    @DisplayName("POST /admin/etapas/recargar → sin cambios en el catálogo")
+    void recargar_sinCambios() throws Exception {
+        mvc.perform(get("/admin/etapas").with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/admin/etapas/recargar")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cambio").value(false))
+                .andExpect(jsonPath("$.etapas").value(9));
+    }
+
+    @Test
+    @DisplayName("POST /admin/etapas/recargar sin credenciales → 401")
+    void recargar_sinAuth_401() throws Exception {
+        mvc.perform(post("/admin/etapas/recargar"))
+                .andExpect(status().isUnauthorized());
+    }
+}
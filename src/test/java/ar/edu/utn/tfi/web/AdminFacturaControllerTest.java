@@ -2,10 +2,17 @@
 package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.domain.FacturaMock;
+import ar.edu.utn.tfi.service.FacturaLoteService;
 import ar.edu.utn.tfi.service.FacturaMockService;
+import ar.edu.utn.tfi.service.FacturaPdfStore;
+import ar.edu.utn.tfi.service.FacturaZipService;
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -14,7 +21,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -30,6 +49,35 @@ class AdminFacturaControllerTest {
     @MockBean
     FacturaMockService facturaService;
 
+    @MockBean
+    FacturaLoteService loteService;
+
+    @MockBean
+    FacturaZipService zipService;
+
+    // mock que entrega permisos de un bulkhead real: así se puede ver cuándo se toman y se liberan
+    @MockBean
+    RenderBulkhead bulkhead;
+
+    RenderBulkhead real = new RenderBulkhead(100, 0, 0, 1);
+
+    @BeforeEach
+    void permisosReales() {
+        when(bulkhead.entrar(anyString())).thenAnswer(inv -> real.entrar(inv.getArgument(0)));
+    }
+
+    private int permisosEnUso() {
+        return (int) real.estadisticas().get("activos");
+    }
+
+    @TempDir
+    Path dir;
+
+    private FacturaPdfStore.PdfGuardado guardado(byte[] pdf, String hash) throws Exception {
+        Path archivo = Files.write(dir.resolve(hash + ".pdf"), pdf);
+        return new FacturaPdfStore.PdfGuardado(archivo, hash);
+    }
+
     // Helper para armar JSON “a mano” (no necesito ObjectMapper para algo tan simple)
     private String json(String body) {
         return body;
@@ -57,6 +105,23 @@ class AdminFacturaControllerTest {
     }
 
 
+    @Test
+    @DisplayName("POST /admin/facturas/generar/{id} con el render saturado → emite igual, sin PDF")
+    void generar_saturado_emiteSinPdf() throws Exception {
+        FacturaMock f = new FacturaMock();
+        f.setId(2L);
+        f.setNumero("FB-000002");
+        f.setTipo("B");
+        when(bulkhead.entrar("factura-pdf")).thenThrow(new ServicioSaturadoException("Hay demasiados documentos", 5));
+        when(facturaService.emitirSinPdf(11L, "B")).thenReturn(f);
+
+        mvc.perform(post("/admin/facturas/generar/{presupuestoId}", 11L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numero").value("FB-000002"));
+
+        verify(facturaService, never()).generar(anyLong(), anyString());
+    }
+
     @Test
     @DisplayName("POST /admin/facturas/generar/{id} → 404 si el presupuesto no existe")
     void generar_notFound() throws Exception {
@@ -86,22 +151,73 @@ class AdminFacturaControllerTest {
     @DisplayName("GET /admin/facturas/{id}/pdf → 200, PDF y header de descarga")
     void pdfByFactura_ok() throws Exception {
         byte[] pdf = "PDF-DUMMY".getBytes();
-        when(facturaService.renderPdf(5L)).thenReturn(pdf);
+        when(facturaService.pdf(5L)).thenReturn(guardado(pdf, "h5"));
 
         mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
                         containsString("factura-5.pdf")))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"h5\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
                 .andExpect(content().bytes(pdf));
 
-        verify(facturaService).renderPdf(5L);
+        verify(facturaService).pdf(5L);
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf con If-None-Match igual → 304 sin cuerpo")
+    void pdfByFactura_noModificado() throws Exception {
+        when(facturaService.pdf(5L)).thenReturn(guardado("PDF-DUMMY".getBytes(), "h5"));
+
+        mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"h5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"h5\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf con Range → 206 con el tramo pedido")
+    void pdfByFactura_rango() throws Exception {
+        when(facturaService.pdf(5L)).thenReturn(guardado("0123456789".getBytes(), "h5"));
+
+        mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L)
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes("2345".getBytes()));
+
+        // If-Range con otra versión → archivo completo
+        mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"otro\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("0123456789".getBytes()));
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf con Range fuera del archivo → 416")
+    void pdfByFactura_rangoInvalido() throws Exception {
+        when(facturaService.pdf(5L)).thenReturn(guardado("0123456789".getBytes(), "h5"));
+
+        mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L)
+                        .header(HttpHeaders.RANGE, "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+
+        // empieza justo en el largo: tampoco hay bytes que mandar
+        mvc.perform(get("/admin/facturas/{facturaId}/pdf", 5L)
+                        .header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
     }
 
     @Test
     @DisplayName("GET /admin/facturas/{id}/pdf → 404 si no existe la factura")
     void pdfByFactura_notFound() throws Exception {
-        when(facturaService.renderPdf(7L))
+        when(facturaService.pdf(7L))
                 .thenThrow(new EntityNotFoundException("Factura no encontrada: 7"));
 
         mvc.perform(get("/admin/facturas/{facturaId}/pdf", 7L))
@@ -114,7 +230,7 @@ class AdminFacturaControllerTest {
     @DisplayName("GET /admin/facturas/pdf/by-presupuesto/{id} → 200, genera/obtiene factura y devuelve PDF")
     void pdfByPresupuesto_ok() throws Exception {
         byte[] pdf = "PDF-PRESUPUESTO".getBytes();
-        when(facturaService.renderPdfByPresupuesto(30L, "A")).thenReturn(pdf);
+        when(facturaService.pdfByPresupuesto(30L, "A")).thenReturn(guardado(pdf, "h30"));
 
         mvc.perform(get("/admin/facturas/pdf/by-presupuesto/{id}", 30L)
                         .param("tipo", "a")) // se normaliza a "A"
@@ -124,13 +240,13 @@ class AdminFacturaControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
                 .andExpect(content().bytes(pdf));
 
-        verify(facturaService).renderPdfByPresupuesto(30L, "A");
+        verify(facturaService).pdfByPresupuesto(30L, "A");
     }
 
     @Test
     @DisplayName("GET /admin/facturas/pdf/by-presupuesto/{id} → 404 si no hay presupuesto/factura")
     void pdfByPresupuesto_notFound() throws Exception {
-        when(facturaService.renderPdfByPresupuesto(40L, "B"))
+        when(facturaService.pdfByPresupuesto(40L, "B"))
                 .thenThrow(new EntityNotFoundException("No hay presupuesto"));
 
         mvc.perform(get("/admin/facturas/pdf/by-presupuesto/{id}", 40L))
@@ -142,7 +258,7 @@ class AdminFacturaControllerTest {
     @Test
     @DisplayName("GET /admin/facturas/pdf/by-presupuesto/{id} → 409 si hay conflicto")
     void pdfByPresupuesto_conflict() throws Exception {
-        when(facturaService.renderPdfByPresupuesto(50L, "B"))
+        when(facturaService.pdfByPresupuesto(50L, "B"))
                 .thenThrow(new IllegalStateException("Pago final no acreditado"));
 
         mvc.perform(get("/admin/facturas/pdf/by-presupuesto/{id}", 50L))
@@ -150,4 +266,150 @@ class AdminFacturaControllerTest {
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE))
                 .andExpect(content().string("Pago final no acreditado"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /admin/facturas/lote → 200 con el resultado por presupuesto")
+    void lote_ok() throws Exception {
+        var res = new FacturaLoteService.ResultadoLote(2, 1, 0, 1, 15, List.of(
+                new FacturaLoteService.ItemLote(10L, 1L, "FB-000001", FacturaLoteService.EMITIDA, null),
+                new FacturaLoteService.ItemLote(11L, null, null, FacturaLoteService.ERROR, "Ya existe una factura")));
+        when(loteService.emitirPendientes("A")).thenReturn(res);
+
+        mvc.perform(post("/admin/facturas/lote").param("tipo", "A"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.candidatos").value(2))
+                .andExpect(jsonPath("$.emitidas").value(1))
+                .andExpect(jsonPath("$.items[0].numero").value("FB-000001"))
+                .andExpect(jsonPath("$.items[1].estado").value("ERROR"));
+    }
+
+    @Test
+    @DisplayName("POST /admin/facturas/lote → 409 si ya hay una corrida en curso")
+    void lote_enCurso() throws Exception {
+        when(loteService.emitirPendientes(null))
+                .thenThrow(new IllegalStateException("Ya hay una emisión masiva en curso."));
+
+        mvc.perform(post("/admin/facturas/lote"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("CONFLICT"));
+    }
+
+    @Test
+    @DisplayName("POST /admin/facturas/lote → 400 con tipo inválido")
+    void lote_tipoInvalido() throws Exception {
+        when(loteService.emitirPendientes("Z"))
+                .thenThrow(new IllegalArgumentException("Tipo de factura inválido. Debe ser A, B o C."));
+
+        mvc.perform(post("/admin/facturas/lote").param("tipo", "Z"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/zip → ZIP en streaming escrito por FacturaZipService")
+    void zip_streaming() throws Exception {
+        LocalDate from = LocalDate.of(2031, 3, 1);
+        LocalDate to = LocalDate.of(2031, 3, 31);
+        when(zipService.zip(eq(from), eq(to), any(OutputStream.class)))
+                .thenAnswer(inv -> {
+                    inv.<OutputStream>getArgument(2).write("ZIP".getBytes());
+                    return 1;
+                });
+
+        // fechas invertidas: se acomodan
+        MvcResult async = mvc.perform(get("/admin/facturas/zip")
+                        .param("from", "2031-03-31")
+                        .param("to", "2031-03-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        containsString("facturas-2031-03-01_2031-03-31.zip")))
+                .andExpect(content().bytes("ZIP".getBytes()));
+
+        verify(zipService).zip(eq(from), eq(to), any(OutputStream.class));
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf con el render saturado → 503 con Retry-After")
+    void pdfByFactura_saturado() throws Exception {
+        when(bulkhead.entrar("factura-pdf")).thenThrow(new ServicioSaturadoException("Hay demasiados documentos", 5));
+
+        mvc.perform(get("/admin/facturas/{id}/pdf", 7L))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                .andExpect(content().string("Hay demasiados documentos"));
+
+        // sin lugar no se llega a abrir la transacción del servicio
+        verifyNoInteractions(facturaService);
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf: el permiso se toma antes del servicio y se libera al terminar")
+    void pdfByFactura_permisoAntesDelServicio() throws Exception {
+        byte[] pdf = "PDF-PERMISO".getBytes();
+        int[] enUsoDuranteServicio = {-1};
+        when(facturaService.pdf(8L)).thenAnswer(inv -> {
+            enUsoDuranteServicio[0] = permisosEnUso();
+            return guardado(pdf, "h8");
+        });
+
+        mvc.perform(get("/admin/facturas/{id}/pdf", 8L))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(pdf));
+
+        var orden = inOrder(bulkhead, facturaService);
+        orden.verify(bulkhead).entrar("factura-pdf");
+        orden.verify(facturaService).pdf(8L);
+        assertThat(enUsoDuranteServicio[0]).isEqualTo(1);
+        assertThat(permisosEnUso()).isZero();
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf/copias → un PDF con las copias pedidas")
+    void copias_unPdf() throws Exception {
+        byte[] pdf = "%PDF-1.4 copias".getBytes();
+        when(facturaService.copias(7L, List.of("ORIGINAL", "DUPLICADO"))).thenReturn(pdf);
+
+        mvc.perform(get("/admin/facturas/{id}/pdf/copias", 7L).param("copias", "ORIGINAL,DUPLICADO"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("factura-7-copias.pdf")))
+                .andExpect(content().bytes(pdf));
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf/copias?separadas=true → ZIP con un PDF por copia")
+    void copias_separadas() throws Exception {
+        var pdfs = new LinkedHashMap<String, byte[]>();
+        pdfs.put("ORIGINAL", "%PDF o".getBytes());
+        pdfs.put("DUPLICADO", "%PDF d".getBytes());
+        when(facturaService.copiasSeparadas(7L, null)).thenReturn(pdfs);
+
+        MvcResult res = mvc.perform(get("/admin/facturas/{id}/pdf/copias", 7L).param("separadas", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andReturn();
+
+        List<String> nombres = new ArrayList<>();
+        try (var in = new ZipInputStream(
+                new ByteArrayInputStream(res.getResponse().getContentAsByteArray()))) {
+            for (var e = in.getNextEntry(); e != null; e = in.getNextEntry()) nombres.add(e.getName());
+        }
+        assertThat(nombres)
+                .containsExactly("factura-7-original.pdf", "factura-7-duplicado.pdf");
+        verify(facturaService, never()).copias(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("GET /admin/facturas/{id}/pdf/copias con una copia inválida → 400")
+    void copias_invalida() throws Exception {
+        when(facturaService.copias(7L, List.of("CUADRUPLICADO")))
+                .thenThrow(new IllegalArgumentException("Copia inválida: 'CUADRUPLICADO'"));
+
+        mvc.perform(get("/admin/facturas/{id}/pdf/copias", 7L).param("copias", "CUADRUPLICADO"))
+                .andExpect(status().isBadRequest());
+    }
+}
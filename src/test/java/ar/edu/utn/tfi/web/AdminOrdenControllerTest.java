@@ -24,6 +24,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -227,4 +228,16 @@ class AdminOrdenControllerTest {
 
         verifyNoInteractions(advanceService);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /admin/ordenes/cache-nro → métricas de la cache nro → id")
+    void cacheNro_ok() throws Exception {
+        when(ordenRepo.estadisticasCacheNro()).thenReturn(Map.of("hits", 40L, "misses", 3L));
+
+        mvc.perform(get("/admin/ordenes/cache-nro")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").value(40))
+                .andExpect(jsonPath("$.misses").value(3));
+    }
+}
@@ -0,0 +1,92 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.EstadoHistoricoService;
+import ar.edu.utn.tfi.service.EstadoHistoricoService.EstadoOrden;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminOrdenEstadoController.class)
+@Import(SecurityConfig.class)
+@SuppressWarnings("removal")
+class AdminOrdenEstadoControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    EstadoHistoricoService historico;
+
+    @Test
+    @DisplayName("GET /admin/ordenes/{nro}/estado?al=fecha → estado al cierre de ese día")
+    void estado_porFecha() throws Exception {
+        LocalDateTime al = LocalDate.of(2025, 3, 11).atStartOfDay();
+        when(historico.estadoAl("OT-0001", al)).thenReturn(new EstadoOrden("OT-0001", al, "MAQUINADO",
+                LocalDateTime.of(2025, 3, 9, 11, 0), null, null, null, LocalDateTime.of(2025, 3, 1, 9, 0), 12));
+
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-0001").param("al", "2025-03-10")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estadoActual").value("MAQUINADO"))
+                .andExpect(jsonPath("$.etapaDesde").value("2025-03-09T11:00:00"))
+                .andExpect(jsonPath("$.eventosReproducidos").value(12));
+    }
+
+    @Test
+    @DisplayName("GET /admin/ordenes/{nro}/estado?al=fecha y hora → se consulta a ese instante")
+    void estado_porFechaHora() throws Exception {
+        LocalDateTime al = LocalDateTime.of(2025, 3, 10, 14, 30);
+        when(historico.estadoAl("OT-0001", al)).thenReturn(new EstadoOrden("OT-0001", al, "ENTREGADO", al,
+                LocalDate.of(2025, 3, 10), LocalDate.of(2025, 6, 8), null, null, 7));
+
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-0001").param("al", "2025-03-10T14:30")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.garantiaHasta").value("2025-06-08"));
+    }
+
+    @Test
+    @DisplayName("GET /admin/ordenes/{nro}/estado sin 'al' o con fecha inválida → 400")
+    void estado_fechaInvalida_400() throws Exception {
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-0001")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-0001").param("al", "ayer")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(historico);
+    }
+
+    @Test
+    @DisplayName("GET /admin/ordenes/{nro}/estado de una OT inexistente (o antes de su alta) → 404")
+    void estado_noEncontrada_404() throws Exception {
+        when(historico.estadoAl(eq("OT-9999"), any())).thenThrow(new EntityNotFoundException("Orden no encontrada: OT-9999"));
+
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-9999").param("al", "2025-03-10")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /admin/ordenes/{nro}/estado sin credenciales → 401")
+    void estado_sinAuth_401() throws Exception {
+        mvc.perform(get("/admin/ordenes/{nro}/estado", "OT-0001").param("al", "2025-03-10"))
+                .andExpect(status().isUnauthorized());
+    }
+}
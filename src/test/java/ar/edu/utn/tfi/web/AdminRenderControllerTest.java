@@ -0,0 +1,49 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminRenderController.class)
+@Import(SecurityConfig.class)
+@SuppressWarnings("removal")
+class AdminRenderControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    RenderBulkhead bulkhead;
+
+    @Test
+    @DisplayName("GET /admin/render/estadisticas → devuelve las métricas del bulkhead de render")
+    void estadisticas_ok() throws Exception {
+        when(bulkhead.estadisticas()).thenReturn(Map.of("activos", 3, "rechazadosColaLlena", 1));
+
+        mvc.perform(get("/admin/render/estadisticas")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activos").value(3))
+                .andExpect(jsonPath("$.rechazadosColaLlena").value(1));
+    }
+
+    @Test
+    @DisplayName("GET /admin/render/estadisticas sin credenciales → 401")
+    void estadisticas_sinAuth_401() throws Exception {
+        mvc.perform(get("/admin/render/estadisticas"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,107 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.domain.Tarifa;
+import ar.edu.utn.tfi.repository.TarifaCatalogoRepository;
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.TarifaCatalogo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminTarifasController.class)
+@Import({SecurityConfig.class, AdminTarifasControllerTest.Config.class})
+@SuppressWarnings("removal")
+class AdminTarifasControllerTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        TarifaCatalogo tarifaCatalogo(TarifaCatalogoRepository repo) {
+            return new TarifaCatalogo(repo, 30_000);
+        }
+    }
+
+    @MockBean
+    TarifaCatalogoRepository repo;
+
+    @Autowired
+    MockMvc mvc;
+
+    private void catalogo(long version) {
+        when(repo.cargar()).thenReturn(new TarifaCatalogoRepository.Carga(version, List.of(
+                new Tarifa("CONVENCIONAL", "Planeado de tapa", new BigDecimal("25000")),
+                new Tarifa("IMPORTADO", "Planeado de tapa", new BigDecimal("35000")))));
+        when(repo.version()).thenReturn(version);
+    }
+
+    @Test
+    @DisplayName("GET /admin/tarifas → catálogo con versión y ETag; filtra por vehiculoTipo")
+    void catalogo_ok() throws Exception {
+        catalogo(5);
+
+        mvc.perform(get("/admin/tarifas").with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"tarifas-5\""))
+                .andExpect(jsonPath("$.version").value(5))
+                .andExpect(jsonPath("$.tarifas.length()").value(2));
+
+        mvc.perform(get("/admin/tarifas").param("vehiculoTipo", "importado").with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tarifas.length()").value(1))
+                .andExpect(jsonPath("$.tarifas[0].precio").value(35000));
+    }
+
+    @Test
+    @DisplayName("GET /admin/tarifas con If-None-Match de la misma versión → 304 sin cuerpo")
+    void catalogo_noModificado() throws Exception {
+        catalogo(5);
+
+        mvc.perform(get("/admin/tarifas")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"tarifas-5\"")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mvc.perform(get("/admin/tarifas")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"tarifas-4\"")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /admin/tarifas/recargar → sin cambios mientras la versión sea la misma")
+    void recargar_sinCambios() throws Exception {
+        catalogo(5);
+        mvc.perform(get("/admin/tarifas").with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/admin/tarifas/recargar").with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cambio").value(false))
+                .andExpect(jsonPath("$.version").value(5))
+                .andExpect(jsonPath("$.tarifas").value(2));
+    }
+
+    @Test
+    @DisplayName("GET /admin/tarifas sin credenciales → 401")
+    void catalogo_sinAuth() throws Exception {
+        mvc.perform(get("/admin/tarifas"))
+                .andExpect(status().isUnauthorized());
+    }
+}
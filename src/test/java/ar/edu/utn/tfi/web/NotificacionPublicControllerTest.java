@@ -4,6 +4,7 @@ package ar.edu.utn.tfi.web;
 import ar.edu.utn.tfi.domain.Notificacion;
 import ar.edu.utn.tfi.repository.NotificacionRepository;
 import ar.edu.utn.tfi.service.NotificationHub;
+import ar.edu.utn.tfi.service.SuscripcionRechazadaException;
 import ar.edu.utn.tfi.security.SecurityConfig;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,7 +18,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -81,4 +84,26 @@ class NotificacionPublicControllerTest {
         verify(repo).findById(5L);
         verify(repo).save(n);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /public/notificaciones/stream → 429 con Retry-After si la orden superó el tope de pestañas")
+    void stream_topePorClave_429() throws Exception {
+        when(hub.subscribe(eq("OT-0001"), isNull(), any()))
+                .thenThrow(new SuscripcionRechazadaException("Demasiadas conexiones abiertas para OT-0001", false));
+
+        mvc.perform(get("/public/notificaciones/stream")
+                        .param("nroOrden", "OT-0001"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"));
+    }
+
+    @Test
+    @DisplayName("GET /public/notificaciones/stream con Last-Event-ID → pide replay desde ese id")
+    void stream_conLastEventId_pideReplay() throws Exception {
+        mvc.perform(get("/public/notificaciones/stream")
+                        .param("nroOrden", " OT-0001 ")
+                        .header("Last-Event-ID", "15"));
+
+        verify(hub).subscribe(eq("OT-0001"), eq(15L), any());
+    }
+}
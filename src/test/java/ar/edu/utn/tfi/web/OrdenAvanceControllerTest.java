@@ -14,6 +14,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Map;
 
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -44,4 +45,16 @@ class OrdenAvanceControllerTest {
 
         verify(service).avanzarEtapa(42L, "admin");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /orden/{id}/avanzar → 409 si otro operador la avanzó antes")
+    void avanzarEtapaPorId_yaAvanzada() throws Exception {
+        doThrow(new IllegalStateException("La orden OT-0042 ya no está en DIAGNOSTICO: otro usuario la avanzó"))
+                .when(service).avanzarEtapa(42L, "admin");
+
+        mvc.perform(post("/orden/{id}/avanzar", 42L)
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("CONFLICT"));
+    }
+}
@@ -1,6 +1,7 @@
 // src/test/java/ar/edu/utn/tfi/web/OrdenPublicControllerTest.java
 package ar.edu.utn.tfi.web;
 
+import ar.edu.utn.tfi.domain.AuditoriaOperacion;
 import ar.edu.utn.tfi.security.SecurityConfig;
 import ar.edu.utn.tfi.service.AuditoriaService;
 import ar.edu.utn.tfi.service.OrderQueryService;
@@ -12,8 +13,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -58,15 +63,60 @@ class OrdenPublicControllerTest {
     }
 
     @Test
-    @DisplayName("GET /public/ordenes/{nro}/auditoria → lista vacía si no hay cambios")
+    @DisplayName("GET /public/ordenes/{nro}/auditoria → página vacía si no hay cambios")
     void auditoria_ok() throws Exception {
-        when(auditoriaService.listarPorNro("OT-0003"))
-                .thenReturn(Collections.emptyList());
+        when(auditoriaService.pagina("OT-0003", null, null))
+                .thenReturn(new AuditoriaService.PaginaAuditoria(Collections.emptyList(), null));
 
         mvc.perform(get("/public/ordenes/{nroOrden}/auditoria", "OT-0003"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(0));
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.siguiente").doesNotExist());
+
+        verify(auditoriaService).pagina("OT-0003", null, null);
+    }
+
+    @Test
+    @DisplayName("GET /public/ordenes/{nro}/auditoria?cursor=&limite= → operación con su diff y cursor siguiente")
+    void auditoria_pagina() throws Exception {
+        var op = new AuditoriaOperacion(7L, 3L, AuditoriaService.AVANCE_ETAPA, "admin", "req-9",
+                LocalDateTime.of(2031, 5, 2, 10, 0),
+                Map.of("estado_actual", new AuditoriaOperacion.Cambio("LISTO_RETIRAR", "ENTREGADO")));
+        when(auditoriaService.pagina("OT-0003", "abc", 1))
+                .thenReturn(new AuditoriaService.PaginaAuditoria(List.of(op), "def"));
+
+        mvc.perform(get("/public/ordenes/{nroOrden}/auditoria", "OT-0003")
+                        .param("cursor", "abc")
+                        .param("limite", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].operacion").value("AVANCE_ETAPA"))
+                .andExpect(jsonPath("$.items[0].correlacion").value("req-9"))
+                .andExpect(jsonPath("$.items[0].cambios.estado_actual.anterior").value("LISTO_RETIRAR"))
+                .andExpect(jsonPath("$.items[0].cambios.estado_actual.nuevo").value("ENTREGADO"))
+                .andExpect(jsonPath("$.siguiente").value("def"));
+    }
+
+    @Test
+    @DisplayName("GET /public/ordenes/{nro}/auditoria con cursor inválido → 400")
+    void auditoria_cursorInvalido_400() throws Exception {
+        when(auditoriaService.pagina("OT-0003", "x", null))
+                .thenThrow(new IllegalArgumentException("cursor inválido"));
+
+        mvc.perform(get("/public/ordenes/{nroOrden}/auditoria", "OT-0003").param("cursor", "x"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("X-Correlation-Id: se devuelve el recibido o uno generado")
+    void correlacion_header() throws Exception {
+        when(orderQueryService.getHistorialByNro("OT-0002")).thenReturn(Collections.emptyList());
+
+        mvc.perform(get("/public/ordenes/{nroOrden}/historial", "OT-0002")
+                        .header(CorrelacionFilter.HEADER, "req-123"))
+                .andExpect(header().string(CorrelacionFilter.HEADER, "req-123"));
 
-        verify(auditoriaService).listarPorNro("OT-0003");
+        mvc.perform(get("/public/ordenes/{nroOrden}/historial", "OT-0002")
+                        .header(CorrelacionFilter.HEADER, "no vale <script>"))
+                .andExpect(header().string(CorrelacionFilter.HEADER, not("no vale <script>")));
     }
-}
\ No newline at end of file
+}
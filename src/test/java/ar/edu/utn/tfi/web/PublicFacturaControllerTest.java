@@ -3,9 +3,14 @@ package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.security.SecurityConfig;
 import ar.edu.utn.tfi.service.FacturaMockService;
+import ar.edu.utn.tfi.service.FacturaPdfStore;
+import ar.edu.utn.tfi.service.RenderBulkhead;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -14,6 +19,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -30,26 +39,67 @@ class PublicFacturaControllerTest {
     @MockBean
     FacturaMockService facturaService;
 
+    @MockBean
+    RenderBulkhead bulkhead;
+
+    RenderBulkhead real = new RenderBulkhead(100, 0, 0, 1);
+
+    @BeforeEach
+    void permisosReales() {
+        when(bulkhead.entrar(anyString())).thenAnswer(inv -> real.entrar(inv.getArgument(0)));
+    }
+
+    @TempDir
+    Path dir;
+
     @Test
     @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} → 200 y PDF con header")
     void pdfBySolicitud_ok() throws Exception {
         byte[] pdf = "PDF-SOLICITUD".getBytes();
-        when(facturaService.renderPdfBySolicitud(10L)).thenReturn(pdf);
+        Path archivo = Files.write(dir.resolve("f.pdf"), pdf);
+        when(facturaService.pdfBySolicitud(10L)).thenReturn(Optional.of(new FacturaPdfStore.PdfGuardado(archivo, "h10")));
 
         mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 10L))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
                         containsString("factura-solicitud-10.pdf")))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"h10\""))
                 .andExpect(content().bytes(pdf));
 
-        verify(facturaService).renderPdfBySolicitud(10L);
+        verify(facturaService).pdfBySolicitud(10L);
+    }
+
+    @Test
+    @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} con el render saturado → 503 sin tocar el servicio")
+    void pdfBySolicitud_saturado() throws Exception {
+        when(bulkhead.entrar("factura-pdf")).thenThrow(new ServicioSaturadoException("Hay demasiados documentos", 5));
+
+        mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 12L))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+
+        verifyNoInteractions(facturaService);
+    }
+
+    @Test
+    @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} → 202 si la factura todavía no se emitió")
+    void pdfBySolicitud_pendiente() throws Exception {
+        when(facturaService.pdfBySolicitud(15L)).thenReturn(Optional.empty());
+
+        mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 15L))
+                .andExpect(status().isAccepted())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.estado").value("PENDIENTE"));
+
+        verify(facturaService).pdfBySolicitud(15L);
+        verifyNoMoreInteractions(facturaService);
     }
 
     @Test
     @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} → 404 NOT_FOUND")
     void pdfBySolicitud_notFound() throws Exception {
-        when(facturaService.renderPdfBySolicitud(20L))
+        when(facturaService.pdfBySolicitud(20L))
                 .thenThrow(new EntityNotFoundException("Factura no encontrada"));
 
         mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 20L))
@@ -57,13 +107,13 @@ class PublicFacturaControllerTest {
                 .andExpect(content().string(containsString("\"error\":\"NOT_FOUND\"")))
                 .andExpect(content().string(containsString("Factura no encontrada")));
 
-        verify(facturaService).renderPdfBySolicitud(20L);
+        verify(facturaService).pdfBySolicitud(20L);
     }
 
     @Test
     @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} → 409 CONFLICT")
     void pdfBySolicitud_conflict() throws Exception {
-        when(facturaService.renderPdfBySolicitud(30L))
+        when(facturaService.pdfBySolicitud(30L))
                 .thenThrow(new IllegalStateException("Pago final no acreditado"));
 
         mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 30L))
@@ -71,13 +121,13 @@ class PublicFacturaControllerTest {
                 .andExpect(content().string(containsString("\"error\":\"CONFLICT\"")))
                 .andExpect(content().string(containsString("Pago final no acreditado")));
 
-        verify(facturaService).renderPdfBySolicitud(30L);
+        verify(facturaService).pdfBySolicitud(30L);
     }
 
     @Test
     @DisplayName("GET /public/facturas/pdf/by-solicitud/{id} → 500 INTERNAL_ERROR")
     void pdfBySolicitud_internalError() throws Exception {
-        when(facturaService.renderPdfBySolicitud(40L))
+        when(facturaService.pdfBySolicitud(40L))
                 .thenThrow(new RuntimeException("Algo explotó"));
 
         mvc.perform(get("/public/facturas/pdf/by-solicitud/{id}", 40L))
@@ -86,6 +136,6 @@ class PublicFacturaControllerTest {
                 // Para que no moleste el encoding, sólo verificamos que aparece "Algo"
                 .andExpect(content().string(containsString("Algo")));
 
-        verify(facturaService).renderPdfBySolicitud(40L);
+        verify(facturaService).pdfBySolicitud(40L);
     }
 }
\ No newline at end of file
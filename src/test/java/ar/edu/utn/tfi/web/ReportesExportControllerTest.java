@@ -2,7 +2,10 @@
 package ar.edu.utn.tfi.web;
 
 import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.RenderBulkhead;
 import ar.edu.utn.tfi.service.ReporteExportService;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,14 +13,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.containsString;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -32,6 +46,21 @@ class ReportesExportControllerTest {
     @MockBean
     ReporteExportService exportService;
 
+    // mock que entrega permisos de un bulkhead real sin límite práctico: así se puede ver que se liberan
+    @MockBean
+    RenderBulkhead bulkhead;
+
+    RenderBulkhead real = new RenderBulkhead(100, 0, 0, 1);
+
+    @BeforeEach
+    void permisosReales() {
+        when(bulkhead.entrar(anyString())).thenAnswer(inv -> real.entrar(inv.getArgument(0)));
+    }
+
+    private int permisosEnUso() {
+        return (int) real.estadisticas().get("activos");
+    }
+
     @Test
     @DisplayName("GET /api/reportes/export clientes xlsx → devuelve archivo Excel y llama a clientesFrecuentesXlsx")
     void export_clientes_xlsx_ok() throws Exception {
@@ -85,4 +114,129 @@ class ReportesExportControllerTest {
 
         verify(exportService).motoresVsTapasPdf(from, to);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/reportes/export/filas ordenes → XLSX en streaming escrito por ordenesXlsx")
+    void exportFilas_ordenes_streaming() throws Exception {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to   = LocalDate.of(2025, 1, 31);
+
+        when(exportService.ordenesXlsx(eq(from), eq(to), any(OutputStream.class)))
+                .thenAnswer(inv -> {
+                    inv.<OutputStream>getArgument(2).write("XLSX-ORDENES".getBytes());
+                    return 1;
+                });
+
+        MvcResult async = mvc.perform(get("/api/reportes/export/filas")
+                        .param("reporte", "ordenes")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type",
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .andExpect(header().string("Content-Disposition",
+                        containsString("ordenes-2025-01-01_2025-01-31.xlsx")))
+                .andExpect(content().bytes("XLSX-ORDENES".getBytes()));
+
+        verify(exportService).ordenesXlsx(eq(from), eq(to), any(OutputStream.class));
+        assertEquals(0, permisosEnUso());
+    }
+
+    @Test
+    @DisplayName("GET /api/reportes/export/filas: si la escritura falla, el permiso se libera")
+    void exportFilas_error_liberaPermiso() throws Exception {
+        when(exportService.pagosXlsx(any(), any(), any(OutputStream.class)))
+                .thenThrow(new IOException("Broken pipe"));
+
+        MvcResult async = mvc.perform(get("/api/reportes/export/filas")
+                        .param("reporte", "pagos")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        async.getAsyncResult(5000);
+
+        assertEquals(0, permisosEnUso());
+    }
+
+    @Test
+    @DisplayName("GET /api/reportes/export/filas: si el request asíncrono se cierra antes (timeout / cliente que se fue), el permiso se libera")
+    void exportFilas_requestCerrado_liberaPermiso() throws Exception {
+        var trabado = new CountDownLatch(1);
+        var empezo = new CountDownLatch(1);
+        when(exportService.ordenesXlsx(any(), any(), any(OutputStream.class))).thenAnswer(inv -> {
+            empezo.countDown();
+            trabado.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+
+        MvcResult async = mvc.perform(get("/api/reportes/export/filas")
+                        .param("reporte", "ordenes")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(empezo.await(5, TimeUnit.SECONDS));
+        assertEquals(1, permisosEnUso());
+
+        // el contenedor da por terminado el request mientras el cuerpo sigue trabado
+        ((MockAsyncContext) async.getRequest().getAsyncContext()).complete();
+        assertEquals(0, permisosEnUso());
+
+        trabado.countDown();
+    }
+
+    @Test
+    @DisplayName("GET /api/reportes/export/filas con reporte desconocido → 400")
+    void exportFilas_reporteDesconocido() throws Exception {
+        mvc.perform(get("/api/reportes/export/filas")
+                        .param("reporte", "cualquiera")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    @DisplayName("GET /api/reportes/export con el bulkhead saturado → 503 con Retry-After, sin generar nada")
+    void export_saturado_503() throws Exception {
+        when(bulkhead.entrar(anyString())).thenThrow(new ServicioSaturadoException("saturado", 5));
+
+        mvc.perform(get("/api/reportes/export")
+                        .param("reporte", "clientes")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .param("format", "pdf")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    @DisplayName("GET /api/reportes/export/filas con el bulkhead saturado → 503 antes de empezar la respuesta")
+    void exportFilas_saturado_503() throws Exception {
+        when(bulkhead.entrar("xlsx-ordenes")).thenThrow(new ServicioSaturadoException("saturado", 5));
+
+        mvc.perform(get("/api/reportes/export/filas")
+                        .param("reporte", "ordenes")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+
+        verifyNoInteractions(exportService);
+    }
+}
@@ -0,0 +1,122 @@
+package ar.edu.utn.tfi.web;
+
+import ar.edu.utn.tfi.security.SecurityConfig;
+import ar.edu.utn.tfi.service.ExportJobService;
+import ar.edu.utn.tfi.service.ServicioSaturadoException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReportesExportJobController.class)
+@Import(SecurityConfig.class)
+@SuppressWarnings("removal")
+class ReportesExportJobControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    ExportJobService jobService;
+
+    @TempDir
+    Path dir;
+
+    static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    static final LocalDate TO = LocalDate.of(2025, 1, 31);
+
+    private static ExportJobService.ExportJobDTO job(String estado) {
+        return new ExportJobService.ExportJobDTO("job-1", "ordenes", FROM, TO, "xlsx",
+                estado, 0, null, null, Instant.now(), null);
+    }
+
+    @Test
+    @DisplayName("POST /api/reportes/export/jobs → 202 con id y Location")
+    void enviar_202() throws Exception {
+        when(jobService.enviar(new ExportJobService.ExportJobReq("ordenes", FROM, TO, "xlsx", null)))
+                .thenReturn(job("PENDIENTE"));
+
+        mvc.perform(post("/api/reportes/export/jobs")
+                        .param("reporte", "ordenes")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/reportes/export/jobs/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.estado").value("PENDIENTE"));
+    }
+
+    @Test
+    @DisplayName("POST con la cola llena → 503 + Retry-After")
+    void enviar_colaLlena_503() throws Exception {
+        when(jobService.enviar(any())).thenThrow(new ServicioSaturadoException("cola llena", 60));
+
+        mvc.perform(post("/api/reportes/export/jobs")
+                        .param("reporte", "pagos")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-01-31")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "60"));
+    }
+
+    @Test
+    @DisplayName("GET /{id}/archivo sin terminar → 409")
+    void archivo_noListo_409() throws Exception {
+        when(jobService.archivo("job-1")).thenThrow(new IllegalStateException("todavía no está lista"));
+
+        mvc.perform(get("/api/reportes/export/jobs/job-1/archivo")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("GET /{id}/archivo listo → descarga el archivo del disco")
+    void archivo_ok() throws Exception {
+        Path f = Files.write(dir.resolve("job-1.xlsx"), "XLSX".getBytes());
+        when(jobService.archivo("job-1")).thenReturn(f);
+        when(jobService.nombreArchivo("job-1")).thenReturn("ordenes-2025-01-01_2025-01-31.xlsx");
+
+        mvc.perform(get("/api/reportes/export/jobs/job-1/archivo")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type",
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .andExpect(header().string("Content-Disposition",
+                        containsString("ordenes-2025-01-01_2025-01-31.xlsx")))
+                .andExpect(content().bytes("XLSX".getBytes()));
+
+        verify(jobService).archivo("job-1");
+    }
+
+    @Test
+    @DisplayName("GET /{id} → estado del job")
+    void estado_ok() throws Exception {
+        when(jobService.estado("job-1")).thenReturn(job("EN_CURSO"));
+
+        mvc.perform(get("/api/reportes/export/jobs/job-1")
+                        .with(httpBasic("admin", "admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estado").value("EN_CURSO"))
+                .andExpect(jsonPath("$.from").value("2025-01-01"));
+    }
+}
@@ -29,7 +29,7 @@ class WebhookPagoControllerTest {
     WebhookPagoService webhookPagoService;
 
     @Test
-    @DisplayName("POST /pagos/webhook-mp → llama a procesarNotificacion con topic y data.id y devuelve ok")
+    @DisplayName("POST /pagos/webhook-mp → encola la notificación con topic y data.id y devuelve ok")
     void recibirPOST_ok() throws Exception {
         mvc.perform(post("/pagos/webhook-mp")
                         .param("type", "payment")
@@ -45,11 +45,11 @@ class WebhookPagoControllerTest {
 
         // topic tiene prioridad sobre type, data.id sobre id
         verify(webhookPagoService)
-                .procesarNotificacion("merchant_order", "12345", "req-1");
+                .encolarNotificacion("merchant_order", "12345", "req-1");
     }
 
     @Test
-    @DisplayName("GET /pagos/webhook-mp → llama a procesarNotificacion con type y id y devuelve ok")
+    @DisplayName("GET /pagos/webhook-mp → encola la notificación con type y id y devuelve ok")
     void recibirGET_ok() throws Exception {
         mvc.perform(get("/pagos/webhook-mp")
                         .param("type", "payment")
@@ -60,6 +60,6 @@ class WebhookPagoControllerTest {
 
         // cuando no hay topic ni data.id, usa type e id
         verify(webhookPagoService)
-                .procesarNotificacion("payment", "abc123", null);
+                .encolarNotificacion("payment", "abc123", null);
     }
 }
\ No newline at end of file